@@ -0,0 +1,79 @@
+package com.example.arango2rdb;
+
+import java.util.Arrays;
+
+/**
+ * One additive-increase/multiplicative-decrease setting. Latency samples are collected in windows; at the end of each
+ * window the p95 is compared with the target: under it the value grows by {@code increment}, over it the value
+ * halves. A failed request halves the value immediately and starts a new window. Safe to feed from several threads.
+ */
+final class AdaptiveLimit {
+    private static final double DECREASE_FACTOR = 0.5;
+
+    private final int min;
+    private final int max;
+    private final int increment;
+    private final long targetNanos;
+    private final boolean adaptive;
+    private final long[] window;
+    private final long[] sorted;
+    private int samples;
+    private volatile int value;
+    private volatile long lastP95Nanos = -1L;
+    private volatile long decreases;
+
+    AdaptiveLimit(int initial, int min, int max, int increment, long targetNanos, int windowSize, boolean adaptive) {
+        this.min = min;
+        this.max = max;
+        this.increment = Math.max(1, increment);
+        this.targetNanos = targetNanos;
+        this.adaptive = adaptive;
+        this.window = new long[windowSize];
+        this.sorted = new long[windowSize];
+        this.value = Math.max(min, Math.min(max, initial));
+    }
+
+    int value() {
+        return value;
+    }
+
+    long lastP95Nanos() {
+        return lastP95Nanos;
+    }
+
+    long decreases() {
+        return decreases;
+    }
+
+    synchronized void record(long nanos) {
+        window[samples++] = nanos;
+        if (samples < window.length) {
+            return;
+        }
+        samples = 0;
+        System.arraycopy(window, 0, sorted, 0, window.length);
+        Arrays.sort(sorted);
+        long p95 = sorted[(int) Math.ceil(sorted.length * 0.95) - 1];
+        lastP95Nanos = p95;
+        if (!adaptive) {
+            return;
+        }
+        if (p95 > targetNanos) {
+            decrease();
+        } else {
+            value = Math.min(max, value + increment);
+        }
+    }
+
+    synchronized void failed() {
+        samples = 0;
+        if (adaptive) {
+            decrease();
+        }
+    }
+
+    private void decrease() {
+        value = Math.max(min, (int) (value * DECREASE_FACTOR));
+        decreases++;
+    }
+}
@@ -7,9 +7,13 @@ import com.arangodb.ArangoCursor;
 import com.arangodb.entity.BaseDocument;
 import com.arangodb.entity.CollectionEntity;
 import com.example.arango2rdb.config.SyncConfig;
+import com.example.arango2rdb.sink.FileLoader;
+import com.example.arango2rdb.sink.FileSink;
+import com.example.arango2rdb.sink.SinkFormat;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -18,19 +22,50 @@ import java.sql.DatabaseMetaData;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
 public final class App {
     private static final String DEFAULT_CONFIG = "config/mapping.json";
+    private static final String SAMPLE_FLAG = "--sample=";
+    private static final int DEFAULT_SCHEMA_SAMPLE = 1000;
+    private static final String SINK_FLAG = "--sink=";
+    private static final String SINK_FILE_PREFIX = "file:";
+    private static final String FORMAT_FLAG = "--format=";
+    private static final String CHUNK_FLAG = "--chunk-mb=";
+    private static final int DEFAULT_CHUNK_MB = 256;
+    private static final String FROM_FLAG = "--from=";
+    private static final String THREADS_FLAG = "--threads=";
+    private static final int DEFAULT_LOAD_THREADS = 4;
+    private static final String MERGE_FLAG = "--merge=";
+    private static final String NODE_FLAG = "--node=";
 
     private App() {
     }
 
-    public static void main(String[] args) {
+    public static void main(String[] rawArgs) {
+        Set<String> flags = new LinkedHashSet<>();
+        List<String> positional = new ArrayList<>();
+        for (String arg : rawArgs) {
+            if (arg.startsWith("--")) {
+                flags.add(arg);
+            } else {
+                positional.add(arg);
+            }
+        }
+        String[] args = positional.toArray(new String[0]);
         String command = args.length > 0 ? args[0] : "sync";
+        String unknownFlag = unknownFlag(command, flags);
+        if (unknownFlag != null) {
+            System.err.printf(Locale.US, "Unknown option for %s: %s%n", command, unknownFlag);
+            printUsage();
+            System.exit(1);
+        }
         String configPathArg = determineConfigPath(args, command);
         Path configPath = Paths.get(configPathArg);
 
@@ -44,14 +79,30 @@ public final class App {
             SyncConfig config = loader.load(configPath);
             switch (command) {
                 case "sync":
-                    runSync(config);
+                    runSync(config, flags.contains("--profile"), openSink(rawArgs));
+                    break;
+                case "load":
+                    loadFiles(config, requiredFlag(rawArgs, FROM_FLAG),
+                            intFlag(rawArgs, THREADS_FLAG, DEFAULT_LOAD_THREADS, "load threads"));
+                    break;
+                case "daemon":
+                    runDaemon(config);
+                    break;
+                case "cluster":
+                    runCluster(config, flagValue(rawArgs, NODE_FLAG));
+                    break;
+                case "retry-dead-letters":
+                    retryDeadLetters(config, flagValue(rawArgs, MERGE_FLAG));
                     break;
                 case "describe-arango":
-                    describeArango(config);
+                    describeArango(config, flags.contains("--schema"), sampleSize(rawArgs));
                     break;
                 case "describe-rdb":
                     describeRdb(config);
                     break;
+                case "ensure-indexes":
+                    ensureIndexes(config, flags.contains("--dry-run"));
+                    break;
                 case "help":
                     printUsage();
                     break;
@@ -80,14 +131,159 @@ public final class App {
         return args[1];
     }
 
-    private static void runSync(SyncConfig config) throws SQLException {
+    /**
+     * Returns the first of {@code flags} that {@code command} does not accept, or {@code null} when all are known.
+     * Options taking a value are listed with their trailing {@code =}.
+     */
+    private static String unknownFlag(String command, Set<String> flags) {
+        List<String> accepted;
+        switch (command) {
+            case "sync":
+                accepted = List.of("--profile", SINK_FLAG, FORMAT_FLAG, CHUNK_FLAG);
+                break;
+            case "load":
+                accepted = List.of(FROM_FLAG, THREADS_FLAG);
+                break;
+            case "cluster":
+                accepted = List.of(NODE_FLAG);
+                break;
+            case "retry-dead-letters":
+                accepted = List.of(MERGE_FLAG);
+                break;
+            case "describe-arango":
+                accepted = List.of("--schema", SAMPLE_FLAG);
+                break;
+            case "ensure-indexes":
+                accepted = List.of("--dry-run");
+                break;
+            default:
+                accepted = List.of();
+        }
+        for (String flag : flags) {
+            boolean known = false;
+            for (String candidate : accepted) {
+                if (candidate.endsWith("=") ? flag.startsWith(candidate) : flag.equals(candidate)) {
+                    known = true;
+                    break;
+                }
+            }
+            if (!known) {
+                return flag;
+            }
+        }
+        return null;
+    }
+
+    private static int sampleSize(String[] rawArgs) {
+        return intFlag(rawArgs, SAMPLE_FLAG, DEFAULT_SCHEMA_SAMPLE, "sample size");
+    }
+
+    private static int intFlag(String[] rawArgs, String flag, int defaultValue, String description) {
+        String value = flagValue(rawArgs, flag);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid " + description + ": " + flag + value, ex);
+        }
+    }
+
+    private static String flagValue(String[] rawArgs, String flag) {
+        for (String arg : rawArgs) {
+            if (arg.startsWith(flag)) {
+                return arg.substring(flag.length());
+            }
+        }
+        return null;
+    }
+
+    private static String requiredFlag(String[] rawArgs, String flag) {
+        String value = flagValue(rawArgs, flag);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing required option " + flag + "<value>");
+        }
+        return value;
+    }
+
+    private static FileSink openSink(String[] rawArgs) throws IOException {
+        String sink = flagValue(rawArgs, SINK_FLAG);
+        if (sink == null) {
+            return null;
+        }
+        if (!sink.startsWith(SINK_FILE_PREFIX) || sink.length() == SINK_FILE_PREFIX.length()) {
+            throw new IllegalArgumentException("Unsupported sink " + sink + " (expected file:<directory>)");
+        }
+        String format = flagValue(rawArgs, FORMAT_FLAG);
+        long chunkMb = intFlag(rawArgs, CHUNK_FLAG, DEFAULT_CHUNK_MB, "chunk size");
+        return FileSink.open(Paths.get(sink.substring(SINK_FILE_PREFIX.length())),
+                format != null ? SinkFormat.parse(format) : SinkFormat.CSV_GZIP,
+                chunkMb * 1024L * 1024L);
+    }
+
+    private static void runSync(SyncConfig config, boolean profile, FileSink sink) throws SQLException, IOException {
         try (SyncService service = new SyncService(config)) {
+            SyncProfiler profiler = profile ? SyncProfiler.enabled() : SyncProfiler.disabled();
+            service.setProfiler(profiler);
+            service.setFileSink(sink);
             service.run();
+            if (sink != null) {
+                System.out.printf(Locale.US, "Wrote %s%n", sink.complete());
+            }
             System.out.println("Sync completed successfully.");
+            if (profiler.isEnabled()) {
+                System.out.println("Sync profile:");
+                System.out.print(profiler.report());
+            }
+        }
+    }
+
+    private static void runDaemon(SyncConfig config) throws InterruptedException {
+        SyncScheduler scheduler = new SyncScheduler(config, SyncListener.NONE);
+        Runtime.getRuntime().addShutdownHook(new Thread(scheduler::close, "sync-daemon-shutdown"));
+        scheduler.start();
+        System.out.println("Sync daemon running; stop it with Ctrl+C.");
+        scheduler.awaitClose();
+    }
+
+    private static void runCluster(SyncConfig config, String nodeId) throws SQLException, InterruptedException {
+        ClusterNode node = new ClusterNode(config, nodeId);
+        Runtime.getRuntime().addShutdownHook(new Thread(node::close, "cluster-node-shutdown"));
+        node.run();
+        System.out.printf(Locale.US, "Cluster node %s completed.%n", node.nodeId());
+    }
+
+    private static void retryDeadLetters(SyncConfig config, String mergeName) throws SQLException {
+        try (SyncService service = new SyncService(config)) {
+            service.retryDeadLetters(mergeName);
+            System.out.println("Dead-letter retry completed.");
         }
     }
 
-    private static void describeArango(SyncConfig config) {
+    private static void loadFiles(SyncConfig config, String directory, int threads) throws SQLException, IOException {
+        if (!config.rdb.jdbcUrl.startsWith("jdbc:postgresql:")) {
+            throw new IllegalArgumentException("load requires a PostgreSQL target, got " + config.rdb.jdbcUrl);
+        }
+        long applied = 0;
+        for (FileLoader.LoadResult result : new FileLoader(config.rdb, threads).load(Paths.get(directory))) {
+            System.out.printf(Locale.US, "Loaded merge %s -> table %s: %d rows in files, %d rows applied%n",
+                    result.merge(), result.table(), result.fileRows(), result.appliedRows());
+            applied += result.appliedRows();
+        }
+        System.out.printf(Locale.US, "Load completed successfully, %d rows applied.%n", applied);
+    }
+
+    private static void ensureIndexes(SyncConfig config, boolean dryRun) throws SQLException {
+        try (SyncService service = new SyncService(config)) {
+            List<IndexProvisioner.IndexAction> actions = service.ensureIndexes(null, dryRun);
+            long failed = actions.stream().filter(action -> action.outcome() == IndexProvisioner.Outcome.FAILED).count();
+            System.out.printf(Locale.US, "%d indexes checked, %d failed%s.%n",
+                    actions.size(), failed, dryRun ? " (dry run, nothing created)" : "");
+        }
+    }
+
+    private static void describeArango(SyncConfig config, boolean schema, int sampleSize) {
         SyncConfig.ArangoConfig arango = config.arango;
         ArangoDB.Builder builder = new ArangoDB.Builder()
                 .host(arango.host, arango.port)
@@ -101,6 +297,10 @@ public final class App {
         ArangoDB arangoDB = builder.build();
         try {
             ArangoDatabase database = arangoDB.db(arango.database);
+            if (schema) {
+                describeArangoSchema(database, arango.database, sampleSize);
+                return;
+            }
             System.out.printf(Locale.US, "Collections in database %s:%n", arango.database);
             for (CollectionEntity entity : database.getCollections()) {
                 if (Boolean.TRUE.equals(entity.getIsSystem())) {
@@ -136,6 +336,31 @@ public final class App {
         }
     }
 
+    private static void describeArangoSchema(ArangoDatabase database, String databaseName, int sampleSize) {
+        ArangoSchemaInspector inspector = new ArangoSchemaInspector(database, sampleSize);
+        System.out.printf(Locale.US, "Inferred attributes in database %s (%s):%n", databaseName,
+                sampleSize > 0 ? "sample of " + sampleSize + " docs per collection" : "full scan");
+        for (CollectionEntity entity : database.getCollections()) {
+            if (Boolean.TRUE.equals(entity.getIsSystem())) {
+                continue;
+            }
+            ArangoSchemaInspector.CollectionSchema schema;
+            try {
+                schema = inspector.inspect(entity.getName());
+            } catch (Exception ex) {
+                System.out.printf(Locale.US, "- %s: <unavailable> %s%n", entity.getName(), ex.getMessage());
+                continue;
+            }
+            System.out.printf(Locale.US, "- %s (%d docs inspected)%n", entity.getName(), schema.documents());
+            for (ArangoSchemaInspector.AttributeStats attribute : schema.attributes()) {
+                System.out.printf(Locale.US, "  %-40s null/missing %5.1f%%  %s%n",
+                        "  ".repeat(attribute.depth() - 1) + attribute.path(),
+                        100.0 * attribute.nullRate(schema.documents()),
+                        attribute.describeTypes(schema.documents()));
+            }
+        }
+    }
+
     private static String toJson(ObjectMapper mapper, Map<String, Object> properties) {
         try {
             return mapper.writeValueAsString(properties);
@@ -176,11 +401,28 @@ public final class App {
     }
 
     private static void printUsage() {
-        System.out.println("Usage: java -jar arango2rdb-sync.jar <command> [configPath]");
+        System.out.println("Usage: java -jar arango2rdb-sync.jar <command> [options] [configPath]");
         System.out.println("Commands:");
         System.out.println("  sync [configPath]            Sync data from ArangoDB to the relational DB");
+        System.out.println("       --profile               Print per-stage timings and allocations per merge");
+        System.out.println("       --sink=file:DIR         Write rows to chunk files in DIR instead of the tables");
+        System.out.println("       --format=FORMAT         File format: csv-gzip (default), csv-zstd or pgbinary");
+        System.out.printf(Locale.US, "       --chunk-mb=N            Start a new file every N MB (default %d)%n", DEFAULT_CHUNK_MB);
+        System.out.println("  load [configPath]            Load a file sink extract into PostgreSQL with parallel COPY");
+        System.out.println("       --from=DIR              Extract directory containing manifest.json");
+        System.out.printf(Locale.US, "       --threads=N             Parallel COPY connections (default %d)%n", DEFAULT_LOAD_THREADS);
+        System.out.println("  daemon [configPath]          Run merges with a schedule on their intervals until stopped");
+        System.out.println("  cluster [configPath]         Share a sync with other nodes through the PostgreSQL work table");
+        System.out.println("       --node=NAME             Node name in the work table (default pid@hostname)");
+        System.out.println("  retry-dead-letters [configPath] Re-sync only the documents recorded as dead letters");
+        System.out.println("       --merge=NAME            Only retry the dead letters of this merge");
         System.out.println("  describe-arango [configPath] Print ArangoDB collections with a sample document");
+        System.out.println("       --schema                Infer attribute types and null rates in the database instead");
+        System.out.printf(Locale.US, "       --sample=N              Documents to inspect per collection (default %d, 0 = all)%n",
+                DEFAULT_SCHEMA_SAMPLE);
         System.out.println("  describe-rdb [configPath]    Print relational database tables and columns");
+        System.out.println("  ensure-indexes [configPath]  Create join and upsert key indexes the merges need");
+        System.out.println("       --dry-run               Only report the indexes that would be created");
         System.out.println("  help                         Show this message");
         System.out.printf(Locale.US, "Default config path: %s%n", DEFAULT_CONFIG);
     }
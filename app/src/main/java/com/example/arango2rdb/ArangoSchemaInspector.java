@@ -0,0 +1,155 @@
+package com.example.arango2rdb;
+
+import com.arangodb.ArangoCursor;
+import com.arangodb.ArangoDatabase;
+import com.arangodb.entity.BaseDocument;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Infers the attribute structure of a collection with an AQL aggregation that runs inside ArangoDB: every top-level
+ * attribute and the attributes of nested objects one level down are grouped by path and {@code TYPENAME}, so only
+ * the per-path counts cross the wire. Results are cached per collection and reused while the collection revision
+ * is unchanged.
+ */
+public class ArangoSchemaInspector {
+    public static final int FULL_SCAN = 0;
+
+    private static final String ATTRIBUTES_QUERY = "FOR doc IN @@collection "
+            + "%s"
+            + "FOR attr IN ATTRIBUTES(doc, true) "
+            + "LET value = doc[attr] "
+            + "LET nested = IS_OBJECT(value) "
+            + "? (FOR sub IN ATTRIBUTES(value) RETURN { path: CONCAT(attr, '.', sub), depth: 2, value: value[sub] }) "
+            + ": [] "
+            + "FOR entry IN APPEND([{ path: attr, depth: 1, value: value }], nested) "
+            + "COLLECT path = entry.path, depth = entry.depth, type = TYPENAME(entry.value) WITH COUNT INTO n "
+            + "RETURN { path, depth, type, n }";
+    private static final String SAMPLED_COUNT_QUERY = "RETURN LENGTH(FOR doc IN @@collection LIMIT @sample RETURN 1)";
+    private static final String FULL_COUNT_QUERY = "RETURN LENGTH(@@collection)";
+    private static final String NULL_TYPE = "null";
+
+    private final ArangoDatabase database;
+    private final int sampleSize;
+    private final Map<String, CollectionSchema> cache = new ConcurrentHashMap<>();
+
+    /**
+     * @param sampleSize number of documents to aggregate per collection, in storage order, or {@link #FULL_SCAN}
+     */
+    public ArangoSchemaInspector(ArangoDatabase database, int sampleSize) {
+        this.database = database;
+        this.sampleSize = Math.max(FULL_SCAN, sampleSize);
+    }
+
+    public CollectionSchema inspect(String collection) {
+        String revision = database.collection(collection).getRevision().getRevision();
+        CollectionSchema cached = cache.get(collection);
+        if (cached != null && Objects.equals(cached.revision(), revision)) {
+            return cached;
+        }
+        CollectionSchema schema = infer(collection, revision);
+        cache.put(collection, schema);
+        return schema;
+    }
+
+    private CollectionSchema infer(String collection, String revision) {
+        boolean fullScan = sampleSize == FULL_SCAN;
+        Map<String, Object> bindVars = new HashMap<>();
+        bindVars.put("@collection", collection);
+        if (!fullScan) {
+            bindVars.put("sample", sampleSize);
+        }
+
+        long documents = 0L;
+        try (ArangoCursor<Long> cursor = database.query(
+                fullScan ? FULL_COUNT_QUERY : SAMPLED_COUNT_QUERY, bindVars, null, Long.class)) {
+            if (cursor.hasNext()) {
+                documents = cursor.next();
+            }
+        } catch (Exception ex) {
+            throw new IllegalStateException("Failed to count documents of " + collection, ex);
+        }
+
+        Map<String, AttributeStats> attributes = new LinkedHashMap<>();
+        String query = String.format(Locale.ROOT, ATTRIBUTES_QUERY, fullScan ? "" : "LIMIT @sample ");
+        try (ArangoCursor<BaseDocument> cursor = database.query(query, bindVars, null, BaseDocument.class)) {
+            while (cursor.hasNext()) {
+                Map<String, Object> row = cursor.next().getProperties();
+                String path = String.valueOf(row.get("path"));
+                int depth = ((Number) row.get("depth")).intValue();
+                long count = ((Number) row.get("n")).longValue();
+                attributes.computeIfAbsent(path, key -> new AttributeStats(key, depth, new LinkedHashMap<>()))
+                        .types()
+                        .merge(String.valueOf(row.get("type")), count, Long::sum);
+            }
+        } catch (Exception ex) {
+            throw new IllegalStateException("Failed to infer schema of " + collection, ex);
+        }
+
+        List<AttributeStats> ordered = new ArrayList<>(attributes.values());
+        ordered.sort(Comparator.comparingLong(AttributeStats::present).reversed().thenComparing(AttributeStats::path));
+        return new CollectionSchema(collection, revision, documents, fullScan, ordered);
+    }
+
+    /**
+     * Inferred structure of one collection. {@code documents} is the number of documents aggregated, which is the
+     * sample size unless {@code fullScan} is set or the collection is smaller.
+     */
+    public record CollectionSchema(String collection,
+                                   String revision,
+                                   long documents,
+                                   boolean fullScan,
+                                   List<AttributeStats> attributes) {
+
+        public List<AttributeStats> topLevel() {
+            return attributes.stream().filter(attribute -> attribute.depth() == 1).toList();
+        }
+    }
+
+    /**
+     * Occurrences of one attribute path by {@code TYPENAME}; nested paths use dot notation.
+     */
+    public record AttributeStats(String path, int depth, Map<String, Long> types) {
+
+        public long present() {
+            return types.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        public long nulls() {
+            return types.getOrDefault(NULL_TYPE, 0L);
+        }
+
+        /**
+         * Share of {@code documents} where the attribute is missing or null.
+         */
+        public double nullRate(long documents) {
+            if (documents <= 0) {
+                return 0.0;
+            }
+            return (double) (documents - present() + nulls()) / documents;
+        }
+
+        /**
+         * Renders the type distribution as e.g. {@code "string 97.5%, null 2.5%"} relative to {@code documents}.
+         */
+        public String describeTypes(long documents) {
+            StringBuilder out = new StringBuilder();
+            for (Map.Entry<String, Long> entry : types.entrySet()) {
+                if (out.length() > 0) {
+                    out.append(", ");
+                }
+                double share = documents > 0 ? 100.0 * entry.getValue() / documents : 0.0;
+                out.append(String.format(Locale.US, "%s %.1f%%", entry.getKey(), share));
+            }
+            return out.toString();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.arango2rdb;
+
+import com.example.arango2rdb.config.SyncConfig;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One instance of the {@code cluster} command. Any number of nodes, on one host or many, share a sync through the
+ * {@link WorkItemStore} in the target PostgreSQL database: the first node seeds a generation of work items, a merge
+ * or a key range of a large merge each, and every node claims and runs items until none are left. While a node runs
+ * an item, a heartbeat thread renews its lease; a node that dies stops renewing, and another node takes the item over
+ * once the lease expires. A node whose lease was taken over cancels its run at the next batch boundary. Upserts are
+ * idempotent, so an item run twice, in part or in full, leaves the same rows.
+ */
+public final class ClusterNode implements AutoCloseable {
+    private static final long SHUTDOWN_WAIT_SECONDS = 30;
+
+    private final SyncConfig config;
+    private final SyncConfig.ClusterConfig settings;
+    private final String nodeId;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private final ScheduledExecutorService heartbeat;
+    private volatile boolean closed;
+    private volatile WorkItemStore.WorkItem current;
+    private volatile boolean leaseLost;
+
+    /**
+     * {@code nodeId} names this node in the work table, or is {@code null} for {@code pid@hostname}.
+     */
+    public ClusterNode(SyncConfig config, String nodeId) {
+        if (!config.rdb.jdbcUrl.startsWith("jdbc:postgresql:")) {
+            throw new IllegalArgumentException("cluster requires a PostgreSQL target, got " + config.rdb.jdbcUrl);
+        }
+        this.config = config;
+        this.settings = config.cluster;
+        this.nodeId = nodeId != null && !nodeId.isBlank() ? nodeId : defaultNodeId();
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cluster-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Joins the open generation, or seeds a new one, and runs work items until every item of it is done or failed,
+     * or the node is closed. Fails when any item of the generation failed for good.
+     */
+    public void run() throws SQLException, InterruptedException {
+        SyncConfig.RdbConfig rdb = config.rdb;
+        try (WorkItemStore store = new WorkItemStore(DriverManager.getConnection(rdb.jdbcUrl, rdb.user, rdb.password),
+                settings.workTable, settings.leaseSeconds, settings.maxAttempts)) {
+            store.ensureTable();
+            SyncService service = openService();
+            try {
+                SyncService planner = service;
+                long generation = store.openOrSeed(() -> plan(planner));
+                System.out.printf(Locale.US, "Node %s working on generation %d%n", nodeId, generation);
+                while (!closed) {
+                    WorkItemStore.WorkItem item = store.claim(generation, nodeId);
+                    if (item == null) {
+                        if (store.progress(generation).isFinished()) {
+                            break;
+                        }
+                        // Other nodes hold the remaining items; wait for them to finish or for a lease to expire.
+                        stopped.await(settings.pollSeconds, TimeUnit.SECONDS);
+                        continue;
+                    }
+                    if (!runItem(store, service, item)) {
+                        service.close();
+                        service = openService();
+                    }
+                }
+                WorkItemStore.Progress progress = store.progress(generation);
+                System.out.printf(Locale.US, "Node %s stopped; %s%n", nodeId, progress);
+                if (!closed && progress.failed() > 0) {
+                    throw new SQLException(progress.failed() + " work items of generation " + generation
+                            + " failed; see " + settings.workTable);
+                }
+            } finally {
+                service.close();
+            }
+        } finally {
+            heartbeat.shutdownNow();
+            finished.countDown();
+        }
+    }
+
+    /**
+     * Stops the node: a run in progress is cancelled at its next batch boundary and its item handed back. Waits for
+     * {@link #run()} to return, so a shutdown hook can hand the item back before the JVM exits.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        stopped.countDown();
+        try {
+            finished.await(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs one item under a renewed lease and records the outcome; returns false when the service failed and must
+     * be replaced.
+     */
+    private boolean runItem(WorkItemStore store, SyncService service, WorkItemStore.WorkItem item) throws SQLException {
+        System.out.printf(Locale.US, "Node %s running %s (attempt %d)%n", nodeId, item, item.attempt());
+        current = item;
+        leaseLost = false;
+        ScheduledFuture<?> renewal = heartbeat.scheduleAtFixedRate(() -> renew(store, item),
+                settings.heartbeatSeconds, settings.heartbeatSeconds, TimeUnit.SECONDS);
+        try {
+            service.runPartition(item.mergeName(), item.range());
+        } catch (SyncCancelledException ex) {
+            if (leaseLost) {
+                System.err.printf(Locale.US, "Node %s lost the lease on %s; another node runs it%n", nodeId, item);
+            } else {
+                store.release(item, nodeId);
+            }
+            return true;
+        } catch (SQLException | RuntimeException ex) {
+            System.err.printf(Locale.US, "Node %s failed %s: %s%n", nodeId, item, ex.getMessage());
+            store.fail(item, nodeId, ex.getMessage());
+            return false;
+        } finally {
+            renewal.cancel(false);
+            current = null;
+        }
+        if (!store.complete(item, nodeId)) {
+            System.err.printf(Locale.US, "Node %s finished %s after its lease expired%n", nodeId, item);
+        }
+        return true;
+    }
+
+    private void renew(WorkItemStore store, WorkItemStore.WorkItem item) {
+        try {
+            if (!store.renew(item, nodeId) && current == item) {
+                leaseLost = true;
+            }
+        } catch (SQLException ex) {
+            // Without a renewal the lease runs out, so stop before another node takes the item over.
+            System.err.printf(Locale.US, "Node %s could not renew its lease on %s: %s%n", nodeId, item, ex.getMessage());
+            if (current == item) {
+                leaseLost = true;
+            }
+        }
+    }
+
+    /**
+     * The work items of a new generation. Split merges start from an empty dead-letter table, since their items
+     * only record dead letters for their own key range.
+     */
+    private List<WorkItemStore.Planned> plan(SyncService service) throws SQLException {
+        if (config.ensureIndexes) {
+            // Once here, so nodes do not race each other creating the same indexes.
+            service.ensureIndexes(null, false);
+        }
+        List<WorkItemStore.Planned> items = new ArrayList<>();
+        for (SyncConfig.MergeMapping merge : config.merges) {
+            List<String> keys = service.splitKeys(merge.name, settings.partitionDocuments, settings.maxPartitions);
+            if (keys.isEmpty()) {
+                items.add(new WorkItemStore.Planned(merge.name, 0, 1, null));
+                continue;
+            }
+            service.clearDeadLetters(merge.name);
+            int partitions = keys.size() + 1;
+            for (int i = 0; i < partitions; i++) {
+                items.add(new WorkItemStore.Planned(merge.name, i, partitions, new KeyRange(
+                        i > 0 ? keys.get(i - 1) : null,
+                        i < keys.size() ? keys.get(i) : null)));
+            }
+            System.out.printf(Locale.US, "Merge %s split into %d key ranges%n", merge.name, partitions);
+        }
+        return items;
+    }
+
+    private SyncService openService() throws SQLException {
+        SyncService service = new SyncService(config);
+        service.setListener(new SyncListener() {
+            @Override
+            public boolean isCancelled() {
+                return closed || leaseLost;
+            }
+        });
+        return service;
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException ex) {
+            host = "localhost";
+        }
+        return ProcessHandle.current().pid() + "@" + host;
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.arango2rdb;
+
+import com.arangodb.entity.BaseDocument;
+import com.example.arango2rdb.dialect.SqlDialect;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The dead-letter table: one row per main document a merge could not convert or write, keyed by merge name and
+ * document {@code _key}, with the error and the document as JSON. It lives next to the tables it reports on: in the
+ * repository schema for repository syncs, in the default schema otherwise. Writes go through the sync's connection
+ * and transaction, so they commit or roll back with the merge that produced them.
+ */
+final class DeadLetterStore {
+    private static final int MAX_ERROR_LENGTH = 4000;
+    private static final int DELETE_BATCH = 500;
+
+    private final Connection connection;
+    private final SqlDialect dialect;
+    private final String schema;
+    private final String tableName;
+    private final String table;
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+
+    DeadLetterStore(Connection connection, SqlDialect dialect, String schema, String tableName) {
+        this.connection = connection;
+        this.dialect = dialect;
+        this.schema = schema;
+        this.tableName = tableName;
+        this.table = schema == null
+                ? dialect.quoteIdentifier(tableName)
+                : dialect.quoteIdentifier(schema) + "." + dialect.quoteIdentifier(tableName);
+    }
+
+    /**
+     * Creates the table unless it exists, and commits.
+     */
+    void ensureTable() throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        for (String pattern : new String[]{tableName, tableName.toUpperCase(Locale.ROOT), tableName.toLowerCase(Locale.ROOT)}) {
+            try (ResultSet tables = metaData.getTables(connection.getCatalog(),
+                    schema != null ? schema : connection.getSchema(), pattern,
+                    new String[]{"TABLE"})) {
+                if (tables.next()) {
+                    return;
+                }
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE " + table + " ("
+                    + column("merge_name") + " VARCHAR(255) NOT NULL, "
+                    + column("document_key") + " VARCHAR(255) NOT NULL, "
+                    + column("row_key") + " VARCHAR(1024), "
+                    + column("target_table") + " VARCHAR(255) NOT NULL, "
+                    + column("error_message") + " VARCHAR(" + MAX_ERROR_LENGTH + ") NOT NULL, "
+                    + column("document") + " " + dialect.largeTextType() + ", "
+                    + column("failed_at") + " TIMESTAMP NOT NULL, "
+                    + "PRIMARY KEY (" + column("merge_name") + ", " + column("document_key") + "))");
+        }
+        connection.commit();
+        System.out.printf(Locale.US, "Created dead-letter table %s%n",
+                schema == null ? tableName : schema + "." + tableName);
+    }
+
+    /**
+     * Replaces the dead letter of {@code document} for {@code merge}.
+     */
+    void record(String merge, BaseDocument document, Object rowKey, String targetTable, Throwable error)
+            throws SQLException {
+        try (PreparedStatement delete = connection.prepareStatement("DELETE FROM " + table + " WHERE "
+                + column("merge_name") + " = ? AND " + column("document_key") + " = ?")) {
+            delete.setString(1, merge);
+            delete.setString(2, document.getKey());
+            delete.executeUpdate();
+        }
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + table + " ("
+                + column("merge_name") + ", " + column("document_key") + ", " + column("row_key") + ", "
+                + column("target_table") + ", " + column("error_message") + ", " + column("document") + ", "
+                + column("failed_at") + ") VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            insert.setString(1, merge);
+            insert.setString(2, document.getKey());
+            insert.setString(3, rowKey != null ? rowKey.toString() : null);
+            insert.setString(4, targetTable);
+            insert.setString(5, describe(error));
+            insert.setString(6, toJson(document));
+            insert.setTimestamp(7, Timestamp.from(Instant.now()));
+            insert.executeUpdate();
+        }
+    }
+
+    /**
+     * Deletes every dead letter of {@code merge}, before a full run of it records its own.
+     */
+    void clear(String merge) throws SQLException {
+        try (PreparedStatement delete = connection.prepareStatement("DELETE FROM " + table + " WHERE "
+                + column("merge_name") + " = ?")) {
+            delete.setString(1, merge);
+            delete.executeUpdate();
+        }
+    }
+
+    /**
+     * Deletes the dead letters of {@code documentKeys}, after a retry wrote them.
+     */
+    void remove(String merge, Collection<String> documentKeys) throws SQLException {
+        if (documentKeys.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement delete = connection.prepareStatement("DELETE FROM " + table + " WHERE "
+                + column("merge_name") + " = ? AND " + column("document_key") + " = ?")) {
+            int pending = 0;
+            for (String key : documentKeys) {
+                delete.setString(1, merge);
+                delete.setString(2, key);
+                delete.addBatch();
+                if (++pending == DELETE_BATCH) {
+                    delete.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                delete.executeBatch();
+            }
+        }
+    }
+
+    List<String> documentKeys(String merge) throws SQLException {
+        List<String> keys = new ArrayList<>();
+        try (PreparedStatement select = connection.prepareStatement("SELECT " + column("document_key") + " FROM "
+                + table + " WHERE " + column("merge_name") + " = ? ORDER BY " + column("document_key"))) {
+            select.setString(1, merge);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    keys.add(rs.getString(1));
+                }
+            }
+        }
+        return keys;
+    }
+
+    private String column(String name) {
+        return dialect.quoteIdentifier(name);
+    }
+
+    private static String describe(Throwable error) {
+        StringBuilder message = new StringBuilder(String.valueOf(error.getMessage()));
+        for (Throwable cause = error.getCause(); cause != null && cause != cause.getCause(); cause = cause.getCause()) {
+            message.append("; caused by: ").append(cause.getMessage());
+        }
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message.toString();
+    }
+
+    private String toJson(BaseDocument document) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("_key", document.getKey());
+        map.put("_id", document.getId());
+        map.put("_rev", document.getRevision());
+        map.putAll(document.getProperties());
+        try {
+            return jsonMapper.writeValueAsString(map);
+        } catch (JsonProcessingException ex) {
+            return map.toString();
+        }
+    }
+}
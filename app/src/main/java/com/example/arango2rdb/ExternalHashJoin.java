@@ -0,0 +1,499 @@
+package com.example.arango2rdb;
+
+import com.arangodb.ArangoCursor;
+import com.arangodb.ArangoDBException;
+import com.arangodb.ArangoDatabase;
+import com.arangodb.entity.BaseDocument;
+import com.arangodb.model.AqlQueryOptions;
+import com.example.arango2rdb.config.SyncConfig;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Grace hash join of the main collection against one join collection that is too large to look up document by
+ * document. The join collection is streamed once and partitioned by a hash of {@code foreignField} into spill files;
+ * the main documents are partitioned the same way by {@code localField}. Each pair of partitions is then joined in
+ * memory: the join side is loaded into a hash table and the main side is streamed past it from a memory-mapped file.
+ * A partition whose join side would not fit {@code memoryBudgetMb} is split again with a different hash seed.
+ *
+ * <p>All spill files live in one temporary directory that {@link #close()} removes, whether the merge finished or not.
+ */
+class ExternalHashJoin implements AutoCloseable {
+    private static final int SCAN_BATCH_SIZE = 1000;
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+    private static final long MAP_WINDOW_BYTES = 64L * 1024 * 1024;
+    // Deserialized documents take several times their JSON size on the heap.
+    private static final int HEAP_EXPANSION = 3;
+    private static final int MAX_SPLIT_DEPTH = 3;
+    private static final int NULL_KEY = -1;
+
+    private final ArangoDatabase arangoDatabase;
+    private final SyncConfig.MergeJoin join;
+    private final String buildQuery;
+    private final Function<BaseDocument, Object> probeKey;
+    private final SyncProfiler profiler;
+    private final String stage;
+    private final long memoryBudgetBytes;
+    private final int partitions;
+    private final Path directory;
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+    private final Deque<PartitionPair> pending = new ArrayDeque<>();
+    private int fileCounter;
+
+    private PartitionPair currentPair;
+    private SpillReader probeReader;
+    private Map<String, BaseDocument> table;
+    private BaseDocument mainDocument;
+    private BaseDocument matched;
+
+    /**
+     * @param buildQuery AQL that returns {@code {k: <foreignField value>, d: <document or projection>}} for every
+     *                   document of the join collection
+     * @param probeKey   extracts the {@code localField} value from a main document
+     */
+    ExternalHashJoin(ArangoDatabase arangoDatabase,
+                     SyncConfig.MergeJoin join,
+                     String buildQuery,
+                     Function<BaseDocument, Object> probeKey,
+                     SyncConfig.HashJoinConfig config,
+                     SyncProfiler profiler) throws SQLException {
+        this.arangoDatabase = arangoDatabase;
+        this.join = join;
+        this.buildQuery = buildQuery;
+        this.probeKey = probeKey;
+        this.profiler = profiler;
+        this.stage = SyncProfiler.joinStage(join.alias);
+        this.memoryBudgetBytes = config.memoryBudgetMb * 1024 * 1024;
+        this.partitions = config.partitions;
+        try {
+            Path parent = config.spillDirectory == null || config.spillDirectory.isBlank()
+                    ? Paths.get(System.getProperty("java.io.tmpdir"))
+                    : Paths.get(config.spillDirectory);
+            Files.createDirectories(parent);
+            this.directory = Files.createTempDirectory(parent, "a2r-hashjoin-" + join.alias + "-");
+        } catch (IOException ex) {
+            throw new SQLException("Failed to create spill directory for hash join " + join.alias, ex);
+        }
+    }
+
+    /**
+     * Partitions both sides. Returns false when {@code cancelled} became true part way; nothing can be read then.
+     */
+    boolean partition(MainDocumentReader mainReader, BooleanSupplier cancelled) throws SQLException {
+        long start = profiler.start();
+        try {
+            // The main side is drained first so its pages are read at the pace the throughput controller sets, before
+            // the join collection scan competes with them.
+            SpillWriter[] probe = openWriters("probe", partitions);
+            SpillWriter unkeyed = new SpillWriter(nextFile("probe-null"));
+            long probeRows = 0;
+            try {
+                BaseDocument document;
+                while ((document = mainReader.nextDocument()) != null) {
+                    String key = joinKey(probeKey.apply(document));
+                    byte[] json = jsonMapper.writeValueAsBytes(toMap(document));
+                    if (key == null) {
+                        unkeyed.write(null, json);
+                    } else {
+                        probe[partitionOf(key, 0)].write(key, json);
+                    }
+                    if (++probeRows % SCAN_BATCH_SIZE == 0 && cancelled.getAsBoolean()) {
+                        return false;
+                    }
+                }
+            } finally {
+                closeAll(probe);
+                unkeyed.close();
+            }
+
+            SpillWriter[] build = openWriters("build", partitions);
+            long buildRows = 0;
+            try (ArangoCursor<BaseDocument> cursor = arangoDatabase.query(
+                    buildQuery,
+                    Map.of(),
+                    new AqlQueryOptions().batchSize(SCAN_BATCH_SIZE).stream(true),
+                    BaseDocument.class)) {
+                while (cursor.hasNext()) {
+                    BaseDocument row = cursor.next();
+                    String key = joinKey(row.getAttribute("k"));
+                    Object document = row.getAttribute("d");
+                    if (key == null || document == null) {
+                        continue;
+                    }
+                    build[partitionOf(key, 0)].write(key, jsonMapper.writeValueAsBytes(document));
+                    if (++buildRows % SCAN_BATCH_SIZE == 0 && cancelled.getAsBoolean()) {
+                        return false;
+                    }
+                }
+            } finally {
+                closeAll(build);
+            }
+
+            // Main documents without a join value only need the join's absence; they go first with an empty table.
+            pending.add(new PartitionPair(null, unkeyed, 0));
+            for (int i = 0; i < partitions; i++) {
+                if (probe[i].rows > 0) {
+                    pending.add(new PartitionPair(build[i], probe[i], 0));
+                } else {
+                    delete(build[i].file);
+                    delete(probe[i].file);
+                }
+            }
+            System.out.printf(Locale.US, "Hash join %s: partitioned %d %s and %d main documents into %d partitions%n",
+                    join.alias, buildRows, join.collection, probeRows, partitions);
+            return true;
+        } catch (IOException ex) {
+            throw new SQLException("Failed to spill hash join " + join.alias, ex);
+        } catch (ArangoDBException ex) {
+            throw new SQLException("Failed to scan join collection " + join.collection, ex);
+        } finally {
+            profiler.stop(stage, start);
+        }
+    }
+
+    /**
+     * Advances to the next main document; {@link #mainDocument()} and {@link #matched()} then describe it.
+     */
+    boolean next() throws SQLException {
+        try {
+            while (true) {
+                if (probeReader != null) {
+                    SpillRecord record = probeReader.read();
+                    if (record != null) {
+                        mainDocument = new BaseDocument(readMap(record.json));
+                        matched = record.key == null ? null : table.get(record.key);
+                        return true;
+                    }
+                    finishPair();
+                }
+                if (pending.isEmpty()) {
+                    mainDocument = null;
+                    matched = null;
+                    return false;
+                }
+                startPair(pending.pop());
+            }
+        } catch (IOException ex) {
+            throw new SQLException("Failed to read hash join spill files for " + join.alias, ex);
+        }
+    }
+
+    BaseDocument mainDocument() {
+        return mainDocument;
+    }
+
+    /**
+     * The join document for the current main document, or null when none matched.
+     */
+    BaseDocument matched() {
+        return matched;
+    }
+
+    @Override
+    public void close() {
+        table = null;
+        if (probeReader != null) {
+            probeReader.close();
+            probeReader = null;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(ExternalHashJoin::delete);
+        } catch (IOException ex) {
+            System.err.printf(Locale.US, "Failed to list spill directory %s: %s%n", directory, ex.getMessage());
+        }
+        delete(directory);
+    }
+
+    private void startPair(PartitionPair pair) throws IOException {
+        long start = profiler.start();
+        try {
+            if (pair.build != null && pair.build.bytes * HEAP_EXPANSION > memoryBudgetBytes
+                    && pair.depth < MAX_SPLIT_DEPTH) {
+                split(pair);
+                return;
+            }
+            if (pair.build != null && pair.build.bytes * HEAP_EXPANSION > memoryBudgetBytes) {
+                System.out.printf(Locale.US, "Hash join %s: partition of %d bytes still exceeds the memory budget "
+                        + "after %d splits (skewed join key); loading it anyway%n", join.alias, pair.build.bytes, pair.depth);
+            }
+            table = new HashMap<>();
+            if (pair.build != null) {
+                try (SpillReader reader = new SpillReader(pair.build.file)) {
+                    SpillRecord record;
+                    while ((record = reader.read()) != null) {
+                        // The first document per key wins, as LIMIT 1 does for lookups.
+                        if (!table.containsKey(record.key)) {
+                            table.put(record.key, new BaseDocument(readMap(record.json)));
+                        }
+                    }
+                }
+                delete(pair.build.file);
+            }
+            currentPair = pair;
+            probeReader = new SpillReader(pair.probe.file);
+        } finally {
+            profiler.stop(stage, start);
+        }
+    }
+
+    private void finishPair() {
+        probeReader.close();
+        probeReader = null;
+        table = null;
+        delete(currentPair.probe.file);
+        currentPair = null;
+    }
+
+    private void split(PartitionPair pair) throws IOException {
+        int depth = pair.depth + 1;
+        SpillWriter[] build = openWriters("build", partitions);
+        SpillWriter[] probe = openWriters("probe", partitions);
+        try {
+            redistribute(pair.build.file, build, depth);
+            redistribute(pair.probe.file, probe, depth);
+        } finally {
+            closeAll(build);
+            closeAll(probe);
+        }
+        delete(pair.build.file);
+        delete(pair.probe.file);
+        for (int i = 0; i < partitions; i++) {
+            if (probe[i].rows > 0) {
+                pending.push(new PartitionPair(build[i], probe[i], depth));
+            } else {
+                delete(build[i].file);
+                delete(probe[i].file);
+            }
+        }
+    }
+
+    private void redistribute(Path file, SpillWriter[] writers, int seed) throws IOException {
+        try (SpillReader reader = new SpillReader(file)) {
+            SpillRecord record;
+            while ((record = reader.read()) != null) {
+                writers[partitionOf(record.key, seed)].write(record.key, record.json);
+            }
+        }
+    }
+
+    private int partitionOf(String key, int seed) {
+        // murmur3 finalizer; a different seed per split level spreads keys that collided at the level above.
+        int h = key.hashCode() ^ (seed * 0x9E3779B9);
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return Math.floorMod(h, partitions);
+    }
+
+    /**
+     * Canonical text of a join value, so equal values compare equal the way AQL's {@code ==} does: numbers by value
+     * regardless of their Java type, strings distinct from numbers.
+     */
+    private String joinKey(Object value) throws IOException {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Number number) {
+            try {
+                return "n:" + new BigDecimal(number.toString()).stripTrailingZeros().toPlainString();
+            } catch (NumberFormatException ex) {
+                return "n:" + number;
+            }
+        }
+        if (value instanceof String text) {
+            return "s:" + text;
+        }
+        if (value instanceof Boolean) {
+            return "b:" + value;
+        }
+        return "j:" + jsonMapper.writeValueAsString(value);
+    }
+
+    private Map<String, Object> toMap(BaseDocument document) {
+        Map<String, Object> map = new LinkedHashMap<>(document.getProperties());
+        map.put("_key", document.getKey());
+        map.put("_id", document.getId());
+        map.put("_rev", document.getRevision());
+        return map;
+    }
+
+    private Map<String, Object> readMap(byte[] json) throws IOException {
+        return jsonMapper.readValue(json, new TypeReference<Map<String, Object>>() { });
+    }
+
+    private SpillWriter[] openWriters(String side, int count) throws IOException {
+        SpillWriter[] writers = new SpillWriter[count];
+        try {
+            for (int i = 0; i < count; i++) {
+                writers[i] = new SpillWriter(nextFile(side));
+            }
+        } catch (IOException ex) {
+            closeAll(writers);
+            throw ex;
+        }
+        return writers;
+    }
+
+    private Path nextFile(String side) {
+        return directory.resolve(side + "-" + (fileCounter++) + ".spill");
+    }
+
+    private static void closeAll(SpillWriter[] writers) throws IOException {
+        IOException failure = null;
+        for (SpillWriter writer : writers) {
+            if (writer == null) {
+                continue;
+            }
+            try {
+                writer.close();
+            } catch (IOException ex) {
+                failure = ex;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            // A file still mapped on platforms that refuse to delete it; leave it to JVM exit.
+            path.toFile().deleteOnExit();
+        }
+    }
+
+    private record PartitionPair(SpillWriter build, SpillWriter probe, int depth) { }
+
+    private record SpillRecord(String key, byte[] json) { }
+
+    /**
+     * Appends length-prefixed records: key length (or {@value #NULL_KEY}), key bytes, document length, document JSON.
+     */
+    private static final class SpillWriter implements AutoCloseable {
+        private final Path file;
+        private DataOutputStream out;
+        private long bytes;
+        private long rows;
+
+        private SpillWriter(Path file) throws IOException {
+            this.file = file;
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), WRITE_BUFFER_BYTES));
+        }
+
+        private void write(String key, byte[] json) throws IOException {
+            if (key == null) {
+                out.writeInt(NULL_KEY);
+                bytes += Integer.BYTES;
+            } else {
+                byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(keyBytes.length);
+                out.write(keyBytes);
+                bytes += Integer.BYTES + keyBytes.length;
+            }
+            out.writeInt(json.length);
+            out.write(json);
+            bytes += Integer.BYTES + json.length;
+            rows++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+        }
+    }
+
+    /**
+     * Reads a spill file through memory-mapped windows, remapping whenever the next record crosses the window end.
+     */
+    private static final class SpillReader implements AutoCloseable {
+        private final FileChannel channel;
+        private final long size;
+        private MappedByteBuffer window;
+        private long windowStart;
+        private long position;
+
+        private SpillReader(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.size = channel.size();
+        }
+
+        private SpillRecord read() throws IOException {
+            if (position >= size) {
+                return null;
+            }
+            int keyLength = readInt();
+            String key = null;
+            if (keyLength != NULL_KEY) {
+                key = new String(readBytes(keyLength), StandardCharsets.UTF_8);
+            }
+            byte[] json = readBytes(readInt());
+            return new SpillRecord(key, json);
+        }
+
+        private int readInt() throws IOException {
+            ensure(Integer.BYTES);
+            int value = window.getInt((int) (position - windowStart));
+            position += Integer.BYTES;
+            return value;
+        }
+
+        private byte[] readBytes(int length) throws IOException {
+            ensure(length);
+            byte[] bytes = new byte[length];
+            window.get((int) (position - windowStart), bytes);
+            position += length;
+            return bytes;
+        }
+
+        private void ensure(int length) throws IOException {
+            if (window != null && position + length <= windowStart + window.capacity()) {
+                return;
+            }
+            if (position + length > size) {
+                throw new IOException("Truncated spill file");
+            }
+            long mapped = Math.min(size - position, Math.max(length, MAP_WINDOW_BYTES));
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, mapped);
+            windowStart = position;
+        }
+
+        @Override
+        public void close() {
+            window = null;
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                System.err.printf(Locale.US, "Failed to close spill file: %s%n", ex.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.arango2rdb;
+
+import com.arangodb.ArangoCollection;
+import com.arangodb.ArangoDBException;
+import com.arangodb.ArangoDatabase;
+import com.arangodb.entity.IndexEntity;
+import com.arangodb.entity.IndexType;
+import com.arangodb.model.PersistentIndexOptions;
+import com.example.arango2rdb.config.SyncConfig;
+import com.example.arango2rdb.dialect.SqlDialect;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Makes sure the lookups a sync performs are index-backed: a persistent index on every field join's
+ * {@code foreignField}, storing the join's other referenced attributes so the lookup can be answered from the index,
+ * a persistent index on the fields of every merge {@code filter} that one can serve, and a unique index on every
+ * target table's {@code keyColumn}. In dry-run mode nothing is created and the missing
+ * indexes are reported as planned.
+ */
+public class IndexProvisioner {
+    private static final int MAX_IDENTIFIER_LENGTH = 63;
+
+    private final ArangoDatabase arangoDatabase;
+    private final Connection connection;
+    private final SqlDialect dialect;
+
+    public IndexProvisioner(ArangoDatabase arangoDatabase, Connection connection, SqlDialect dialect) {
+        this.arangoDatabase = arangoDatabase;
+        this.connection = connection;
+        this.dialect = dialect;
+    }
+
+    public enum Outcome { EXISTS, PLANNED, CREATED, FAILED }
+
+    public record IndexAction(String target, String index, Outcome outcome, String message) {
+
+        @Override
+        public String toString() {
+            String line = String.format(Locale.US, "%-8s %s %s", outcome, target, index);
+            return message == null ? line : line + " (" + message + ")";
+        }
+    }
+
+    /**
+     * Ensures the indexes for {@code merges} writing into {@code repositorySchema} ({@code null} for the base
+     * tables). Failures are reported per index and do not stop the remaining checks.
+     */
+    public List<IndexAction> provision(List<SyncConfig.MergeMapping> merges,
+                                       String repositorySchema,
+                                       boolean dryRun) throws SQLException {
+        return provision(merges, repositorySchema, dryRun, true);
+    }
+
+    /**
+     * As {@link #provision(List, String, boolean)}; without {@code includeKeyIndexes} only the Arango join indexes
+     * are ensured, for runs that do not write to the target tables.
+     */
+    public List<IndexAction> provision(List<SyncConfig.MergeMapping> merges,
+                                       String repositorySchema,
+                                       boolean dryRun,
+                                       boolean includeKeyIndexes) throws SQLException {
+        List<IndexAction> actions = new ArrayList<>();
+        Set<String> seenIndexes = new HashSet<>();
+        for (SyncConfig.MergeMapping merge : merges) {
+            for (SyncConfig.MergeJoin join : merge.joins) {
+                if (join.connectedEdges != null && !join.connectedEdges.isEmpty()) {
+                    // Edge hops use the edge index on _from/_to and primary key lookups.
+                    continue;
+                }
+                if (join.strategy == SyncConfig.MergeJoin.JoinStrategy.HASH) {
+                    // Hash joins scan the collection once and never look up by foreignField.
+                    continue;
+                }
+                if (join.foreignField == null || join.foreignField.isBlank()
+                        || !seenIndexes.add(join.collection + "." + join.foreignField)) {
+                    continue;
+                }
+                actions.add(ensureJoinIndex(merge, join, dryRun));
+            }
+            if (merge.filter != null) {
+                List<String> fields = merge.filter.indexFields();
+                if (!fields.isEmpty() && seenIndexes.add(merge.mainCollection + "." + String.join(",", fields))) {
+                    actions.add(ensureFilterIndex(merge, fields, dryRun));
+                }
+            }
+        }
+        if (includeKeyIndexes) {
+            for (SyncConfig.MergeMapping merge : merges) {
+                actions.add(ensureKeyIndex(merge, repositorySchema, dryRun));
+            }
+        }
+        return actions;
+    }
+
+    /**
+     * Top-level attributes of {@code alias} that {@code merge} reads, or {@code null} when the whole document is
+     * referenced and no projection applies.
+     */
+    public static List<String> referencedAttributes(SyncConfig.MergeMapping merge, String alias) {
+        Set<String> attributes = new LinkedHashSet<>();
+        List<String> paths = merge.sourcePaths();
+        paths.add(merge.keyField);
+        for (SyncConfig.MergeJoin join : merge.joins) {
+            paths.add(join.localField);
+        }
+        for (String path : paths) {
+            if (path == null) {
+                continue;
+            }
+            String[] parts = path.split("\\.", 3);
+            if (!parts[0].equals(alias)) {
+                continue;
+            }
+            if (parts.length == 1) {
+                return null;
+            }
+            attributes.add(parts[1]);
+        }
+        return List.copyOf(attributes);
+    }
+
+    private IndexAction ensureJoinIndex(SyncConfig.MergeMapping merge, SyncConfig.MergeJoin join, boolean dryRun) {
+        List<String> stored = new ArrayList<>();
+        List<String> referenced = referencedAttributes(merge, join.alias);
+        if (referenced != null) {
+            for (String attribute : referenced) {
+                if (!attribute.equals(join.foreignField) && !attribute.startsWith("_")) {
+                    stored.add(attribute);
+                }
+            }
+        }
+        String description = "persistent [" + join.foreignField + "]"
+                + (stored.isEmpty() ? "" : " storedValues " + stored);
+        try {
+            ArangoCollection collection = arangoDatabase.collection(join.collection);
+            for (IndexEntity index : collection.getIndexes()) {
+                if (coversField(index, join.foreignField)) {
+                    return new IndexAction(join.collection, describe(index), Outcome.EXISTS, null);
+                }
+            }
+            if (dryRun) {
+                return new IndexAction(join.collection, description, Outcome.PLANNED, null);
+            }
+            PersistentIndexOptions options = new PersistentIndexOptions()
+                    .name("idx_" + join.foreignField.replace('.', '_'))
+                    .inBackground(true)
+                    .estimates(true);
+            if (!stored.isEmpty()) {
+                options.storedValues(stored.toArray(new String[0]));
+            }
+            collection.ensurePersistentIndex(List.of(join.foreignField), options);
+            return new IndexAction(join.collection, description, Outcome.CREATED, null);
+        } catch (ArangoDBException ex) {
+            return new IndexAction(join.collection, description, Outcome.FAILED, ex.getMessage());
+        }
+    }
+
+    private IndexAction ensureFilterIndex(SyncConfig.MergeMapping merge, List<String> fields, boolean dryRun) {
+        String description = "persistent " + fields;
+        try {
+            ArangoCollection collection = arangoDatabase.collection(merge.mainCollection);
+            for (IndexEntity index : collection.getIndexes()) {
+                if (coversFields(index, fields)) {
+                    return new IndexAction(merge.mainCollection, describe(index), Outcome.EXISTS, null);
+                }
+            }
+            if (dryRun) {
+                return new IndexAction(merge.mainCollection, description, Outcome.PLANNED, null);
+            }
+            collection.ensurePersistentIndex(fields, new PersistentIndexOptions()
+                    .name("idx_filter_" + merge.name)
+                    .inBackground(true)
+                    .estimates(true));
+            return new IndexAction(merge.mainCollection, description, Outcome.CREATED, null);
+        } catch (ArangoDBException ex) {
+            return new IndexAction(merge.mainCollection, description, Outcome.FAILED, ex.getMessage());
+        }
+    }
+
+    /**
+     * Whether {@code index} leads with exactly {@code fields}, in order.
+     */
+    private boolean coversFields(IndexEntity index, List<String> fields) {
+        if (!coversField(index, fields.get(0))) {
+            return false;
+        }
+        List<String> leading = new ArrayList<>(index.getFields());
+        return leading.size() >= fields.size() && leading.subList(0, fields.size()).equals(fields);
+    }
+
+    private boolean coversField(IndexEntity index, String field) {
+        if (index.getType() != IndexType.persistent && index.getType() != IndexType.hash
+                && index.getType() != IndexType.skiplist) {
+            return false;
+        }
+        Collection<String> fields = index.getFields();
+        return fields != null && !fields.isEmpty() && field.equals(fields.iterator().next());
+    }
+
+    private String describe(IndexEntity index) {
+        String description = index.getType() + " " + index.getFields();
+        Collection<String> stored = index.getStoredValues();
+        if (stored != null && !stored.isEmpty()) {
+            description += " storedValues " + stored;
+        }
+        return description;
+    }
+
+    private IndexAction ensureKeyIndex(SyncConfig.MergeMapping merge, String repositorySchema, boolean dryRun)
+            throws SQLException {
+        String table = merge.targetTable;
+        String target = repositorySchema == null ? table : repositorySchema + "." + table;
+        String description = "unique (" + merge.keyColumn + ")";
+        String existing = findUniqueIndex(connection, repositorySchema, table, merge.keyColumn);
+        if (existing != null) {
+            return new IndexAction(target, description + " " + existing, Outcome.EXISTS, null);
+        }
+        if (dryRun) {
+            return new IndexAction(target, description, Outcome.PLANNED, null);
+        }
+        String renderedTable = repositorySchema == null
+                ? dialect.quoteIdentifier(table)
+                : dialect.quoteIdentifier(repositorySchema) + "." + dialect.quoteIdentifier(table);
+        String indexName = indexName(table, merge.keyColumn);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE UNIQUE INDEX " + dialect.quoteIdentifier(indexName)
+                    + " ON " + renderedTable + " (" + dialect.quoteIdentifier(merge.keyColumn) + ")");
+            connection.commit();
+            return new IndexAction(target, description + " " + indexName, Outcome.CREATED, null);
+        } catch (SQLException ex) {
+            // Typically duplicate keys already in the table; the sync still works through UPDATE-then-INSERT.
+            connection.rollback();
+            return new IndexAction(target, description, Outcome.FAILED, ex.getMessage());
+        }
+    }
+
+    /**
+     * Returns the name of a single-column unique index on {@code keyColumn}, or null when there is none.
+     */
+    static String findUniqueIndex(Connection connection, String repositorySchema, String table, String keyColumn)
+            throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        String schema = repositorySchema != null ? repositorySchema : connection.getSchema();
+        Map<String, Set<String>> columnsByIndex = new HashMap<>();
+        try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), schema, table, true, true)) {
+            while (rs.next()) {
+                String indexName = rs.getString("INDEX_NAME");
+                String column = rs.getString("COLUMN_NAME");
+                if (indexName != null && column != null) {
+                    columnsByIndex.computeIfAbsent(indexName, key -> new HashSet<>()).add(column);
+                }
+            }
+        }
+        for (Map.Entry<String, Set<String>> entry : columnsByIndex.entrySet()) {
+            if (entry.getValue().size() == 1 && entry.getValue().iterator().next().equalsIgnoreCase(keyColumn)) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    private String indexName(String table, String keyColumn) {
+        String name = table + "_" + keyColumn + "_key";
+        return name.length() > MAX_IDENTIFIER_LENGTH ? name.substring(0, MAX_IDENTIFIER_LENGTH) : name;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.arango2rdb;
+
+/**
+ * A slice of a main collection in {@code _key} order: the keys after {@code after} up to and including
+ * {@code upTo}. A {@code null} bound leaves that end open.
+ */
+record KeyRange(String after, String upTo) {
+
+    @Override
+    public String toString() {
+        return "(" + (after != null ? after : "") + ", " + (upTo != null ? upTo : "") + "]";
+    }
+}
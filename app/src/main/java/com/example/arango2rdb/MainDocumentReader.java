@@ -0,0 +1,255 @@
+package com.example.arango2rdb;
+
+import com.arangodb.ArangoCursor;
+import com.arangodb.ArangoDatabase;
+import com.arangodb.entity.BaseDocument;
+import com.arangodb.model.AqlQueryOptions;
+import com.example.arango2rdb.config.MergeFilter;
+import com.example.arango2rdb.jfr.CursorBatchEvent;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads a merge's main collection in {@code _key} order, one page per request, with the page size taken from the
+ * {@link ThroughputController} before every request. Each page's join lookups are resolved before its documents are
+ * handed out; when the controller allows more than one read in flight they run on the lookup executor, one document
+ * per task, and the documents are still returned in key order.
+ */
+final class MainDocumentReader {
+    private static final String PAGE_QUERY = "FOR doc IN @@collection FILTER doc._key > @after ";
+    private static final String KEYS_PAGE_QUERY = "FOR doc IN @@collection FILTER doc._key IN @keys "
+            + "FILTER doc._key > @after ";
+    private static final String RANGE_PAGE_QUERY = "FOR doc IN @@collection FILTER doc._key > @after "
+            + "FILTER doc._key <= @upTo ";
+    private static final String PAGE_END = "SORT doc._key LIMIT @limit RETURN ";
+
+    /**
+     * Resolves the joins of the document stored under {@code "main"} into {@code context}; returns false when a
+     * required join has no match.
+     */
+    @FunctionalInterface
+    interface JoinResolver {
+        boolean resolve(Map<String, BaseDocument> context) throws SQLException;
+    }
+
+    private final ArangoDatabase database;
+    private final String collection;
+    private final List<String> keys;
+    private final String upTo;
+    private final String tail;
+    private final Map<String, Object> filterBindVars;
+    private final ThroughputController throughput;
+    private final SyncProfiler profiler;
+    private final JoinResolver resolver;
+    private final ExecutorService lookupExecutor;
+    private final List<Map<String, BaseDocument>> contexts = new ArrayList<>();
+    private boolean[] joined = new boolean[0];
+    private List<BaseDocument> page = List.of();
+    private int position = -1;
+    private String after = "";
+    private boolean exhausted;
+
+    /**
+     * {@code keys} limits the read to those document keys, or is {@code null} for the whole collection;
+     * {@code range}, when set, to the keys of that slice. {@code projection}, when set, is an AQL object of
+     * attributes computed from {@code doc} and merged into every document the server returns, and {@code filter},
+     * when set, the merge's compiled filter, applied on top of the key conditions.
+     * {@code resolver} is {@code null} when the documents are consumed raw, as by a hash join, and
+     * {@code lookupExecutor} is {@code null} when lookups must stay on the calling thread.
+     */
+    MainDocumentReader(ArangoDatabase database,
+                       String collection,
+                       Collection<String> keys,
+                       KeyRange range,
+                       String projection,
+                       MergeFilter.Compiled filter,
+                       ThroughputController throughput,
+                       SyncProfiler profiler,
+                       JoinResolver resolver,
+                       ExecutorService lookupExecutor) {
+        this.database = database;
+        this.collection = collection;
+        this.keys = keys != null ? List.copyOf(keys) : null;
+        this.upTo = range != null ? range.upTo() : null;
+        this.tail = (filter != null ? "FILTER " + filter.aql() + " " : "") + PAGE_END
+                + (projection != null ? "MERGE(doc, " + projection + ")" : "doc");
+        this.filterBindVars = filter != null ? filter.bindVars() : Map.of();
+        if (range != null && range.after() != null) {
+            this.after = range.after();
+        }
+        this.throughput = throughput;
+        this.profiler = profiler;
+        this.resolver = resolver;
+        this.lookupExecutor = lookupExecutor;
+    }
+
+    /**
+     * Moves to the next document, fetching and resolving the next page when the current one is used up. Returns
+     * false at the end of the collection.
+     */
+    boolean advance() throws SQLException {
+        if (++position < page.size()) {
+            return true;
+        }
+        if (exhausted || !fetchPage()) {
+            return false;
+        }
+        position = 0;
+        return true;
+    }
+
+    BaseDocument mainDocument() {
+        return page.get(position);
+    }
+
+    /**
+     * The current document under {@code "main"} with its resolved joins. The map is reused for a later page.
+     */
+    Map<String, BaseDocument> context() {
+        return contexts.get(position);
+    }
+
+    /**
+     * False when a required join of the current document had no match and the document is to be skipped.
+     */
+    boolean joined() {
+        return joined[position];
+    }
+
+    /**
+     * Returns the next document without resolving joins, or {@code null} at the end.
+     */
+    BaseDocument nextDocument() throws SQLException {
+        return advance() ? mainDocument() : null;
+    }
+
+    private boolean fetchPage() throws SQLException {
+        int limit = throughput.readBatchSize();
+        long start = profiler.start();
+        CursorBatchEvent event = new CursorBatchEvent();
+        event.begin();
+        List<BaseDocument> documents;
+        try {
+            documents = throughput.read(ThroughputController.Kind.PAGE, () -> {
+                String query;
+                Map<String, Object> bindVars = new HashMap<>(filterBindVars);
+                bindVars.put("@collection", collection);
+                bindVars.put("after", after);
+                bindVars.put("limit", limit);
+                if (keys != null) {
+                    query = KEYS_PAGE_QUERY + tail;
+                    bindVars.put("keys", keys);
+                } else if (upTo != null) {
+                    query = RANGE_PAGE_QUERY + tail;
+                    bindVars.put("upTo", upTo);
+                } else {
+                    query = PAGE_QUERY + tail;
+                }
+                try (ArangoCursor<BaseDocument> cursor = database.query(query,
+                        bindVars,
+                        new AqlQueryOptions().batchSize(limit),
+                        BaseDocument.class)) {
+                    return cursor.asListRemaining();
+                }
+            });
+        } catch (Exception ex) {
+            throw new SQLException("Failed to read collection " + collection + " after key '" + after + "'", ex);
+        }
+        profiler.stop(SyncProfiler.STAGE_MAIN_FETCH, start);
+        profiler.roundTrip(SyncProfiler.STAGE_MAIN_FETCH);
+        event.end();
+        if (event.shouldCommit()) {
+            event.collection = collection;
+            event.pageSize = limit;
+            event.documents = documents.size();
+            long bytes = 0L;
+            for (BaseDocument document : documents) {
+                bytes += MergeRunStats.approximateSize(document.getProperties());
+            }
+            event.bytes = bytes;
+            event.commit();
+        }
+        if (documents.size() < limit) {
+            exhausted = true;
+        }
+        if (documents.isEmpty()) {
+            page = List.of();
+            return false;
+        }
+        page = documents;
+        after = documents.get(documents.size() - 1).getKey();
+        if (resolver != null) {
+            resolvePage();
+        }
+        return true;
+    }
+
+    private void resolvePage() throws SQLException {
+        int size = page.size();
+        while (contexts.size() < size) {
+            contexts.add(new HashMap<>());
+        }
+        if (joined.length < size) {
+            joined = new boolean[size];
+        }
+        for (int i = 0; i < size; i++) {
+            Map<String, BaseDocument> context = contexts.get(i);
+            context.clear();
+            context.put("main", page.get(i));
+        }
+        int workers = Math.min(size, throughput.inFlightReads());
+        if (lookupExecutor == null || workers <= 1) {
+            for (int i = 0; i < size; i++) {
+                joined[i] = resolver.resolve(contexts.get(i));
+            }
+            return;
+        }
+        // Each worker claims the next unresolved document, so at most `workers` lookups are in flight at once.
+        AtomicInteger next = new AtomicInteger();
+        AtomicBoolean failed = new AtomicBoolean();
+        List<Future<Void>> futures = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            futures.add(lookupExecutor.submit(() -> {
+                int i;
+                while (!failed.get() && (i = next.getAndIncrement()) < size) {
+                    try {
+                        joined[i] = resolver.resolve(contexts.get(i));
+                    } catch (SQLException | RuntimeException ex) {
+                        failed.set(true);
+                        throw ex;
+                    }
+                }
+                return null;
+            }));
+        }
+        SQLException failure = null;
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                failed.set(true);
+                failure = failure != null ? failure : new SQLException("Interrupted while resolving joins", ex);
+            } catch (ExecutionException ex) {
+                if (failure == null) {
+                    failure = ex.getCause() instanceof SQLException sql
+                            ? sql
+                            : new SQLException("Failed to resolve joins", ex.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
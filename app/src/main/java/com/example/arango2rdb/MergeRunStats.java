@@ -0,0 +1,94 @@
+package com.example.arango2rdb;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of one merge run, recorded in {@code sync_run_merges}. Filled on the sync thread, except the join
+ * counters, which lookup threads update. Byte counts are approximate payload sizes (characters of strings, eight
+ * bytes per number or date), not wire bytes.
+ */
+final class MergeRunStats {
+    static final String COMPLETED = "COMPLETED";
+    static final String FAILED = "FAILED";
+    static final String CANCELLED = "CANCELLED";
+
+    final String mergeName;
+    final String targetTable;
+    final Instant startedAt = Instant.now();
+    Instant finishedAt;
+    String status;
+    String error;
+    long documentsRead;
+    long rowsWritten;
+    /** {@code -1} when the dialect's upsert does not tell inserts from updates. */
+    long rowsInserted = -1L;
+    long rowsUpdated = -1L;
+    /** Documents dropped because a required join had no match. */
+    long rowsSkipped;
+    long rowsRejected;
+    final AtomicLong joinLookups = new AtomicLong();
+    final AtomicLong bytesRead = new AtomicLong();
+    long bytesWritten;
+
+    /**
+     * Whether anything will read {@link #bytesRead} and {@link #bytesWritten}; when not, the sync loop skips the
+     * object-graph walk of {@link #approximateSize} and both stay zero.
+     */
+    final boolean measureBytes;
+
+    MergeRunStats(String mergeName, String targetTable, boolean measureBytes) {
+        this.mergeName = mergeName;
+        this.targetTable = targetTable;
+        this.measureBytes = measureBytes;
+    }
+
+    void finish(Throwable failure) {
+        finishedAt = Instant.now();
+        if (failure == null) {
+            status = COMPLETED;
+        } else {
+            status = failure instanceof SyncCancelledException ? CANCELLED : FAILED;
+            error = failure.getMessage();
+        }
+    }
+
+    /**
+     * Approximate size of a document value: strings by length, numbers, booleans and dates as eight bytes, maps and
+     * lists as the sum of their entries.
+     */
+    static long approximateSize(Object value) {
+        if (value == null) {
+            return 0L;
+        }
+        if (value instanceof CharSequence text) {
+            return text.length();
+        }
+        if (value instanceof byte[] bytes) {
+            return bytes.length;
+        }
+        if (value instanceof Map<?, ?> map) {
+            long size = 0L;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                size += approximateSize(entry.getKey()) + approximateSize(entry.getValue());
+            }
+            return size;
+        }
+        if (value instanceof Iterable<?> items) {
+            long size = 0L;
+            for (Object item : items) {
+                size += approximateSize(item);
+            }
+            return size;
+        }
+        if (value instanceof Object[] items) {
+            long size = 0L;
+            for (Object item : items) {
+                size += approximateSize(item);
+            }
+            return size;
+        }
+        return 8L;
+    }
+}
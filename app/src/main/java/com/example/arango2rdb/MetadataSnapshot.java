@@ -0,0 +1,222 @@
+package com.example.arango2rdb;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The metadata a sync needs before its first document moves, kept on disk between runs: which ArangoDB collections
+ * exist, and the JDBC column types of the target tables. Column types are kept per schema together with the
+ * dialect's fingerprint of that schema's target columns, and only used while the fingerprint still matches; the
+ * collections carry the time they were last listed, and are listed again once they are older than the configured
+ * maximum age. The file is a small binary image, mapped into memory to load, and replaced atomically on save.
+ * <p>
+ * Shared by the sync thread and the background refresh, so every method synchronizes.
+ */
+final class MetadataSnapshot {
+    private static final int MAGIC = 0x4132524D;
+    private static final int VERSION = 1;
+
+    /**
+     * A column's JDBC type and database type name.
+     */
+    record Column(int sqlType, String typeName) { }
+
+    private static final class SchemaColumns {
+        final String fingerprint;
+        final Map<String, Map<String, Column>> tables = new HashMap<>();
+
+        SchemaColumns(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    private final String source;
+    private long collectionsListedAt;
+    private final Set<String> collections = new HashSet<>();
+    private final Map<String, SchemaColumns> schemas = new HashMap<>();
+    private boolean dirty;
+
+    /**
+     * An empty snapshot of the databases named by {@code source}.
+     */
+    MetadataSnapshot(String source) {
+        this.source = source;
+    }
+
+    /**
+     * Reads the snapshot at {@code path}; returns an empty one when the file is missing, unreadable, of another
+     * version or taken from other databases than {@code source}.
+     */
+    static MetadataSnapshot load(Path path, String source) {
+        MetadataSnapshot snapshot = new MetadataSnapshot(source);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || !source.equals(readString(buffer))) {
+                return snapshot;
+            }
+            snapshot.collectionsListedAt = buffer.getLong();
+            for (int i = buffer.getInt(); i > 0; i--) {
+                snapshot.collections.add(readString(buffer));
+            }
+            for (int s = buffer.getInt(); s > 0; s--) {
+                String schema = readString(buffer);
+                SchemaColumns columns = new SchemaColumns(readString(buffer));
+                for (int t = buffer.getInt(); t > 0; t--) {
+                    String table = readString(buffer);
+                    Map<String, Column> tableColumns = new HashMap<>();
+                    for (int c = buffer.getInt(); c > 0; c--) {
+                        String column = readString(buffer);
+                        tableColumns.put(column, new Column(buffer.getInt(), readString(buffer)));
+                    }
+                    columns.tables.put(table, tableColumns);
+                }
+                snapshot.schemas.put(schema, columns);
+            }
+        } catch (NoSuchFileException ex) {
+            return snapshot;
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException ex) {
+            System.err.printf(Locale.US, "Ignoring metadata snapshot %s: %s%n", path, ex);
+            return new MetadataSnapshot(source);
+        }
+        return snapshot;
+    }
+
+    /**
+     * True when every one of {@code required} was listed no longer than {@code maxAgeMillis} ago.
+     */
+    synchronized boolean hasCollections(Collection<String> required, long maxAgeMillis) {
+        return collectionsListedAt > 0
+                && System.currentTimeMillis() - collectionsListedAt <= maxAgeMillis
+                && collections.containsAll(required);
+    }
+
+    /**
+     * Whether the collections were listed at all; ones from an older listing are still worth starting from.
+     */
+    synchronized boolean hasCollections(Collection<String> required) {
+        return collectionsListedAt > 0 && collections.containsAll(required);
+    }
+
+    synchronized void putCollections(Collection<String> existing) {
+        collections.clear();
+        collections.addAll(existing);
+        collectionsListedAt = System.currentTimeMillis();
+        dirty = true;
+    }
+
+    /**
+     * The column types of {@code table} in {@code schema}, or {@code null} unless they were recorded under
+     * {@code fingerprint}.
+     */
+    synchronized Map<String, Column> columns(String schema, String fingerprint, String table) {
+        SchemaColumns columns = schemas.get(schema);
+        if (columns == null || fingerprint == null || !fingerprint.equals(columns.fingerprint)) {
+            return null;
+        }
+        return columns.tables.get(table);
+    }
+
+    /**
+     * Records the column types of {@code table} under {@code fingerprint}, dropping the schema's tables that were
+     * recorded under another one.
+     */
+    synchronized void putColumns(String schema, String fingerprint, String table, Map<String, Column> tableColumns) {
+        SchemaColumns columns = schemas.get(schema);
+        if (columns == null || !columns.fingerprint.equals(fingerprint)) {
+            columns = new SchemaColumns(fingerprint);
+            schemas.put(schema, columns);
+        }
+        columns.tables.put(table, Map.copyOf(tableColumns));
+        dirty = true;
+    }
+
+    /**
+     * Writes the snapshot to {@code path} if it changed since it was loaded or last saved.
+     */
+    synchronized void saveIfChanged(Path path) throws IOException {
+        if (!dirty) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, source);
+            out.writeLong(collectionsListedAt);
+            out.writeInt(collections.size());
+            for (String collection : collections) {
+                writeString(out, collection);
+            }
+            out.writeInt(schemas.size());
+            for (Map.Entry<String, SchemaColumns> schema : schemas.entrySet()) {
+                writeString(out, schema.getKey());
+                writeString(out, schema.getValue().fingerprint);
+                out.writeInt(schema.getValue().tables.size());
+                for (Map.Entry<String, Map<String, Column>> table : schema.getValue().tables.entrySet()) {
+                    writeString(out, table.getKey());
+                    out.writeInt(table.getValue().size());
+                    for (Map.Entry<String, Column> column : table.getValue().entrySet()) {
+                        writeString(out, column.getKey());
+                        out.writeInt(column.getValue().sqlType());
+                        writeString(out, column.getValue().typeName());
+                    }
+                }
+            }
+        }
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, bytes.toByteArray());
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        dirty = false;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] utf8 = new byte[length];
+        buffer.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+}
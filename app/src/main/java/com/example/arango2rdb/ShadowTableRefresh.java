@@ -0,0 +1,380 @@
+package com.example.arango2rdb;
+
+import com.example.arango2rdb.dialect.RejectedRowHandler;
+import com.example.arango2rdb.dialect.SqlDialect;
+import com.example.arango2rdb.jfr.CommitEvent;
+import com.example.arango2rdb.jfr.JdbcFlushEvent;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Full refresh of a base table through a shadow copy: rows are bulk inserted into an index-free
+ * {@code <table>__shadow}, keys and indexes are built afterwards, and the shadow replaces the live table with a
+ * drop and rename inside one short transaction. Readers keep using the old table until the swap commits.
+ *
+ * <p>The live table is dropped, so whatever hangs off it has to be carried over or ruled out. Privileges, the table
+ * comment and the owner are copied onto the shadow in the swap transaction. Tables referenced by foreign keys from
+ * other tables, used by views, carrying triggers, row level security or column privileges, or owned by a role the
+ * sync user is not a member of cannot be swapped this way; {@link #begin()} rejects them before any work is done.
+ *
+ * <p>With a {@link RejectedRowHandler} every batch is inserted under a savepoint and, when it fails, split in halves
+ * until the failing rows are isolated and handed to the handler, as {@code UpsertBatch} does for upserts.
+ */
+class ShadowTableRefresh {
+    private static final String SHADOW_SUFFIX = "__shadow";
+    private static final int MAX_IDENTIFIER_LENGTH = 63;
+    private static final int BATCH_SIZE = 1000;
+    private static final String SWAP_LOCK_TIMEOUT = "5s";
+    private static final int SWAP_ATTEMPTS = 3;
+    private static final String LOCK_NOT_AVAILABLE = "55P03";
+    private static final String DEADLOCK_DETECTED = "40P01";
+
+    private final Connection connection;
+    private final SqlDialect dialect;
+    private final String liveTable;
+    private final String shadowTable;
+    private final List<String> columns;
+    private final int[] sqlTypes;
+    private final SyncProfiler profiler;
+    private final List<Object[]> pending = new ArrayList<>();
+    private final List<Object> sources = new ArrayList<>();
+    private PreparedStatement insert;
+    private RejectedRowHandler rejectedRows;
+    private long rowsInserted;
+
+    /**
+     * {@code sqlTypes} are the JDBC types of {@code columns} in the live table; values are bound through
+     * {@link SqlDialect#bind} with them, as the upsert batches do.
+     */
+    ShadowTableRefresh(Connection connection,
+                       SqlDialect dialect,
+                       String liveTable,
+                       List<String> columns,
+                       int[] sqlTypes,
+                       SyncProfiler profiler) {
+        this.connection = connection;
+        this.dialect = dialect;
+        this.liveTable = liveTable;
+        this.shadowTable = shadowName(liveTable);
+        this.columns = List.copyOf(columns);
+        this.sqlTypes = sqlTypes.clone();
+        this.profiler = profiler;
+    }
+
+    void begin() throws SQLException {
+        refuseIfPresent("is referenced by foreign keys",
+                "SELECT conrelid::regclass::text || '.' || conname FROM pg_constraint "
+                        + "WHERE contype = 'f' AND confrelid = ?::regclass AND conrelid <> confrelid");
+        refuseIfPresent("is used by views",
+                "SELECT DISTINCT r.ev_class::regclass::text FROM pg_depend d "
+                        + "JOIN pg_rewrite r ON r.oid = d.objid "
+                        + "WHERE d.classid = 'pg_rewrite'::regclass AND d.refobjid = ?::regclass "
+                        + "AND r.ev_class <> d.refobjid");
+        refuseIfPresent("has triggers",
+                "SELECT tgname FROM pg_trigger WHERE tgrelid = ?::regclass AND NOT tgisinternal");
+        refuseIfPresent("has row level security",
+                "SELECT 'policy ' || polname FROM pg_policy WHERE polrelid = ?::regclass "
+                        + "UNION ALL SELECT 'enabled' FROM pg_class WHERE oid = ?::regclass AND relrowsecurity");
+        refuseIfPresent("has column privileges",
+                "SELECT attname FROM pg_attribute WHERE attrelid = ?::regclass AND attnum > 0 "
+                        + "AND NOT attisdropped AND attacl IS NOT NULL");
+        refuseIfPresent("is owned by a role the sync user cannot act as",
+                "SELECT pg_get_userbyid(relowner) FROM pg_class WHERE oid = ?::regclass "
+                        + "AND NOT pg_has_role(current_user, relowner, 'MEMBER')");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + render(shadowTable));
+            statement.execute("CREATE TABLE " + render(shadowTable) + " (LIKE " + render(liveTable)
+                    + " INCLUDING ALL EXCLUDING INDEXES)");
+        }
+        connection.commit();
+
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(render(shadowTable)).append(" (");
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+                placeholders.append(", ");
+            }
+            sql.append(render(columns.get(i)));
+            placeholders.append("?");
+        }
+        sql.append(") VALUES (").append(placeholders).append(")");
+        insert = connection.prepareStatement(sql.toString());
+    }
+
+    /**
+     * Isolates failing rows and passes them to {@code handler} instead of failing the whole load.
+     */
+    void setRejectedRowHandler(RejectedRowHandler handler) {
+        this.rejectedRows = handler;
+    }
+
+    /**
+     * Queues one row; {@code values} are already converted to SQL values in {@link #columns} order, and are copied,
+     * so the caller may reuse the array. {@code source} goes to the {@link RejectedRowHandler} if the row is rejected.
+     */
+    void addRow(Object[] values, Object source) throws SQLException {
+        pending.add(values.clone());
+        sources.add(source);
+        if (pending.size() >= BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Rows inserted into the shadow so far; rows isolated as rejected are not counted.
+     */
+    long rowsInserted() {
+        return rowsInserted;
+    }
+
+    /**
+     * Builds keys and indexes on the loaded shadow, analyzes it, and swaps it in for the live table.
+     */
+    void complete() throws SQLException {
+        flush();
+        insert.close();
+        insert = null;
+        connection.commit();
+
+        List<TableDdl.IndexDefinition> indexes = TableDdl.readIndexes(connection, render(liveTable), true);
+        try (Statement statement = connection.createStatement()) {
+            for (TableDdl.IndexDefinition index : indexes) {
+                statement.execute(index.createStatement(render(shadowTable), shadowName(index.name())));
+            }
+            statement.execute("ANALYZE " + render(shadowTable));
+        }
+        connection.commit();
+
+        SQLException lastFailure = null;
+        for (int attempt = 1; attempt <= SWAP_ATTEMPTS; attempt++) {
+            try {
+                swap(indexes);
+                return;
+            } catch (SQLException ex) {
+                connection.rollback();
+                if (!LOCK_NOT_AVAILABLE.equals(ex.getSQLState()) && !DEADLOCK_DETECTED.equals(ex.getSQLState())) {
+                    throw ex;
+                }
+                lastFailure = ex;
+                System.out.printf(Locale.US, "Swap of %s failed (attempt %d/%d): %s%n",
+                        liveTable, attempt, SWAP_ATTEMPTS, ex.getMessage());
+            }
+        }
+        throw lastFailure;
+    }
+
+    /**
+     * Drops the shadow table after a failed or cancelled load; the live table is untouched.
+     */
+    void abort() {
+        try {
+            if (insert != null) {
+                insert.close();
+                insert = null;
+            }
+            connection.rollback();
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE IF EXISTS " + render(shadowTable));
+            }
+            connection.commit();
+        } catch (SQLException ex) {
+            System.err.printf(Locale.US, "Failed to drop shadow table %s: %s%n", shadowTable, ex.getMessage());
+        }
+    }
+
+    private void flush() throws SQLException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        int rows = pending.size();
+        long sqlStart = profiler.start();
+        JdbcFlushEvent event = new JdbcFlushEvent();
+        event.begin();
+        try {
+            if (rejectedRows == null) {
+                insert(0, rows);
+            } else {
+                insertIsolating(0, rows);
+            }
+        } finally {
+            profiler.stop(SyncProfiler.STAGE_SQL, sqlStart);
+            profiler.roundTrip(SyncProfiler.STAGE_SQL);
+            event.end();
+            if (event.shouldCommit()) {
+                event.table = shadowTable;
+                event.rows = rows;
+                event.isolating = rejectedRows != null;
+                event.commit();
+            }
+        }
+        pending.clear();
+        sources.clear();
+    }
+
+    private void insert(int from, int to) throws SQLException {
+        try {
+            for (int row = from; row < to; row++) {
+                Object[] values = pending.get(row);
+                for (int i = 0; i < values.length; i++) {
+                    dialect.bind(insert, i + 1, values[i], sqlTypes[i]);
+                }
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        } catch (SQLException ex) {
+            insert.clearBatch();
+            throw ex;
+        }
+        rowsInserted += to - from;
+    }
+
+    private void insertIsolating(int from, int to) throws SQLException {
+        Savepoint savepoint = connection.setSavepoint();
+        long insertedBefore = rowsInserted;
+        try {
+            insert(from, to);
+        } catch (SQLException ex) {
+            connection.rollback(savepoint);
+            rowsInserted = insertedBefore;
+            profiler.roundTrip(SyncProfiler.STAGE_SQL);
+            if (to - from == 1) {
+                rejectedRows.rejected(pending.get(from)[0], sources.get(from), ex);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            insertIsolating(from, middle);
+            insertIsolating(middle, to);
+            return;
+        }
+        connection.releaseSavepoint(savepoint);
+    }
+
+    private void swap(List<TableDdl.IndexDefinition> indexes) throws SQLException {
+        long commitStart = profiler.start();
+        CommitEvent event = new CommitEvent();
+        event.begin();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET LOCAL lock_timeout = '" + SWAP_LOCK_TIMEOUT + "'");
+            for (String[] owned : ownedSequences()) {
+                statement.execute("ALTER SEQUENCE " + owned[0] + " OWNED BY "
+                        + render(shadowTable) + "." + render(owned[1]));
+            }
+            for (String copied : tablePropertyStatements()) {
+                statement.execute(copied);
+            }
+            statement.execute("DROP TABLE " + render(liveTable));
+            statement.execute("ALTER TABLE " + render(shadowTable) + " RENAME TO " + render(liveTable));
+            for (TableDdl.IndexDefinition index : indexes) {
+                statement.execute(index.renameStatement(render(liveTable), shadowName(index.name())));
+            }
+        }
+        connection.commit();
+        event.end();
+        if (event.shouldCommit()) {
+            event.table = liveTable;
+            event.commit();
+        }
+        profiler.stop(SyncProfiler.STAGE_COMMIT, commitStart);
+        profiler.roundTrip(SyncProfiler.STAGE_COMMIT);
+    }
+
+    /**
+     * Fails with a hint to use upserts when {@code sql}, run with the live table for each parameter, returns any
+     * rows: the swap would drop or lose what they describe.
+     */
+    private void refuseIfPresent(String reason, String sql) throws SQLException {
+        List<String> found = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            int parameters = (int) sql.chars().filter(c -> c == '?').count();
+            for (int i = 1; i <= parameters; i++) {
+                statement.setString(i, render(liveTable));
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    found.add(rs.getString(1));
+                }
+            }
+        }
+        if (!found.isEmpty()) {
+            throw new SQLException("Table " + liveTable + " " + reason + " " + found
+                    + "; use refreshStrategy \"upsert\" for this merge");
+        }
+    }
+
+    /**
+     * Statements that give the shadow the live table's privileges, comment and owner, read at swap time so changes
+     * made during the load are kept. Column comments already come with {@code LIKE ... INCLUDING ALL}.
+     */
+    private List<String> tablePropertyStatements() throws SQLException {
+        List<String> result = new ArrayList<>();
+        String shadow = render(shadowTable);
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT a.privilege_type, CASE WHEN a.grantee = 0 THEN 'PUBLIC' "
+                        + "ELSE quote_ident(pg_get_userbyid(a.grantee)) END AS grantee, a.is_grantable "
+                        + "FROM pg_class c, aclexplode(c.relacl) a WHERE c.oid = ?::regclass")) {
+            statement.setString(1, render(liveTable));
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    result.add("GRANT " + rs.getString("privilege_type") + " ON " + shadow + " TO "
+                            + rs.getString("grantee") + (rs.getBoolean("is_grantable") ? " WITH GRANT OPTION" : ""));
+                }
+            }
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT quote_literal(obj_description(c.oid, 'pg_class')) AS table_comment, "
+                        + "quote_ident(pg_get_userbyid(c.relowner)) AS owner, "
+                        + "pg_get_userbyid(c.relowner) <> current_user AS foreign_owner "
+                        + "FROM pg_class c WHERE c.oid = ?::regclass")) {
+            statement.setString(1, render(liveTable));
+            try (ResultSet rs = statement.executeQuery()) {
+                if (rs.next()) {
+                    String comment = rs.getString("table_comment");
+                    if (comment != null) {
+                        result.add("COMMENT ON TABLE " + shadow + " IS " + comment);
+                    }
+                    if (rs.getBoolean("foreign_owner")) {
+                        result.add("ALTER TABLE " + shadow + " OWNER TO " + rs.getString("owner"));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private List<String[]> ownedSequences() throws SQLException {
+        List<String[]> result = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT d.objid::regclass::text AS sequence_name, a.attname FROM pg_depend d "
+                        + "JOIN pg_class s ON s.oid = d.objid AND s.relkind = 'S' "
+                        + "JOIN pg_attribute a ON a.attrelid = d.refobjid AND a.attnum = d.refobjsubid "
+                        + "WHERE d.refobjid = ?::regclass AND d.deptype = 'a'")) {
+            statement.setString(1, render(liveTable));
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    result.add(new String[]{rs.getString("sequence_name"), rs.getString("attname")});
+                }
+            }
+        }
+        return result;
+    }
+
+    private static String shadowName(String name) {
+        String base = name.length() + SHADOW_SUFFIX.length() > MAX_IDENTIFIER_LENGTH
+                ? name.substring(0, MAX_IDENTIFIER_LENGTH - SHADOW_SUFFIX.length())
+                : name;
+        return base + SHADOW_SUFFIX;
+    }
+
+    private static String render(String identifier) {
+        return TableDdl.quoteIdentifier(identifier);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.arango2rdb;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown when a {@link SyncListener} requests cancellation. Work up to the last batch boundary of the interrupted
+ * merge has already been committed.
+ */
+public class SyncCancelledException extends SQLException {
+
+    private static final long serialVersionUID = 1L;
+
+    public SyncCancelledException(String mergeName) {
+        super("Sync cancelled during merge " + mergeName);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.arango2rdb;
+
+/**
+ * Receives progress callbacks from {@link SyncService}. Callbacks run on the sync thread, so implementations must
+ * return quickly. {@link #isCancelled()} is polled at every batch boundary. {@code repositorySchema} is
+ * {@code null} when the sync writes to the base tables.
+ */
+public interface SyncListener {
+
+    SyncListener NONE = new SyncListener() {
+    };
+
+    default void mergeStarted(String mergeName, int mergeIndex, int mergeCount, long estimatedDocuments) {
+    }
+
+    default void documentsProcessed(String mergeName, long documentsProcessed) {
+    }
+
+    default void mergeCompleted(String mergeName, String repositorySchema, String targetTable, long documentsProcessed) {
+    }
+
+    /**
+     * Reports new read and write sizing chosen by the {@link ThroughputController}, at most once per progress update.
+     */
+    default void throughputChanged(ThroughputController.Settings settings) {
+    }
+
+    default boolean isCancelled() {
+        return false;
+    }
+}
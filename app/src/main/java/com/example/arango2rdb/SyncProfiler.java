@@ -0,0 +1,266 @@
+package com.example.arango2rdb;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Collects per-stage timings for {@link SyncService} merges. A disabled profiler turns every call into a no-op so
+ * the hot loop only pays for a field read when profiling is off.
+ */
+public class SyncProfiler {
+    public static final String STAGE_MAIN_FETCH = "main fetch";
+    public static final String STAGE_COERCION = "coercion";
+    public static final String STAGE_SQL = "sql";
+    public static final String STAGE_COMMIT = "commit";
+
+    private static final int SAMPLE_CAPACITY = 8192;
+    private static final SyncProfiler DISABLED = new SyncProfiler(false);
+
+    private final boolean enabled;
+    private final List<MergeProfile> merges = new ArrayList<>();
+    private final com.sun.management.ThreadMXBean threadBean;
+    private MergeProfile current;
+
+    private SyncProfiler(boolean enabled) {
+        this.enabled = enabled;
+        this.threadBean = enabled ? resolveThreadBean() : null;
+    }
+
+    public static SyncProfiler enabled() {
+        return new SyncProfiler(true);
+    }
+
+    public static SyncProfiler disabled() {
+        return DISABLED;
+    }
+
+    public static String joinStage(String alias) {
+        return "join " + alias;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts the profile of a merge. {@code helperThreads} are the threads that work for the merge besides the calling
+     * one, such as join lookup threads; their allocations count towards the merge too.
+     */
+    public synchronized void beginMerge(String mergeName, List<Thread> helperThreads) {
+        if (!enabled) {
+            return;
+        }
+        current = new MergeProfile(mergeName, System.nanoTime(), allocatedBytes(), helperAllocatedBytes(helperThreads));
+        merges.add(current);
+    }
+
+    /**
+     * Ends the current merge's profile; {@code helperThreads} may include threads started since
+     * {@link #beginMerge}, whose allocations are counted from their start.
+     */
+    public synchronized void endMerge(List<Thread> helperThreads) {
+        if (!enabled || current == null) {
+            return;
+        }
+        current.elapsedNanos = System.nanoTime() - current.startNanos;
+        long allocated = allocatedBytes();
+        current.allocatedBytes = allocated >= 0 && current.startAllocatedBytes >= 0
+                ? allocated - current.startAllocatedBytes
+                : -1L;
+        if (current.allocatedBytes >= 0) {
+            long helperAllocated = 0L;
+            for (Map.Entry<Long, Long> entry : helperAllocatedBytes(helperThreads).entrySet()) {
+                helperAllocated += entry.getValue() - current.startHelperAllocatedBytes.getOrDefault(entry.getKey(), 0L);
+            }
+            current.helperAllocatedBytes = helperAllocated;
+            current.allocatedBytes += helperAllocated;
+        }
+        current = null;
+    }
+
+    public long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Records a stage timing; join lookups may call this from several threads at once.
+     */
+    public void stop(String stage, long startNanos) {
+        if (!enabled) {
+            return;
+        }
+        long elapsed = System.nanoTime() - startNanos;
+        synchronized (this) {
+            if (current != null) {
+                current.stage(stage).record(elapsed);
+            }
+        }
+    }
+
+    public void roundTrip(String stage) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            if (current != null) {
+                current.stage(stage).roundTrips++;
+            }
+        }
+    }
+
+    public void documentRead() {
+        if (enabled && current != null) {
+            current.documents++;
+        }
+    }
+
+    public void rowWritten() {
+        if (enabled && current != null) {
+            current.rows++;
+        }
+    }
+
+    public synchronized String report() {
+        if (!enabled) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder();
+        for (MergeProfile merge : merges) {
+            merge.appendTo(out);
+        }
+        return out.toString();
+    }
+
+    private long allocatedBytes() {
+        if (threadBean == null) {
+            return -1L;
+        }
+        return threadBean.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Bytes allocated so far by each live thread of {@code threads}, by thread id; threads that have ended are left
+     * out, so their allocations are lost.
+     */
+    private Map<Long, Long> helperAllocatedBytes(List<Thread> threads) {
+        Map<Long, Long> result = new HashMap<>();
+        if (threadBean == null || threads.isEmpty()) {
+            return result;
+        }
+        long[] ids = new long[threads.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = threads.get(i).getId();
+        }
+        long[] allocated = threadBean.getThreadAllocatedBytes(ids);
+        for (int i = 0; i < ids.length; i++) {
+            if (allocated[i] >= 0) {
+                result.put(ids[i], allocated[i]);
+            }
+        }
+        return result;
+    }
+
+    private static com.sun.management.ThreadMXBean resolveThreadBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()) {
+            if (!bean.isThreadAllocatedMemoryEnabled()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+            }
+            return bean;
+        }
+        return null;
+    }
+
+    private static final class MergeProfile {
+        private final String name;
+        private final long startNanos;
+        private final long startAllocatedBytes;
+        private final Map<Long, Long> startHelperAllocatedBytes;
+        private final Map<String, StageStats> stages = new LinkedHashMap<>();
+        private long elapsedNanos;
+        private long allocatedBytes = -1L;
+        private long helperAllocatedBytes;
+        private long documents;
+        private long rows;
+
+        private MergeProfile(String name,
+                             long startNanos,
+                             long startAllocatedBytes,
+                             Map<Long, Long> startHelperAllocatedBytes) {
+            this.name = name;
+            this.startNanos = startNanos;
+            this.startAllocatedBytes = startAllocatedBytes;
+            this.startHelperAllocatedBytes = startHelperAllocatedBytes;
+        }
+
+        private StageStats stage(String stage) {
+            return stages.computeIfAbsent(stage, key -> new StageStats());
+        }
+
+        private void appendTo(StringBuilder out) {
+            out.append(String.format(Locale.US, "Merge %s: %d docs, %d rows, %.1f ms",
+                    name, documents, rows, elapsedNanos / 1_000_000.0));
+            if (allocatedBytes >= 0) {
+                long perRow = rows > 0 ? allocatedBytes / rows : allocatedBytes;
+                out.append(String.format(Locale.US, ", %d bytes allocated (%d bytes/row, %d on lookup threads)",
+                        allocatedBytes, perRow, helperAllocatedBytes));
+            }
+            out.append(System.lineSeparator());
+            out.append(String.format(Locale.US, "  %-24s %10s %12s %12s %10s %10s %10s %10s%n",
+                    "stage", "calls", "round-trips", "total ms", "p50 us", "p95 us", "p99 us", "max us"));
+            for (Map.Entry<String, StageStats> entry : stages.entrySet()) {
+                StageStats stats = entry.getValue();
+                out.append(String.format(Locale.US, "  %-24s %10d %12d %12.1f %10.1f %10.1f %10.1f %10.1f%n",
+                        entry.getKey(),
+                        stats.calls,
+                        stats.roundTrips,
+                        stats.totalNanos / 1_000_000.0,
+                        stats.percentile(0.50) / 1_000.0,
+                        stats.percentile(0.95) / 1_000.0,
+                        stats.percentile(0.99) / 1_000.0,
+                        stats.maxNanos / 1_000.0));
+            }
+        }
+    }
+
+    private static final class StageStats {
+        private final long[] samples = new long[SAMPLE_CAPACITY];
+        private long calls;
+        private long roundTrips;
+        private long totalNanos;
+        private long maxNanos;
+
+        private void record(long nanos) {
+            // Reservoir sampling keeps percentiles representative without retaining every call.
+            if (calls < SAMPLE_CAPACITY) {
+                samples[(int) calls] = nanos;
+            } else {
+                long slot = ThreadLocalRandom.current().nextLong(calls + 1);
+                if (slot < SAMPLE_CAPACITY) {
+                    samples[(int) slot] = nanos;
+                }
+            }
+            calls++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        private double percentile(double quantile) {
+            int size = (int) Math.min(calls, SAMPLE_CAPACITY);
+            if (size == 0) {
+                return 0.0;
+            }
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(quantile * size) - 1;
+            return sorted[Math.max(0, Math.min(index, size - 1))];
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.arango2rdb;
+
+import com.example.arango2rdb.dialect.SqlDialect;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * The run history: one {@code sync_runs} row per sync, scheduled merge or dead-letter retry, and one
+ * {@code sync_run_merges} row per merge it ran, with the merge's {@link MergeRunStats}. Both tables live in the
+ * default schema, next to {@code sync_repositories}; repository syncs record their schema in the run. Every method
+ * commits, so it must only be called between merges.
+ */
+final class SyncRunStore {
+    static final String RUNS_TABLE = "sync_runs";
+    static final String MERGES_TABLE = "sync_run_merges";
+    static final String RUNNING = "RUNNING";
+    private static final int MAX_ERROR_LENGTH = 4000;
+
+    /**
+     * A run in progress and the totals of the merges recorded so far.
+     */
+    static final class Run {
+        final String id = UUID.randomUUID().toString();
+        final Instant startedAt = Instant.now();
+        int merges;
+        long documentsRead;
+        long rowsWritten;
+        long rowsRejected;
+    }
+
+    private final Connection connection;
+    private final SqlDialect dialect;
+
+    SyncRunStore(Connection connection, SqlDialect dialect) {
+        this.connection = connection;
+        this.dialect = dialect;
+    }
+
+    /**
+     * Creates the tables unless they exist, and commits.
+     */
+    void ensureTables() throws SQLException {
+        boolean created = false;
+        try (Statement statement = connection.createStatement()) {
+            if (!exists(RUNS_TABLE)) {
+                statement.execute("CREATE TABLE " + table(RUNS_TABLE) + " ("
+                        + column("run_id") + " VARCHAR(36) NOT NULL PRIMARY KEY, "
+                        + column("run_kind") + " VARCHAR(32) NOT NULL, "
+                        + column("repository_schema") + " VARCHAR(255), "
+                        + column("started_at") + " TIMESTAMP NOT NULL, "
+                        + column("finished_at") + " TIMESTAMP, "
+                        + column("status") + " VARCHAR(16) NOT NULL, "
+                        + column("merge_count") + " INTEGER NOT NULL, "
+                        + column("documents_read") + " BIGINT NOT NULL, "
+                        + column("rows_written") + " BIGINT NOT NULL, "
+                        + column("rows_rejected") + " BIGINT NOT NULL, "
+                        + column("error_message") + " VARCHAR(" + MAX_ERROR_LENGTH + "))");
+                created = true;
+            }
+            if (!exists(MERGES_TABLE)) {
+                statement.execute("CREATE TABLE " + table(MERGES_TABLE) + " ("
+                        + column("run_id") + " VARCHAR(36) NOT NULL, "
+                        + column("merge_name") + " VARCHAR(255) NOT NULL, "
+                        + column("target_table") + " VARCHAR(255) NOT NULL, "
+                        + column("started_at") + " TIMESTAMP NOT NULL, "
+                        + column("finished_at") + " TIMESTAMP NOT NULL, "
+                        + column("status") + " VARCHAR(16) NOT NULL, "
+                        + column("documents_read") + " BIGINT NOT NULL, "
+                        + column("rows_written") + " BIGINT NOT NULL, "
+                        + column("rows_inserted") + " BIGINT, "
+                        + column("rows_updated") + " BIGINT, "
+                        + column("rows_skipped") + " BIGINT NOT NULL, "
+                        + column("rows_rejected") + " BIGINT NOT NULL, "
+                        + column("join_lookups") + " BIGINT NOT NULL, "
+                        + column("bytes_read") + " BIGINT NOT NULL, "
+                        + column("bytes_written") + " BIGINT NOT NULL, "
+                        + column("error_message") + " VARCHAR(" + MAX_ERROR_LENGTH + "), "
+                        + "PRIMARY KEY (" + column("run_id") + ", " + column("merge_name") + "))");
+                statement.execute("CREATE INDEX " + column(MERGES_TABLE + "_trend_idx") + " ON "
+                        + table(MERGES_TABLE) + " (" + column("merge_name") + ", " + column("started_at") + ")");
+                created = true;
+            }
+        }
+        connection.commit();
+        if (created) {
+            System.out.printf(Locale.US, "Created run history tables %s and %s%n", RUNS_TABLE, MERGES_TABLE);
+        }
+    }
+
+    Run begin(String kind, String repositorySchema) throws SQLException {
+        Run run = new Run();
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + table(RUNS_TABLE) + " ("
+                + column("run_id") + ", " + column("run_kind") + ", " + column("repository_schema") + ", "
+                + column("started_at") + ", " + column("status") + ", " + column("merge_count") + ", "
+                + column("documents_read") + ", " + column("rows_written") + ", " + column("rows_rejected")
+                + ") VALUES (?, ?, ?, ?, ?, 0, 0, 0, 0)")) {
+            insert.setString(1, run.id);
+            insert.setString(2, kind);
+            insert.setString(3, repositorySchema == null || repositorySchema.isBlank() ? null : repositorySchema);
+            insert.setTimestamp(4, Timestamp.from(run.startedAt));
+            insert.setString(5, RUNNING);
+            insert.executeUpdate();
+        }
+        connection.commit();
+        return run;
+    }
+
+    void recordMerge(Run run, MergeRunStats stats) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + table(MERGES_TABLE) + " ("
+                + column("run_id") + ", " + column("merge_name") + ", " + column("target_table") + ", "
+                + column("started_at") + ", " + column("finished_at") + ", " + column("status") + ", "
+                + column("documents_read") + ", " + column("rows_written") + ", " + column("rows_inserted") + ", "
+                + column("rows_updated") + ", " + column("rows_skipped") + ", " + column("rows_rejected") + ", "
+                + column("join_lookups") + ", " + column("bytes_read") + ", " + column("bytes_written") + ", "
+                + column("error_message") + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            insert.setString(1, run.id);
+            insert.setString(2, stats.mergeName);
+            insert.setString(3, stats.targetTable);
+            insert.setTimestamp(4, Timestamp.from(stats.startedAt));
+            insert.setTimestamp(5, Timestamp.from(stats.finishedAt));
+            insert.setString(6, stats.status);
+            insert.setLong(7, stats.documentsRead);
+            insert.setLong(8, stats.rowsWritten);
+            setCount(insert, 9, stats.rowsInserted);
+            setCount(insert, 10, stats.rowsUpdated);
+            insert.setLong(11, stats.rowsSkipped);
+            insert.setLong(12, stats.rowsRejected);
+            insert.setLong(13, stats.joinLookups.get());
+            insert.setLong(14, stats.bytesRead.get());
+            insert.setLong(15, stats.bytesWritten);
+            insert.setString(16, truncate(stats.error));
+            insert.executeUpdate();
+        }
+        connection.commit();
+        run.merges++;
+        run.documentsRead += stats.documentsRead;
+        run.rowsWritten += stats.rowsWritten;
+        run.rowsRejected += stats.rowsRejected;
+    }
+
+    void finish(Run run, String status, String error) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement("UPDATE " + table(RUNS_TABLE) + " SET "
+                + column("finished_at") + " = ?, " + column("status") + " = ?, " + column("merge_count") + " = ?, "
+                + column("documents_read") + " = ?, " + column("rows_written") + " = ?, "
+                + column("rows_rejected") + " = ?, " + column("error_message") + " = ? WHERE "
+                + column("run_id") + " = ?")) {
+            update.setTimestamp(1, Timestamp.from(Instant.now()));
+            update.setString(2, status);
+            update.setInt(3, run.merges);
+            update.setLong(4, run.documentsRead);
+            update.setLong(5, run.rowsWritten);
+            update.setLong(6, run.rowsRejected);
+            update.setString(7, truncate(error));
+            update.setString(8, run.id);
+            update.executeUpdate();
+        }
+        connection.commit();
+    }
+
+    private boolean exists(String tableName) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        for (String pattern : new String[]{tableName, tableName.toUpperCase(Locale.ROOT)}) {
+            try (ResultSet tables = metaData.getTables(connection.getCatalog(), connection.getSchema(), pattern,
+                    new String[]{"TABLE"})) {
+                if (tables.next()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void setCount(PreparedStatement statement, int index, long count) throws SQLException {
+        if (count < 0) {
+            statement.setNull(index, Types.BIGINT);
+        } else {
+            statement.setLong(index, count);
+        }
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+
+    private String table(String name) {
+        return dialect.quoteIdentifier(name);
+    }
+
+    private String column(String name) {
+        return dialect.quoteIdentifier(name);
+    }
+}
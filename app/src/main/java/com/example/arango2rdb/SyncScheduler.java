@@ -0,0 +1,246 @@
+package com.example.arango2rdb;
+
+import com.example.arango2rdb.config.SyncConfig;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs every merge that has a {@code schedule} on its interval until closed, for the {@code daemon} command and the
+ * web viewer's scheduler. Runs go to a pool of {@code scheduler.workers} threads and reuse idle {@link SyncService}s,
+ * so connections, column type caches and throughput settings stay warm between runs; a service whose run failed is
+ * closed and replaced. A merge is never run twice at once: when its next run is due while the previous one is still
+ * queued or running, or while another run of it holds the merge's lock in {@link SyncService}, such as a sync started
+ * from the web viewer, that run is skipped. The first runs are spread evenly over {@code scheduler.startSpreadSeconds}
+ * so the merges do not all hit the databases at the same moment.
+ */
+public final class SyncScheduler implements AutoCloseable {
+    private static final long SHUTDOWN_WAIT_SECONDS = 30;
+
+    private final SyncConfig config;
+    private final SyncListener listener;
+    private final List<SyncConfig.MergeMapping> scheduled = new ArrayList<>();
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+    private final Deque<SyncService> idle = new ArrayDeque<>();
+    private final ScheduledExecutorService timer;
+    private final ExecutorService workers;
+    private final CountDownLatch closedLatch = new CountDownLatch(1);
+    private volatile boolean closed;
+
+    /**
+     * {@code listener} receives the progress of every run; the scheduler cancels runs in progress when it closes.
+     */
+    public SyncScheduler(SyncConfig config, SyncListener listener) {
+        this.config = config;
+        SyncListener delegate = listener != null ? listener : SyncListener.NONE;
+        this.listener = new SyncListener() {
+            @Override
+            public void mergeStarted(String mergeName, int mergeIndex, int mergeCount, long estimatedDocuments) {
+                delegate.mergeStarted(mergeName, mergeIndex, mergeCount, estimatedDocuments);
+            }
+
+            @Override
+            public void documentsProcessed(String mergeName, long documentsProcessed) {
+                delegate.documentsProcessed(mergeName, documentsProcessed);
+            }
+
+            @Override
+            public void mergeCompleted(String mergeName, String schema, String targetTable, long documentsProcessed) {
+                delegate.mergeCompleted(mergeName, schema, targetTable, documentsProcessed);
+            }
+
+            @Override
+            public void throughputChanged(ThroughputController.Settings settings) {
+                delegate.throughputChanged(settings);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return closed || delegate.isCancelled();
+            }
+        };
+        for (SyncConfig.MergeMapping merge : config.merges) {
+            if (merge.scheduleInterval() != null) {
+                scheduled.add(merge);
+            }
+        }
+        if (scheduled.isEmpty()) {
+            throw new IllegalArgumentException("No merge has a schedule; add e.g. \"schedule\": \"1h\" to a merge");
+        }
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sync-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(config.scheduler.workers, runnable -> {
+            Thread thread = new Thread(runnable, "sync-daemon-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Schedules the merges. Merge {@code i} of {@code n} first runs after {@code i/n} of the start spread, capped
+     * at its own interval, and then at a fixed rate.
+     */
+    public void start() {
+        long spreadMillis = TimeUnit.SECONDS.toMillis(config.scheduler.startSpreadSeconds);
+        for (int i = 0; i < scheduled.size(); i++) {
+            SyncConfig.MergeMapping merge = scheduled.get(i);
+            long intervalMillis = merge.scheduleInterval().toMillis();
+            long offsetMillis = Math.min(spreadMillis, intervalMillis) * i / scheduled.size();
+            timer.scheduleAtFixedRate(() -> trigger(merge), offsetMillis, intervalMillis, TimeUnit.MILLISECONDS);
+            System.out.printf(Locale.US, "Scheduled merge %s every %s, first run in %d s%n",
+                    merge.name, describe(merge.scheduleInterval()), TimeUnit.MILLISECONDS.toSeconds(offsetMillis));
+        }
+    }
+
+    /**
+     * Blocks until {@link #close()} has finished.
+     */
+    public void awaitClose() throws InterruptedException {
+        closedLatch.await();
+    }
+
+    private void trigger(SyncConfig.MergeMapping merge) {
+        if (closed) {
+            return;
+        }
+        if (!running.add(merge.name)) {
+            System.out.printf(Locale.US, "Merge %s is still running, skipping the run due now%n", merge.name);
+            return;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    runOnce(merge);
+                } finally {
+                    running.remove(merge.name);
+                }
+            });
+        } catch (RuntimeException ex) {
+            running.remove(merge.name);
+            if (!closed) {
+                throw ex;
+            }
+        }
+    }
+
+    private void runOnce(SyncConfig.MergeMapping merge) {
+        if (closed) {
+            return;
+        }
+        long start = System.nanoTime();
+        SyncService service = null;
+        try {
+            service = takeService();
+            boolean ran = service.runMerge(merge.name);
+            releaseService(service);
+            if (!ran) {
+                System.out.printf(Locale.US, "Merge %s is being synced by another run, skipping the run due now%n",
+                        merge.name);
+                return;
+            }
+            System.out.printf(Locale.US, "Scheduled run of merge %s finished in %d ms%n",
+                    merge.name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (SyncCancelledException ex) {
+            closeQuietly(service);
+        } catch (Exception ex) {
+            // The connection may be broken or the table definitions stale; the next run starts from a new service.
+            closeQuietly(service);
+            System.err.printf(Locale.US, "Scheduled run of merge %s failed after %d ms: %s%n",
+                    merge.name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), ex.getMessage());
+        }
+    }
+
+    private SyncService takeService() throws SQLException {
+        synchronized (idle) {
+            SyncService service = idle.pollFirst();
+            if (service != null) {
+                return service;
+            }
+        }
+        SyncService service = new SyncService(config);
+        service.setListener(listener);
+        return service;
+    }
+
+    private void releaseService(SyncService service) {
+        synchronized (idle) {
+            if (!closed) {
+                idle.addFirst(service);
+                return;
+            }
+        }
+        closeQuietly(service);
+    }
+
+    private static void closeQuietly(SyncService service) {
+        if (service == null) {
+            return;
+        }
+        try {
+            service.close();
+        } catch (SQLException ex) {
+            System.err.printf(Locale.US, "Failed to close sync service: %s%n", ex.getMessage());
+        }
+    }
+
+    private static String describe(Duration interval) {
+        long seconds = interval.getSeconds();
+        if (seconds % 86400 == 0) {
+            return seconds / 86400 + "d";
+        }
+        if (seconds % 3600 == 0) {
+            return seconds / 3600 + "h";
+        }
+        if (seconds % 60 == 0) {
+            return seconds / 60 + "m";
+        }
+        return seconds + "s";
+    }
+
+    /**
+     * Stops scheduling, cancels runs in progress at their next batch boundary and closes the idle services.
+     */
+    @Override
+    public void close() {
+        synchronized (idle) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        timer.shutdownNow();
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        synchronized (idle) {
+            for (SyncService service : idle) {
+                closeQuietly(service);
+            }
+            idle.clear();
+        }
+        closedLatch.countDown();
+    }
+}
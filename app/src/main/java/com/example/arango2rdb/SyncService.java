@@ -7,16 +7,29 @@ import com.arangodb.entity.BaseDocument;
 import com.arangodb.entity.CollectionEntity;
 import com.arangodb.entity.CollectionType;
 import com.arangodb.ArangoDBException;
+import com.example.arango2rdb.config.FieldExpression;
+import com.example.arango2rdb.config.MergeFilter;
 import com.example.arango2rdb.config.SyncConfig;
+import com.example.arango2rdb.dialect.RejectedRowHandler;
+import com.example.arango2rdb.dialect.SqlDialect;
+import com.example.arango2rdb.dialect.UpsertBatch;
+import com.example.arango2rdb.dialect.UpsertTarget;
+import com.example.arango2rdb.jfr.CommitEvent;
+import com.example.arango2rdb.jfr.JoinLookupEvent;
+import com.example.arango2rdb.jfr.MergeEvent;
+import com.example.arango2rdb.sink.ChunkWriter;
+import com.example.arango2rdb.sink.FileSink;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.arangodb.model.CollectionCreateOptions;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.Date;
 import java.sql.DriverManager;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Time;
@@ -32,22 +45,61 @@ import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
 public class SyncService implements AutoCloseable {
+    private static final int PROGRESS_INTERVAL = 1000;
+    private static final long SNAPSHOT_WAIT_SECONDS = 10;
+    /** Prefix of the attributes that carry expressions computed by the main page query. */
+    private static final String DERIVED_ATTRIBUTE = "__a2r_";
+    private static final long LOCK_POLL_MILLIS = 500;
+    /**
+     * One lock per merge and target schema, shared by every service in the JVM, so the web viewer's sync jobs, its
+     * scheduler and retries never run the same merge at once.
+     */
+    private static final Map<String, ReentrantLock> MERGE_LOCKS = new ConcurrentHashMap<>();
+
     private final SyncConfig config;
     private final ArangoDB arangoDB;
     private final ArangoDatabase arangoDatabase;
     private final Connection connection;
     private final DatabaseMetaData databaseMetaData;
+    private final SqlDialect dialect;
     private final Map<String, Map<String, Integer>> columnTypeCache = new HashMap<>();
+    private final Map<String, Map<String, String>> columnTypeNameCache = new HashMap<>();
     private final ObjectMapper jsonMapper = new ObjectMapper();
     private final List<SyncConfig.MergeMapping> mergeMappings;
+    private SyncProfiler profiler = SyncProfiler.disabled();
+    private SyncListener listener = SyncListener.NONE;
+    private FileSink fileSink;
+    private final ThroughputController throughput;
+    private ExecutorService lookupExecutor;
+    /** Threads of {@link #lookupExecutor}, whose allocations the profiler adds to the merge's. */
+    private final List<Thread> lookupThreads = new CopyOnWriteArrayList<>();
+    private final Set<String> indexedMerges = new HashSet<>();
+    private DeadLetterStore baseDeadLetters;
+    private boolean baseDeadLettersOpened;
+    private SyncRunStore runStore;
+    private boolean runHistoryFailed;
+    private final MetadataSnapshot snapshot;
+    private final Path snapshotPath;
+    private final Map<String, String> columnFingerprints = new HashMap<>();
+    private final AtomicBoolean snapshotSavePending = new AtomicBoolean();
+    private ExecutorService snapshotExecutor;
 
     private record TargetTable(String schema, String table) { }
 
@@ -63,10 +115,34 @@ public class SyncService implements AutoCloseable {
             builder.useSsl(true);
         }
         this.arangoDB = builder.build();
+        this.mergeMappings = config.merges != null ? List.copyOf(config.merges) : List.of();
+
+        SyncConfig.MetadataSnapshotConfig snapshotConfig = config.metadataSnapshot != null
+                ? config.metadataSnapshot
+                : new SyncConfig.MetadataSnapshotConfig();
+        String snapshotSource = arango.host + ":" + arango.port + "/" + arango.database
+                + "|" + config.rdb.jdbcUrl + "|" + config.rdb.user;
+        if (snapshotConfig.enabled) {
+            this.snapshotPath = snapshotConfig.path != null
+                    ? Paths.get(snapshotConfig.path)
+                    : Paths.get(System.getProperty("java.io.tmpdir"), String.format(Locale.ROOT,
+                    "arango2rdb-metadata-%08x.bin", snapshotSource.hashCode()));
+            this.snapshot = MetadataSnapshot.load(snapshotPath, snapshotSource);
+        } else {
+            this.snapshotPath = null;
+            this.snapshot = null;
+        }
+        Set<String> required = requiredCollections(true);
+        required.addAll(requiredCollections(false));
+        boolean collectionsKnown = snapshot != null && snapshot.hasCollections(required);
+        boolean collectionsFresh = collectionsKnown
+                && snapshot.hasCollections(required, snapshotConfig.maxAgeSeconds * 1000L);
 
         ArangoDatabase database;
         try {
-            ensureDatabase(arango.database);
+            if (!collectionsKnown) {
+                ensureDatabase(arango.database);
+            }
             database = arangoDB.db(arango.database);
         } catch (ArangoDBException ex) {
             throw new SQLException("Failed to initialise ArangoDB database " + arango.database, ex);
@@ -74,11 +150,27 @@ public class SyncService implements AutoCloseable {
         this.arangoDatabase = database;
 
         SyncConfig.RdbConfig rdb = config.rdb;
+        this.dialect = SqlDialect.resolve(rdb.dialect, rdb.jdbcUrl);
         this.connection = DriverManager.getConnection(rdb.jdbcUrl, rdb.user, rdb.password);
         this.connection.setAutoCommit(false);
         this.databaseMetaData = connection.getMetaData();
-        this.mergeMappings = config.merges != null ? List.copyOf(config.merges) : List.of();
-        ensureCollections(config);
+        this.throughput = new ThroughputController(config.throughput != null
+                ? config.throughput
+                : new SyncConfig.ThroughputConfig());
+        if (!collectionsKnown) {
+            ensureCollections();
+        } else if (!collectionsFresh) {
+            // The snapshot already lists every collection the merges need; check it again off the startup path.
+            snapshotExecutor().execute(() -> {
+                try {
+                    ensureDatabase(arango.database);
+                    ensureCollections();
+                    saveSnapshot();
+                } catch (SQLException | ArangoDBException ex) {
+                    System.err.printf(Locale.US, "Failed to refresh ArangoDB collections: %s%n", ex.getMessage());
+                }
+            });
+        }
     }
 
     private TargetTable targetTable(String repositorySchema, String table) {
@@ -120,8 +212,20 @@ public class SyncService implements AutoCloseable {
         return table.schema();
     }
 
-    private String renderColumn(String column) {
-        return quoteIdentifier(column);
+    public void setProfiler(SyncProfiler profiler) {
+        this.profiler = profiler != null ? profiler : SyncProfiler.disabled();
+    }
+
+    public void setListener(SyncListener listener) {
+        this.listener = listener != null ? listener : SyncListener.NONE;
+    }
+
+    /**
+     * Writes merges to {@code sink} instead of the database. The connection is then only used to read the target
+     * tables' column types, so rows are coerced exactly as they would be for an upsert.
+     */
+    public void setFileSink(FileSink sink) {
+        this.fileSink = sink;
     }
 
     public void run() throws SQLException {
@@ -129,136 +233,899 @@ public class SyncService implements AutoCloseable {
     }
 
     public void run(String repositorySchema) throws SQLException {
+        SyncRunStore.Run run = beginRun("sync", repositorySchema);
+        try {
+            if (config.ensureIndexes) {
+                ensureIndexes(repositorySchema, false);
+            }
+            DeadLetterStore deadLetters = fileSink == null ? openDeadLetters(repositorySchema) : null;
+            int index = 0;
+            for (SyncConfig.MergeMapping merge : mergeMappings) {
+                if (listener.isCancelled()) {
+                    throw new SyncCancelledException(merge.name);
+                }
+                listener.mergeStarted(merge.name, index++, mergeMappings.size(), estimateDocuments(merge.mainCollection));
+                syncMergeRecorded(run, merge, repositorySchema, deadLetters, null, null);
+            }
+        } catch (SQLException | RuntimeException ex) {
+            finishRun(run, ex);
+            throw ex;
+        }
+        finishRun(run, null);
+    }
+
+    /**
+     * Syncs one merge into the base tables. Meant for a long-lived service that runs merges again and again, as the
+     * scheduler does: the connections, column type caches and throughput settings carry over between calls, and
+     * indexes are only ensured on the first run of each merge. Returns false, without running, when another run of
+     * the merge is in progress in this JVM.
+     */
+    public boolean runMerge(String mergeName) throws SQLException {
+        SyncConfig.MergeMapping merge = merge(mergeName);
+        ReentrantLock lock = mergeLock(merge, null);
+        if (!lock.tryLock()) {
+            return false;
+        }
+        try {
+            runMerge(merge, "schedule", null);
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Syncs one merge as a cluster work item: the whole merge when {@code range} is {@code null}, otherwise only the
+     * documents of that range. A range always upserts and leaves the merge's other dead letters alone;
+     * {@link #clearDeadLetters(String)} clears them once for the whole generation of work items.
+     */
+    void runPartition(String mergeName, KeyRange range) throws SQLException {
+        runMerge(merge(mergeName), "cluster", range);
+    }
+
+    private void runMerge(SyncConfig.MergeMapping merge, String kind, KeyRange range) throws SQLException {
+        SyncRunStore.Run run = beginRun(kind, null);
+        try {
+            if (config.ensureIndexes && !indexedMerges.contains(merge.name)) {
+                ensureIndexes(List.of(merge), null, false);
+                indexedMerges.add(merge.name);
+            }
+            DeadLetterStore deadLetters = baseDeadLetters();
+            listener.mergeStarted(merge.name, 0, 1, estimateDocuments(merge.mainCollection));
+            syncMergeRecorded(run, merge, null, deadLetters, null, range);
+        } catch (SQLException | RuntimeException ex) {
+            finishRun(run, ex);
+            throw ex;
+        }
+        finishRun(run, null);
+    }
+
+    /**
+     * Deletes every dead letter of {@code mergeName} from the base schema, and commits.
+     */
+    void clearDeadLetters(String mergeName) throws SQLException {
+        DeadLetterStore deadLetters = baseDeadLetters();
+        if (deadLetters != null) {
+            deadLetters.clear(merge(mergeName).name);
+            connection.commit();
+        }
+    }
+
+    /**
+     * The keys that split {@code mergeName}'s main collection into slices of about {@code documentsPerSlice}
+     * documents, at most {@code maxSlices} of them; empty when the merge is to be synced in one piece. Shadow
+     * refreshes replace the whole table, so they are never split.
+     */
+    List<String> splitKeys(String mergeName, long documentsPerSlice, int maxSlices) throws SQLException {
+        SyncConfig.MergeMapping merge = merge(mergeName);
+        long documents = estimateDocuments(merge.mainCollection);
+        if (merge.refreshStrategy == SyncConfig.RefreshStrategy.SHADOW || documents <= documentsPerSlice) {
+            return List.of();
+        }
+        int slices = (int) Math.min(maxSlices, (documents + documentsPerSlice - 1) / documentsPerSlice);
+        // Each boundary is the last key of a slice; the sorted primary index makes the offset a key scan only.
+        List<String> keys = new ArrayList<>(slices - 1);
+        for (int i = 1; i < slices; i++) {
+            long offset = documents * i / slices - 1;
+            try (ArangoCursor<String> cursor = arangoDatabase.query(
+                    "FOR doc IN @@collection SORT doc._key LIMIT @offset, 1 RETURN doc._key",
+                    Map.of("@collection", merge.mainCollection, "offset", offset), String.class)) {
+                if (cursor.hasNext()) {
+                    String key = cursor.next();
+                    if (keys.isEmpty() || !keys.get(keys.size() - 1).equals(key)) {
+                        keys.add(key);
+                    }
+                }
+            } catch (ArangoDBException | IOException ex) {
+                throw new SQLException("Failed to split collection " + merge.mainCollection, ex);
+            }
+        }
+        return keys;
+    }
+
+    private SyncConfig.MergeMapping merge(String mergeName) {
+        for (SyncConfig.MergeMapping merge : mergeMappings) {
+            if (merge.name.equals(mergeName)) {
+                return merge;
+            }
+        }
+        throw new IllegalArgumentException("Unknown merge " + mergeName);
+    }
+
+    /**
+     * The base schema's dead-letter store, opened on first use and kept for later runs; {@code null} when dead
+     * letters are off or rows go to a file sink.
+     */
+    private DeadLetterStore baseDeadLetters() throws SQLException {
+        if (!baseDeadLettersOpened && fileSink == null) {
+            baseDeadLetters = openDeadLetters(null);
+            baseDeadLettersOpened = true;
+        }
+        return baseDeadLetters;
+    }
+
+    /**
+     * Re-syncs only the documents recorded in the dead-letter table, for every merge or just {@code mergeName}.
+     * Documents that now succeed, or no longer exist, leave the table; the others are recorded again.
+     */
+    public void retryDeadLetters(String mergeName) throws SQLException {
+        if (fileSink != null) {
+            throw new IllegalArgumentException("Dead letters cannot be retried into a file sink");
+        }
+        DeadLetterStore deadLetters = openDeadLetters(null);
+        if (deadLetters == null) {
+            throw new IllegalArgumentException("Dead letters are disabled (deadLetters.errorBudget is 0)");
+        }
+        List<SyncConfig.MergeMapping> selected = new ArrayList<>();
         for (SyncConfig.MergeMapping merge : mergeMappings) {
-            syncMerge(merge, repositorySchema);
+            if (mergeName == null || merge.name.equals(mergeName)) {
+                selected.add(merge);
+            }
+        }
+        if (selected.isEmpty()) {
+            throw new IllegalArgumentException("Unknown merge " + mergeName);
+        }
+        SyncRunStore.Run run = beginRun("retry", null);
+        try {
+            int index = 0;
+            for (SyncConfig.MergeMapping merge : selected) {
+                if (listener.isCancelled()) {
+                    throw new SyncCancelledException(merge.name);
+                }
+                List<String> keys = deadLetters.documentKeys(merge.name);
+                listener.mergeStarted(merge.name, index++, selected.size(), keys.size());
+                if (keys.isEmpty()) {
+                    System.out.printf(Locale.US, "Merge %s has no dead letters%n", merge.name);
+                    continue;
+                }
+                syncMergeRecorded(run, merge, null, deadLetters, new HashSet<>(keys), null);
+            }
+        } catch (SQLException | RuntimeException ex) {
+            finishRun(run, ex);
+            throw ex;
+        }
+        finishRun(run, null);
+    }
+
+    /**
+     * The run history store, created on first use; {@code null} when history is off, rows go to a file sink, or the
+     * tables could not be created.
+     */
+    private SyncRunStore runStore() {
+        if (!config.recordRuns || fileSink != null || runHistoryFailed) {
+            return null;
+        }
+        if (runStore == null) {
+            SyncRunStore store = new SyncRunStore(connection, dialect);
+            try {
+                store.ensureTables();
+                runStore = store;
+            } catch (SQLException ex) {
+                disableRunHistory(ex);
+            }
+        }
+        return runStore;
+    }
+
+    private SyncRunStore.Run beginRun(String kind, String repositorySchema) {
+        SyncRunStore store = runStore();
+        if (store == null) {
+            return null;
+        }
+        try {
+            return store.begin(kind, repositorySchema);
+        } catch (SQLException ex) {
+            disableRunHistory(ex);
+            return null;
+        }
+    }
+
+    private void finishRun(SyncRunStore.Run run, Exception failure) {
+        if (run == null || runHistoryFailed) {
+            return;
+        }
+        String status = failure == null
+                ? MergeRunStats.COMPLETED
+                : failure instanceof SyncCancelledException ? MergeRunStats.CANCELLED : MergeRunStats.FAILED;
+        try {
+            runStore.finish(run, status, failure != null ? failure.getMessage() : null);
+        } catch (SQLException ex) {
+            disableRunHistory(ex);
+        }
+    }
+
+    /**
+     * Runs {@link #syncMerge} and records its statistics in the run history, whether it succeeds or not.
+     */
+    private void syncMergeRecorded(SyncRunStore.Run run,
+                                   SyncConfig.MergeMapping merge,
+                                   String repositorySchema,
+                                   DeadLetterStore deadLetters,
+                                   Set<String> retryKeys,
+                                   KeyRange range) throws SQLException {
+        ReentrantLock lock = acquireMergeLock(merge, repositorySchema);
+        MergeEvent event = new MergeEvent();
+        MergeRunStats stats = new MergeRunStats(merge.name,
+                displayTable(targetTable(repositorySchema, merge.targetTable)),
+                (run != null && !runHistoryFailed) || event.isEnabled());
+        event.begin();
+        try {
+            syncMerge(merge, repositorySchema, deadLetters, retryKeys, range, stats);
+            stats.finish(null);
+        } catch (SQLException | RuntimeException ex) {
+            stats.finish(ex);
+            throw ex;
+        } finally {
+            lock.unlock();
+            event.end();
+            if (event.shouldCommit()) {
+                event.mergeName = merge.name;
+                event.targetTable = stats.targetTable;
+                event.status = stats.status;
+                event.documentsRead = stats.documentsRead;
+                event.rowsWritten = stats.rowsWritten;
+                event.rowsRejected = stats.rowsRejected;
+                event.bytesRead = stats.bytesRead.get();
+                event.commit();
+            }
+            if (run != null && !runHistoryFailed) {
+                try {
+                    runStore.recordMerge(run, stats);
+                } catch (SQLException ex) {
+                    disableRunHistory(ex);
+                }
+            }
+        }
+    }
+
+    private static ReentrantLock mergeLock(SyncConfig.MergeMapping merge, String repositorySchema) {
+        String schema = repositorySchema == null || repositorySchema.isBlank() ? "" : repositorySchema;
+        return MERGE_LOCKS.computeIfAbsent(merge.name + "|" + schema, key -> new ReentrantLock());
+    }
+
+    /**
+     * Waits until no other run of {@code merge} into {@code repositorySchema} is in progress in this JVM, and takes
+     * its lock; a cancellation while waiting surfaces as {@link SyncCancelledException}.
+     */
+    private ReentrantLock acquireMergeLock(SyncConfig.MergeMapping merge, String repositorySchema)
+            throws SyncCancelledException {
+        ReentrantLock lock = mergeLock(merge, repositorySchema);
+        boolean reported = false;
+        try {
+            while (!lock.tryLock(LOCK_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (listener.isCancelled()) {
+                    throw new SyncCancelledException(merge.name);
+                }
+                if (!reported) {
+                    System.out.printf(Locale.US, "Merge %s is being synced by another run, waiting for it%n",
+                            merge.name);
+                    reported = true;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SyncCancelledException(merge.name);
+        }
+        return lock;
+    }
+
+    /**
+     * History is best effort: a sync never fails because its statistics could not be written.
+     */
+    private void disableRunHistory(SQLException ex) {
+        runHistoryFailed = true;
+        System.err.printf(Locale.US, "Run history disabled: %s%n", ex.getMessage());
+        try {
+            connection.rollback();
+        } catch (SQLException ignored) {
+            // the sync reports its own connection failures
         }
     }
 
-    private void syncMerge(SyncConfig.MergeMapping merge, String repositorySchema) throws SQLException {
+    private DeadLetterStore openDeadLetters(String repositorySchema) throws SQLException {
+        SyncConfig.DeadLetterConfig settings = config.deadLetters;
+        if (settings == null || settings.errorBudget == 0) {
+            return null;
+        }
+        String schema = repositorySchema == null || repositorySchema.isBlank() ? null : repositorySchema;
+        DeadLetterStore store = new DeadLetterStore(connection, dialect, schema, settings.table);
+        store.ensureTable();
+        return store;
+    }
+
+    /**
+     * Checks, and unless {@code dryRun} is set creates, the join and upsert key indexes the merges rely on, printing
+     * one line per index.
+     */
+    public List<IndexProvisioner.IndexAction> ensureIndexes(String repositorySchema, boolean dryRun) throws SQLException {
+        return ensureIndexes(mergeMappings, repositorySchema, dryRun);
+    }
+
+    private List<IndexProvisioner.IndexAction> ensureIndexes(List<SyncConfig.MergeMapping> merges,
+                                                             String repositorySchema,
+                                                             boolean dryRun) throws SQLException {
+        List<IndexProvisioner.IndexAction> actions = new IndexProvisioner(arangoDatabase, connection, dialect)
+                .provision(merges, repositorySchema, dryRun, fileSink == null);
+        for (IndexProvisioner.IndexAction action : actions) {
+            if (dryRun || action.outcome() != IndexProvisioner.Outcome.EXISTS) {
+                System.out.printf(Locale.US, "Index %s%n", action);
+            }
+        }
+        return actions;
+    }
+
+    /**
+     * Syncs one merge. {@code retryKeys}, when set, limits the run to those main documents and always upserts;
+     * so does {@code range}, which limits it to a slice of the main collection.
+     */
+    private void syncMerge(SyncConfig.MergeMapping merge,
+                           String repositorySchema,
+                           DeadLetterStore deadLetters,
+                           Set<String> retryKeys,
+                           KeyRange range,
+                           MergeRunStats stats) throws SQLException {
         TargetTable targetTable = targetTable(repositorySchema, merge.targetTable);
-        System.out.printf(Locale.US, "Syncing merge %s -> table %s%n", merge.name, displayTable(targetTable));
-        Map<String, Object> bindVars = Map.of("@collection", merge.mainCollection);
-        try (ArangoCursor<BaseDocument> cursor = arangoDatabase.query(
-                "FOR doc IN @@collection RETURN doc",
-                bindVars,
-                null,
-                BaseDocument.class)) {
-            while (cursor.hasNext()) {
-                BaseDocument mainDoc = cursor.next();
-                Map<String, BaseDocument> context = new HashMap<>();
-                context.put("main", mainDoc);
-
-                boolean skip = false;
-                for (SyncConfig.MergeJoin join : merge.joins) {
-                    BaseDocument joinDoc;
-                    if (join.connectedEdges != null && !join.connectedEdges.isEmpty()) {
-                        joinDoc = fetchJoinDocumentViaEdges(context, join);
-                    } else {
-                        Object localValue = resolveAliasPath(context, join.localField);
-                        joinDoc = null;
-                        if (localValue != null) {
-                            joinDoc = fetchJoinDocument(join, localValue);
-                        }
+        System.out.printf(Locale.US, "Syncing merge %s -> table %s%s%n", merge.name, displayTable(targetTable),
+                retryKeys != null ? " (retrying " + retryKeys.size() + " dead letters)"
+                        : range != null ? " (keys " + range + ")" : "");
+        Map<String, String> joinQueries = new HashMap<>();
+        SyncConfig.MergeJoin hashJoinSpec = null;
+        for (SyncConfig.MergeJoin join : merge.joins) {
+            if (join.strategy == SyncConfig.MergeJoin.JoinStrategy.HASH) {
+                hashJoinSpec = join;
+            } else {
+                joinQueries.put(join.alias, joinQuery(merge, join));
+            }
+        }
+        profiler.beginMerge(merge.name, lookupThreads);
+        List<String> columns = rowColumns(merge);
+        String[][] columnPaths = columnPaths(merge, columns);
+        FieldExpression[] columnExpressions = new FieldExpression[columns.size()];
+        String projection = planExpressions(merge, columns, columnPaths, columnExpressions);
+        boolean evaluates = false;
+        for (FieldExpression expression : columnExpressions) {
+            evaluates |= expression != null;
+        }
+        int[] sqlTypes = new int[columns.size()];
+        for (int i = 0; i < sqlTypes.length; i++) {
+            sqlTypes[i] = resolveColumnType(targetTable, columns.get(i));
+        }
+        // Reused for every document; the upsert batch, the shadow insert and the file sink copy the values out.
+        Object[] row = new Object[columns.size()];
+        Map<String, BaseDocument> hashContext = new HashMap<>();
+        ShadowTableRefresh shadow = null;
+        UpsertBatch upserts = null;
+        ChunkWriter sinkWriter = null;
+        ExternalHashJoin hashJoin = null;
+        if (fileSink != null) {
+            sinkWriter = fileSink.openMerge(merge.name, targetTable.table(), merge.keyColumn, columns, sqlTypes,
+                    columnTypeNames(targetTable, columns));
+        } else if (merge.refreshStrategy == SyncConfig.RefreshStrategy.SHADOW && targetTable.schema() == null
+                && retryKeys == null && range == null) {
+            if (dialect.supportsShadowRefresh()) {
+                shadow = new ShadowTableRefresh(connection, dialect, targetTable.table(), columns, sqlTypes, profiler);
+            } else {
+                System.out.printf(Locale.US, "Merge %s: shadow refresh is not supported by dialect %s, using upsert%n",
+                        merge.name, dialect.name());
+            }
+        }
+        throughput.beginMerge();
+        RejectedRows rejects = new RejectedRows(merge, displayTable(targetTable), deadLetters);
+        Set<String> retried = new HashSet<>();
+        MergeFilter.Compiled filter = merge.filter != null
+                ? merge.filter.compile(SyncService::mainAttributeAccess, Instant.now())
+                : null;
+        MainDocumentReader reader = new MainDocumentReader(arangoDatabase, merge.mainCollection, retryKeys, range,
+                projection, filter, throughput, profiler,
+                hashJoinSpec != null ? null : docContext -> resolveJoins(merge, docContext, joinQueries, null, null, stats),
+                hashJoinSpec != null ? null : lookupExecutor());
+        ThroughputController.Settings reported = null;
+        try {
+            if (shadow != null) {
+                shadow.begin();
+                if (deadLetters != null) {
+                    shadow.setRejectedRowHandler(rejects);
+                }
+            } else if (sinkWriter == null) {
+                upserts = openUpsert(targetTable, merge.keyColumn, columns, sqlTypes);
+                upserts.setBatchSizer(throughput);
+                if (deadLetters != null) {
+                    upserts.setRejectedRowHandler(rejects);
+                }
+            }
+            if (deadLetters != null && retryKeys == null && range == null) {
+                // A full run re-reads every document, so it replaces the merge's dead letters.
+                deadLetters.clear(merge.name);
+            }
+            long fetched = 0;
+            long queued = 0;
+            boolean cancelled = false;
+            if (hashJoinSpec != null) {
+                hashJoin = openHashJoin(merge, hashJoinSpec);
+                cancelled = !hashJoin.partition(reader, listener::isCancelled);
+            }
+            while (!cancelled) {
+                if (fetched > 0 && fetched % PROGRESS_INTERVAL == 0) {
+                    listener.documentsProcessed(merge.name, fetched);
+                    reported = reportThroughput(reported);
+                    if (listener.isCancelled()) {
+                        cancelled = true;
+                        break;
                     }
-                    if (joinDoc == null) {
-                        if (join.required) {
-                            skip = true;
-                            break;
-                        }
-                        context.remove(join.alias);
-                    } else {
-                        context.put(join.alias, joinDoc);
+                }
+                Map<String, BaseDocument> context;
+                boolean joined;
+                if (hashJoin != null) {
+                    long fetchStart = profiler.start();
+                    boolean more = hashJoin.next();
+                    profiler.stop(SyncProfiler.STAGE_MAIN_FETCH, fetchStart);
+                    if (!more) {
+                        break;
                     }
+                    context = hashContext;
+                    context.clear();
+                    context.put("main", hashJoin.mainDocument());
+                    joined = resolveJoins(merge, context, joinQueries, hashJoinSpec, hashJoin, stats);
+                } else {
+                    if (!reader.advance()) {
+                        break;
+                    }
+                    context = reader.context();
+                    joined = reader.joined();
+                }
+                fetched++;
+                profiler.documentRead();
+                BaseDocument mainDoc = context.get("main");
+                stats.documentsRead++;
+                if (stats.measureBytes) {
+                    stats.bytesRead.addAndGet(MergeRunStats.approximateSize(mainDoc.getProperties()));
+                }
+                if (retryKeys != null) {
+                    retried.add(mainDoc.getKey());
                 }
-                if (skip) {
+                if (!joined) {
+                    stats.rowsSkipped++;
                     continue;
                 }
 
                 Object keyRaw = resolveAliasPath(context, merge.keyField);
                 if (keyRaw == null) {
-                    throw new SQLException("Merge '" + merge.name + "' missing key field " + merge.keyField
-                            + " for main document " + mainDoc.getKey());
+                    rejects.reject(mainDoc, null, new SQLException("Merge '" + merge.name + "' missing key field "
+                            + merge.keyField + " for main document " + mainDoc.getKey()));
+                    continue;
                 }
 
-                Map<String, Object> columnValues = new LinkedHashMap<>();
-                for (Map.Entry<String, String> entry : merge.fieldMappings.entrySet()) {
-                    Object value = resolveAliasPath(context, entry.getKey());
-                    columnValues.put(entry.getValue(), value);
+                Function<String[], Object> resolver = evaluates ? path -> resolvePath(context, path) : null;
+                for (int i = 0; i < row.length; i++) {
+                    if (columnExpressions[i] != null) {
+                        row[i] = columnExpressions[i].evaluate(resolver);
+                    } else {
+                        row[i] = columnPaths[i] == null ? keyRaw : resolvePath(context, columnPaths[i]);
+                    }
                 }
-
-                upsertRow(targetTable, merge.keyColumn, keyRaw, columnValues);
+                try {
+                    coerceRow(row, sqlTypes);
+                } catch (SQLException ex) {
+                    rejects.reject(mainDoc, keyRaw, ex);
+                    continue;
+                }
+                if (row[0] == null) {
+                    // Checked for every path: a null key would also break the shadow table's key index.
+                    rejects.reject(mainDoc, keyRaw,
+                            new SQLException("Null key encountered for table " + displayTable(targetTable)));
+                    continue;
+                }
+                if (shadow != null) {
+                    shadow.addRow(row, mainDoc);
+                } else if (sinkWriter != null) {
+                    sinkWriter.add(row);
+                } else {
+                    upserts.add(row, mainDoc);
+                }
+                if (stats.measureBytes) {
+                    stats.bytesWritten += MergeRunStats.approximateSize(row);
+                }
+                queued++;
+                profiler.rowWritten();
             }
-            connection.commit();
+            if (sinkWriter != null) {
+                if (cancelled) {
+                    sinkWriter.abort();
+                    throw new SyncCancelledException(merge.name);
+                }
+                sinkWriter.finish();
+                stats.rowsWritten = queued;
+            } else if (shadow != null) {
+                if (cancelled) {
+                    shadow.abort();
+                    throw new SyncCancelledException(merge.name);
+                }
+                shadow.complete();
+                stats.rowsWritten = shadow.rowsInserted();
+                stats.rowsInserted = shadow.rowsInserted();
+                stats.rowsUpdated = 0L;
+            } else {
+                upserts.flush();
+                if (retryKeys != null) {
+                    // Keys that were not read again no longer exist in the main collection.
+                    Set<String> resolved = cancelled ? retried : retryKeys;
+                    resolved.removeAll(rejects.documentKeys);
+                    deadLetters.remove(merge.name, resolved);
+                }
+                long commitStart = profiler.start();
+                CommitEvent commitEvent = new CommitEvent();
+                commitEvent.begin();
+                connection.commit();
+                commitEvent.end();
+                if (commitEvent.shouldCommit()) {
+                    commitEvent.mergeName = merge.name;
+                    commitEvent.table = displayTable(targetTable);
+                    commitEvent.commit();
+                }
+                profiler.stop(SyncProfiler.STAGE_COMMIT, commitStart);
+                profiler.roundTrip(SyncProfiler.STAGE_COMMIT);
+                stats.rowsWritten = upserts.rowsWritten();
+                stats.rowsInserted = upserts.rowsInserted();
+                stats.rowsUpdated = upserts.rowsUpdated();
+                if (cancelled) {
+                    throw new SyncCancelledException(merge.name);
+                }
+            }
+            listener.documentsProcessed(merge.name, fetched);
+            if (rejects.count > 0) {
+                System.out.printf(Locale.US, "Merge %s: %d rows rejected, see %s%n",
+                        merge.name, rejects.count, config.deadLetters.table);
+            }
+            reportThroughput(reported);
+            System.out.printf(Locale.US, "Merge %s throughput: %s%n", merge.name, throughput.settings());
+            listener.mergeCompleted(merge.name, targetTable.schema(), targetTable.table(), fetched);
+        } catch (SyncCancelledException ex) {
+            throw ex;
         } catch (Exception ex) {
-            connection.rollback();
+            if (sinkWriter != null) {
+                sinkWriter.abort();
+            } else if (shadow != null) {
+                shadow.abort();
+            } else {
+                connection.rollback();
+            }
             throw new SQLException("Failed to sync merge " + merge.name, ex);
+        } finally {
+            stats.rowsRejected = rejects.count;
+            if (hashJoin != null) {
+                hashJoin.close();
+            }
+            if (upserts != null) {
+                upserts.close();
+            }
+            if (sinkWriter != null) {
+                try {
+                    sinkWriter.close();
+                } catch (IOException ex) {
+                    System.err.printf(Locale.US, "Failed to close sink files of merge %s: %s%n", merge.name, ex.getMessage());
+                }
+            }
+            profiler.endMerge(lookupThreads);
         }
     }
 
-    private Object resolveValue(BaseDocument document, String fieldPath) {
-        if (fieldPath == null || fieldPath.isBlank()) {
-            return null;
+    /**
+     * Dead-letter bookkeeping of one merge: records each rejected document until more than
+     * {@code deadLetters.errorBudget} have been rejected, then fails the merge. Without a store every rejection fails
+     * the merge at once, as before dead letters existed.
+     */
+    private final class RejectedRows implements RejectedRowHandler {
+        private final SyncConfig.MergeMapping merge;
+        private final String targetTable;
+        private final DeadLetterStore store;
+        private final Set<String> documentKeys = new HashSet<>();
+        private long count;
+
+        private RejectedRows(SyncConfig.MergeMapping merge, String targetTable, DeadLetterStore store) {
+            this.merge = merge;
+            this.targetTable = targetTable;
+            this.store = store;
         }
-        switch (fieldPath) {
-            case "_key":
-                return document.getKey();
-            case "_id":
-                return document.getId();
-            case "_rev":
-                return document.getRevision();
-            default:
-                return resolveFromMap(document.getProperties(), fieldPath);
+
+        void reject(BaseDocument document, Object rowKey, SQLException error) throws SQLException {
+            if (store == null) {
+                throw error;
+            }
+            if (++count > config.deadLetters.errorBudget) {
+                throw new SQLException("Merge " + merge.name + " rejected more than " + config.deadLetters.errorBudget
+                        + " rows; last rejection: " + error.getMessage(), error);
+            }
+            documentKeys.add(document.getKey());
+            store.record(merge.name, document, rowKey, targetTable, error);
         }
-    }
 
-    private Object resolveFromMap(Map<String, Object> map, String path) {
-        if (map == null || path == null) {
-            return null;
+        @Override
+        public void rejected(Object key, Object source, SQLException error) throws SQLException {
+            reject((BaseDocument) source, key, error);
         }
-        String[] parts = path.split("\\.");
-        Object current = map;
-        for (String part : parts) {
-            if (!(current instanceof Map)) {
-                return null;
+    }
+
+    /**
+     * Resolves the joins of {@code context}'s main document in declaration order. Returns false when a required join
+     * has no match. Runs on lookup threads for paged reads, so it only touches per-document state.
+     */
+    private boolean resolveJoins(SyncConfig.MergeMapping merge,
+                                 Map<String, BaseDocument> context,
+                                 Map<String, String> joinQueries,
+                                 SyncConfig.MergeJoin hashJoinSpec,
+                                 ExternalHashJoin hashJoin,
+                                 MergeRunStats stats) throws SQLException {
+        for (SyncConfig.MergeJoin join : merge.joins) {
+            long joinStart = profiler.start();
+            BaseDocument joinDoc;
+            if (join == hashJoinSpec) {
+                joinDoc = hashJoin.matched();
+            } else {
+                JoinLookupEvent lookup = new JoinLookupEvent();
+                lookup.begin();
+                if (join.connectedEdges != null && !join.connectedEdges.isEmpty()) {
+                    stats.joinLookups.incrementAndGet();
+                    joinDoc = fetchJoinDocumentViaEdges(context, join);
+                } else {
+                    Object localValue = resolveAliasPath(context, join.localField);
+                    joinDoc = null;
+                    if (localValue != null) {
+                        stats.joinLookups.incrementAndGet();
+                        joinDoc = fetchJoinDocument(join, joinQueries.get(join.alias), localValue);
+                    }
+                }
+                lookup.end();
+                if (lookup.shouldCommit()) {
+                    lookup.mergeName = merge.name;
+                    lookup.alias = join.alias;
+                    lookup.collection = join.collection;
+                    lookup.hit = joinDoc != null;
+                    lookup.commit();
+                }
             }
-            @SuppressWarnings("unchecked")
-            Map<String, Object> currentMap = (Map<String, Object>) current;
-            current = currentMap.get(part);
-            if (current == null) {
-                return null;
+            if (joinDoc != null && stats.measureBytes) {
+                stats.bytesRead.addAndGet(MergeRunStats.approximateSize(joinDoc.getProperties()));
+            }
+            if (profiler.isEnabled()) {
+                profiler.stop(SyncProfiler.joinStage(join.alias), joinStart);
+            }
+            if (joinDoc == null) {
+                if (join.required) {
+                    return false;
+                }
+                context.remove(join.alias);
+            } else {
+                context.put(join.alias, joinDoc);
             }
         }
+        return true;
+    }
+
+    /**
+     * Tells the listener about changed throughput settings; called on the sync thread at progress boundaries.
+     */
+    private ThroughputController.Settings reportThroughput(ThroughputController.Settings previous) {
+        ThroughputController.Settings current = throughput.settings();
+        if (!current.equals(previous)) {
+            listener.throughputChanged(current);
+        }
         return current;
     }
 
+    private synchronized ExecutorService lookupExecutor() {
+        if (lookupExecutor == null) {
+            AtomicInteger threadIds = new AtomicInteger();
+            lookupExecutor = Executors.newFixedThreadPool(throughput.maxInFlightReads(), runnable -> {
+                Thread thread = new Thread(runnable, "sync-lookup-" + threadIds.incrementAndGet());
+                thread.setDaemon(true);
+                lookupThreads.add(thread);
+                return thread;
+            });
+        }
+        return lookupExecutor;
+    }
+
+    private ExternalHashJoin openHashJoin(SyncConfig.MergeMapping merge, SyncConfig.MergeJoin join) throws SQLException {
+        String buildQuery = "FOR doc IN " + join.collection + " RETURN { k: "
+                + buildFieldAccess("doc", join.foreignField) + ", d: " + joinProjection(merge, join) + " }";
+        String[] localPath = splitPath(join.localField);
+        Map<String, BaseDocument> context = new HashMap<>();
+        return new ExternalHashJoin(arangoDatabase, join, buildQuery, document -> {
+            context.put("main", document);
+            return resolvePath(context, localPath);
+        }, config.hashJoin, profiler);
+    }
+
+    private UpsertBatch openUpsert(TargetTable table, String keyColumn, List<String> columns, int[] sqlTypes)
+            throws SQLException {
+        boolean uniqueKey = IndexProvisioner.findUniqueIndex(connection, table.schema(), table.table(), keyColumn) != null;
+        return dialect.openUpsert(connection, new UpsertTarget(renderTable(table), columns, sqlTypes), uniqueKey, profiler);
+    }
+
+    /**
+     * Columns written for a merge: the key column first, then the mapped columns in mapping order.
+     */
+    private List<String> rowColumns(SyncConfig.MergeMapping merge) {
+        Set<String> columns = new LinkedHashSet<>();
+        columns.add(merge.keyColumn);
+        columns.addAll(merge.fieldMappings.values());
+        return new ArrayList<>(columns);
+    }
+
+    /**
+     * Split source path of each column, or null for a key column that is not mapped and takes the merge's key field.
+     * When several fields map to the same column the last one wins.
+     */
+    private String[][] columnPaths(SyncConfig.MergeMapping merge, List<String> columns) {
+        String[][] paths = new String[columns.size()][];
+        for (Map.Entry<String, String> entry : merge.fieldMappings.entrySet()) {
+            if (merge.expression(entry.getKey()) == null) {
+                paths[columns.indexOf(entry.getValue())] = splitPath(entry.getKey());
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Places the merge's expression columns. An expression that only reads the main document is compiled into the
+     * main page query, which returns its value as an extra attribute that {@code paths} then points to; one that
+     * reads joined documents is left in {@code expressions} and evaluated per row. Returns the AQL object of the
+     * computed attributes, or {@code null} when there are none.
+     */
+    private String planExpressions(SyncConfig.MergeMapping merge,
+                                   List<String> columns,
+                                   String[][] paths,
+                                   FieldExpression[] expressions) {
+        StringBuilder projection = new StringBuilder();
+        for (Map.Entry<String, String> entry : merge.fieldMappings.entrySet()) {
+            FieldExpression expression = merge.expression(entry.getKey());
+            if (expression == null) {
+                continue;
+            }
+            int column = columns.indexOf(entry.getValue());
+            List<String> read = new ArrayList<>();
+            expression.collectPaths(read);
+            boolean mainOnly = true;
+            for (String path : read) {
+                mainOnly &= path.startsWith("main.");
+            }
+            if (!mainOnly) {
+                expressions[column] = expression;
+                continue;
+            }
+            String attribute = DERIVED_ATTRIBUTE + column;
+            paths[column] = new String[]{"main", attribute};
+            projection.append(projection.length() == 0 ? "{ " : ", ")
+                    .append('`').append(attribute).append("`: ")
+                    .append(expression.toAql(SyncService::mainAttributeAccess));
+        }
+        return projection.length() == 0 ? null : projection.append(" }").toString();
+    }
+
+    private void coerceRow(Object[] row, int[] sqlTypes) throws SQLException {
+        long coercionStart = profiler.start();
+        for (int i = 0; i < row.length; i++) {
+            row[i] = toSqlValue(row[i], sqlTypes[i]);
+        }
+        profiler.stop(SyncProfiler.STAGE_COERCION, coercionStart);
+    }
+
+    private long estimateDocuments(String collection) {
+        try {
+            Long count = arangoDatabase.collection(collection).count().getCount();
+            return count != null ? count : -1L;
+        } catch (ArangoDBException ex) {
+            return -1L;
+        }
+    }
+
     private Object resolveAliasPath(Map<String, BaseDocument> context, String path) {
         if (path == null || path.isBlank()) {
             return null;
         }
-        String[] parts = path.split("\\.", 2);
-        String alias = parts[0];
-        BaseDocument document = context.get(alias);
+        return resolvePath(context, splitPath(path));
+    }
+
+    private static String[] splitPath(String path) {
+        return path.split("\\.", -1);
+    }
+
+    /**
+     * Resolves an alias path already split on dots, so per-row lookups do not re-split the mapping's paths.
+     */
+    private Object resolvePath(Map<String, BaseDocument> context, String[] path) {
+        BaseDocument document = context.get(path[0]);
         if (document == null) {
             return null;
         }
-        if (parts.length == 1) {
+        if (path.length == 1) {
             return document;
         }
-        return resolveValue(document, parts[1]);
+        if (path.length == 2) {
+            switch (path[1]) {
+                case "_key":
+                    return document.getKey();
+                case "_id":
+                    return document.getId();
+                case "_rev":
+                    return document.getRevision();
+                default:
+                    break;
+            }
+        }
+        Object current = document.getProperties();
+        for (int i = 1; i < path.length; i++) {
+            if (!(current instanceof Map)) {
+                return null;
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> currentMap = (Map<String, Object>) current;
+            current = currentMap.get(path[i]);
+            if (current == null) {
+                return null;
+            }
+        }
+        return current;
     }
 
-    private BaseDocument fetchJoinDocument(SyncConfig.MergeJoin join, Object localValue) throws SQLException {
-        Map<String, Object> bindVars = Map.of("value", localValue);
-        String query = "FOR doc IN " + join.collection + " FILTER " + buildFieldAccess("doc", join.foreignField)
-                + " == @value LIMIT 1 RETURN doc";
-        try (ArangoCursor<BaseDocument> cursor = arangoDatabase.query(query, bindVars, null, BaseDocument.class)) {
-            if (cursor.hasNext()) {
-                return cursor.next();
+    /**
+     * Builds the lookup for a field join. When the merge reads only some attributes of the joined document the query
+     * returns just those, so the persistent index on {@code foreignField} with matching {@code storedValues} can
+     * answer it without reading the document.
+     */
+    private String joinQuery(SyncConfig.MergeMapping merge, SyncConfig.MergeJoin join) {
+        return "FOR doc IN " + join.collection + " FILTER " + buildFieldAccess("doc", join.foreignField)
+                + " == @value LIMIT 1 RETURN " + joinProjection(merge, join);
+    }
+
+    private String joinProjection(SyncConfig.MergeMapping merge, SyncConfig.MergeJoin join) {
+        List<String> attributes = IndexProvisioner.referencedAttributes(merge, join.alias);
+        if (attributes == null) {
+            return "doc";
+        }
+        StringBuilder projection = new StringBuilder("{ _key: doc._key, _id: doc._id");
+        for (String attribute : attributes) {
+            if (!attribute.equals("_key") && !attribute.equals("_id")) {
+                projection.append(", `").append(attribute).append("`: doc.`").append(attribute).append('`');
             }
+        }
+        return projection.append(" }").toString();
+    }
+
+    private BaseDocument fetchJoinDocument(SyncConfig.MergeJoin join, String query, Object localValue) throws SQLException {
+        Map<String, Object> bindVars = Map.of("value", localValue);
+        if (profiler.isEnabled()) {
+            profiler.roundTrip(SyncProfiler.joinStage(join.alias));
+        }
+        try {
+            return throughput.read(ThroughputController.Kind.LOOKUP, () -> {
+                try (ArangoCursor<BaseDocument> cursor = arangoDatabase.query(query, bindVars, null, BaseDocument.class)) {
+                    return cursor.hasNext() ? cursor.next() : null;
+                }
+            });
         } catch (Exception ex) {
             throw new SQLException("Failed to load join '" + join.alias + "' from collection " + join.collection, ex);
         }
-        return null;
     }
 
     private BaseDocument fetchJoinDocumentViaEdges(Map<String, BaseDocument> context, SyncConfig.MergeJoin join) throws SQLException {
@@ -289,15 +1156,19 @@ public class SyncService implements AutoCloseable {
         Map<String, Object> bindVars = Map.of("id", currentId);
         String query = "FOR edge IN " + edge.collection
                 + " FILTER edge." + sourceField + " == @id LIMIT 1 RETURN edge." + targetField;
-        try (ArangoCursor<String> cursor = arangoDatabase.query(query, bindVars, null, String.class)) {
-            if (cursor.hasNext()) {
-                return cursor.next();
-            }
+        if (profiler.isEnabled()) {
+            profiler.roundTrip(SyncProfiler.joinStage(join.alias));
+        }
+        try {
+            return throughput.read(ThroughputController.Kind.LOOKUP, () -> {
+                try (ArangoCursor<String> cursor = arangoDatabase.query(query, bindVars, null, String.class)) {
+                    return cursor.hasNext() ? cursor.next() : null;
+                }
+            });
         } catch (Exception ex) {
             throw new SQLException("Failed to follow connectedEdges for join '" + join.alias
                     + "' using collection " + edge.collection, ex);
         }
-        return null;
     }
 
     private BaseDocument fetchDocumentById(SyncConfig.MergeJoin join, String documentId) throws SQLException {
@@ -315,18 +1186,38 @@ public class SyncService implements AutoCloseable {
             throw new SQLException("Connected edge path for join '" + join.alias + "' resolved to collection '" + collection
                     + "', expected '" + join.collection + "'");
         }
+        if (profiler.isEnabled()) {
+            profiler.roundTrip(SyncProfiler.joinStage(join.alias));
+        }
         try {
-            return arangoDatabase.collection(collection).getDocument(key, BaseDocument.class);
-        } catch (ArangoDBException ex) {
-            Integer responseCode = ex.getResponseCode();
-            Integer errorCode = ex.getErrorNum();
-            if ((responseCode != null && responseCode == 404) || (errorCode != null && errorCode == 1202)) {
-                return null;
-            }
+            return throughput.read(ThroughputController.Kind.LOOKUP, () -> {
+                try {
+                    return arangoDatabase.collection(collection).getDocument(key, BaseDocument.class);
+                } catch (ArangoDBException ex) {
+                    Integer responseCode = ex.getResponseCode();
+                    Integer errorCode = ex.getErrorNum();
+                    if ((responseCode != null && responseCode == 404) || (errorCode != null && errorCode == 1202)) {
+                        return null;
+                    }
+                    throw ex;
+                }
+            });
+        } catch (Exception ex) {
             throw new SQLException("Failed to load document '" + documentId + "' for join '" + join.alias + "'", ex);
         }
     }
 
+    /**
+     * {@code main.a.b} as {@code doc.`a`.`b`}, for expressions and filters compiled into the main page query.
+     */
+    private static String mainAttributeAccess(String[] path) {
+        StringBuilder access = new StringBuilder("doc");
+        for (int i = 1; i < path.length; i++) {
+            access.append(".`").append(path[i]).append('`');
+        }
+        return access.toString();
+    }
+
     private String buildFieldAccess(String root, String fieldPath) {
         if (fieldPath.startsWith(".")) {
             throw new IllegalArgumentException("Invalid foreign field path: " + fieldPath);
@@ -340,27 +1231,35 @@ public class SyncService implements AutoCloseable {
         }
     }
 
-    private void ensureCollections(SyncConfig cfg) throws SQLException {
-        try {
-            Set<String> requiredDocuments = new HashSet<>();
-            Set<String> requiredEdges = new HashSet<>();
-            for (SyncConfig.MergeMapping merge : mergeMappings) {
-                if (merge.mainCollection != null && !merge.mainCollection.isBlank()) {
-                    requiredDocuments.add(merge.mainCollection);
+    /**
+     * The document collections, or with {@code edges} the edge collections, that the merges read.
+     */
+    private Set<String> requiredCollections(boolean edges) {
+        Set<String> required = new HashSet<>();
+        for (SyncConfig.MergeMapping merge : mergeMappings) {
+            if (!edges && merge.mainCollection != null && !merge.mainCollection.isBlank()) {
+                required.add(merge.mainCollection);
+            }
+            for (SyncConfig.MergeJoin join : merge.joins) {
+                if (!edges && join.collection != null && !join.collection.isBlank()) {
+                    required.add(join.collection);
                 }
-                for (SyncConfig.MergeJoin join : merge.joins) {
-                    if (join.collection != null && !join.collection.isBlank()) {
-                        requiredDocuments.add(join.collection);
-                    }
-                    if (join.connectedEdges != null) {
-                        for (SyncConfig.MergeJoin.ConnectedEdge edge : join.connectedEdges) {
-                            if (edge.collection != null && !edge.collection.isBlank()) {
-                                requiredEdges.add(edge.collection);
-                            }
+                if (edges && join.connectedEdges != null) {
+                    for (SyncConfig.MergeJoin.ConnectedEdge edge : join.connectedEdges) {
+                        if (edge.collection != null && !edge.collection.isBlank()) {
+                            required.add(edge.collection);
                         }
                     }
                 }
             }
+        }
+        return required;
+    }
+
+    private void ensureCollections() throws SQLException {
+        try {
+            Set<String> requiredDocuments = requiredCollections(false);
+            Set<String> requiredEdges = requiredCollections(true);
             Set<String> existing = new HashSet<>();
             for (CollectionEntity entity : arangoDatabase.getCollections()) {
                 existing.add(entity.getName());
@@ -379,117 +1278,19 @@ public class SyncService implements AutoCloseable {
                     existing.add(collection);
                 }
             }
+            if (snapshot != null) {
+                snapshot.putCollections(existing);
+            }
         } catch (ArangoDBException ex) {
             throw new SQLException("Failed to ensure ArangoDB collections", ex);
         }
     }
 
-    private boolean exists(TargetTable table, String keyColumn, Object rawKeyValue) throws SQLException {
-        String sql = "SELECT 1 FROM " + renderTable(table) + " WHERE " + renderColumn(keyColumn) + " = ? LIMIT 1";
-        try (PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setObject(1, toSqlValue(table, keyColumn, rawKeyValue));
-            try (ResultSet rs = statement.executeQuery()) {
-                return rs.next();
-            }
-        }
-    }
-
-    private void upsertRow(TargetTable table, String keyColumn, Object rawKeyValue, Map<String, Object> columnValues) throws SQLException {
-        if (rawKeyValue == null) {
-            throw new SQLException("Null key encountered for table " + displayTable(table));
-        }
-        Object sqlKeyValue = toSqlValue(table, keyColumn, rawKeyValue);
-
-        Map<String, Object> converted = new LinkedHashMap<>();
-        for (Map.Entry<String, Object> entry : columnValues.entrySet()) {
-            converted.put(entry.getKey(), toSqlValue(table, entry.getKey(), entry.getValue()));
-        }
-
-        List<String> updateColumns = new ArrayList<>();
-        List<Object> updateValues = new ArrayList<>();
-        for (Map.Entry<String, Object> entry : converted.entrySet()) {
-            if (entry.getKey().equals(keyColumn)) {
-                continue;
-            }
-            updateColumns.add(entry.getKey());
-            updateValues.add(entry.getValue());
-        }
-
-        if (updateColumns.isEmpty()) {
-            if (!exists(table, keyColumn, rawKeyValue)) {
-                insertRow(table, keyColumn, sqlKeyValue, converted);
-            }
-            return;
-        }
-
-        StringBuilder sql = new StringBuilder();
-        sql.append("UPDATE ").append(renderTable(table)).append(" SET ");
-        for (int i = 0; i < updateColumns.size(); i++) {
-            if (i > 0) {
-                sql.append(", ");
-            }
-            sql.append(renderColumn(updateColumns.get(i))).append(" = ?");
-        }
-        sql.append(" WHERE ").append(renderColumn(keyColumn)).append(" = ?");
-
-        try (PreparedStatement update = connection.prepareStatement(sql.toString())) {
-            int index = 1;
-            for (Object value : updateValues) {
-                update.setObject(index++, value);
-            }
-            update.setObject(index, sqlKeyValue);
-            int affected = update.executeUpdate();
-            if (affected == 0) {
-                insertRow(table, keyColumn, sqlKeyValue, converted);
-            }
-        }
-    }
-
-    private void insertRow(TargetTable table, String keyColumn, Object sqlKeyValue, Map<String, Object> converted) throws SQLException {
-        LinkedHashMap<String, Object> finalColumns = new LinkedHashMap<>();
-        if (converted.containsKey(keyColumn)) {
-            finalColumns.put(keyColumn, converted.get(keyColumn));
-        } else {
-            finalColumns.put(keyColumn, sqlKeyValue);
-        }
-        for (Map.Entry<String, Object> entry : converted.entrySet()) {
-            if (!entry.getKey().equals(keyColumn)) {
-                finalColumns.put(entry.getKey(), entry.getValue());
-            }
-        }
-
-        StringBuilder sql = new StringBuilder();
-        sql.append("INSERT INTO ").append(renderTable(table)).append(" (");
-        StringBuilder placeholders = new StringBuilder();
-        List<Object> values = new ArrayList<>(finalColumns.size());
-        int index = 0;
-        for (Map.Entry<String, Object> entry : finalColumns.entrySet()) {
-            if (index > 0) {
-                sql.append(", ");
-                placeholders.append(", ");
-            }
-            sql.append(renderColumn(entry.getKey()));
-            placeholders.append("?");
-            Object value = entry.getKey().equals(keyColumn) ? sqlKeyValue : entry.getValue();
-            values.add(value);
-            index++;
-        }
-        sql.append(") VALUES (").append(placeholders).append(")");
-
-        try (PreparedStatement insert = connection.prepareStatement(sql.toString())) {
-            for (int i = 0; i < values.size(); i++) {
-                insert.setObject(i + 1, values.get(i));
-            }
-            insert.executeUpdate();
-        }
-    }
-
-    private Object toSqlValue(TargetTable table, String column, Object rawValue) throws SQLException {
+    private Object toSqlValue(Object rawValue, int sqlType) throws SQLException {
         Object normalized = normalizeValue(rawValue);
         if (normalized == null) {
             return null;
         }
-        int sqlType = resolveColumnType(table, column);
         return coerceToSqlType(normalized, sqlType);
     }
 
@@ -539,8 +1340,36 @@ public class SyncService implements AutoCloseable {
         return sqlType != null ? sqlType : Types.OTHER;
     }
 
+    private List<String> columnTypeNames(TargetTable table, List<String> columns) throws SQLException {
+        List<String> names = new ArrayList<>(columns.size());
+        for (String column : columns) {
+            resolveColumnType(table, column);
+            Map<String, String> typeNames = columnTypeNameCache.get(tableCacheKey(table));
+            names.add(typeNames != null ? typeNames.get(column.toLowerCase(Locale.ROOT)) : null);
+        }
+        return names;
+    }
+
+    /**
+     * Reads the column types of {@code table}, from the metadata snapshot while the schema's column fingerprint
+     * still matches it, otherwise from the driver's metadata; fresh reads are added to the snapshot.
+     */
     private Map<String, Integer> loadColumnTypes(TargetTable table) throws SQLException {
         Map<String, Integer> types = new HashMap<>();
+        Map<String, String> typeNames = new HashMap<>();
+        String fingerprint = snapshot != null ? columnFingerprint(table.schema()) : null;
+        String snapshotSchema = table.schema() != null ? table.schema() : "";
+        Map<String, MetadataSnapshot.Column> cached = fingerprint != null
+                ? snapshot.columns(snapshotSchema, fingerprint, tableCacheKey(table))
+                : null;
+        if (cached != null) {
+            for (Map.Entry<String, MetadataSnapshot.Column> column : cached.entrySet()) {
+                types.put(column.getKey(), column.getValue().sqlType());
+                typeNames.put(column.getKey(), column.getValue().typeName());
+            }
+            columnTypeNameCache.put(tableCacheKey(table), typeNames);
+            return types;
+        }
         String tableName = table.table;
         String[] tablePatterns = new String[]{tableName, tableName.toUpperCase(Locale.ROOT), tableName.toLowerCase(Locale.ROOT)};
         for (String pattern : tablePatterns) {
@@ -552,12 +1381,65 @@ public class SyncService implements AutoCloseable {
                     String columnName = columns.getString("COLUMN_NAME");
                     int dataType = columns.getInt("DATA_TYPE");
                     types.put(columnName.toLowerCase(Locale.ROOT), dataType);
+                    typeNames.put(columnName.toLowerCase(Locale.ROOT), columns.getString("TYPE_NAME"));
                 }
             }
         }
+        columnTypeNameCache.put(tableCacheKey(table), typeNames);
+        if (fingerprint != null && !types.isEmpty()) {
+            Map<String, MetadataSnapshot.Column> columns = new HashMap<>();
+            for (Map.Entry<String, Integer> type : types.entrySet()) {
+                columns.put(type.getKey(), new MetadataSnapshot.Column(type.getValue(), typeNames.get(type.getKey())));
+            }
+            snapshot.putColumns(snapshotSchema, fingerprint, tableCacheKey(table), columns);
+            saveSnapshot();
+        }
         return types;
     }
 
+    /**
+     * The dialect's fingerprint of every merge target table in {@code schema}, read once per service.
+     */
+    private String columnFingerprint(String schema) throws SQLException {
+        String key = schema != null ? schema : "";
+        if (!columnFingerprints.containsKey(key)) {
+            Set<String> tables = new HashSet<>();
+            for (SyncConfig.MergeMapping merge : mergeMappings) {
+                tables.add(merge.targetTable);
+            }
+            columnFingerprints.put(key, dialect.columnFingerprint(connection, schema, tables));
+        }
+        return columnFingerprints.get(key);
+    }
+
+    /**
+     * Writes the snapshot on the background thread; saves requested while one is pending are merged into it.
+     */
+    private void saveSnapshot() {
+        if (snapshot == null || !snapshotSavePending.compareAndSet(false, true)) {
+            return;
+        }
+        snapshotExecutor().execute(() -> {
+            snapshotSavePending.set(false);
+            try {
+                snapshot.saveIfChanged(snapshotPath);
+            } catch (IOException ex) {
+                System.err.printf(Locale.US, "Failed to write metadata snapshot %s: %s%n", snapshotPath, ex.getMessage());
+            }
+        });
+    }
+
+    private synchronized ExecutorService snapshotExecutor() {
+        if (snapshotExecutor == null) {
+            snapshotExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "metadata-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return snapshotExecutor;
+    }
+
     private Object coerceToSqlType(Object value, int sqlType) throws SQLException {
         switch (sqlType) {
             case Types.DATE:
@@ -704,11 +1586,32 @@ public class SyncService implements AutoCloseable {
     }
 
     private String quoteIdentifier(String identifier) {
-        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+        return dialect.quoteIdentifier(identifier);
+    }
+
+    /**
+     * Current read and write sizing, as adjusted by the throughput controller during the last merge.
+     */
+    public ThroughputController.Settings throughputSettings() {
+        return throughput.settings();
     }
 
     @Override
     public void close() throws SQLException {
+        synchronized (this) {
+            if (lookupExecutor != null) {
+                lookupExecutor.shutdownNow();
+            }
+            if (snapshotExecutor != null) {
+                // Let a pending snapshot write or collection refresh finish; both are short.
+                snapshotExecutor.shutdown();
+                try {
+                    snapshotExecutor.awaitTermination(SNAPSHOT_WAIT_SECONDS, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
         try {
             if (connection != null && !connection.isClosed()) {
                 connection.close();
@@ -0,0 +1,99 @@
+package com.example.arango2rdb;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PostgreSQL catalog helpers for copying a table's indexes and key constraints onto another table. Used when a
+ * table is loaded without indexes and they are built once the data is in place.
+ */
+public final class TableDdl {
+
+    private static final String CONSTRAINTS_SQL = "SELECT conname, contype, pg_get_constraintdef(oid) AS definition "
+            + "FROM pg_constraint WHERE conrelid = ?::regclass AND contype IN ('p', 'u', 'x', 'f') ORDER BY contype, conname";
+
+    private static final String INDEXES_SQL = "SELECT c.relname, i.indisunique, pg_get_indexdef(i.indexrelid) AS definition "
+            + "FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid "
+            + "WHERE i.indrelid = ?::regclass "
+            + "AND NOT EXISTS (SELECT 1 FROM pg_constraint k WHERE k.conindid = i.indexrelid) "
+            + "ORDER BY c.relname";
+
+    private TableDdl() {
+    }
+
+    /**
+     * A primary key, unique, exclusion or foreign key constraint, or a standalone index, read from the catalog.
+     */
+    public record IndexDefinition(String name, boolean constraint, boolean foreignKey, boolean unique, String body) {
+
+        /**
+         * Renders the DDL that recreates this definition on {@code renderedTable} under {@code newName}.
+         */
+        public String createStatement(String renderedTable, String newName) {
+            if (constraint) {
+                return "ALTER TABLE " + renderedTable + " ADD CONSTRAINT " + quoteIdentifier(newName) + " " + body;
+            }
+            return "CREATE " + (unique ? "UNIQUE " : "") + "INDEX " + quoteIdentifier(newName)
+                    + " ON " + renderedTable + body;
+        }
+
+        /**
+         * Renders the DDL that renames a copy created under {@code currentName} back to this definition's name.
+         */
+        public String renameStatement(String renderedTable, String currentName) {
+            if (constraint) {
+                return "ALTER TABLE " + renderedTable + " RENAME CONSTRAINT " + quoteIdentifier(currentName)
+                        + " TO " + quoteIdentifier(name);
+            }
+            return "ALTER INDEX " + quoteIdentifier(currentName) + " RENAME TO " + quoteIdentifier(name);
+        }
+    }
+
+    /**
+     * Reads the indexes and key constraints of {@code renderedTable} (a quoted, optionally schema-qualified name).
+     * Foreign keys are only returned when {@code includeForeignKeys} is set.
+     */
+    public static List<IndexDefinition> readIndexes(Connection connection,
+                                                    String renderedTable,
+                                                    boolean includeForeignKeys) throws SQLException {
+        List<IndexDefinition> result = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(CONSTRAINTS_SQL)) {
+            statement.setString(1, renderedTable);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    boolean foreignKey = "f".equals(rs.getString("contype"));
+                    if (foreignKey && !includeForeignKeys) {
+                        continue;
+                    }
+                    result.add(new IndexDefinition(rs.getString("conname"), true, foreignKey, false,
+                            rs.getString("definition")));
+                }
+            }
+        }
+        try (PreparedStatement statement = connection.prepareStatement(INDEXES_SQL)) {
+            statement.setString(1, renderedTable);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    String definition = rs.getString("definition");
+                    int using = definition.indexOf(" USING ");
+                    if (using < 0) {
+                        continue;
+                    }
+                    result.add(new IndexDefinition(rs.getString("relname"), false, false, rs.getBoolean("indisunique"),
+                            definition.substring(using)));
+                }
+            }
+        }
+        // Keys first so foreign keys elsewhere can reference them, foreign keys last.
+        result.sort((left, right) -> Boolean.compare(left.foreignKey(), right.foreignKey()));
+        return result;
+    }
+
+    public static String quoteIdentifier(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+}
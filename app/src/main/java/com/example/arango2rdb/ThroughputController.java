@@ -0,0 +1,169 @@
+package com.example.arango2rdb;
+
+import com.arangodb.ArangoDBException;
+import com.example.arango2rdb.config.SyncConfig;
+import com.example.arango2rdb.dialect.BatchSizer;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sizes a merge's reads and writes from the latency it observes, so a sync runs as fast as the latency targets in
+ * {@link SyncConfig.ThroughputConfig} allow and slows down when ArangoDB or the database is under load:
+ * <ul>
+ *     <li>the main collection page size follows the p95 of page fetches,</li>
+ *     <li>the number of join lookups in flight follows the p95 of single lookups,</li>
+ *     <li>the upsert batch size follows the p95 of flushes.</li>
+ * </ul>
+ * Failed ArangoDB reads halve the matching setting and are retried after a backoff.
+ */
+public final class ThroughputController implements BatchSizer {
+    private static final int READ_WINDOW = 8;
+    private static final int LOOKUP_WINDOW = 64;
+    private static final int WRITE_WINDOW = 4;
+    private static final long RETRY_BASE_MILLIS = 100L;
+    private static final long RETRY_MAX_MILLIS = 5_000L;
+
+    private final SyncConfig.ThroughputConfig config;
+    private final AdaptiveLimit readBatch;
+    private final AdaptiveLimit inFlight;
+    private volatile AdaptiveLimit writeBatch;
+
+    /**
+     * Current settings and the latest p95 per kind of request, {@code -1} until a window has completed.
+     */
+    public record Settings(int readBatchSize,
+                           int inFlightReads,
+                           int writeBatchRows,
+                           double readP95Millis,
+                           double lookupP95Millis,
+                           double writeP95Millis,
+                           long backoffs) {
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "read batch %d (p95 %s), in-flight reads %d (p95 %s), write batch %d (p95 %s), %d backoffs",
+                    readBatchSize, millis(readP95Millis), inFlightReads, millis(lookupP95Millis),
+                    writeBatchRows, millis(writeP95Millis), backoffs);
+        }
+
+        private static String millis(double value) {
+            return value < 0 ? "-" : String.format(Locale.US, "%.1f ms", value);
+        }
+    }
+
+    /**
+     * A read that ArangoDB may fail transiently; retried by {@link #read(Kind, Read)}.
+     */
+    @FunctionalInterface
+    interface Read<T> {
+        T run() throws Exception;
+    }
+
+    enum Kind {
+        PAGE, LOOKUP
+    }
+
+    public ThroughputController(SyncConfig.ThroughputConfig config) {
+        this.config = config;
+        this.readBatch = new AdaptiveLimit(config.initialReadBatchSize, config.minReadBatchSize,
+                config.maxReadBatchSize, Math.max(1, config.initialReadBatchSize / 10),
+                TimeUnit.MILLISECONDS.toNanos(config.readLatencyTargetMs), READ_WINDOW, config.adaptive);
+        this.inFlight = new AdaptiveLimit(config.initialInFlightReads, 1, config.maxInFlightReads, 1,
+                TimeUnit.MILLISECONDS.toNanos(config.lookupLatencyTargetMs), LOOKUP_WINDOW, config.adaptive);
+    }
+
+    public int readBatchSize() {
+        return readBatch.value();
+    }
+
+    public int inFlightReads() {
+        return inFlight.value();
+    }
+
+    public int maxInFlightReads() {
+        return config.maxInFlightReads;
+    }
+
+    /**
+     * Starts the write setting of a new merge at the dialect's batch limit; read settings carry over between merges.
+     */
+    void beginMerge() {
+        writeBatch = null;
+    }
+
+    @Override
+    public int batchRows(int maxRows) {
+        AdaptiveLimit limit = writeBatch;
+        if (limit == null) {
+            limit = new AdaptiveLimit(maxRows, Math.min(config.minWriteBatchRows, maxRows), maxRows,
+                    Math.max(1, maxRows / 10), TimeUnit.MILLISECONDS.toNanos(config.writeLatencyTargetMs),
+                    WRITE_WINDOW, config.adaptive);
+            writeBatch = limit;
+        }
+        return limit.value();
+    }
+
+    @Override
+    public void flushed(int rows, long nanos) {
+        AdaptiveLimit limit = writeBatch;
+        if (limit != null) {
+            limit.record(nanos);
+        }
+    }
+
+    @Override
+    public void failed() {
+        AdaptiveLimit limit = writeBatch;
+        if (limit != null) {
+            limit.failed();
+        }
+    }
+
+    public Settings settings() {
+        AdaptiveLimit write = writeBatch;
+        return new Settings(
+                readBatch.value(),
+                inFlight.value(),
+                write != null ? write.value() : 0,
+                toMillis(readBatch.lastP95Nanos()),
+                toMillis(inFlight.lastP95Nanos()),
+                write != null ? toMillis(write.lastP95Nanos()) : -1.0,
+                readBatch.decreases() + inFlight.decreases() + (write != null ? write.decreases() : 0L));
+    }
+
+    /**
+     * Runs {@code read}, recording its latency against the setting for {@code kind}. Transient ArangoDB failures
+     * (connection errors, 429 and 5xx responses) back the setting off and are retried up to
+     * {@code throughput.maxRetries} times; anything else is rethrown at once.
+     */
+    <T> T read(Kind kind, Read<T> read) throws Exception {
+        AdaptiveLimit limit = kind == Kind.PAGE ? readBatch : inFlight;
+        for (int attempt = 0; ; attempt++) {
+            long start = System.nanoTime();
+            try {
+                T result = read.run();
+                limit.record(System.nanoTime() - start);
+                return result;
+            } catch (ArangoDBException ex) {
+                if (!isTransient(ex) || attempt >= config.maxRetries) {
+                    throw ex;
+                }
+                limit.failed();
+                long backoff = Math.min(RETRY_MAX_MILLIS, RETRY_BASE_MILLIS << attempt);
+                System.out.printf(Locale.US, "ArangoDB read failed (%s), retrying in %d ms%n", ex.getMessage(), backoff);
+                Thread.sleep(backoff);
+            }
+        }
+    }
+
+    private static boolean isTransient(ArangoDBException ex) {
+        Integer status = ex.getResponseCode();
+        return status == null || status == 429 || status >= 500;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos < 0 ? -1.0 : nanos / 1_000_000.0;
+    }
+}
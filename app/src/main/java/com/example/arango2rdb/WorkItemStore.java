@@ -0,0 +1,317 @@
+package com.example.arango2rdb;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The cluster's work table in the target PostgreSQL database. Each generation is one full pass over the merges: a
+ * work item per merge, or per key range of a large merge. Nodes claim items with {@code FOR UPDATE SKIP LOCKED}, so
+ * concurrent claims never wait on each other or take the same item, and hold them under a lease that they renew.
+ * Lease times come from the database clock, so nodes need not agree on the time. Table creation and seeding run
+ * under a transaction-level advisory lock, so exactly one node seeds each generation.
+ * <p>
+ * Uses its own connection, shared by the node's worker and heartbeat threads; every method commits.
+ */
+final class WorkItemStore implements AutoCloseable {
+    static final String PENDING = "PENDING";
+    static final String LEASED = "LEASED";
+    static final String DONE = "DONE";
+    static final String FAILED = "FAILED";
+    private static final int MAX_ERROR_LENGTH = 4000;
+
+    /**
+     * A claimed work item; {@code range} is {@code null} for a whole merge.
+     */
+    record WorkItem(long generation, String mergeName, int partition, int partitions, KeyRange range, int attempt) {
+
+        @Override
+        public String toString() {
+            return partitions == 1
+                    ? mergeName
+                    : mergeName + " [" + (partition + 1) + "/" + partitions + " keys " + range + "]";
+        }
+    }
+
+    /**
+     * One item to seed: the whole merge when {@code range} is {@code null}.
+     */
+    record Planned(String mergeName, int partition, int partitions, KeyRange range) { }
+
+    /**
+     * Item counts of one generation by status.
+     */
+    record Progress(long generation, int pending, int leased, int done, int failed) {
+
+        boolean isFinished() {
+            return pending == 0 && leased == 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "generation %d: %d pending, %d leased, %d done, %d failed",
+                    generation, pending, leased, done, failed);
+        }
+    }
+
+    /**
+     * Plans the items of a new generation; runs while the seeding lock is held.
+     */
+    @FunctionalInterface
+    interface Planner {
+        List<Planned> plan() throws SQLException;
+    }
+
+    private final Connection connection;
+    private final String tableName;
+    private final String table;
+    private final long lockKey;
+    private final long leaseSeconds;
+    private final int maxAttempts;
+
+    WorkItemStore(Connection connection, String tableName, long leaseSeconds, int maxAttempts) throws SQLException {
+        this.connection = connection;
+        this.tableName = tableName;
+        this.table = "\"" + tableName + "\"";
+        this.lockKey = ("arango2rdb-sync:" + tableName).hashCode();
+        this.leaseSeconds = leaseSeconds;
+        this.maxAttempts = maxAttempts;
+        connection.setAutoCommit(false);
+    }
+
+    synchronized void ensureTable() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            lock();
+            statement.execute("CREATE TABLE IF NOT EXISTS " + table + " ("
+                    + "generation BIGINT NOT NULL, "
+                    + "merge_name VARCHAR(255) NOT NULL, "
+                    + "partition_no INTEGER NOT NULL, "
+                    + "partition_count INTEGER NOT NULL, "
+                    + "key_after VARCHAR(255), "
+                    + "key_up_to VARCHAR(255), "
+                    + "status VARCHAR(16) NOT NULL, "
+                    + "owner_node VARCHAR(255), "
+                    + "lease_expires_at TIMESTAMPTZ, "
+                    + "attempts INTEGER NOT NULL DEFAULT 0, "
+                    + "created_at TIMESTAMPTZ NOT NULL DEFAULT now(), "
+                    + "finished_at TIMESTAMPTZ, "
+                    + "error_message VARCHAR(" + MAX_ERROR_LENGTH + "), "
+                    + "PRIMARY KEY (generation, merge_name, partition_no))");
+            statement.execute("CREATE INDEX IF NOT EXISTS \"" + tableName + "_status_idx\" ON "
+                    + table + " (generation, status)");
+            connection.commit();
+        } catch (SQLException ex) {
+            connection.rollback();
+            throw ex;
+        }
+    }
+
+    /**
+     * Returns the generation that still has pending or leased items, seeding a new one from {@code planner} when
+     * there is none.
+     */
+    synchronized long openOrSeed(Planner planner) throws SQLException {
+        try {
+            lock();
+            long latest = latestGeneration();
+            if (latest > 0 && !countItems(latest).isFinished()) {
+                connection.commit();
+                return latest;
+            }
+            long generation = latest + 1;
+            List<Planned> items = planner.plan();
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + table
+                    + " (generation, merge_name, partition_no, partition_count, key_after, key_up_to, status) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+                for (Planned item : items) {
+                    insert.setLong(1, generation);
+                    insert.setString(2, item.mergeName());
+                    insert.setInt(3, item.partition());
+                    insert.setInt(4, item.partitions());
+                    insert.setString(5, item.range() != null ? item.range().after() : null);
+                    insert.setString(6, item.range() != null ? item.range().upTo() : null);
+                    insert.setString(7, PENDING);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            connection.commit();
+            System.out.printf(Locale.US, "Seeded generation %d with %d work items%n", generation, items.size());
+            return generation;
+        } catch (SQLException | RuntimeException ex) {
+            connection.rollback();
+            throw ex;
+        }
+    }
+
+    /**
+     * Leases the next pending item of {@code generation}, or one whose lease expired, to {@code node}; returns
+     * {@code null} when no item is free. Expired items that used up their attempts are failed instead.
+     */
+    synchronized WorkItem claim(long generation, String node) throws SQLException {
+        try {
+            try (PreparedStatement expire = connection.prepareStatement("UPDATE " + table + " SET status = ?, "
+                    + "owner_node = NULL, lease_expires_at = NULL, finished_at = now(), error_message = ? "
+                    + "WHERE generation = ? AND status = ? AND lease_expires_at < now() AND attempts >= ?")) {
+                expire.setString(1, FAILED);
+                expire.setString(2, "Lease expired after " + maxAttempts + " attempts");
+                expire.setLong(3, generation);
+                expire.setString(4, LEASED);
+                expire.setInt(5, maxAttempts);
+                expire.executeUpdate();
+            }
+            WorkItem item = null;
+            try (PreparedStatement lease = connection.prepareStatement("UPDATE " + table + " SET status = ?, "
+                    + "owner_node = ?, lease_expires_at = now() + ? * interval '1 second', attempts = attempts + 1 "
+                    + "WHERE (generation, merge_name, partition_no) = ("
+                    + "SELECT generation, merge_name, partition_no FROM " + table + " WHERE generation = ? "
+                    + "AND (status = ? OR (status = ? AND lease_expires_at < now())) "
+                    + "ORDER BY partition_count DESC, merge_name, partition_no LIMIT 1 FOR UPDATE SKIP LOCKED) "
+                    + "RETURNING merge_name, partition_no, partition_count, key_after, key_up_to, attempts")) {
+                lease.setString(1, LEASED);
+                lease.setString(2, node);
+                lease.setLong(3, leaseSeconds);
+                lease.setLong(4, generation);
+                lease.setString(5, PENDING);
+                lease.setString(6, LEASED);
+                try (ResultSet rs = lease.executeQuery()) {
+                    if (rs.next()) {
+                        String after = rs.getString("key_after");
+                        String upTo = rs.getString("key_up_to");
+                        int partitions = rs.getInt("partition_count");
+                        item = new WorkItem(generation, rs.getString("merge_name"), rs.getInt("partition_no"),
+                                partitions, partitions == 1 ? null : new KeyRange(after, upTo),
+                                rs.getInt("attempts"));
+                    }
+                }
+            }
+            connection.commit();
+            return item;
+        } catch (SQLException ex) {
+            connection.rollback();
+            throw ex;
+        }
+    }
+
+    /**
+     * Extends {@code node}'s lease on {@code item}; false when the node no longer holds it.
+     */
+    synchronized boolean renew(WorkItem item, String node) throws SQLException {
+        return update(item, node, "lease_expires_at = now() + ? * interval '1 second'", statement ->
+                statement.setLong(1, leaseSeconds));
+    }
+
+    synchronized boolean complete(WorkItem item, String node) throws SQLException {
+        return update(item, node, "status = ?, owner_node = NULL, lease_expires_at = NULL, finished_at = now(), "
+                + "error_message = NULL", statement -> statement.setString(1, DONE));
+    }
+
+    /**
+     * Records the failure of {@code item}; it is offered again until it used up its attempts.
+     */
+    synchronized boolean fail(WorkItem item, String node, String error) throws SQLException {
+        boolean retry = item.attempt() < maxAttempts;
+        return update(item, node, "status = ?, owner_node = NULL, lease_expires_at = NULL, error_message = ?"
+                + (retry ? "" : ", finished_at = now()"), statement -> {
+            statement.setString(1, retry ? PENDING : FAILED);
+            statement.setString(2, error != null && error.length() > MAX_ERROR_LENGTH
+                    ? error.substring(0, MAX_ERROR_LENGTH)
+                    : error);
+        });
+    }
+
+    /**
+     * Hands {@code item} back without counting the attempt, when the node stops before finishing it.
+     */
+    synchronized boolean release(WorkItem item, String node) throws SQLException {
+        return update(item, node, "status = ?, owner_node = NULL, lease_expires_at = NULL, attempts = attempts - 1",
+                statement -> statement.setString(1, PENDING));
+    }
+
+    synchronized Progress progress(long generation) throws SQLException {
+        try {
+            Progress progress = countItems(generation);
+            connection.commit();
+            return progress;
+        } catch (SQLException ex) {
+            connection.rollback();
+            throw ex;
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        connection.close();
+    }
+
+    @FunctionalInterface
+    private interface Binder {
+        void bind(PreparedStatement statement) throws SQLException;
+    }
+
+    private Progress countItems(long generation) throws SQLException {
+        int pending = 0;
+        int leased = 0;
+        int done = 0;
+        int failed = 0;
+        try (PreparedStatement query = connection.prepareStatement("SELECT status, count(*) FROM " + table
+                + " WHERE generation = ? GROUP BY status")) {
+            query.setLong(1, generation);
+            try (ResultSet rs = query.executeQuery()) {
+                while (rs.next()) {
+                    int count = rs.getInt(2);
+                    switch (rs.getString(1)) {
+                        case PENDING -> pending = count;
+                        case LEASED -> leased = count;
+                        case DONE -> done = count;
+                        case FAILED -> failed = count;
+                        default -> {
+                        }
+                    }
+                }
+            }
+        }
+        return new Progress(generation, pending, leased, done, failed);
+    }
+
+    /**
+     * Updates {@code item} while {@code node} still holds its lease; {@code assignments} use the first parameters.
+     */
+    private boolean update(WorkItem item, String node, String assignments, Binder binder) throws SQLException {
+        int parameters = (int) assignments.chars().filter(c -> c == '?').count();
+        try (PreparedStatement update = connection.prepareStatement("UPDATE " + table + " SET " + assignments
+                + " WHERE generation = ? AND merge_name = ? AND partition_no = ? AND status = ? AND owner_node = ?")) {
+            binder.bind(update);
+            update.setLong(parameters + 1, item.generation());
+            update.setString(parameters + 2, item.mergeName());
+            update.setInt(parameters + 3, item.partition());
+            update.setString(parameters + 4, LEASED);
+            update.setString(parameters + 5, node);
+            boolean held = update.executeUpdate() == 1;
+            connection.commit();
+            return held;
+        } catch (SQLException ex) {
+            connection.rollback();
+            throw ex;
+        }
+    }
+
+    private long latestGeneration() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COALESCE(max(generation), 0) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private void lock() throws SQLException {
+        try (PreparedStatement lock = connection.prepareStatement("SELECT pg_advisory_xact_lock(?)")) {
+            lock.setLong(1, lockKey);
+            lock.execute();
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.example.arango2rdb.config;
 import com.arangodb.ArangoDB;
 import com.arangodb.ArangoDatabase;
 import com.arangodb.entity.CollectionEntity;
+import com.example.arango2rdb.ArangoSchemaInspector;
 import com.example.arango2rdb.MappingLoader;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -65,6 +66,12 @@ public class AppConfiguration {
         return database;
     }
 
+    @Bean
+    public ArangoSchemaInspector arangoSchemaInspector(ArangoDatabase arangoDatabase,
+                                                       @Value("${app.view.schema-sample-size:1000}") int sampleSize) {
+        return new ArangoSchemaInspector(arangoDatabase, sampleSize);
+    }
+
     @Bean
     public DataSource dataSource(SyncConfig config) {
         HikariDataSource dataSource = new HikariDataSource();
@@ -0,0 +1,305 @@
+package com.example.arango2rdb.config;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A derived column in {@code fieldMappings}: a function call over alias paths and literals, such as
+ * {@code concat(main.firstName, ' ', main.lastName)}. Functions: {@code concat}, {@code coalesce}, {@code lower},
+ * {@code upper}, {@code date_trunc('month', path)}, {@code if(condition, then, else)} and {@code eq(a, b)}. Strings are
+ * single-quoted, with {@code ''} for a quote. Every expression compiles to AQL, evaluated where the documents live
+ * when it only reads the main document, and can also be evaluated in Java on the resolved documents, for expressions
+ * that read joined ones. Both give the same results: nulls pass through {@code lower}, {@code upper} and
+ * {@code date_trunc}, {@code concat} skips them, and {@code if} uses AQL truthiness.
+ */
+public interface FieldExpression {
+
+    /**
+     * Evaluates the expression; {@code resolver} returns the value at an alias path split on dots.
+     */
+    Object evaluate(Function<String[], Object> resolver);
+
+    /**
+     * The expression in AQL; {@code access} renders an alias path split on dots.
+     */
+    String toAql(Function<String[], String> access);
+
+    /**
+     * Adds every alias path the expression reads to {@code paths}.
+     */
+    void collectPaths(Collection<String> paths);
+
+    /**
+     * Parses {@code text}; throws {@link IllegalArgumentException} describing the first error.
+     */
+    static FieldExpression parse(String text) {
+        return new FieldExpressionParser(text).parse();
+    }
+
+    record Path(String path, String[] parts) implements FieldExpression {
+
+        @Override
+        public Object evaluate(Function<String[], Object> resolver) {
+            return resolver.apply(parts);
+        }
+
+        @Override
+        public String toAql(Function<String[], String> access) {
+            return access.apply(parts);
+        }
+
+        @Override
+        public void collectPaths(Collection<String> paths) {
+            paths.add(path);
+        }
+    }
+
+    record Literal(Object value) implements FieldExpression {
+
+        @Override
+        public Object evaluate(Function<String[], Object> resolver) {
+            return value;
+        }
+
+        @Override
+        public String toAql(Function<String[], String> access) {
+            if (value == null) {
+                return "null";
+            }
+            if (!(value instanceof String text)) {
+                return value.toString();
+            }
+            StringBuilder out = new StringBuilder("\"");
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '"' -> out.append("\\\"");
+                    case '\\' -> out.append("\\\\");
+                    case '\n' -> out.append("\\n");
+                    case '\r' -> out.append("\\r");
+                    case '\t' -> out.append("\\t");
+                    default -> {
+                        if (c < 0x20) {
+                            out.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                        } else {
+                            out.append(c);
+                        }
+                    }
+                }
+            }
+            return out.append('"').toString();
+        }
+
+        @Override
+        public void collectPaths(Collection<String> paths) {
+        }
+    }
+
+    record Call(String function, List<FieldExpression> arguments) implements FieldExpression {
+        private static final Set<String> DATE_UNITS = Set.of("year", "month", "day", "hour", "minute", "second");
+        private static final DateTimeFormatter AQL_DATE =
+                DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.ROOT).withZone(ZoneOffset.UTC);
+
+        public Call {
+            arguments = List.copyOf(arguments);
+            int count = arguments.size();
+            switch (function) {
+                case "concat", "coalesce" -> require(function, count >= 1, "at least one argument");
+                case "lower", "upper" -> require(function, count == 1, "one argument");
+                case "eq" -> require(function, count == 2, "two arguments");
+                case "if" -> require(function, count == 3, "three arguments: condition, then, else");
+                case "date_trunc" -> {
+                    require(function, count == 2, "two arguments: unit, value");
+                    require(function, arguments.get(0) instanceof Literal unit && unit.value() instanceof String name
+                                    && DATE_UNITS.contains(name),
+                            "a unit of " + String.join(", ", DATE_UNITS.stream().sorted().toList()) + " first");
+                }
+                default -> throw new IllegalArgumentException("Unknown function " + function + "()");
+            }
+        }
+
+        private static void require(String function, boolean condition, String expected) {
+            if (!condition) {
+                throw new IllegalArgumentException(function + "() takes " + expected);
+            }
+        }
+
+        @Override
+        public Object evaluate(Function<String[], Object> resolver) {
+            switch (function) {
+                case "concat": {
+                    StringBuilder out = new StringBuilder();
+                    for (FieldExpression argument : arguments) {
+                        Object value = argument.evaluate(resolver);
+                        if (value != null) {
+                            out.append(text(value));
+                        }
+                    }
+                    return out.toString();
+                }
+                case "coalesce":
+                    for (FieldExpression argument : arguments) {
+                        Object value = argument.evaluate(resolver);
+                        if (value != null) {
+                            return value;
+                        }
+                    }
+                    return null;
+                case "lower":
+                case "upper": {
+                    Object value = arguments.get(0).evaluate(resolver);
+                    if (value == null) {
+                        return null;
+                    }
+                    return function.equals("lower") ? text(value).toLowerCase(Locale.ROOT)
+                            : text(value).toUpperCase(Locale.ROOT);
+                }
+                case "eq":
+                    return same(arguments.get(0).evaluate(resolver), arguments.get(1).evaluate(resolver));
+                case "if":
+                    return truthy(arguments.get(0).evaluate(resolver))
+                            ? arguments.get(1).evaluate(resolver)
+                            : arguments.get(2).evaluate(resolver);
+                default:
+                    return truncate((String) ((Literal) arguments.get(0)).value(), arguments.get(1).evaluate(resolver));
+            }
+        }
+
+        @Override
+        public String toAql(Function<String[], String> access) {
+            List<String> compiled = new ArrayList<>(arguments.size());
+            for (FieldExpression argument : arguments) {
+                compiled.add(argument.toAql(access));
+            }
+            switch (function) {
+                case "concat":
+                    return "CONCAT(" + String.join(", ", compiled) + ")";
+                case "coalesce":
+                    return "NOT_NULL(" + String.join(", ", compiled) + ")";
+                case "lower":
+                case "upper":
+                    return "((" + compiled.get(0) + ") == null ? null : " + function.toUpperCase(Locale.ROOT)
+                            + "(" + compiled.get(0) + "))";
+                case "eq":
+                    return "((" + compiled.get(0) + ") == (" + compiled.get(1) + "))";
+                case "if":
+                    return "((" + compiled.get(0) + ") ? (" + compiled.get(1) + ") : (" + compiled.get(2) + "))";
+                default:
+                    return "((" + compiled.get(1) + ") == null ? null : DATE_TRUNC(" + compiled.get(1) + ", "
+                            + compiled.get(0) + "))";
+            }
+        }
+
+        @Override
+        public void collectPaths(Collection<String> paths) {
+            for (FieldExpression argument : arguments) {
+                argument.collectPaths(paths);
+            }
+        }
+
+        /**
+         * AQL's string conversion: integral numbers without a fraction, everything else by its string form.
+         */
+        private static String text(Object value) {
+            if (value instanceof Double || value instanceof Float || value instanceof BigDecimal) {
+                BigDecimal decimal = new BigDecimal(value.toString()).stripTrailingZeros();
+                return decimal.scale() <= 0 ? decimal.toBigInteger().toString() : decimal.toPlainString();
+            }
+            return value.toString();
+        }
+
+        /**
+         * AQL's {@code ==}: numbers compare by value, everything else must be equal and of the same type.
+         */
+        private static boolean same(Object left, Object right) {
+            if (left instanceof Number a && right instanceof Number b) {
+                return new BigDecimal(a.toString()).compareTo(new BigDecimal(b.toString())) == 0;
+            }
+            return Objects.equals(left, right);
+        }
+
+        /**
+         * AQL truthiness: {@code null}, {@code false}, {@code 0} and the empty string are false; arrays and objects,
+         * even empty ones, are true.
+         */
+        private static boolean truthy(Object value) {
+            if (value == null) {
+                return false;
+            }
+            if (value instanceof Boolean flag) {
+                return flag;
+            }
+            if (value instanceof Number number) {
+                return number.doubleValue() != 0d;
+            }
+            if (value instanceof CharSequence text) {
+                return text.length() > 0;
+            }
+            return true;
+        }
+
+        /**
+         * AQL's {@code DATE_TRUNC} in UTC: ISO-8601 strings, with or without offset, or epoch milliseconds in; an
+         * ISO-8601 UTC string with milliseconds out. Values that are no date give {@code null}, as in AQL.
+         */
+        private static String truncate(String unit, Object value) {
+            Instant instant = instant(value);
+            if (instant == null) {
+                return null;
+            }
+            ZonedDateTime time = instant.atZone(ZoneOffset.UTC);
+            ZonedDateTime truncated = switch (unit) {
+                case "year" -> time.truncatedTo(ChronoUnit.DAYS).withDayOfYear(1);
+                case "month" -> time.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+                case "day" -> time.truncatedTo(ChronoUnit.DAYS);
+                case "hour" -> time.truncatedTo(ChronoUnit.HOURS);
+                case "minute" -> time.truncatedTo(ChronoUnit.MINUTES);
+                default -> time.truncatedTo(ChronoUnit.SECONDS);
+            };
+            return AQL_DATE.format(truncated);
+        }
+
+        private static Instant instant(Object value) {
+            if (value instanceof Number number) {
+                return Instant.ofEpochMilli(number.longValue());
+            }
+            if (value instanceof Date date) {
+                return date.toInstant();
+            }
+            if (!(value instanceof String text) || text.isBlank()) {
+                return null;
+            }
+            try {
+                return OffsetDateTime.parse(text).toInstant();
+            } catch (DateTimeParseException ignored) {
+                // no offset
+            }
+            try {
+                return LocalDateTime.parse(text).toInstant(ZoneOffset.UTC);
+            } catch (DateTimeParseException ignored) {
+                // no time
+            }
+            try {
+                return LocalDate.parse(text).atStartOfDay(ZoneOffset.UTC).toInstant();
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.arango2rdb.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Recursive descent over {@code call | alias.path | 'string' | number | true | false | null}, where a call is
+ * {@code name(expression, ...)}.
+ */
+final class FieldExpressionParser {
+    private final String text;
+    private int position;
+
+    FieldExpressionParser(String text) {
+        this.text = text;
+    }
+
+    FieldExpression parse() {
+        FieldExpression expression = parseExpression();
+        skipSpaces();
+        if (position < text.length()) {
+            throw error("unexpected '" + text.charAt(position) + "'");
+        }
+        return expression;
+    }
+
+    private FieldExpression parseExpression() {
+        skipSpaces();
+        if (position >= text.length()) {
+            throw error("expression expected");
+        }
+        char c = text.charAt(position);
+        if (c == '\'') {
+            return new FieldExpression.Literal(parseString());
+        }
+        if (c == '-' || Character.isDigit(c)) {
+            return new FieldExpression.Literal(parseNumber());
+        }
+        if (!isNameStart(c)) {
+            throw error("unexpected '" + c + "'");
+        }
+        int start = position;
+        while (position < text.length() && (isNamePart(text.charAt(position)) || text.charAt(position) == '.')) {
+            position++;
+        }
+        String name = text.substring(start, position);
+        skipSpaces();
+        if (position < text.length() && text.charAt(position) == '(') {
+            if (name.contains(".")) {
+                throw error("'" + name + "' is not a function name");
+            }
+            position++;
+            return parseCall(name.toLowerCase(Locale.ROOT));
+        }
+        switch (name) {
+            case "true":
+                return new FieldExpression.Literal(Boolean.TRUE);
+            case "false":
+                return new FieldExpression.Literal(Boolean.FALSE);
+            case "null":
+                return new FieldExpression.Literal(null);
+            default:
+                break;
+        }
+        String[] parts = name.split("\\.", -1);
+        if (parts.length < 2 || List.of(parts).contains("")) {
+            throw error("'" + name + "' is not an alias path (alias.field)");
+        }
+        return new FieldExpression.Path(name, parts);
+    }
+
+    private FieldExpression parseCall(String function) {
+        List<FieldExpression> arguments = new ArrayList<>();
+        skipSpaces();
+        if (position < text.length() && text.charAt(position) == ')') {
+            position++;
+        } else {
+            while (true) {
+                arguments.add(parseExpression());
+                skipSpaces();
+                if (position >= text.length()) {
+                    throw error("')' expected");
+                }
+                char c = text.charAt(position++);
+                if (c == ')') {
+                    break;
+                }
+                if (c != ',') {
+                    throw error("',' or ')' expected");
+                }
+            }
+        }
+        try {
+            return new FieldExpression.Call(function, arguments);
+        } catch (IllegalArgumentException ex) {
+            throw error(ex.getMessage());
+        }
+    }
+
+    private String parseString() {
+        StringBuilder out = new StringBuilder();
+        position++;
+        while (position < text.length()) {
+            char c = text.charAt(position++);
+            if (c != '\'') {
+                out.append(c);
+            } else if (position < text.length() && text.charAt(position) == '\'') {
+                out.append('\'');
+                position++;
+            } else {
+                return out.toString();
+            }
+        }
+        throw error("unterminated string");
+    }
+
+    private Object parseNumber() {
+        int start = position;
+        if (text.charAt(position) == '-') {
+            position++;
+        }
+        while (position < text.length() && (Character.isDigit(text.charAt(position)) || text.charAt(position) == '.')) {
+            position++;
+        }
+        String number = text.substring(start, position);
+        try {
+            return number.contains(".") ? (Object) Double.parseDouble(number) : (Object) Long.parseLong(number);
+        } catch (NumberFormatException ex) {
+            throw error("invalid number " + number);
+        }
+    }
+
+    private void skipSpaces() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private static boolean isNameStart(char c) {
+        return c == '_' || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
+    private static boolean isNamePart(char c) {
+        return isNameStart(c) || (c >= '0' && c <= '9');
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Invalid expression '" + text + "' at " + position + ": " + message);
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.arango2rdb.config;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * A merge's optional {@code filter}: a predicate over the main document, compiled into the {@code FILTER} of the main
+ * page query so only matching documents are read. A node is either a comparison, {@code field}, {@code op} and
+ * {@code value}, or a list of nodes under {@code all} or {@code any}. Fields are {@code main.*} paths and values are
+ * JSON literals, always sent as bind parameters, so no part of the configuration is spliced into the query as text.
+ * {@code within} takes an interval such as {@code 90d} and matches ISO-8601 date strings no older than that, counted
+ * from the start of each run.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class MergeFilter {
+    private static final Pattern MAIN_PATH = Pattern.compile("main(\\.[A-Za-z0-9_]+)+");
+    private static final int MAX_DEPTH = 8;
+    private static final int MAX_VALUES = 1000;
+    private static final DateTimeFormatter AQL_DATE =
+            DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.ROOT).withZone(ZoneOffset.UTC);
+
+    public List<MergeFilter> all;
+    public List<MergeFilter> any;
+    public String field;
+    public Operator op;
+    public Object value;
+
+    public enum Operator {
+        @JsonProperty("eq")
+        EQ("=="),
+        @JsonProperty("ne")
+        NE("!="),
+        @JsonProperty("lt")
+        LT("<"),
+        @JsonProperty("lte")
+        LTE("<="),
+        @JsonProperty("gt")
+        GT(">"),
+        @JsonProperty("gte")
+        GTE(">="),
+        @JsonProperty("in")
+        IN("IN"),
+        @JsonProperty("notIn")
+        NOT_IN("NOT IN"),
+        @JsonProperty("within")
+        WITHIN(">=");
+
+        private final String aql;
+
+        Operator(String aql) {
+            this.aql = aql;
+        }
+
+        boolean isEquality() {
+            return this == EQ || this == IN;
+        }
+    }
+
+    /**
+     * A compiled filter: the AQL condition over {@code doc} and the bind parameters it uses.
+     */
+    public record Compiled(String aql, Map<String, Object> bindVars) { }
+
+    /**
+     * Compiles the filter for a run starting at {@code now}; {@code access} renders a {@code main.*} path split on
+     * dots. Bind parameters are named {@code filter0}, {@code filter1} and so on, in document order.
+     */
+    public Compiled compile(Function<String[], String> access, Instant now) {
+        Map<String, Object> bindVars = new LinkedHashMap<>();
+        String aql = toAql(access, now, bindVars);
+        return new Compiled(aql, Collections.unmodifiableMap(bindVars));
+    }
+
+    /**
+     * The {@code main.*} fields, without the alias, of a persistent index that serves this filter; empty when no
+     * index can. Equality fields of the top-level conjunction come first, then its first range field. When every
+     * field is compared with {@code eq}, {@code _key} is appended, so the index also returns the matches in the
+     * {@code _key} order the pages are read in.
+     */
+    public List<String> indexFields() {
+        List<MergeFilter> conjuncts = all != null ? all : List.of(this);
+        Set<String> equality = new LinkedHashSet<>();
+        String range = null;
+        boolean exact = true;
+        for (MergeFilter conjunct : conjuncts) {
+            String leaf = conjunct.indexedField();
+            if (leaf == null) {
+                continue;
+            }
+            Operator operator = conjunct.field != null ? conjunct.op : conjunct.any.get(0).op;
+            if (operator.isEquality()) {
+                equality.add(leaf);
+                exact &= operator == Operator.EQ && conjunct.field != null;
+            } else if (range == null) {
+                range = leaf;
+            }
+        }
+        List<String> fields = new ArrayList<>(equality);
+        if (range != null && !equality.contains(range)) {
+            fields.add(range);
+            exact = false;
+        }
+        if (!fields.isEmpty() && exact) {
+            fields.add("_key");
+        }
+        return fields;
+    }
+
+    void validate(String mergeName) {
+        validate(mergeName, 1);
+    }
+
+    private void validate(String mergeName, int depth) {
+        if (depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Merge " + mergeName + " filter nests deeper than " + MAX_DEPTH);
+        }
+        int forms = (all != null ? 1 : 0) + (any != null ? 1 : 0) + (field != null || op != null ? 1 : 0);
+        if (forms != 1) {
+            throw new IllegalArgumentException("Merge " + mergeName
+                    + " filter nodes need exactly one of all, any or field/op/value");
+        }
+        if (all != null || any != null) {
+            List<MergeFilter> children = all != null ? all : any;
+            if (children.isEmpty()) {
+                throw new IllegalArgumentException("Merge " + mergeName + " filter has an empty "
+                        + (all != null ? "all" : "any"));
+            }
+            for (MergeFilter child : children) {
+                if (child == null) {
+                    throw new IllegalArgumentException("Merge " + mergeName + " filter has a null node");
+                }
+                child.validate(mergeName, depth + 1);
+            }
+            if (all != null) {
+                all = List.copyOf(all);
+            } else {
+                any = List.copyOf(any);
+            }
+            return;
+        }
+        if (field == null || !MAIN_PATH.matcher(field).matches()) {
+            throw new IllegalArgumentException("Merge " + mergeName
+                    + " filter field must be a main.* path: " + field);
+        }
+        if (op == null) {
+            throw new IllegalArgumentException("Merge " + mergeName + " filter on " + field + " needs an op");
+        }
+        switch (op) {
+            case IN, NOT_IN -> {
+                if (!(value instanceof List<?> values) || values.isEmpty() || values.size() > MAX_VALUES) {
+                    throw new IllegalArgumentException("Merge " + mergeName + " filter on " + field
+                            + " needs a list of 1 to " + MAX_VALUES + " values");
+                }
+                for (Object element : values) {
+                    requireScalar(mergeName, element);
+                }
+            }
+            case WITHIN -> {
+                if (!(value instanceof String interval)) {
+                    throw new IllegalArgumentException("Merge " + mergeName + " filter on " + field
+                            + " needs an interval such as 90d");
+                }
+                try {
+                    SyncConfig.parseInterval(interval);
+                } catch (IllegalArgumentException ex) {
+                    throw new IllegalArgumentException("Merge " + mergeName + " filter on " + field
+                            + " has an invalid interval '" + interval + "' (expected e.g. 12h, 90d or P30D)", ex);
+                }
+            }
+            case EQ, NE -> requireScalar(mergeName, value);
+            default -> {
+                requireScalar(mergeName, value);
+                if (value == null) {
+                    throw new IllegalArgumentException("Merge " + mergeName + " filter on " + field
+                            + " cannot order against null");
+                }
+            }
+        }
+    }
+
+    private void requireScalar(String mergeName, Object candidate) {
+        if (candidate != null && !(candidate instanceof String) && !(candidate instanceof Number)
+                && !(candidate instanceof Boolean)) {
+            throw new IllegalArgumentException("Merge " + mergeName + " filter on " + field
+                    + " only compares against strings, numbers, booleans and null");
+        }
+    }
+
+    private String toAql(Function<String[], String> access, Instant now, Map<String, Object> bindVars) {
+        if (all != null || any != null) {
+            List<String> parts = new ArrayList<>();
+            for (MergeFilter child : all != null ? all : any) {
+                parts.add(child.toAql(access, now, bindVars));
+            }
+            return parts.size() == 1 ? parts.get(0) : "(" + String.join(all != null ? " && " : " || ", parts) + ")";
+        }
+        String parameter = "filter" + bindVars.size();
+        Object bound = value;
+        if (op == Operator.WITHIN) {
+            Duration interval = SyncConfig.parseInterval((String) value);
+            bound = AQL_DATE.format(now.minus(interval));
+        }
+        bindVars.put(parameter, bound);
+        return access.apply(field.split("\\.")) + " " + op.aql + " @" + parameter;
+    }
+
+    /**
+     * The field this node lets an index narrow down, without the alias: a comparison other than {@code ne} and
+     * {@code notIn}, or an {@code any} of such comparisons that all use the same field and kind of operator.
+     */
+    private String indexedField() {
+        if (field != null) {
+            return op == Operator.NE || op == Operator.NOT_IN ? null : field.substring("main.".length());
+        }
+        if (any == null) {
+            return null;
+        }
+        String shared = null;
+        Boolean equality = null;
+        for (MergeFilter child : any) {
+            if (child.field == null || child.indexedField() == null) {
+                return null;
+            }
+            if (shared != null && (!shared.equals(child.field) || equality != child.op.isEquality())) {
+                return null;
+            }
+            shared = child.field;
+            equality = child.op.isEquality();
+        }
+        return shared.substring("main.".length());
+    }
+}
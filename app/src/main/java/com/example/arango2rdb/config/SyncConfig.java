@@ -3,6 +3,8 @@ package com.example.arango2rdb.config;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -11,16 +13,26 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class SyncConfig {
     private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
     private static final Pattern FIELD_PATH = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z0-9_]+)+");
+    private static final Pattern INTERVAL = Pattern.compile("(\\d+)([smhd])");
 
     public ArangoConfig arango;
     public RdbConfig rdb;
     public List<MergeMapping> merges = Collections.emptyList();
+    public boolean ensureIndexes = true;
+    public boolean recordRuns = true;
+    public HashJoinConfig hashJoin = new HashJoinConfig();
+    public ThroughputConfig throughput = new ThroughputConfig();
+    public DeadLetterConfig deadLetters = new DeadLetterConfig();
+    public SchedulerConfig scheduler = new SchedulerConfig();
+    public ClusterConfig cluster = new ClusterConfig();
+    public MetadataSnapshotConfig metadataSnapshot = new MetadataSnapshotConfig();
 
     public void validate() {
         if (arango == null) {
@@ -31,6 +43,30 @@ public class SyncConfig {
             throw new IllegalArgumentException("Missing relational database configuration");
         }
         rdb.validate();
+        if (hashJoin == null) {
+            hashJoin = new HashJoinConfig();
+        }
+        hashJoin.validate();
+        if (throughput == null) {
+            throughput = new ThroughputConfig();
+        }
+        throughput.validate();
+        if (deadLetters == null) {
+            deadLetters = new DeadLetterConfig();
+        }
+        deadLetters.validate();
+        if (scheduler == null) {
+            scheduler = new SchedulerConfig();
+        }
+        scheduler.validate();
+        if (cluster == null) {
+            cluster = new ClusterConfig();
+        }
+        cluster.validate();
+        if (metadataSnapshot == null) {
+            metadataSnapshot = new MetadataSnapshotConfig();
+        }
+        metadataSnapshot.validate();
 
         if (merges == null || merges.isEmpty()) {
             throw new IllegalArgumentException("At least one merge mapping is required");
@@ -74,6 +110,10 @@ public class SyncConfig {
         public String jdbcUrl;
         public String user;
         public String password;
+        /**
+         * postgres, mysql, mariadb, h2, standard or generic; detected from {@link #jdbcUrl} when unset.
+         */
+        public String dialect;
 
         void validate() {
             if (jdbcUrl == null || jdbcUrl.isBlank()) {
@@ -88,6 +128,190 @@ public class SyncConfig {
         }
     }
 
+    /**
+     * Limits for joins with {@code "strategy": "hash"}: each partition's build side must fit in
+     * {@code memoryBudgetMb}, spill files go to {@code spillDirectory} (the JVM temp directory when unset).
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class HashJoinConfig {
+        public long memoryBudgetMb = 256;
+        public int partitions = 64;
+        public String spillDirectory;
+
+        void validate() {
+            if (memoryBudgetMb <= 0) {
+                throw new IllegalArgumentException("hashJoin.memoryBudgetMb must be positive");
+            }
+            if (partitions < 2 || partitions > 4096) {
+                throw new IllegalArgumentException("hashJoin.partitions must be between 2 and 4096");
+            }
+        }
+    }
+
+    /**
+     * Latency targets for the adaptive read and write sizing. Each setting starts at its initial value, grows while
+     * the p95 latency of its requests stays under the target and halves when the target is missed or a request fails.
+     * With {@code adaptive} off the initial values stay fixed.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class ThroughputConfig {
+        public boolean adaptive = true;
+        public long readLatencyTargetMs = 500;
+        public long lookupLatencyTargetMs = 50;
+        public long writeLatencyTargetMs = 1000;
+        public int initialReadBatchSize = 1000;
+        public int minReadBatchSize = 100;
+        public int maxReadBatchSize = 10000;
+        public int initialInFlightReads = 1;
+        public int maxInFlightReads = 8;
+        public int minWriteBatchRows = 50;
+        public int maxRetries = 3;
+
+        void validate() {
+            if (readLatencyTargetMs <= 0 || lookupLatencyTargetMs <= 0 || writeLatencyTargetMs <= 0) {
+                throw new IllegalArgumentException("throughput latency targets must be positive");
+            }
+            if (minReadBatchSize <= 0 || minReadBatchSize > maxReadBatchSize
+                    || initialReadBatchSize < minReadBatchSize || initialReadBatchSize > maxReadBatchSize) {
+                throw new IllegalArgumentException(
+                        "throughput read batch sizes must satisfy 0 < minReadBatchSize <= initialReadBatchSize <= maxReadBatchSize");
+            }
+            if (initialInFlightReads <= 0 || initialInFlightReads > maxInFlightReads || maxInFlightReads > 256) {
+                throw new IllegalArgumentException(
+                        "throughput in-flight reads must satisfy 0 < initialInFlightReads <= maxInFlightReads <= 256");
+            }
+            if (minWriteBatchRows <= 0) {
+                throw new IllegalArgumentException("throughput.minWriteBatchRows must be positive");
+            }
+            if (maxRetries < 0) {
+                throw new IllegalArgumentException("throughput.maxRetries must not be negative");
+            }
+        }
+    }
+
+    /**
+     * Rows that cannot be converted or written are recorded in {@code table} instead of failing the merge, until
+     * more than {@code errorBudget} rows of one merge are rejected. An error budget of 0 fails on the first bad row.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class DeadLetterConfig {
+        public String table = "sync_dead_letters";
+        public int errorBudget = 100;
+
+        void validate() {
+            if (table == null || !IDENTIFIER.matcher(table).matches()) {
+                throw new IllegalArgumentException("deadLetters.table must be a plain identifier");
+            }
+            if (errorBudget < 0) {
+                throw new IllegalArgumentException("deadLetters.errorBudget must not be negative");
+            }
+        }
+    }
+
+    /**
+     * The {@code daemon} mode: merges with a {@code schedule} run on {@code workers} threads, and their first runs
+     * are spread evenly over {@code startSpreadSeconds} (or their interval, when shorter).
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class SchedulerConfig {
+        public int workers = 2;
+        public long startSpreadSeconds = 60;
+
+        void validate() {
+            if (workers <= 0 || workers > 64) {
+                throw new IllegalArgumentException("scheduler.workers must be between 1 and 64");
+            }
+            if (startSpreadSeconds < 0) {
+                throw new IllegalArgumentException("scheduler.startSpreadSeconds must not be negative");
+            }
+        }
+    }
+
+    /**
+     * The {@code cluster} mode: instances share the merges through work items in {@code workTable}, in the target
+     * PostgreSQL database. A node holds a work item for {@code leaseSeconds} and renews the lease every
+     * {@code heartbeatSeconds}; when it stops renewing, another node takes the item over, up to {@code maxAttempts}
+     * tries. Merges with more than {@code partitionDocuments} main documents are split into key ranges, at most
+     * {@code maxPartitions} of them. Idle nodes look for work every {@code pollSeconds}.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class ClusterConfig {
+        public String workTable = "sync_work_items";
+        public long leaseSeconds = 60;
+        public long heartbeatSeconds = 15;
+        public long partitionDocuments = 1_000_000;
+        public int maxPartitions = 32;
+        public int maxAttempts = 3;
+        public long pollSeconds = 5;
+
+        void validate() {
+            if (workTable == null || !IDENTIFIER.matcher(workTable).matches()) {
+                throw new IllegalArgumentException("cluster.workTable must be a plain identifier");
+            }
+            if (heartbeatSeconds <= 0 || leaseSeconds <= heartbeatSeconds) {
+                throw new IllegalArgumentException("cluster.heartbeatSeconds must be positive and below cluster.leaseSeconds");
+            }
+            if (partitionDocuments <= 0) {
+                throw new IllegalArgumentException("cluster.partitionDocuments must be positive");
+            }
+            if (maxPartitions <= 0 || maxPartitions > 1024) {
+                throw new IllegalArgumentException("cluster.maxPartitions must be between 1 and 1024");
+            }
+            if (maxAttempts <= 0) {
+                throw new IllegalArgumentException("cluster.maxAttempts must be positive");
+            }
+            if (pollSeconds <= 0) {
+                throw new IllegalArgumentException("cluster.pollSeconds must be positive");
+            }
+        }
+    }
+
+    /**
+     * The metadata snapshot that lets a sync skip listing ArangoDB collections and reading target column types at
+     * startup. {@code path} defaults to a file in the JVM temp directory named after the databases. Column types are
+     * checked against the database's catalog; collections are listed again in the background once the snapshot is
+     * older than {@code maxAgeSeconds}.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class MetadataSnapshotConfig {
+        public boolean enabled = true;
+        public String path;
+        public long maxAgeSeconds = 3600;
+
+        void validate() {
+            if (path != null && path.isBlank()) {
+                throw new IllegalArgumentException("metadataSnapshot.path must not be blank");
+            }
+            if (maxAgeSeconds < 0) {
+                throw new IllegalArgumentException("metadataSnapshot.maxAgeSeconds must not be negative");
+            }
+        }
+    }
+
+    /**
+     * Parses a schedule interval: a count with an {@code s}, {@code m}, {@code h} or {@code d} unit ({@code 30s},
+     * {@code 1m}, {@code 1h}), or an ISO-8601 duration ({@code PT90M}).
+     */
+    static Duration parseInterval(String value) {
+        String trimmed = value.trim();
+        Matcher matcher = INTERVAL.matcher(trimmed.toLowerCase(Locale.ROOT));
+        if (matcher.matches()) {
+            long amount = Long.parseLong(matcher.group(1));
+            return switch (matcher.group(2)) {
+                case "s" -> Duration.ofSeconds(amount);
+                case "m" -> Duration.ofMinutes(amount);
+                case "h" -> Duration.ofHours(amount);
+                default -> Duration.ofDays(amount);
+            };
+        }
+        try {
+            return Duration.parse(trimmed);
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("Invalid schedule interval '" + value
+                    + "' (expected e.g. 30s, 1m, 1h, 1d or PT90M)", ex);
+        }
+    }
+
     @JsonIgnoreProperties(ignoreUnknown = true)
     public static class MergeMapping {
         public String name;
@@ -97,6 +321,54 @@ public class SyncConfig {
         public String keyField;
         public Map<String, String> fieldMappings = Collections.emptyMap();
         public List<MergeJoin> joins = Collections.emptyList();
+        public RefreshStrategy refreshStrategy = RefreshStrategy.UPSERT;
+        /**
+         * How often the {@code daemon} mode runs this merge, e.g. {@code 1m} or {@code 1h}; unset merges only run
+         * with a full sync.
+         */
+        public String schedule;
+        /**
+         * Limits the merge to the main documents that match, evaluated by ArangoDB in the main page query; unset
+         * merges read the whole collection.
+         */
+        public MergeFilter filter;
+        private final Map<String, FieldExpression> expressions = new HashMap<>();
+
+        /**
+         * The parsed expression of a {@code fieldMappings} source, or {@code null} when the source is a plain
+         * {@code alias.property} path.
+         */
+        public FieldExpression expression(String source) {
+            if (FIELD_PATH.matcher(source).matches()) {
+                return null;
+            }
+            synchronized (expressions) {
+                return expressions.computeIfAbsent(source, FieldExpression::parse);
+            }
+        }
+
+        /**
+         * Every alias path the field mappings read, including the paths inside expressions.
+         */
+        public List<String> sourcePaths() {
+            List<String> paths = new ArrayList<>();
+            for (String source : fieldMappings.keySet()) {
+                FieldExpression expression = expression(source);
+                if (expression == null) {
+                    paths.add(source);
+                } else {
+                    expression.collectPaths(paths);
+                }
+            }
+            return paths;
+        }
+
+        /**
+         * The parsed {@link #schedule}, or {@code null} when the merge is not scheduled.
+         */
+        public Duration scheduleInterval() {
+            return schedule == null || schedule.isBlank() ? null : parseInterval(schedule);
+        }
 
         void validate() {
             if (name == null || name.isBlank()) {
@@ -133,9 +405,11 @@ public class SyncConfig {
                     throw new IllegalArgumentException(
                             "Merge mapping " + name + " contains a blank field source");
                 }
-                if (!FIELD_PATH.matcher(source).matches()) {
-                    throw new IllegalArgumentException(
-                            "Merge mapping " + name + " field source must be alias.property: " + source);
+                try {
+                    expression(source);
+                } catch (IllegalArgumentException ex) {
+                    throw new IllegalArgumentException("Merge mapping " + name
+                            + " field source must be alias.property or an expression: " + ex.getMessage(), ex);
                 }
                 if (target == null || target.isBlank()) {
                     throw new IllegalArgumentException(
@@ -154,12 +428,55 @@ public class SyncConfig {
             }
             Map<String, MergeJoin> aliases = new HashMap<>();
             List<MergeJoin> cleanedJoins = new ArrayList<>();
+            boolean hashJoined = false;
             for (MergeJoin join : joins) {
                 join.validate(name, aliases.keySet());
+                if (join.strategy == MergeJoin.JoinStrategy.HASH) {
+                    if (hashJoined) {
+                        throw new IllegalArgumentException("Merge " + name + " can use at most one hash join");
+                    }
+                    hashJoined = true;
+                }
                 aliases.put(join.alias, join);
                 cleanedJoins.add(join);
             }
             joins = List.copyOf(cleanedJoins);
+            if (refreshStrategy == null) {
+                refreshStrategy = RefreshStrategy.UPSERT;
+            }
+            Duration interval = scheduleInterval();
+            if (interval != null && interval.compareTo(Duration.ofSeconds(1)) < 0) {
+                throw new IllegalArgumentException("Merge " + name + " schedule must be at least 1s: " + schedule);
+            }
+            if (filter != null) {
+                filter.validate(name);
+                if (filter.indexFields().isEmpty()) {
+                    System.err.printf(Locale.US, "Warning: merge %s filter cannot use an index (only ne, notIn or "
+                            + "mixed any conditions); every run scans all of %s%n", name, mainCollection);
+                }
+            }
+        }
+    }
+
+    /**
+     * How a merge writes into the base tables. {@code upsert} updates rows in place; {@code shadow} loads a fresh
+     * copy of the table and swaps it in with a rename. Repository syncs always upsert.
+     */
+    public enum RefreshStrategy {
+        @JsonProperty("upsert")
+        UPSERT("upsert"),
+        @JsonProperty("shadow")
+        SHADOW("shadow");
+
+        private final String label;
+
+        RefreshStrategy(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
         }
     }
 
@@ -170,6 +487,7 @@ public class SyncConfig {
         public String localField;
         public String foreignField;
         public boolean required = true;
+        public JoinStrategy strategy = JoinStrategy.LOOKUP;
         public List<ConnectedEdge> connectedEdges = Collections.emptyList();
 
         void validate(String mergeName, Set<String> existingAliases) {
@@ -227,6 +545,41 @@ public class SyncConfig {
                             "Join foreignField contains invalid characters for alias '" + alias + "' in merge " + mergeName);
                 }
             }
+            if (strategy == null) {
+                strategy = JoinStrategy.LOOKUP;
+            }
+            if (strategy == JoinStrategy.HASH) {
+                if (hasConnectedEdges) {
+                    throw new IllegalArgumentException(
+                            "Join '" + alias + "' in merge " + mergeName + " cannot use the hash strategy with connectedEdges");
+                }
+                if (!localField.startsWith("main.")) {
+                    throw new IllegalArgumentException(
+                            "Hash join '" + alias + "' in merge " + mergeName + " must join on a main.* localField");
+                }
+            }
+        }
+
+        /**
+         * How a field join finds its document. {@code lookup} queries the join collection once per main document;
+         * {@code hash} scans it once and joins partition by partition through spill files.
+         */
+        public enum JoinStrategy {
+            @JsonProperty("lookup")
+            LOOKUP("lookup"),
+            @JsonProperty("hash")
+            HASH("hash");
+
+            private final String label;
+
+            JoinStrategy(String label) {
+                this.label = label;
+            }
+
+            @Override
+            public String toString() {
+                return label;
+            }
         }
 
         @JsonIgnoreProperties(ignoreUnknown = true)
@@ -0,0 +1,23 @@
+package com.example.arango2rdb.controller;
+
+import com.example.arango2rdb.service.SnapshotCache;
+import com.example.arango2rdb.view.SnapshotCacheStats;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/cache")
+public class CacheStatsController {
+
+    private final SnapshotCache snapshotCache;
+
+    public CacheStatsController(SnapshotCache snapshotCache) {
+        this.snapshotCache = snapshotCache;
+    }
+
+    @GetMapping("/stats")
+    public SnapshotCacheStats stats() {
+        return snapshotCache.stats();
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.arango2rdb.controller;
 
+import com.example.arango2rdb.service.RepositoryDiffService;
 import com.example.arango2rdb.service.RepositoryService;
 import com.example.arango2rdb.view.RepositoryInfo;
 import org.slf4j.Logger;
@@ -13,6 +14,8 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.util.Optional;
+
 @Controller
 @RequestMapping("/repositories")
 public class RepositoryController {
@@ -20,9 +23,11 @@ public class RepositoryController {
     private static final Logger log = LoggerFactory.getLogger(RepositoryController.class);
 
     private final RepositoryService repositoryService;
+    private final RepositoryDiffService repositoryDiffService;
 
-    public RepositoryController(RepositoryService repositoryService) {
+    public RepositoryController(RepositoryService repositoryService, RepositoryDiffService repositoryDiffService) {
         this.repositoryService = repositoryService;
+        this.repositoryDiffService = repositoryDiffService;
     }
 
     @GetMapping
@@ -32,9 +37,11 @@ public class RepositoryController {
     }
 
     @PostMapping
-    public String create(@RequestParam("name") String name, RedirectAttributes redirectAttributes) {
+    public String create(@RequestParam("name") String name,
+                         @RequestParam(name = "seed", required = false) String seed,
+                         RedirectAttributes redirectAttributes) {
         try {
-            RepositoryInfo info = repositoryService.createRepository(name);
+            RepositoryInfo info = repositoryService.createRepository(name, seed);
             redirectAttributes.addFlashAttribute("repositoryStatus", "Repository '" + info.name() + "' created");
         } catch (Exception ex) {
             log.warn("Failed to create repository", ex);
@@ -58,18 +65,67 @@ public class RepositoryController {
     @PostMapping("/{id}/commit")
     public String commit(@PathVariable("id") long id, RedirectAttributes redirectAttributes) {
         try {
-            repositoryService.markCommitted(id);
-            redirectAttributes.addFlashAttribute("repositoryStatus", "Repository marked as committed");
+            repositoryService.commitRepository(id);
+            redirectAttributes.addFlashAttribute("repositoryStatus", "Repository tables are now live");
         } catch (Exception ex) {
-            log.warn("Failed to mark repository {} as committed", id, ex);
+            log.warn("Failed to commit repository {}", id, ex);
             redirectAttributes.addFlashAttribute("repositoryError", ex.getMessage());
         }
         return "redirect:/repositories";
     }
 
+    @PostMapping("/{id}/rollback")
+    public String rollback(@PathVariable("id") long id, RedirectAttributes redirectAttributes) {
+        try {
+            repositoryService.rollbackCommit(id);
+            redirectAttributes.addFlashAttribute("repositoryStatus", "Previous live tables restored");
+        } catch (Exception ex) {
+            log.warn("Failed to roll back commit of repository {}", id, ex);
+            redirectAttributes.addFlashAttribute("repositoryError", ex.getMessage());
+        }
+        return "redirect:/repositories";
+    }
+
+    @GetMapping("/{id}/diff")
+    public String diff(@PathVariable("id") long id,
+                       @RequestParam(name = "table", required = false) String table,
+                       @RequestParam(name = "after", required = false) String after,
+                       Model model,
+                       RedirectAttributes redirectAttributes) {
+        Optional<RepositoryInfo> repository = repositoryService.findById(id);
+        if (repository.isEmpty()) {
+            redirectAttributes.addFlashAttribute("repositoryError", "Repository not found");
+            return "redirect:/repositories";
+        }
+        if (!repository.get().hasTables()) {
+            redirectAttributes.addFlashAttribute("repositoryError", committedMessage(repository.get()));
+            return "redirect:/repositories";
+        }
+        model.addAttribute("repository", repository.get());
+        if (table != null && !table.isBlank()) {
+            model.addAttribute("page", repositoryDiffService.page(repository.get(), table, after));
+        } else {
+            model.addAttribute("summaries", repositoryDiffService.summarize(repository.get()));
+        }
+        return "repository-diff";
+    }
+
     @GetMapping("/{id}/open")
     public String open(@PathVariable("id") long id, RedirectAttributes redirectAttributes) {
+        Optional<RepositoryInfo> repository = repositoryService.findById(id);
+        if (repository.isEmpty()) {
+            redirectAttributes.addFlashAttribute("repositoryError", "Repository not found");
+            return "redirect:/repositories";
+        }
+        if (!repository.get().hasTables()) {
+            redirectAttributes.addFlashAttribute("repositoryError", committedMessage(repository.get()));
+            return "redirect:/repositories";
+        }
         redirectAttributes.addAttribute("repo", id);
         return "redirect:/";
     }
+
+    private static String committedMessage(RepositoryInfo repository) {
+        return "Repository '" + repository.name() + "' is committed; its tables are the live tables";
+    }
 }
@@ -1,13 +1,14 @@
 package com.example.arango2rdb.controller;
 
 import com.example.arango2rdb.service.RepositoryService;
-import com.example.arango2rdb.service.SyncOrchestrator;
+import com.example.arango2rdb.service.SyncJob;
+import com.example.arango2rdb.service.SyncJobService;
 import com.example.arango2rdb.service.VisualizationService;
 import com.example.arango2rdb.view.CollectionSnapshot;
+import com.example.arango2rdb.view.KeysetCursor;
 import com.example.arango2rdb.view.RepositoryInfo;
+import com.example.arango2rdb.view.SchemaCards;
 import com.example.arango2rdb.view.TableSnapshot;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -21,86 +22,113 @@ import java.util.Optional;
 @Controller
 public class SchemaController {
 
-    private static final Logger log = LoggerFactory.getLogger(SchemaController.class);
-
     private final VisualizationService service;
     private final RepositoryService repositoryService;
-    private final SyncOrchestrator syncOrchestrator;
+    private final SyncJobService syncJobService;
 
     public SchemaController(VisualizationService service,
                             RepositoryService repositoryService,
-                            SyncOrchestrator syncOrchestrator) {
+                            SyncJobService syncJobService) {
         this.service = service;
         this.repositoryService = repositoryService;
-        this.syncOrchestrator = syncOrchestrator;
+        this.syncJobService = syncJobService;
     }
 
     @GetMapping("/")
     public String index(@RequestParam(name = "filter", required = false) String filter,
                         @RequestParam(name = "repo", required = false) Optional<Long> repositoryId,
+                        @RequestParam(name = "job", required = false) Optional<String> jobId,
                         Model model) {
-        Optional<RepositoryInfo> activeRepository = repositoryId.flatMap(repositoryService::findById);
+        Optional<RepositoryInfo> activeRepository = repositoryId.flatMap(repositoryService::findById)
+                .filter(RepositoryInfo::hasTables);
         String schema = activeRepository.map(RepositoryInfo::schemaName).orElse(null);
+        Optional<SyncJob> syncJob = jobId.flatMap(syncJobService::find)
+                .or(() -> syncJobService.findActive(schema));
 
         model.addAttribute("filter", filter);
         model.addAttribute("repositories", repositoryService.listRepositories());
         model.addAttribute("activeRepository", activeRepository.orElse(null));
         model.addAttribute("activeRepositoryId", activeRepository.map(RepositoryInfo::id).orElse(null));
-        model.addAttribute("arangoCollections", service.loadArangoCollections(filter));
-        model.addAttribute("rdbTables", service.loadTables(filter, schema));
+        SchemaCards cards = service.loadCards(filter, schema);
+        model.addAttribute("arangoCollections", cards.collections());
+        model.addAttribute("rdbTables", cards.tables());
         model.addAttribute("merges", service.getMergeMappings());
+        model.addAttribute("syncJob", syncJob.map(SyncJob::status).orElse(null));
         return "schema-view";
     }
 
     @GetMapping("/arango/{collection}")
     public String arangoFragment(@PathVariable("collection") String collection,
-                                 @RequestParam(name = "size", required = false) Optional<Long> size,
                                  @RequestParam(name = "repo", required = false) Optional<Long> repositoryId,
                                  Model model) {
-        CollectionSnapshot snapshot = service.loadArangoCollection(collection, size.map(this::safeInt).orElse(-1));
-        model.addAttribute("col", snapshot);
+        model.addAttribute("col", service.loadArangoCollection(collection));
         return "fragments/arango-collection :: collectionFragment";
     }
 
+    @GetMapping("/arango/{collection}/page")
+    public String arangoPage(@PathVariable("collection") String collection,
+                             @RequestParam(name = "after") String after,
+                             @RequestParam(name = "columns", required = false) String columns,
+                             Model model) {
+        CollectionSnapshot snapshot = service.loadArangoCollection(collection, after, KeysetCursor.decode(columns));
+        model.addAttribute("col", snapshot);
+        return "fragments/arango-collection :: rows";
+    }
+
     @GetMapping("/rdb/{table}")
     public String rdbFragment(@PathVariable("table") String table,
-                              @RequestParam(name = "size", required = false) Optional<Long> size,
                               @RequestParam(name = "repo", required = false) Optional<Long> repositoryId,
                               Model model) {
+        return renderTable(table, null, repositoryId, model, "fragments/rdb-table :: table");
+    }
+
+    @GetMapping("/rdb/{table}/page")
+    public String rdbPage(@PathVariable("table") String table,
+                          @RequestParam(name = "after") String after,
+                          @RequestParam(name = "repo", required = false) Optional<Long> repositoryId,
+                          Model model) {
+        return renderTable(table, after, repositoryId, model, "fragments/rdb-table :: rows");
+    }
+
+    private String renderTable(String table,
+                               String after,
+                               Optional<Long> repositoryId,
+                               Model model,
+                               String view) {
         Optional<RepositoryInfo> activeRepository = repositoryId.flatMap(repositoryService::findById);
         String schema = activeRepository.map(RepositoryInfo::schemaName).orElse(null);
-        TableSnapshot snapshot = service.loadTable(table, size.map(this::safeInt).orElse(-1), schema);
+        TableSnapshot snapshot = service.loadTable(table, schema, after);
         model.addAttribute("table", snapshot);
         model.addAttribute("repoId", activeRepository.map(RepositoryInfo::id).orElse(null));
-        return "fragments/rdb-table :: table";
+        return view;
     }
 
     @PostMapping("/sync")
     public String sync(@RequestParam(name = "repo", required = false) Optional<Long> repositoryId,
+                       @RequestParam(name = "profile", defaultValue = "false") boolean profile,
                        RedirectAttributes redirectAttributes) {
         Optional<RepositoryInfo> activeRepository = repositoryId.flatMap(repositoryService::findById);
         if (repositoryId.isPresent() && activeRepository.isEmpty()) {
             redirectAttributes.addFlashAttribute("syncError", "Repository not found");
             return "redirect:/repositories";
         }
+        if (activeRepository.isPresent() && !activeRepository.get().hasTables()) {
+            redirectAttributes.addFlashAttribute("repositoryError", "Repository '" + activeRepository.get().name()
+                    + "' is committed; sync the base tables instead");
+            return "redirect:/repositories";
+        }
+        String schema = activeRepository.map(RepositoryInfo::schemaName).orElse(null);
+        SyncJob job;
         try {
-            syncOrchestrator.runSync(activeRepository.map(RepositoryInfo::schemaName).orElse(null));
-            redirectAttributes.addFlashAttribute("syncStatus", "Sync completed successfully.");
-        } catch (Exception ex) {
-            log.error("Sync execution failed", ex);
+            job = syncJobService.submit(schema, profile);
+        } catch (IllegalStateException ex) {
             redirectAttributes.addFlashAttribute("syncError", ex.getMessage());
+            job = syncJobService.findActive(schema).orElse(null);
+        }
+        if (job != null) {
+            redirectAttributes.addAttribute("job", job.getId());
         }
         activeRepository.ifPresent(repo -> redirectAttributes.addAttribute("repo", repo.id()));
         return "redirect:/";
     }
-
-    private int safeInt(long value) {
-        if (value > Integer.MAX_VALUE) {
-            return Integer.MAX_VALUE;
-        }
-        if (value < Integer.MIN_VALUE) {
-            return Integer.MIN_VALUE;
-        }
-        return (int) value;
-    }
 }
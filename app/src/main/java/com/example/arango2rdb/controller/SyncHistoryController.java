@@ -0,0 +1,25 @@
+package com.example.arango2rdb.controller;
+
+import com.example.arango2rdb.service.SyncHistoryService;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+@Controller
+@RequestMapping("/sync/runs")
+public class SyncHistoryController {
+
+    private final SyncHistoryService syncHistoryService;
+
+    public SyncHistoryController(SyncHistoryService syncHistoryService) {
+        this.syncHistoryService = syncHistoryService;
+    }
+
+    @GetMapping
+    public String history(Model model) {
+        model.addAttribute("trends", syncHistoryService.trends());
+        model.addAttribute("runs", syncHistoryService.recentRuns());
+        return "sync-history";
+    }
+}
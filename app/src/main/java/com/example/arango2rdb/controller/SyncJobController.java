@@ -0,0 +1,47 @@
+package com.example.arango2rdb.controller;
+
+import com.example.arango2rdb.service.SyncJob;
+import com.example.arango2rdb.service.SyncJobService;
+import com.example.arango2rdb.view.SyncJobStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/sync/jobs")
+public class SyncJobController {
+
+    private final SyncJobService syncJobService;
+
+    public SyncJobController(SyncJobService syncJobService) {
+        this.syncJobService = syncJobService;
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<SyncJobStatus> status(@PathVariable("id") String id) {
+        return syncJobService.find(id)
+                .map(SyncJob::status)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping(path = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> events(@PathVariable("id") String id) {
+        if (syncJobService.find(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(syncJobService.subscribe(id));
+    }
+
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<Void> cancel(@PathVariable("id") String id) {
+        return syncJobService.cancel(id)
+                ? ResponseEntity.accepted().build()
+                : ResponseEntity.notFound().build();
+    }
+}
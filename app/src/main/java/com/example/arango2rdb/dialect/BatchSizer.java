@@ -0,0 +1,24 @@
+package com.example.arango2rdb.dialect;
+
+/**
+ * Chooses how many rows an {@link UpsertBatch} buffers before writing, from the latency and failures of the writes so
+ * far.
+ */
+public interface BatchSizer {
+
+    /**
+     * Rows to buffer before the next write; values above {@code maxRows}, the dialect's limit, are capped.
+     */
+    int batchRows(int maxRows);
+
+    /**
+     * Reports one completed write of {@code rows} rows that took {@code nanos}.
+     */
+    void flushed(int rows, long nanos);
+
+    /**
+     * Reports a flush that failed for a reason other than its data, at most once per flush; later batches shrink, as
+     * they do when the latency target is missed.
+     */
+    void failed();
+}
@@ -0,0 +1,57 @@
+package com.example.arango2rdb.dialect;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+
+/**
+ * Writes coerced values as fields of PostgreSQL's {@code COPY ... (FORMAT csv)} input, producing the same column
+ * values the JDBC driver would have bound.
+ */
+public final class CopyCsv {
+
+    private CopyCsv() {
+    }
+
+    /**
+     * Appends one field. Nulls are empty unquoted fields; every other value is quoted so empty strings stay distinct
+     * from nulls.
+     */
+    public static void append(StringBuilder csv, Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short) {
+            csv.append(((Number) value).longValue());
+            return;
+        }
+        if (value instanceof byte[] bytes) {
+            csv.append("\"\\x");
+            for (byte b : bytes) {
+                csv.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            csv.append('"');
+            return;
+        }
+        String text;
+        if (value instanceof BigDecimal decimal) {
+            text = decimal.toPlainString();
+        } else if (value instanceof Timestamp timestamp) {
+            // With the JVM's offset, as the driver sends it: timestamptz columns get the right instant and
+            // timestamp columns ignore the offset and keep the local time.
+            text = OffsetDateTime.ofInstant(timestamp.toInstant(), ZoneId.systemDefault()).toString();
+        } else {
+            text = value.toString();
+        }
+        csv.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                csv.append('"');
+            }
+            csv.append(c);
+        }
+        csv.append('"');
+    }
+}
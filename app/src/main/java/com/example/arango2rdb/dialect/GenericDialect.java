@@ -0,0 +1,113 @@
+package com.example.arango2rdb.dialect;
+
+import com.example.arango2rdb.SyncProfiler;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Portable fallback: a JDBC batch of UPDATEs by key followed by a batch of INSERTs for the rows no UPDATE matched.
+ * Needs no unique index and no vendor syntax, at two round trips per batch.
+ */
+public class GenericDialect implements SqlDialect {
+
+    @Override
+    public String name() {
+        return "generic";
+    }
+
+    @Override
+    public int maxBatchRows() {
+        return 500;
+    }
+
+    @Override
+    public UpsertBatch openUpsert(Connection connection, UpsertTarget target, boolean uniqueKey, SyncProfiler profiler) {
+        return new UpdateThenInsert(connection, this, target, profiler);
+    }
+
+    static final class UpdateThenInsert extends UpsertBatch {
+        private final String updateSql;
+        private final String insertSql;
+        private final String existsSql;
+
+        UpdateThenInsert(Connection connection, SqlDialect dialect, UpsertTarget target, SyncProfiler profiler) {
+            super(connection, dialect, target, profiler);
+            String key = dialect.quoteIdentifier(target.keyColumn());
+            StringBuilder update = new StringBuilder("UPDATE ").append(target.renderedTable()).append(" SET ");
+            List<String> valueColumns = valueColumns();
+            for (int i = 0; i < valueColumns.size(); i++) {
+                if (i > 0) {
+                    update.append(", ");
+                }
+                update.append(dialect.quoteIdentifier(valueColumns.get(i))).append(" = ?");
+            }
+            update.append(" WHERE ").append(key).append(" = ?");
+            this.updateSql = valueColumns.isEmpty() ? null : update.toString();
+            this.insertSql = "INSERT INTO " + target.renderedTable() + " (" + columnList("") + ") VALUES "
+                    + placeholders(target.columns().size());
+            this.existsSql = "SELECT COUNT(*) FROM " + target.renderedTable() + " WHERE " + key + " = ?";
+        }
+
+        @Override
+        protected void write(RowBatch batch) throws SQLException {
+            int[] unmatched = new int[batch.size()];
+            int unmatchedCount = 0;
+            if (updateSql == null) {
+                for (int row = 0; row < batch.size(); row++) {
+                    if (!exists(batch.get(row, 0))) {
+                        unmatched[unmatchedCount++] = row;
+                    }
+                }
+            } else {
+                int[] counts;
+                try (PreparedStatement update = connection.prepareStatement(updateSql)) {
+                    int[] sqlTypes = target.sqlTypes();
+                    for (int row = 0; row < batch.size(); row++) {
+                        for (int i = 1; i < sqlTypes.length; i++) {
+                            dialect.bind(update, i, batch.get(row, i), sqlTypes[i]);
+                        }
+                        dialect.bind(update, sqlTypes.length, batch.get(row, 0), sqlTypes[0]);
+                        update.addBatch();
+                    }
+                    counts = update.executeBatch();
+                }
+                roundTrip();
+                for (int row = 0; row < batch.size(); row++) {
+                    int count = row < counts.length ? counts[row] : Statement.SUCCESS_NO_INFO;
+                    // Drivers that do not report per-row counts need an explicit existence check.
+                    boolean matched = count == Statement.SUCCESS_NO_INFO ? exists(batch.get(row, 0)) : count > 0;
+                    if (!matched) {
+                        unmatched[unmatchedCount++] = row;
+                    }
+                }
+            }
+            countWrites(unmatchedCount, batch.size() - unmatchedCount);
+            if (unmatchedCount == 0) {
+                return;
+            }
+            try (PreparedStatement insert = connection.prepareStatement(insertSql)) {
+                for (int i = 0; i < unmatchedCount; i++) {
+                    bindRow(insert, 1, batch, unmatched[i]);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            roundTrip();
+        }
+
+        private boolean exists(Object key) throws SQLException {
+            try (PreparedStatement statement = connection.prepareStatement(existsSql)) {
+                dialect.bind(statement, 1, key, target.sqlTypes()[0]);
+                try (ResultSet rs = statement.executeQuery()) {
+                    roundTrip();
+                    return rs.next() && rs.getLong(1) > 0;
+                }
+            }
+        }
+    }
+}
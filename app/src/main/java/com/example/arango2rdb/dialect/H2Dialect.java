@@ -0,0 +1,56 @@
+package com.example.arango2rdb.dialect;
+
+import com.example.arango2rdb.SyncProfiler;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * H2: {@code MERGE INTO ... KEY (key) VALUES (...)} sent as one JDBC batch. The KEY clause matches on the key column
+ * directly, so no unique index is required.
+ */
+public class H2Dialect implements SqlDialect {
+
+    @Override
+    public String name() {
+        return "h2";
+    }
+
+    @Override
+    public String largeTextType() {
+        return "CLOB";
+    }
+
+    @Override
+    public int maxBatchRows() {
+        return 1000;
+    }
+
+    @Override
+    public UpsertBatch openUpsert(Connection connection, UpsertTarget target, boolean uniqueKey, SyncProfiler profiler) {
+        return new MergeKey(connection, this, target, profiler);
+    }
+
+    static final class MergeKey extends UpsertBatch {
+        private final String mergeSql;
+
+        MergeKey(Connection connection, SqlDialect dialect, UpsertTarget target, SyncProfiler profiler) {
+            super(connection, dialect, target, profiler);
+            this.mergeSql = "MERGE INTO " + target.renderedTable() + " (" + columnList("") + ") KEY ("
+                    + dialect.quoteIdentifier(target.keyColumn()) + ") VALUES " + placeholders(target.columns().size());
+        }
+
+        @Override
+        protected void write(RowBatch batch) throws SQLException {
+            try (PreparedStatement statement = connection.prepareStatement(mergeSql)) {
+                for (int row = 0; row < batch.size(); row++) {
+                    bindRow(statement, 1, batch, row);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            roundTrip();
+        }
+    }
+}
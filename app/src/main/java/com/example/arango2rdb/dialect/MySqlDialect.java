@@ -0,0 +1,101 @@
+package com.example.arango2rdb.dialect;
+
+import com.example.arango2rdb.SyncProfiler;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * MySQL and MariaDB: each batch is one multi-row {@code INSERT ... ON DUPLICATE KEY UPDATE}. Setting
+ * {@code rewriteBatchedStatements=true} on the JDBC URL is not needed since the statement is already multi-row.
+ */
+public class MySqlDialect implements SqlDialect {
+
+    @Override
+    public String name() {
+        return "mysql";
+    }
+
+    @Override
+    public String quoteIdentifier(String identifier) {
+        return "`" + identifier.replace("`", "``") + "`";
+    }
+
+    @Override
+    public int maxBatchRows() {
+        return 1000;
+    }
+
+    @Override
+    public int maxBindParameters() {
+        return 65535;
+    }
+
+    @Override
+    public UpsertBatch openUpsert(Connection connection, UpsertTarget target, boolean uniqueKey, SyncProfiler profiler) {
+        if (!uniqueKey) {
+            return new GenericDialect.UpdateThenInsert(connection, this, target, profiler);
+        }
+        return new InsertOnDuplicateKey(connection, this, target, profiler);
+    }
+
+    static final class InsertOnDuplicateKey extends UpsertBatch {
+        private final String insertPrefix;
+        private final String rowPlaceholders;
+        private final String updateClause;
+        private PreparedStatement statement;
+        private int statementRows;
+
+        InsertOnDuplicateKey(Connection connection, SqlDialect dialect, UpsertTarget target, SyncProfiler profiler) {
+            super(connection, dialect, target, profiler);
+            this.insertPrefix = "INSERT INTO " + target.renderedTable() + " (" + columnList("") + ") VALUES ";
+            this.rowPlaceholders = placeholders(target.columns().size());
+            StringBuilder update = new StringBuilder(" ON DUPLICATE KEY UPDATE ");
+            List<String> valueColumns = valueColumns();
+            if (valueColumns.isEmpty()) {
+                String key = dialect.quoteIdentifier(target.keyColumn());
+                update.append(key).append(" = ").append(key);
+            }
+            for (int i = 0; i < valueColumns.size(); i++) {
+                String column = dialect.quoteIdentifier(valueColumns.get(i));
+                if (i > 0) {
+                    update.append(", ");
+                }
+                update.append(column).append(" = VALUES(").append(column).append(")");
+            }
+            this.updateClause = update.toString();
+        }
+
+        @Override
+        protected void write(RowBatch batch) throws SQLException {
+            // Full batches share one prepared statement; only the final, shorter batch prepares its own.
+            if (statement == null || statementRows != batch.size()) {
+                closeQuietly(statement);
+                StringBuilder sql = new StringBuilder(insertPrefix);
+                for (int i = 0; i < batch.size(); i++) {
+                    if (i > 0) {
+                        sql.append(", ");
+                    }
+                    sql.append(rowPlaceholders);
+                }
+                statement = connection.prepareStatement(sql.append(updateClause).toString());
+                statementRows = batch.size();
+            }
+            int width = target.columns().size();
+            for (int row = 0; row < batch.size(); row++) {
+                bindRow(statement, row * width + 1, batch, row);
+            }
+            statement.executeUpdate();
+            roundTrip();
+        }
+
+        @Override
+        public void close() throws SQLException {
+            super.close();
+            closeQuietly(statement);
+            statement = null;
+        }
+    }
+}
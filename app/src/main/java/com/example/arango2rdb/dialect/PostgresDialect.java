@@ -0,0 +1,182 @@
+package com.example.arango2rdb.dialect;
+
+import com.example.arango2rdb.SyncProfiler;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * PostgreSQL: each batch is streamed with {@code COPY} into a temporary staging table and merged into the target
+ * with one {@code INSERT ... SELECT ... ON CONFLICT (key) DO UPDATE}, three round trips per batch regardless of its
+ * size. The merge returns how many rows it inserted and updated.
+ */
+public class PostgresDialect implements SqlDialect {
+    private static final int MAX_IDENTIFIER_LENGTH = 63;
+    private static final String STAGING_PREFIX = "a2r_stage_";
+
+    @Override
+    public String name() {
+        return "postgres";
+    }
+
+    @Override
+    public int maxBatchRows() {
+        return 5000;
+    }
+
+    @Override
+    public int maxBindParameters() {
+        return 65535;
+    }
+
+    /**
+     * Strings bound to columns the driver reports as {@link Types#OTHER} (json, jsonb, uuid, enums) are sent
+     * untyped so the server casts them.
+     */
+    @Override
+    public void bind(PreparedStatement statement, int index, Object value, int sqlType) throws SQLException {
+        if (value instanceof String && sqlType == Types.OTHER) {
+            statement.setObject(index, value, Types.OTHER);
+            return;
+        }
+        SqlDialect.super.bind(statement, index, value, sqlType);
+    }
+
+    @Override
+    public boolean supportsShadowRefresh() {
+        return true;
+    }
+
+    /**
+     * An md5 over the catalog rows of the tables' live columns: relation oid, column number, name, type and type
+     * modifier. A recreated table gets a new oid, so it changes the fingerprint even with identical columns.
+     */
+    @Override
+    public String columnFingerprint(Connection connection, String schema, Collection<String> tables)
+            throws SQLException {
+        List<String> names = new ArrayList<>(tables.size());
+        for (String table : tables) {
+            names.add(table.toLowerCase(Locale.ROOT));
+        }
+        try (PreparedStatement query = connection.prepareStatement("SELECT md5(coalesce(string_agg("
+                + "c.oid || ':' || a.attnum || ':' || a.attname || ':' || a.atttypid || ':' || a.atttypmod, ',' "
+                + "ORDER BY c.oid, a.attnum), '')) FROM pg_catalog.pg_class c "
+                + "JOIN pg_catalog.pg_namespace n ON n.oid = c.relnamespace "
+                + "JOIN pg_catalog.pg_attribute a ON a.attrelid = c.oid AND a.attnum > 0 AND NOT a.attisdropped "
+                + "WHERE n.nspname = coalesce(?, current_schema()) AND lower(c.relname) = ANY (?)")) {
+            query.setString(1, schema);
+            query.setArray(2, connection.createArrayOf("text", names.toArray()));
+            try (ResultSet rs = query.executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        }
+    }
+
+    @Override
+    public UpsertBatch openUpsert(Connection connection, UpsertTarget target, boolean uniqueKey, SyncProfiler profiler)
+            throws SQLException {
+        if (!uniqueKey) {
+            return new GenericDialect.UpdateThenInsert(connection, this, target, profiler);
+        }
+        return new CopyUpsert(connection, this, target, profiler);
+    }
+
+    static final class CopyUpsert extends UpsertBatch {
+        private final CopyManager copyManager;
+        private final String stagingTable;
+        private final String copySql;
+        private final String mergeSql;
+        private final StringBuilder csv = new StringBuilder();
+        private boolean stagingCreated;
+
+        CopyUpsert(Connection connection, SqlDialect dialect, UpsertTarget target, SyncProfiler profiler)
+                throws SQLException {
+            super(connection, dialect, target, profiler);
+            this.copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            String tableName = target.renderedTable().replace("\"", "").replaceAll("[^A-Za-z0-9_]", "_");
+            String staging = STAGING_PREFIX + tableName;
+            this.stagingTable = dialect.quoteIdentifier(staging.length() > MAX_IDENTIFIER_LENGTH
+                    ? staging.substring(0, MAX_IDENTIFIER_LENGTH)
+                    : staging);
+            String columns = columnList("");
+            this.copySql = "COPY " + stagingTable + " (" + columns + ") FROM STDIN WITH (FORMAT csv)";
+            StringBuilder merge = new StringBuilder("INSERT INTO ").append(target.renderedTable())
+                    .append(" (").append(columns).append(") SELECT ").append(columns).append(" FROM ").append(stagingTable)
+                    .append(" ON CONFLICT (").append(dialect.quoteIdentifier(target.keyColumn())).append(") ");
+            List<String> valueColumns = valueColumns();
+            if (valueColumns.isEmpty()) {
+                merge.append("DO NOTHING");
+            } else {
+                merge.append("DO UPDATE SET ");
+                for (int i = 0; i < valueColumns.size(); i++) {
+                    String column = dialect.quoteIdentifier(valueColumns.get(i));
+                    if (i > 0) {
+                        merge.append(", ");
+                    }
+                    merge.append(column).append(" = EXCLUDED.").append(column);
+                }
+            }
+            // xmax is 0 only for rows this statement inserted, which splits the batch into inserts and updates.
+            this.mergeSql = "WITH written AS (" + merge + " RETURNING (xmax = 0) AS inserted) "
+                    + "SELECT COUNT(*) FILTER (WHERE inserted), COUNT(*) FROM written";
+        }
+
+        @Override
+        protected void prepare() throws SQLException {
+            if (stagingCreated) {
+                return;
+            }
+            try (Statement statement = connection.createStatement()) {
+                // Same column types as the target but no constraints; dropped with the merge's transaction.
+                statement.execute("CREATE TEMP TABLE " + stagingTable + " ON COMMIT DROP AS SELECT "
+                        + columnList("") + " FROM " + target.renderedTable() + " WITH NO DATA");
+            }
+            stagingCreated = true;
+            roundTrip();
+        }
+
+        @Override
+        protected void write(RowBatch batch) throws SQLException {
+            prepare();
+            try (Statement statement = connection.createStatement()) {
+                csv.setLength(0);
+                for (int row = 0; row < batch.size(); row++) {
+                    for (int i = 0; i < batch.width(); i++) {
+                        if (i > 0) {
+                            csv.append(',');
+                        }
+                        CopyCsv.append(csv, batch.get(row, i));
+                    }
+                    csv.append('\n');
+                }
+                try {
+                    copyManager.copyIn(copySql, new StringReader(csv.toString()));
+                } catch (IOException ex) {
+                    throw new SQLException("Failed to stream batch into " + stagingTable, ex);
+                }
+                roundTrip();
+                try (ResultSet counts = statement.executeQuery(mergeSql)) {
+                    counts.next();
+                    long inserted = counts.getLong(1);
+                    countWrites(inserted, counts.getLong(2) - inserted);
+                }
+                roundTrip();
+                statement.execute("TRUNCATE " + stagingTable);
+                roundTrip();
+            }
+        }
+    }
+}
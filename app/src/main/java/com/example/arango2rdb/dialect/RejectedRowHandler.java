@@ -0,0 +1,13 @@
+package com.example.arango2rdb.dialect;
+
+import java.sql.SQLException;
+
+/**
+ * Receives rows an {@link UpsertBatch} isolated as failing on their own. Throwing aborts the write, for example once
+ * an error budget is spent.
+ */
+@FunctionalInterface
+public interface RejectedRowHandler {
+
+    void rejected(Object key, Object source, SQLException error) throws SQLException;
+}
@@ -0,0 +1,121 @@
+package com.example.arango2rdb.dialect;
+
+import java.util.Arrays;
+
+/**
+ * Column-major buffer of converted rows with a fixed width and capacity, reused from one flush to the next. Values
+ * are copied in from the caller's row array, and writers bind straight from the column vectors, so a steady-state
+ * sync allocates no per-row containers. An open-addressing index over the key column (column 0) keeps one row per
+ * key, with the last write winning. {@link #setLimit(int)} lowers the point at which the batch counts as full without
+ * reallocating the vectors. Each row can carry the source object it was converted from, for reporting rows the
+ * database rejects.
+ */
+public final class RowBatch {
+
+    private final Object[][] columns;
+    private final Object[] sources;
+    private final int capacity;
+    private final int[] slots;
+    private final int mask;
+    private int limit;
+    private int size;
+
+    public RowBatch(int width, int capacity) {
+        this.columns = new Object[width][capacity];
+        this.sources = new Object[capacity];
+        this.capacity = capacity;
+        this.limit = capacity;
+        int slotCount = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+        this.slots = new int[slotCount];
+        this.mask = slotCount - 1;
+    }
+
+    public int width() {
+        return columns.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size >= limit;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Caps the rows buffered before {@link #isFull()} reports true, between 1 and the capacity. Rows already above a
+     * lowered limit stay until the next flush.
+     */
+    public void setLimit(int limit) {
+        this.limit = Math.max(1, Math.min(capacity, limit));
+    }
+
+    public Object get(int row, int column) {
+        return columns[column][row];
+    }
+
+    public Object source(int row) {
+        return sources[row];
+    }
+
+    /**
+     * Copies {@code values} (key first) into the batch, replacing the row already holding the same key. The array is
+     * not retained, so callers can refill it for the next row. Returns false when an existing row was replaced.
+     */
+    public boolean put(Object[] values) {
+        return put(values, null);
+    }
+
+    /**
+     * As {@link #put(Object[])}, remembering {@code source} for the row.
+     */
+    public boolean put(Object[] values, Object source) {
+        Object key = values[0];
+        int hash = key.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        Object[] keys = columns[0];
+        while (slots[slot] != 0) {
+            int row = slots[slot] - 1;
+            if (key.equals(keys[row])) {
+                copy(values, row);
+                sources[row] = source;
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size >= capacity) {
+            throw new IllegalStateException("Row batch is full (" + capacity + " rows)");
+        }
+        int row = size++;
+        slots[slot] = row + 1;
+        copy(values, row);
+        sources[row] = source;
+        return true;
+    }
+
+    /**
+     * Empties the batch for reuse, dropping references to the previous rows' values.
+     */
+    public void clear() {
+        for (Object[] column : columns) {
+            Arrays.fill(column, 0, size, null);
+        }
+        Arrays.fill(sources, 0, size, null);
+        Arrays.fill(slots, 0);
+        size = 0;
+    }
+
+    private void copy(Object[] values, int row) {
+        for (int i = 0; i < columns.length; i++) {
+            columns[i][row] = values[i];
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.arango2rdb.dialect;
+
+import com.example.arango2rdb.SyncProfiler;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Vendor specifics the sync engine needs when writing rows: identifier quoting, parameter binding, batch limits
+ * and the fastest available upsert. Resolved from {@code rdb.dialect} in the mapping, or from the JDBC URL when that
+ * is not set.
+ */
+public interface SqlDialect {
+
+    String name();
+
+    default String quoteIdentifier(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Column type for unbounded text in tables the sync creates itself.
+     */
+    default String largeTextType() {
+        return "TEXT";
+    }
+
+    /**
+     * Upper bound on rows written per upsert round trip.
+     */
+    int maxBatchRows();
+
+    /**
+     * Upper bound on bind parameters in one statement, which caps multi-row statements for wide tables.
+     */
+    default int maxBindParameters() {
+        return 32767;
+    }
+
+    default int batchRows(int columnCount) {
+        return Math.max(1, Math.min(maxBatchRows(), maxBindParameters() / Math.max(1, columnCount)));
+    }
+
+    /**
+     * Binds an already coerced value for a column whose JDBC type is {@code sqlType}.
+     */
+    default void bind(PreparedStatement statement, int index, Object value, int sqlType) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, sqlType);
+        } else {
+            statement.setObject(index, value);
+        }
+    }
+
+    /**
+     * Whether tables can be refreshed through {@code ShadowTableRefresh}, which relies on PostgreSQL catalogs.
+     */
+    default boolean supportsShadowRefresh() {
+        return false;
+    }
+
+    /**
+     * A fingerprint of the columns of {@code tables} in {@code schema}, or in the connection's schema when
+     * {@code schema} is {@code null}, that changes whenever one of them is created, dropped, or has a column added,
+     * dropped, renamed or retyped. Read in one round trip, so cached column types can be checked cheaply;
+     * {@code null} when the dialect has no such fingerprint and column types are always read from the driver.
+     */
+    default String columnFingerprint(Connection connection, String schema, Collection<String> tables)
+            throws SQLException {
+        return null;
+    }
+
+    /**
+     * Opens a batch writer for {@code target}. {@code uniqueKey} tells whether the key column has a unique index;
+     * dialects whose native upsert needs one fall back to {@link GenericDialect}'s UPDATE-then-INSERT without it.
+     */
+    UpsertBatch openUpsert(Connection connection, UpsertTarget target, boolean uniqueKey, SyncProfiler profiler)
+            throws SQLException;
+
+    static SqlDialect resolve(String configured, String jdbcUrl) {
+        String name = configured;
+        if (name == null || name.isBlank()) {
+            name = fromJdbcUrl(jdbcUrl);
+        }
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "postgres":
+            case "postgresql":
+                return new PostgresDialect();
+            case "mysql":
+            case "mariadb":
+                return new MySqlDialect();
+            case "h2":
+                return new H2Dialect();
+            case "standard":
+                return new StandardDialect();
+            case "generic":
+                return new GenericDialect();
+            default:
+                throw new IllegalArgumentException("Unknown SQL dialect " + configured
+                        + " (expected postgres, mysql, mariadb, h2, standard or generic)");
+        }
+    }
+
+    private static String fromJdbcUrl(String jdbcUrl) {
+        String url = jdbcUrl == null ? "" : jdbcUrl.toLowerCase(Locale.ROOT);
+        if (url.startsWith("jdbc:postgresql:")) {
+            return "postgres";
+        }
+        if (url.startsWith("jdbc:mysql:") || url.startsWith("jdbc:mariadb:")) {
+            return "mysql";
+        }
+        if (url.startsWith("jdbc:h2:")) {
+            return "h2";
+        }
+        return "generic";
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.arango2rdb.dialect;
+
+import com.example.arango2rdb.SyncProfiler;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * SQL:2003 {@code MERGE INTO ... USING (VALUES ...)}, sent as one JDBC batch, for databases that implement the
+ * standard statement (SQL Server, Oracle 23, DB2, PostgreSQL 15+, H2). Matching is on the key column, so no unique
+ * index is required.
+ */
+public class StandardDialect implements SqlDialect {
+
+    @Override
+    public String name() {
+        return "standard";
+    }
+
+    @Override
+    public String largeTextType() {
+        return "CLOB";
+    }
+
+    @Override
+    public int maxBatchRows() {
+        return 500;
+    }
+
+    @Override
+    public UpsertBatch openUpsert(Connection connection, UpsertTarget target, boolean uniqueKey, SyncProfiler profiler) {
+        return new MergeUsingValues(connection, this, target, profiler);
+    }
+
+    static final class MergeUsingValues extends UpsertBatch {
+        private final String mergeSql;
+
+        MergeUsingValues(Connection connection, SqlDialect dialect, UpsertTarget target, SyncProfiler profiler) {
+            super(connection, dialect, target, profiler);
+            String key = dialect.quoteIdentifier(target.keyColumn());
+            StringBuilder sql = new StringBuilder("MERGE INTO ").append(target.renderedTable()).append(" t USING (VALUES ")
+                    .append(placeholders(target.columns().size())).append(") s (").append(columnList(""))
+                    .append(") ON (t.").append(key).append(" = s.").append(key).append(")");
+            List<String> valueColumns = valueColumns();
+            if (!valueColumns.isEmpty()) {
+                sql.append(" WHEN MATCHED THEN UPDATE SET ");
+                for (int i = 0; i < valueColumns.size(); i++) {
+                    String column = dialect.quoteIdentifier(valueColumns.get(i));
+                    if (i > 0) {
+                        sql.append(", ");
+                    }
+                    sql.append(column).append(" = s.").append(column);
+                }
+            }
+            sql.append(" WHEN NOT MATCHED THEN INSERT (").append(columnList("")).append(") VALUES (")
+                    .append(columnList("s.")).append(")");
+            this.mergeSql = sql.toString();
+        }
+
+        @Override
+        protected void write(RowBatch batch) throws SQLException {
+            try (PreparedStatement statement = connection.prepareStatement(mergeSql)) {
+                for (int row = 0; row < batch.size(); row++) {
+                    bindRow(statement, 1, batch, row);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            roundTrip();
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.arango2rdb.dialect;
+
+import com.example.arango2rdb.SyncProfiler;
+import com.example.arango2rdb.jfr.JdbcFlushEvent;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.List;
+
+/**
+ * Buffers converted rows in a reusable {@link RowBatch} and writes them with one vendor-specific upsert per batch.
+ * Rows that repeat a key already in the buffer replace the earlier row, so each batch touches every key once and the
+ * last write wins, as it did with row-by-row upserts.
+ * <p>
+ * With a {@link RejectedRowHandler} every write runs under a savepoint. A failed batch is rolled back to it and
+ * split in halves, each retried under its own savepoint, until the failing rows are isolated one by one and handed
+ * to the handler; the other rows are written. A {@link BatchSizer} hears of at most one failure per flush, and
+ * never of data or constraint errors, so isolating a bad row does not shrink the batches that follow.
+ */
+public abstract class UpsertBatch implements AutoCloseable {
+
+    protected final Connection connection;
+    protected final SqlDialect dialect;
+    protected final UpsertTarget target;
+    protected final SyncProfiler profiler;
+    private final RowBatch rows;
+    private BatchSizer sizer;
+    private RejectedRowHandler rejectedRows;
+    private RowBatch isolated;
+    private Object[] isolatedRow;
+    private long rowsWritten;
+    private long rowsInserted;
+    private long rowsUpdated;
+    private boolean splitReported;
+    private boolean loadFailure;
+
+    protected UpsertBatch(Connection connection, SqlDialect dialect, UpsertTarget target, SyncProfiler profiler) {
+        this.connection = connection;
+        this.dialect = dialect;
+        this.target = target;
+        this.profiler = profiler;
+        this.rows = new RowBatch(target.columns().size(), dialect.batchRows(target.columns().size()));
+    }
+
+    /**
+     * Queues one row of values in {@link UpsertTarget#columns()} order; writes the batch once it is full. The values
+     * are copied, so the caller may reuse {@code values} for the next row.
+     */
+    public void add(Object[] values) throws SQLException {
+        add(values, null);
+    }
+
+    /**
+     * As {@link #add(Object[])}, passing {@code source} to the {@link RejectedRowHandler} if the row is rejected.
+     */
+    public void add(Object[] values, Object source) throws SQLException {
+        if (rows.put(values, source) && rows.isFull()) {
+            flush();
+        }
+    }
+
+    /**
+     * Isolates failing rows and passes them to {@code handler} instead of failing the whole batch.
+     */
+    public void setRejectedRowHandler(RejectedRowHandler handler) {
+        this.rejectedRows = handler;
+    }
+
+    /**
+     * Lets {@code sizer} choose the rows per round trip, up to the dialect's limit, from the latency of each flush.
+     */
+    public void setBatchSizer(BatchSizer sizer) {
+        this.sizer = sizer;
+        if (sizer != null) {
+            rows.setLimit(sizer.batchRows(rows.capacity()));
+        }
+    }
+
+    public void flush() throws SQLException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        int flushed = rows.size();
+        long sqlStart = System.nanoTime();
+        JdbcFlushEvent event = new JdbcFlushEvent();
+        event.begin();
+        try {
+            if (rejectedRows == null) {
+                try {
+                    write(rows);
+                } catch (SQLException ex) {
+                    if (sizer != null && !isDataError(ex)) {
+                        sizer.failed();
+                    }
+                    throw ex;
+                }
+                rowsWritten += flushed;
+            } else {
+                loadFailure = false;
+                prepare();
+                writeIsolating(rows, 0, rows.size());
+                if (sizer != null && loadFailure) {
+                    sizer.failed();
+                }
+            }
+        } finally {
+            profiler.stop(SyncProfiler.STAGE_SQL, sqlStart);
+            event.end();
+            if (event.shouldCommit()) {
+                event.table = target.renderedTable();
+                event.rows = flushed;
+                event.isolating = rejectedRows != null;
+                event.commit();
+            }
+        }
+        rows.clear();
+        if (sizer != null) {
+            sizer.flushed(flushed, System.nanoTime() - sqlStart);
+            rows.setLimit(sizer.batchRows(rows.capacity()));
+        }
+    }
+
+    /**
+     * Writes {@code batch}, which holds at most one row per key.
+     */
+    protected abstract void write(RowBatch batch) throws SQLException;
+
+    /**
+     * Creates state that must outlive a rollback to a savepoint, such as a staging table. Runs before every write
+     * when failing rows are isolated.
+     */
+    protected void prepare() throws SQLException {
+    }
+
+    private void writeIsolating(RowBatch batch, int from, int to) throws SQLException {
+        RowBatch part = batch;
+        if (from != 0 || to != batch.size()) {
+            part = isolatedBatch();
+            part.clear();
+            for (int row = from; row < to; row++) {
+                for (int i = 0; i < isolatedRow.length; i++) {
+                    isolatedRow[i] = batch.get(row, i);
+                }
+                part.put(isolatedRow, batch.source(row));
+            }
+        }
+        Savepoint savepoint = connection.setSavepoint();
+        long insertedBefore = rowsInserted;
+        long updatedBefore = rowsUpdated;
+        try {
+            write(part);
+        } catch (SQLException ex) {
+            connection.rollback(savepoint);
+            rowsInserted = insertedBefore;
+            rowsUpdated = updatedBefore;
+            roundTrip();
+            loadFailure |= !isDataError(ex);
+            if (to - from == 1) {
+                rejectedRows.rejected(batch.get(from, 0), batch.source(from), ex);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            writeIsolating(batch, from, middle);
+            writeIsolating(batch, middle, to);
+            return;
+        }
+        connection.releaseSavepoint(savepoint);
+        rowsWritten += to - from;
+    }
+
+    /**
+     * Whether {@code ex} is a data exception or an integrity constraint violation (SQLState classes 22 and 23): a
+     * problem with the rows themselves rather than a sign that the database is overloaded.
+     */
+    private static boolean isDataError(SQLException ex) {
+        for (SQLException current = ex; current != null; current = current.getNextException()) {
+            String state = current.getSQLState();
+            if (state != null) {
+                return state.startsWith("22") || state.startsWith("23");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Rows written so far, each key counted once per batch; rows isolated as rejected are not counted.
+     */
+    public long rowsWritten() {
+        return rowsWritten;
+    }
+
+    /**
+     * Rows of {@link #rowsWritten()} that were new, or {@code -1} when the dialect's upsert does not tell inserts
+     * from updates.
+     */
+    public long rowsInserted() {
+        return splitReported ? rowsInserted : -1L;
+    }
+
+    /**
+     * Rows of {@link #rowsWritten()} that replaced an existing row, or {@code -1} as for {@link #rowsInserted()}.
+     */
+    public long rowsUpdated() {
+        return splitReported ? rowsUpdated : -1L;
+    }
+
+    /**
+     * Called by {@link #write(RowBatch)} implementations that know how many of the batch's rows were inserted and
+     * how many updated.
+     */
+    protected void countWrites(long inserted, long updated) {
+        rowsInserted += inserted;
+        rowsUpdated += updated;
+        splitReported = true;
+    }
+
+    private RowBatch isolatedBatch() {
+        if (isolated == null) {
+            isolated = new RowBatch(rows.width(), rows.capacity());
+            isolatedRow = new Object[rows.width()];
+        }
+        return isolated;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        rows.clear();
+    }
+
+    protected void bindRow(PreparedStatement statement, int firstIndex, RowBatch batch, int row) throws SQLException {
+        int[] sqlTypes = target.sqlTypes();
+        for (int i = 0; i < sqlTypes.length; i++) {
+            dialect.bind(statement, firstIndex + i, batch.get(row, i), sqlTypes[i]);
+        }
+    }
+
+    protected String columnList(String prefix) {
+        StringBuilder out = new StringBuilder();
+        for (String column : target.columns()) {
+            if (out.length() > 0) {
+                out.append(", ");
+            }
+            out.append(prefix).append(dialect.quoteIdentifier(column));
+        }
+        return out.toString();
+    }
+
+    protected String placeholders(int count) {
+        StringBuilder out = new StringBuilder("(");
+        for (int i = 0; i < count; i++) {
+            out.append(i > 0 ? ", ?" : "?");
+        }
+        return out.append(")").toString();
+    }
+
+    protected List<String> valueColumns() {
+        return target.columns().subList(1, target.columns().size());
+    }
+
+    protected void roundTrip() {
+        profiler.roundTrip(SyncProfiler.STAGE_SQL);
+    }
+
+    protected static void closeQuietly(PreparedStatement statement) {
+        if (statement == null) {
+            return;
+        }
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+            // closing a statement after a failed batch
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.arango2rdb.dialect;
+
+import java.util.List;
+
+/**
+ * Table and columns an {@link UpsertBatch} writes. The key column is always first; {@code sqlTypes} holds the JDBC
+ * type of each column in the same order.
+ */
+public record UpsertTarget(String renderedTable, List<String> columns, int[] sqlTypes) {
+
+    public String keyColumn() {
+        return columns.get(0);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.arango2rdb.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The commit that ends a merge's transaction, or the swap of a shadow table.
+ */
+@Name("arango2rdb.Commit")
+@Label("Sync Commit")
+@Category({"arango2rdb", "JDBC"})
+@Description("The commit of a merge, or the swap of its shadow table")
+@StackTrace(false)
+public class CommitEvent extends Event {
+    @Label("Merge")
+    public String mergeName;
+
+    @Label("Table")
+    public String table;
+}
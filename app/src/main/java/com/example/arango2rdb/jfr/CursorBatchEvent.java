@@ -0,0 +1,34 @@
+package com.example.arango2rdb.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One page of a main collection fetched from ArangoDB.
+ */
+@Name("arango2rdb.CursorBatch")
+@Label("Cursor Batch Fetched")
+@Category({"arango2rdb", "ArangoDB"})
+@Description("A page of main collection documents fetched in key order")
+@StackTrace(false)
+public class CursorBatchEvent extends Event {
+    @Label("Collection")
+    public String collection;
+
+    @Label("Page Size")
+    @Description("Documents requested")
+    public int pageSize;
+
+    @Label("Documents")
+    public int documents;
+
+    @Label("Bytes")
+    @Description("Approximate payload size of the documents")
+    @DataAmount
+    public long bytes;
+}
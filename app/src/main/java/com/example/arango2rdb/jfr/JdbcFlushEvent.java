@@ -0,0 +1,28 @@
+package com.example.arango2rdb.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One batch of rows written to the target table, by upsert or into a shadow table.
+ */
+@Name("arango2rdb.JdbcFlush")
+@Label("JDBC Batch Flush")
+@Category({"arango2rdb", "JDBC"})
+@Description("A batch of rows written to a target table")
+@StackTrace(false)
+public class JdbcFlushEvent extends Event {
+    @Label("Table")
+    public String table;
+
+    @Label("Rows")
+    public int rows;
+
+    @Label("Isolating")
+    @Description("Whether the batch ran under savepoints to isolate failing rows")
+    public boolean isolating;
+}
@@ -0,0 +1,33 @@
+package com.example.arango2rdb.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * One join lookup of one main document. Lookups run once per document, so only slow ones are recorded by default.
+ */
+@Name("arango2rdb.JoinLookup")
+@Label("Join Lookup")
+@Category({"arango2rdb", "ArangoDB"})
+@Description("A lookup of one join document by value or through connected edges")
+@StackTrace(false)
+@Threshold("10 ms")
+public class JoinLookupEvent extends Event {
+    @Label("Merge")
+    public String mergeName;
+
+    @Label("Alias")
+    public String alias;
+
+    @Label("Collection")
+    public String collection;
+
+    @Label("Hit")
+    @Description("Whether a join document was found")
+    public boolean hit;
+}
@@ -0,0 +1,42 @@
+package com.example.arango2rdb.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One merge run, from its start to its commit or failure.
+ */
+@Name("arango2rdb.Merge")
+@Label("Sync Merge")
+@Category({"arango2rdb", "Sync"})
+@Description("A merge run from start to end")
+@StackTrace(false)
+public class MergeEvent extends Event {
+    @Label("Merge")
+    public String mergeName;
+
+    @Label("Target Table")
+    public String targetTable;
+
+    @Label("Status")
+    public String status;
+
+    @Label("Documents Read")
+    public long documentsRead;
+
+    @Label("Rows Written")
+    public long rowsWritten;
+
+    @Label("Rows Rejected")
+    public long rowsRejected;
+
+    @Label("Bytes Read")
+    @Description("Approximate payload size of the documents read")
+    @DataAmount
+    public long bytesRead;
+}
@@ -0,0 +1,251 @@
+package com.example.arango2rdb.service;
+
+import com.example.arango2rdb.config.SyncConfig;
+import com.example.arango2rdb.view.RepositoryInfo;
+import com.example.arango2rdb.view.TableDiffPage;
+import com.example.arango2rdb.view.TableDiffSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a repository schema with the base tables inside the database. Each side is reduced to (key, md5 of the
+ * row text) and the two are hash-joined by key, so only counts and the differing keys leave the server; full rows
+ * are fetched for one page of keys at a time.
+ */
+@Service
+public class RepositoryDiffService {
+
+    private static final Logger log = LoggerFactory.getLogger(RepositoryDiffService.class);
+
+    private static final int PAGE_SIZE = 25;
+    private static final String CHANGE_INSERTED = "INSERTED";
+    private static final String CHANGE_UPDATED = "UPDATED";
+    private static final String CHANGE_DELETED = "DELETED";
+    private static final String KEY_TEXT_COLUMN = "a2r_diff_key";
+    private static final int KEY_CHUNK_SIZE = 10000;
+    private static final long KEY_CHUNK_TTL_SECONDS = 300L;
+    private static final int MAX_KEY_CHUNKS = 16;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SyncConfig config;
+    private final Map<String, KeyChunk> keyChunks = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, KeyChunk> eldest) {
+            return size() > MAX_KEY_CHUNKS;
+        }
+    };
+
+    public RepositoryDiffService(JdbcTemplate jdbcTemplate, SyncConfig config) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.config = config;
+    }
+
+    public List<TableDiffSummary> summarize(RepositoryInfo repository) {
+        List<TableDiffSummary> result = new ArrayList<>(config.merges.size());
+        for (SyncConfig.MergeMapping merge : config.merges) {
+            result.add(summarizeTable(repository, merge));
+        }
+        return result;
+    }
+
+    private TableDiffSummary summarizeTable(RepositoryInfo repository, SyncConfig.MergeMapping merge) {
+        String sql = hashedSides(repository, merge)
+                + "SELECT count(*) FILTER (WHERE b.k IS NULL) AS inserted, "
+                + "count(*) FILTER (WHERE r.k IS NOT NULL AND b.k IS NOT NULL) AS updated, "
+                + "count(*) FILTER (WHERE r.k IS NULL) AS deleted "
+                + "FROM r FULL JOIN b ON r.k = b.k "
+                + "WHERE r.k IS NULL OR b.k IS NULL OR r.h <> b.h";
+        try {
+            return jdbcTemplate.queryForObject(sql, (rs, rowNum) -> new TableDiffSummary(
+                    merge.targetTable,
+                    merge.keyColumn,
+                    rs.getLong("inserted"),
+                    rs.getLong("updated"),
+                    rs.getLong("deleted"),
+                    null));
+        } catch (DataAccessException ex) {
+            log.warn("Failed to diff table {} of repository {}", merge.targetTable, repository.name(), ex);
+            return new TableDiffSummary(merge.targetTable, merge.keyColumn, 0, 0, 0, ex.getMostSpecificCause().getMessage());
+        }
+    }
+
+    /**
+     * Returns the next page of differing keys after {@code after} (exclusive) together with the full repository and
+     * base rows for those keys. The keys are listed by one hash join per {@value #KEY_CHUNK_SIZE} keys and kept for
+     * {@value #KEY_CHUNK_TTL_SECONDS} seconds, so following pages only fetch their own rows; the first page always
+     * lists them afresh.
+     */
+    public TableDiffPage page(RepositoryInfo repository, String table, String after) {
+        SyncConfig.MergeMapping merge = config.merges.stream()
+                .filter(candidate -> candidate.targetTable.equals(table))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown merge target table " + table));
+
+        String chunkKey = repository.schemaName() + "." + merge.targetTable;
+        KeyChunk chunk;
+        synchronized (keyChunks) {
+            chunk = after == null ? null : keyChunks.get(chunkKey);
+        }
+        int start = chunk == null ? -1 : chunk.startOf(after);
+        if (start < 0 || (chunk.more() && chunk.keys().size() - start <= PAGE_SIZE)) {
+            chunk = listKeys(repository, merge, after);
+            start = 0;
+            synchronized (keyChunks) {
+                keyChunks.put(chunkKey, chunk);
+            }
+        }
+
+        Map<String, String> changes = new LinkedHashMap<>();
+        int end = Math.min(chunk.keys().size(), start + PAGE_SIZE);
+        for (int i = start; i < end; i++) {
+            changes.put(chunk.keys().get(i), chunk.changes().get(i));
+        }
+        String nextAfter = end < chunk.keys().size() || chunk.more() ? chunk.keys().get(end - 1) : null;
+
+        String repositoryTable = repositoryTable(repository, merge);
+        String baseTable = baseTable(merge);
+        List<String> columns = new ArrayList<>();
+        Map<String, Map<String, Object>> repositoryRows = fetchRows(repositoryTable, merge.keyColumn, changes.keySet(), columns);
+        Map<String, Map<String, Object>> baseRows = fetchRows(baseTable, merge.keyColumn, changes.keySet(), columns);
+
+        List<TableDiffPage.DiffRow> rows = new ArrayList<>(changes.size());
+        for (Map.Entry<String, String> entry : changes.entrySet()) {
+            Map<String, Object> repositoryValues = repositoryRows.getOrDefault(entry.getKey(), Map.of());
+            Map<String, Object> baseValues = baseRows.getOrDefault(entry.getKey(), Map.of());
+            Set<String> changed = new LinkedHashSet<>();
+            for (String column : columns) {
+                if (!Objects.equals(repositoryValues.get(column), baseValues.get(column))) {
+                    changed.add(column);
+                }
+            }
+            rows.add(new TableDiffPage.DiffRow(entry.getKey(), entry.getValue(), repositoryValues, baseValues, changed));
+        }
+        return new TableDiffPage(merge.targetTable, merge.keyColumn, columns, rows, nextAfter);
+    }
+
+    /**
+     * Lists up to {@value #KEY_CHUNK_SIZE} differing keys after {@code after} in text order, with their change.
+     */
+    private KeyChunk listKeys(RepositoryInfo repository, SyncConfig.MergeMapping merge, String after) {
+        String sql = hashedSides(repository, merge)
+                + "SELECT coalesce(r.k, b.k)::text AS key, "
+                + "CASE WHEN b.k IS NULL THEN '" + CHANGE_INSERTED + "' "
+                + "WHEN r.k IS NULL THEN '" + CHANGE_DELETED + "' ELSE '" + CHANGE_UPDATED + "' END AS change "
+                + "FROM r FULL JOIN b ON r.k = b.k "
+                + "WHERE (r.k IS NULL OR b.k IS NULL OR r.h <> b.h) AND coalesce(r.k, b.k)::text > ? "
+                + "ORDER BY 1 LIMIT ?";
+        List<String> keys = new ArrayList<>();
+        List<String> changes = new ArrayList<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setString(1, after == null ? "" : after);
+            statement.setInt(2, KEY_CHUNK_SIZE + 1);
+            return statement;
+        }, (RowCallbackHandler) rs -> {
+            keys.add(rs.getString("key"));
+            changes.add(rs.getString("change"));
+        });
+        boolean more = keys.size() > KEY_CHUNK_SIZE;
+        if (more) {
+            keys.remove(KEY_CHUNK_SIZE);
+            changes.remove(KEY_CHUNK_SIZE);
+        }
+        return new KeyChunk(after, keys, changes, more, System.nanoTime());
+    }
+
+    private Map<String, Map<String, Object>> fetchRows(String renderedTable,
+                                                       String keyColumn,
+                                                       Set<String> keys,
+                                                       List<String> columns) {
+        Map<String, Map<String, Object>> rows = new HashMap<>();
+        if (keys.isEmpty()) {
+            return rows;
+        }
+        String keyType = jdbcTemplate.queryForObject(
+                "SELECT format_type(a.atttypid, a.atttypmod) FROM pg_attribute a "
+                        + "WHERE a.attrelid = ?::regclass AND a.attname = ? AND NOT a.attisdropped",
+                String.class,
+                renderedTable,
+                keyColumn);
+        String key = quoteIdentifier(keyColumn);
+        String sql = "SELECT t.*, t." + key + "::text AS " + KEY_TEXT_COLUMN + " FROM " + renderedTable + " t WHERE t."
+                + key + " = ANY(CAST(? AS text[])::" + keyType + "[])";
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            Array array = connection.createArrayOf("text", keys.toArray());
+            statement.setArray(1, array);
+            return statement;
+        }, (RowCallbackHandler) rs -> {
+            ResultSetMetaData metaData = rs.getMetaData();
+            int tableColumns = metaData.getColumnCount() - 1;
+            if (columns.isEmpty()) {
+                for (int i = 1; i <= tableColumns; i++) {
+                    columns.add(metaData.getColumnLabel(i));
+                }
+            }
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 1; i <= tableColumns; i++) {
+                row.put(metaData.getColumnLabel(i), rs.getObject(i));
+            }
+            rows.put(rs.getString(KEY_TEXT_COLUMN), row);
+        });
+        return rows;
+    }
+
+    private String hashedSides(RepositoryInfo repository, SyncConfig.MergeMapping merge) {
+        String key = quoteIdentifier(merge.keyColumn);
+        return "WITH r AS (SELECT t." + key + " AS k, md5(t::text) AS h FROM " + repositoryTable(repository, merge) + " t), "
+                + "b AS (SELECT t." + key + " AS k, md5(t::text) AS h FROM " + baseTable(merge) + " t) ";
+    }
+
+    private String repositoryTable(RepositoryInfo repository, SyncConfig.MergeMapping merge) {
+        return quoteIdentifier(repository.schemaName()) + "." + quoteIdentifier(merge.targetTable);
+    }
+
+    private String baseTable(SyncConfig.MergeMapping merge) {
+        return quoteIdentifier(merge.targetTable);
+    }
+
+    private String quoteIdentifier(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * A run of differing keys, in text order, that follows {@code after}; {@code more} when the hash join had further
+     * keys past the last one.
+     */
+    private record KeyChunk(String after, List<String> keys, List<String> changes, boolean more, long loadedAtNanos) {
+
+        /**
+         * Index of the first key after {@code after} in this chunk, or -1 when the chunk has expired or does not hold
+         * the position.
+         */
+        int startOf(String after) {
+            if (System.nanoTime() - loadedAtNanos >= TimeUnit.SECONDS.toNanos(KEY_CHUNK_TTL_SECONDS)) {
+                return -1;
+            }
+            if (after.equals(this.after)) {
+                return 0;
+            }
+            int index = keys.indexOf(after);
+            return index < 0 ? -1 : index + 1;
+        }
+    }
+}
@@ -1,32 +1,80 @@
 package com.example.arango2rdb.service;
 
+import com.example.arango2rdb.TableDdl;
 import com.example.arango2rdb.config.SyncConfig;
 import com.example.arango2rdb.view.RepositoryInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class RepositoryService {
 
+    private static final Logger log = LoggerFactory.getLogger(RepositoryService.class);
+
     private static final String METADATA_TABLE = "sync_repositories";
+    private static final String COMMIT_SEQUENCE = "sync_repositories_commit_seq";
+    private static final String SELECT_REPOSITORY = "SELECT r.id, r.name, r.schema_name, r.status, r.created_at, "
+            + "r.backup_schema, (r.status = 'COMMITTED' AND NOT EXISTS (SELECT 1 FROM " + METADATA_TABLE + " later "
+            + "WHERE later.status = 'COMMITTED' AND COALESCE(later.commit_order, 0) > COALESCE(r.commit_order, 0))) "
+            + "AS latest_commit FROM " + METADATA_TABLE + " r";
+    private static final String SELECT_CLONED_COLUMNS = "SELECT attname, attidentity <> '' AS identity "
+            + "FROM pg_attribute WHERE attrelid = ?::regclass AND attnum > 0 AND NOT attisdropped "
+            + "AND attgenerated = '' ORDER BY attnum";
+    private static final String SEED_BASE = "base";
+    private static final String SEED_REPOSITORY_PREFIX = "repo:";
+    private static final int PROVISIONING_THREADS = 4;
     private static final String STATUS_READY = "READY";
     private static final String STATUS_COMMITTED = "COMMITTED";
+    private static final String BACKUP_SUFFIX = "_backup";
+    private static final String SWAP_LOCK_TIMEOUT = "5s";
+    private static final int MAX_IDENTIFIER_LENGTH = 63;
 
     private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
     private final SyncConfig config;
+    private final SchemaMetadataCache metadataCache;
+    private final ExecutorService provisioningExecutor;
 
-    public RepositoryService(JdbcTemplate jdbcTemplate, SyncConfig config) {
+    public RepositoryService(JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             SyncConfig config,
+                             SchemaMetadataCache metadataCache) {
         this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
         this.config = config;
+        this.metadataCache = metadataCache;
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.provisioningExecutor = Executors.newFixedThreadPool(PROVISIONING_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "repo-provision-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        provisioningExecutor.shutdownNow();
     }
 
     @PostConstruct
@@ -38,23 +86,30 @@ public class RepositoryService {
                 "status VARCHAR(50) NOT NULL DEFAULT '" + STATUS_READY + "', " +
                 "created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP" +
                 ")");
+        jdbcTemplate.execute("ALTER TABLE " + METADATA_TABLE + " ADD COLUMN IF NOT EXISTS backup_schema VARCHAR(255)");
+        jdbcTemplate.execute("ALTER TABLE " + METADATA_TABLE + " ADD COLUMN IF NOT EXISTS commit_order BIGINT");
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + COMMIT_SEQUENCE);
     }
 
     public List<RepositoryInfo> listRepositories() {
-        return jdbcTemplate.query(
-                "SELECT id, name, schema_name, status, created_at FROM " + METADATA_TABLE + " ORDER BY created_at DESC",
-                repositoryRowMapper());
+        return jdbcTemplate.query(SELECT_REPOSITORY + " ORDER BY r.created_at DESC", repositoryRowMapper());
     }
 
     public Optional<RepositoryInfo> findById(long id) {
-        List<RepositoryInfo> rows = jdbcTemplate.query(
-                "SELECT id, name, schema_name, status, created_at FROM " + METADATA_TABLE + " WHERE id = ?",
-                repositoryRowMapper(),
-                id);
+        List<RepositoryInfo> rows = jdbcTemplate.query(SELECT_REPOSITORY + " WHERE r.id = ?", repositoryRowMapper(), id);
         return rows.isEmpty() ? Optional.empty() : Optional.of(rows.get(0));
     }
 
     public RepositoryInfo createRepository(String requestedName) {
+        return createRepository(requestedName, null);
+    }
+
+    /**
+     * Creates a repository schema with one table per merge target. {@code seed} selects the initial data:
+     * {@code null}/blank for empty tables, {@code "base"} to copy the base tables, or {@code "repo:<id>"} to copy
+     * another repository's tables.
+     */
+    public RepositoryInfo createRepository(String requestedName, String seed) {
         String name = Optional.ofNullable(requestedName)
                 .map(String::trim)
                 .filter(s -> !s.isBlank())
@@ -73,11 +128,14 @@ public class RepositoryService {
             throw new IllegalArgumentException("Repository schema already exists: " + schemaName);
         }
 
-        createSchemaWithTables(schemaName);
+        Optional<String> seedSchema = resolveSeedSchema(seed);
+        createSchemaWithTables(schemaName, seedSchema);
+        metadataCache.invalidateSchema(schemaName);
 
         return jdbcTemplate.queryForObject(
                 "INSERT INTO " + METADATA_TABLE + " (name, schema_name, status, created_at) " +
-                        "VALUES (?, ?, ?, CURRENT_TIMESTAMP) RETURNING id, name, schema_name, status, created_at",
+                        "VALUES (?, ?, ?, CURRENT_TIMESTAMP) RETURNING id, name, schema_name, status, created_at, "
+                        + "backup_schema, FALSE AS latest_commit",
                 repositoryRowMapper(),
                 name,
                 schemaName,
@@ -89,10 +147,118 @@ public class RepositoryService {
                 .orElseThrow(() -> new IllegalArgumentException("Repository not found: " + id));
         jdbcTemplate.update("DELETE FROM " + METADATA_TABLE + " WHERE id = ?", id);
         jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + renderIdentifier(info.schemaName()) + " CASCADE");
+        if (info.backupSchema() != null) {
+            jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + renderIdentifier(info.backupSchema()) + " CASCADE");
+        }
+        metadataCache.invalidateSchema(info.schemaName());
     }
 
-    public void markCommitted(long id) {
-        jdbcTemplate.update("UPDATE " + METADATA_TABLE + " SET status = ? WHERE id = ?", STATUS_COMMITTED, id);
+    /**
+     * Promotes the repository's tables to the live tables by moving them between schemas in one transaction. The
+     * previous live tables are kept in a backup schema so {@link #rollbackCommit(long)} can restore them, and the
+     * commit is numbered so only the most recent one can be rolled back. Only
+     * catalog entries change, so the swap takes milliseconds regardless of table size, and readers see either the
+     * old or the new tables, never a mix.
+     *
+     * <p>Foreign keys and views defined on the live tables outside the merge targets keep pointing at the moved
+     * (now backup) tables, exactly as PostgreSQL tracks them by OID.
+     */
+    public void commitRepository(long id) {
+        RepositoryInfo info = findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Repository not found: " + id));
+        if (info.isCommitted()) {
+            throw new IllegalStateException("Repository " + info.name() + " is already committed");
+        }
+        String backupSchema = backupSchemaName(info.schemaName());
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("SET LOCAL lock_timeout = '" + SWAP_LOCK_TIMEOUT + "'");
+            lockCommits();
+            String liveSchema = jdbcTemplate.queryForObject("SELECT current_schema()", String.class);
+            for (SyncConfig.MergeMapping merge : config.merges) {
+                if (!tableExists(info.schemaName(), merge.targetTable)) {
+                    throw new IllegalStateException("Repository table " + info.schemaName() + "." + merge.targetTable
+                            + " is missing");
+                }
+            }
+            jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS " + renderIdentifier(backupSchema));
+            moveTables(liveSchema, backupSchema);
+            moveTables(info.schemaName(), liveSchema);
+            int updated = jdbcTemplate.update(
+                    "UPDATE " + METADATA_TABLE + " SET status = ?, backup_schema = ?, commit_order = nextval('"
+                            + COMMIT_SEQUENCE + "') WHERE id = ? AND status <> ?",
+                    STATUS_COMMITTED, backupSchema, id, STATUS_COMMITTED);
+            if (updated != 1) {
+                throw new IllegalStateException("Repository " + info.name() + " was committed concurrently");
+            }
+        });
+        metadataCache.invalidateSchema(null);
+        metadataCache.invalidateSchema(info.schemaName());
+    }
+
+    /**
+     * Reverses {@link #commitRepository(long)}: the committed tables go back into the repository schema and the
+     * retained backup becomes live again, in one transaction. Only the most recent commit can be rolled back; after
+     * a later one the live tables are no longer this repository's, and its backup no longer the tables it replaced.
+     */
+    public void rollbackCommit(long id) {
+        RepositoryInfo info = findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Repository not found: " + id));
+        if (!info.isCommitted() || info.backupSchema() == null) {
+            throw new IllegalStateException("Repository " + info.name() + " has no commit to roll back");
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("SET LOCAL lock_timeout = '" + SWAP_LOCK_TIMEOUT + "'");
+            lockCommits();
+            Integer later = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + METADATA_TABLE
+                            + " WHERE status = ? AND id <> ? AND COALESCE(commit_order, 0) > "
+                            + "(SELECT COALESCE(commit_order, 0) FROM " + METADATA_TABLE + " WHERE id = ?)",
+                    Integer.class, STATUS_COMMITTED, id, id);
+            if (later != null && later > 0) {
+                throw new IllegalStateException("Repository " + info.name()
+                        + " is not the most recent commit; roll back the later commits first");
+            }
+            String liveSchema = jdbcTemplate.queryForObject("SELECT current_schema()", String.class);
+            moveTables(liveSchema, info.schemaName());
+            moveTables(info.backupSchema(), liveSchema);
+            jdbcTemplate.execute("DROP SCHEMA " + renderIdentifier(info.backupSchema()));
+            jdbcTemplate.update(
+                    "UPDATE " + METADATA_TABLE + " SET status = ?, backup_schema = NULL, commit_order = NULL WHERE id = ?",
+                    STATUS_READY, id);
+        });
+        metadataCache.invalidateSchema(null);
+        metadataCache.invalidateSchema(info.schemaName());
+    }
+
+    /**
+     * Serializes commits and rollbacks, so the commit order matches the order in which the tables were swapped.
+     */
+    private void lockCommits() {
+        jdbcTemplate.execute("LOCK TABLE " + METADATA_TABLE + " IN SHARE ROW EXCLUSIVE MODE");
+    }
+
+    private void moveTables(String fromSchema, String toSchema) {
+        for (SyncConfig.MergeMapping merge : config.merges) {
+            if (!tableExists(fromSchema, merge.targetTable)) {
+                continue;
+            }
+            jdbcTemplate.execute("ALTER TABLE " + renderIdentifier(fromSchema) + "." + renderIdentifier(merge.targetTable)
+                    + " SET SCHEMA " + renderIdentifier(toSchema));
+        }
+    }
+
+    private boolean tableExists(String schema, String table) {
+        Boolean exists = jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL",
+                Boolean.class,
+                renderIdentifier(schema) + "." + renderIdentifier(table));
+        return Boolean.TRUE.equals(exists);
+    }
+
+    private String backupSchemaName(String schemaName) {
+        String base = schemaName.length() + BACKUP_SUFFIX.length() > MAX_IDENTIFIER_LENGTH
+                ? schemaName.substring(0, MAX_IDENTIFIER_LENGTH - BACKUP_SUFFIX.length())
+                : schemaName;
+        return base + BACKUP_SUFFIX;
     }
 
     private boolean existsByName(String name) {
@@ -111,15 +277,112 @@ public class RepositoryService {
         return count != null && count > 0;
     }
 
-    private void createSchemaWithTables(String schemaName) {
+    /**
+     * Resolves the seed specification to the schema to copy from: empty for no seed, an empty string for the base
+     * tables (resolved through the search path), or a repository schema name.
+     */
+    private Optional<String> resolveSeedSchema(String seed) {
+        if (seed == null || seed.isBlank() || "none".equalsIgnoreCase(seed)) {
+            return Optional.empty();
+        }
+        if (SEED_BASE.equalsIgnoreCase(seed)) {
+            return Optional.of("");
+        }
+        if (seed.startsWith(SEED_REPOSITORY_PREFIX)) {
+            long sourceId;
+            try {
+                sourceId = Long.parseLong(seed.substring(SEED_REPOSITORY_PREFIX.length()));
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid seed repository: " + seed);
+            }
+            RepositoryInfo source = findById(sourceId)
+                    .orElseThrow(() -> new IllegalArgumentException("Seed repository not found: " + sourceId));
+            if (!source.hasTables()) {
+                throw new IllegalArgumentException("Seed repository '" + source.name()
+                        + "' is committed; its tables are the live tables, seed from the base tables instead");
+            }
+            return Optional.of(source.schemaName());
+        }
+        throw new IllegalArgumentException("Unknown repository seed: " + seed);
+    }
+
+    private void createSchemaWithTables(String schemaName, Optional<String> seedSchema) {
         jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS " + renderIdentifier(schemaName));
+        List<Future<?>> futures = new ArrayList<>(config.merges.size());
         for (SyncConfig.MergeMapping merge : config.merges) {
-            String qualifiedTarget = renderIdentifier(schemaName) + "." + renderIdentifier(merge.targetTable);
-            String baseTable = renderIdentifier(merge.targetTable);
-            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + qualifiedTarget +
-                    " (LIKE " + baseTable + " INCLUDING ALL)");
-            jdbcTemplate.execute("TRUNCATE TABLE " + qualifiedTarget);
+            futures.add(provisioningExecutor.submit(() -> {
+                if (seedSchema.isPresent()) {
+                    cloneTable(schemaName, seedSchema.get(), merge.targetTable);
+                } else {
+                    createEmptyTable(schemaName, merge.targetTable);
+                }
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException | ExecutionException ex) {
+            futures.forEach(future -> future.cancel(true));
+            if (ex instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            try {
+                jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + renderIdentifier(schemaName) + " CASCADE");
+            } catch (RuntimeException cleanupEx) {
+                log.warn("Failed to drop partially provisioned schema {}", schemaName, cleanupEx);
+            }
+            Throwable cause = ex instanceof ExecutionException && ex.getCause() != null ? ex.getCause() : ex;
+            throw new IllegalStateException("Failed to provision repository schema " + schemaName + ": "
+                    + cause.getMessage(), cause);
+        }
+    }
+
+    private void createEmptyTable(String schemaName, String table) {
+        String qualifiedTarget = renderIdentifier(schemaName) + "." + renderIdentifier(table);
+        String baseTable = renderIdentifier(table);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + qualifiedTarget +
+                " (LIKE " + baseTable + " INCLUDING ALL)");
+        jdbcTemplate.execute("TRUNCATE TABLE " + qualifiedTarget);
+    }
+
+    /**
+     * Copies a table without its indexes, bulk loads the rows with INSERT ... SELECT, then builds the source's keys
+     * and indexes once the data is in place, which is much cheaper than maintaining them row by row. Generated columns
+     * are left to be recomputed, identity values are copied as they are and each identity sequence is moved past the
+     * copied values.
+     */
+    private void cloneTable(String schemaName, String sourceSchema, String table) {
+        String qualifiedTarget = renderIdentifier(schemaName) + "." + renderIdentifier(table);
+        String sourceTable = sourceSchema.isEmpty()
+                ? renderIdentifier(table)
+                : renderIdentifier(sourceSchema) + "." + renderIdentifier(table);
+        jdbcTemplate.execute("CREATE TABLE " + qualifiedTarget +
+                " (LIKE " + sourceTable + " INCLUDING ALL EXCLUDING INDEXES)");
+        List<String> columns = new ArrayList<>();
+        List<String> identityColumns = new ArrayList<>();
+        jdbcTemplate.query(SELECT_CLONED_COLUMNS, (RowCallbackHandler) rs -> {
+            columns.add(renderIdentifier(rs.getString("attname")));
+            if (rs.getBoolean("identity")) {
+                identityColumns.add(rs.getString("attname"));
+            }
+        }, sourceTable);
+        String columnList = String.join(", ", columns);
+        jdbcTemplate.execute("INSERT INTO " + qualifiedTarget + " (" + columnList + ") OVERRIDING SYSTEM VALUE SELECT "
+                + columnList + " FROM " + sourceTable);
+        for (String column : identityColumns) {
+            jdbcTemplate.queryForObject("SELECT setval(pg_get_serial_sequence(?, ?), max(" + renderIdentifier(column)
+                    + ")) FROM " + qualifiedTarget, Long.class, qualifiedTarget, column);
+        }
+        List<TableDdl.IndexDefinition> indexes = jdbcTemplate.execute(
+                (ConnectionCallback<List<TableDdl.IndexDefinition>>) connection ->
+                        TableDdl.readIndexes(connection, sourceTable, false));
+        if (indexes != null) {
+            for (TableDdl.IndexDefinition index : indexes) {
+                jdbcTemplate.execute(index.createStatement(qualifiedTarget, index.name()));
+            }
         }
+        jdbcTemplate.execute("ANALYZE " + qualifiedTarget);
     }
 
     private RowMapper<RepositoryInfo> repositoryRowMapper() {
@@ -128,7 +391,9 @@ public class RepositoryService {
                 rs.getString("name"),
                 rs.getString("schema_name"),
                 rs.getString("status"),
-                toInstant(rs, "created_at"));
+                toInstant(rs, "created_at"),
+                rs.getString("backup_schema"),
+                rs.getBoolean("latest_commit"));
     }
 
     private Instant toInstant(ResultSet rs, String column) throws SQLException {
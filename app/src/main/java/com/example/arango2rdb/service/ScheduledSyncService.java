@@ -0,0 +1,58 @@
+package com.example.arango2rdb.service;
+
+import com.example.arango2rdb.SyncListener;
+import com.example.arango2rdb.SyncScheduler;
+import com.example.arango2rdb.config.SyncConfig;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs the scheduled merges inside the web viewer when {@code app.scheduler.enabled} is set, with the same
+ * {@link SyncScheduler} as the {@code daemon} command. Each completed run drops the cached metadata of its table.
+ */
+@Service
+public class ScheduledSyncService {
+
+    private static final Logger log = LoggerFactory.getLogger(ScheduledSyncService.class);
+
+    private final SyncConfig config;
+    private final SchemaMetadataCache metadataCache;
+    private final boolean enabled;
+    private SyncScheduler scheduler;
+
+    public ScheduledSyncService(SyncConfig config,
+                                SchemaMetadataCache metadataCache,
+                                @Value("${app.scheduler.enabled:false}") boolean enabled) {
+        this.config = config;
+        this.metadataCache = metadataCache;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    synchronized void start() {
+        if (!enabled || scheduler != null) {
+            return;
+        }
+        scheduler = new SyncScheduler(config, new SyncListener() {
+            @Override
+            public void mergeCompleted(String mergeName, String schema, String targetTable, long documentsProcessed) {
+                metadataCache.invalidateTable(schema, targetTable);
+            }
+        });
+        scheduler.start();
+        log.info("Sync scheduler started with {} workers", config.scheduler.workers);
+    }
+
+    @PreDestroy
+    synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.close();
+            scheduler = null;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.arango2rdb.service;
+
+import com.arangodb.ArangoDatabase;
+import com.arangodb.entity.CollectionEntity;
+import com.example.arango2rdb.view.RowCount;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Caches table and collection metadata and row counts for the schema view. Entries expire after a TTL and are
+ * dropped explicitly once a sync or repository operation changes the tables. Large tables are counted from
+ * {@code pg_class.reltuples} and reported as approximate; exact {@code COUNT(*)} is only used below the threshold.
+ */
+@Service
+public class SchemaMetadataCache {
+
+    private static final String BASE_SCHEMA_KEY = "";
+
+    private final ArangoDatabase arangoDatabase;
+    private final JdbcTemplate jdbcTemplate;
+    private final SnapshotCache snapshotCache;
+    private final long ttlNanos;
+    private final long exactCountThreshold;
+    private final Map<String, Entry<?>> entries = new ConcurrentHashMap<>();
+
+    public SchemaMetadataCache(ArangoDatabase arangoDatabase,
+                               JdbcTemplate jdbcTemplate,
+                               SnapshotCache snapshotCache,
+                               @Value("${app.metadata.cache-ttl-seconds:60}") long ttlSeconds,
+                               @Value("${app.metadata.exact-count-threshold:100000}") long exactCountThreshold) {
+        this.arangoDatabase = arangoDatabase;
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshotCache = snapshotCache;
+        this.ttlNanos = Duration.ofSeconds(ttlSeconds).toNanos();
+        this.exactCountThreshold = exactCountThreshold;
+    }
+
+    public List<String> collectionNames() {
+        return cached("arango:collections", () -> {
+            List<String> names = new ArrayList<>();
+            for (CollectionEntity entity : arangoDatabase.getCollections()) {
+                names.add(entity.getName());
+            }
+            return List.copyOf(names);
+        });
+    }
+
+    /**
+     * Collection counts come from the collection's stored document counter, which the RocksDB engine maintains
+     * without scanning, so they are exact and only cached to save the round trip.
+     */
+    public RowCount collectionCount(String collection) {
+        return cached("arango:count:" + collection, () -> {
+            Long count = arangoDatabase.collection(collection).count().getCount();
+            return new RowCount(count != null ? count : 0L, false);
+        });
+    }
+
+    public List<String> tableNames(String schema) {
+        return cached(rdbKey(schema, "tables"), () -> readTableNames(schema));
+    }
+
+    public List<String> columns(String schema, String table) {
+        return cached(rdbKey(schema, "columns:" + table), () -> readColumns(schema, table));
+    }
+
+    /**
+     * Primary key columns of {@code table} in key order; empty when the table has no primary key.
+     */
+    public List<String> primaryKey(String schema, String table) {
+        return cached(rdbKey(schema, "pk:" + table), () -> readPrimaryKey(schema, table));
+    }
+
+    public RowCount tableCount(String schema, String table) {
+        return cached(rdbKey(schema, "count:" + table), () -> countRows(schema, table));
+    }
+
+    /**
+     * Drops every cached entry for {@code schema} ({@code null} for the base tables), including the rendered pages
+     * in {@link SnapshotCache}.
+     */
+    public void invalidateSchema(String schema) {
+        String prefix = rdbKey(schema, "");
+        entries.keySet().removeIf(key -> key.startsWith(prefix));
+        snapshotCache.evictSchema(schema);
+    }
+
+    /**
+     * Drops the row count and rendered pages of one table after its rows changed.
+     */
+    public void invalidateTable(String schema, String table) {
+        entries.remove(rdbKey(schema, "count:" + table));
+        snapshotCache.evictTable(schema, table);
+    }
+
+    private RowCount countRows(String schema, String table) {
+        String qualified = qualifyTable(schema, table);
+        Double estimate = jdbcTemplate.queryForObject(
+                "SELECT reltuples::float8 FROM pg_class WHERE oid = ?::regclass", Double.class, qualified);
+        // reltuples is -1 (or 0 on older servers) until the table has been vacuumed or analyzed.
+        if (estimate != null && estimate >= exactCountThreshold) {
+            return new RowCount(Math.round(estimate), true);
+        }
+        Long exact = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + qualified, Long.class);
+        return new RowCount(exact != null ? exact : 0L, false);
+    }
+
+    private List<String> readTableNames(String schema) {
+        try (Connection connection = getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            String schemaPattern = resolveSchemaPattern(connection, schema);
+            try (ResultSet tables = metaData.getTables(connection.getCatalog(), schemaPattern, "%", new String[]{"TABLE"})) {
+                List<String> result = new ArrayList<>();
+                while (tables.next()) {
+                    String tableSchema = tables.getString("TABLE_SCHEM");
+                    if (schemaPattern != null && tableSchema != null && !tableSchema.equalsIgnoreCase(schemaPattern)) {
+                        continue;
+                    }
+                    String name = tables.getString("TABLE_NAME");
+                    if (name != null && !name.startsWith("pg_")) {
+                        result.add(name);
+                    }
+                }
+                result.sort(String::compareToIgnoreCase);
+                return List.copyOf(result);
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Failed to read table metadata", ex);
+        }
+    }
+
+    private List<String> readColumns(String schema, String table) {
+        try (Connection connection = getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            String schemaPattern = resolveSchemaPattern(connection, schema);
+            try (ResultSet columns = metaData.getColumns(connection.getCatalog(), schemaPattern, table, "%")) {
+                List<String> result = new ArrayList<>();
+                while (columns.next()) {
+                    result.add(columns.getString("COLUMN_NAME"));
+                }
+                return List.copyOf(result);
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Failed to fetch columns for table " + table, ex);
+        }
+    }
+
+    private List<String> readPrimaryKey(String schema, String table) {
+        try (Connection connection = getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            String schemaPattern = resolveSchemaPattern(connection, schema);
+            try (ResultSet keys = metaData.getPrimaryKeys(connection.getCatalog(), schemaPattern, table)) {
+                TreeMap<Short, String> ordered = new TreeMap<>();
+                while (keys.next()) {
+                    ordered.put(keys.getShort("KEY_SEQ"), keys.getString("COLUMN_NAME"));
+                }
+                return List.copyOf(ordered.values());
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Failed to read primary key of table " + table, ex);
+        }
+    }
+
+    private String resolveSchemaPattern(Connection connection, String schema) throws SQLException {
+        String schemaPattern = schema;
+        if (schemaPattern == null || schemaPattern.isBlank()) {
+            schemaPattern = connection.getSchema();
+        }
+        if (schemaPattern != null && schemaPattern.isBlank()) {
+            schemaPattern = null;
+        }
+        return schemaPattern;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T cached(String key, Supplier<T> loader) {
+        long now = System.nanoTime();
+        Entry<?> entry = entries.get(key);
+        if (entry != null && now - entry.loadedAt() < ttlNanos) {
+            return (T) entry.value();
+        }
+        T value = loader.get();
+        entries.put(key, new Entry<>(value, now));
+        return value;
+    }
+
+    private String rdbKey(String schema, String suffix) {
+        String schemaKey = schema == null || schema.isBlank() ? BASE_SCHEMA_KEY : schema;
+        return "rdb:" + schemaKey + ":" + suffix;
+    }
+
+    private Connection getConnection() throws SQLException {
+        return Objects.requireNonNull(jdbcTemplate.getDataSource()).getConnection();
+    }
+
+    private String qualifyTable(String schema, String table) {
+        if (schema == null || schema.isBlank()) {
+            return quoteIdentifier(table);
+        }
+        return quoteIdentifier(schema) + "." + quoteIdentifier(table);
+    }
+
+    private String quoteIdentifier(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    private record Entry<T>(T value, long loadedAt) {
+    }
+}
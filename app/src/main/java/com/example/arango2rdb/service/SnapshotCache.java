@@ -0,0 +1,182 @@
+package com.example.arango2rdb.service;
+
+import com.example.arango2rdb.view.CollectionSnapshot;
+import com.example.arango2rdb.view.SnapshotCacheStats;
+import com.example.arango2rdb.view.TableSnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * LRU cache of rendered card pages, bounded by an estimate of their heap size. Collection pages are tagged with the
+ * collection revision they were read at and dropped as soon as the revision moves. Table pages are tagged the same
+ * way with a cheap change counter of the table, so writes from other processes, such as the CLI or the daemon, are
+ * noticed too; since that counter can lag behind a commit, they also expire after a fixed time. Syncs and repository
+ * operations in this JVM drop them at once.
+ */
+@Service
+public class SnapshotCache {
+
+    private static final String SOURCE_ARANGO = "arango";
+    private static final String SOURCE_RDB = "rdb";
+    private static final long ENTRY_OVERHEAD_BYTES = 256L;
+    private static final long ROW_OVERHEAD_BYTES = 64L;
+    private static final long CELL_OVERHEAD_BYTES = 48L;
+
+    private final long maxWeightBytes;
+    private final long tableTtlNanos;
+    private final LinkedHashMap<SnapshotKey, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long weightBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public SnapshotCache(@Value("${app.view.snapshot-cache-max-bytes:33554432}") long maxWeightBytes,
+                         @Value("${app.view.table-page-ttl-seconds:60}") long tableTtlSeconds) {
+        this.maxWeightBytes = maxWeightBytes;
+        this.tableTtlNanos = TimeUnit.SECONDS.toNanos(tableTtlSeconds);
+    }
+
+    /**
+     * Returns the cached page of {@code collection} when it was read at {@code revision}; otherwise drops every page
+     * of the collection, loads the page and caches it under that revision.
+     */
+    public CollectionSnapshot collection(String collection,
+                                         String page,
+                                         String revision,
+                                         Supplier<CollectionSnapshot> loader) {
+        SnapshotKey key = new SnapshotKey(SOURCE_ARANGO, collection, "", Objects.toString(page, ""));
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && Objects.equals(entry.revision(), revision)) {
+                hits++;
+                return (CollectionSnapshot) entry.value();
+            }
+            misses++;
+            if (entry != null) {
+                evictMatching(candidate -> candidate.source().equals(SOURCE_ARANGO) && candidate.name().equals(collection));
+            }
+        }
+        CollectionSnapshot snapshot = loader.get();
+        put(key, new Entry(snapshot, revision, weigh(snapshot.getRows(), snapshot.getColumns()), System.nanoTime()));
+        return snapshot;
+    }
+
+    /**
+     * Returns the cached page of {@code table} when it was read at {@code revision}, {@code null} when the table has
+     * none, and no longer ago than the table page TTL; otherwise drops every page of the table, loads the page and
+     * caches it under that revision.
+     */
+    public TableSnapshot table(String table,
+                               String schema,
+                               String page,
+                               String revision,
+                               Supplier<TableSnapshot> loader) {
+        String schemaKey = schemaKey(schema);
+        SnapshotKey key = new SnapshotKey(SOURCE_RDB, table, schemaKey, Objects.toString(page, ""));
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && Objects.equals(entry.revision(), revision)
+                    && System.nanoTime() - entry.loadedAtNanos() < tableTtlNanos) {
+                hits++;
+                return (TableSnapshot) entry.value();
+            }
+            misses++;
+            if (entry != null) {
+                evictMatching(candidate -> candidate.source().equals(SOURCE_RDB)
+                        && candidate.schema().equals(schemaKey) && candidate.name().equals(table));
+            }
+        }
+        TableSnapshot snapshot = loader.get();
+        put(key, new Entry(snapshot, revision, weigh(snapshot.getRows(), snapshot.getColumns()), System.nanoTime()));
+        return snapshot;
+    }
+
+    /**
+     * Drops every page of {@code table} in {@code schema} ({@code null} for the base tables).
+     */
+    public synchronized void evictTable(String schema, String table) {
+        String schemaKey = schemaKey(schema);
+        evictMatching(key -> key.source().equals(SOURCE_RDB) && key.schema().equals(schemaKey) && key.name().equals(table));
+    }
+
+    public synchronized void evictSchema(String schema) {
+        String schemaKey = schemaKey(schema);
+        evictMatching(key -> key.source().equals(SOURCE_RDB) && key.schema().equals(schemaKey));
+    }
+
+    public synchronized SnapshotCacheStats stats() {
+        long requests = hits + misses;
+        double hitRate = requests == 0 ? 0.0 : (double) hits / requests;
+        return new SnapshotCacheStats(hits, misses, evictions, entries.size(), weightBytes, maxWeightBytes, hitRate);
+    }
+
+    private synchronized void put(SnapshotKey key, Entry entry) {
+        if (entry.weightBytes() > maxWeightBytes) {
+            return;
+        }
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            weightBytes -= previous.weightBytes();
+        }
+        weightBytes += entry.weightBytes();
+        Iterator<Map.Entry<SnapshotKey, Entry>> eldest = entries.entrySet().iterator();
+        while (weightBytes > maxWeightBytes && eldest.hasNext()) {
+            Map.Entry<SnapshotKey, Entry> candidate = eldest.next();
+            weightBytes -= candidate.getValue().weightBytes();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private void evictMatching(Predicate<SnapshotKey> predicate) {
+        Iterator<Map.Entry<SnapshotKey, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<SnapshotKey, Entry> candidate = iterator.next();
+            if (predicate.test(candidate.getKey())) {
+                weightBytes -= candidate.getValue().weightBytes();
+                iterator.remove();
+                evictions++;
+            }
+        }
+    }
+
+    /**
+     * Rough heap estimate: fixed overheads per entry, row and cell plus two bytes per character of each value's
+     * text form. Good enough to keep the cache within its budget without walking object graphs.
+     */
+    private long weigh(List<Map<String, Object>> rows, List<String> columns) {
+        long weight = ENTRY_OVERHEAD_BYTES;
+        for (String column : columns) {
+            weight += CELL_OVERHEAD_BYTES + 2L * column.length();
+        }
+        for (Map<String, Object> row : rows) {
+            weight += ROW_OVERHEAD_BYTES;
+            for (Object value : row.values()) {
+                weight += CELL_OVERHEAD_BYTES;
+                if (value != null) {
+                    weight += 2L * String.valueOf(value).length();
+                }
+            }
+        }
+        return weight;
+    }
+
+    private String schemaKey(String schema) {
+        return schema == null || schema.isBlank() ? "" : schema;
+    }
+
+    private record SnapshotKey(String source, String name, String schema, String page) {
+    }
+
+    private record Entry(Object value, String revision, long weightBytes, long loadedAtNanos) {
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.arango2rdb.service;
+
+import com.example.arango2rdb.view.MergeTrend;
+import com.example.arango2rdb.view.SyncRunMergeStats;
+import com.example.arango2rdb.view.SyncRunSummary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the run history that syncs record in {@code sync_runs} and {@code sync_run_merges}: the latest runs with
+ * their merges, and each merge's throughput over its recent completed runs.
+ */
+@Service
+public class SyncHistoryService {
+
+    private static final String MERGE_COLUMNS = "run_id, merge_name, target_table, started_at, finished_at, status, "
+            + "documents_read, rows_written, rows_inserted, rows_updated, rows_skipped, rows_rejected, join_lookups, "
+            + "bytes_read, bytes_written, error_message";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int runLimit;
+    private final int trendRuns;
+
+    public SyncHistoryService(JdbcTemplate jdbcTemplate,
+                              @Value("${app.history.runs:50}") int runLimit,
+                              @Value("${app.history.trend-runs:30}") int trendRuns) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.runLimit = runLimit;
+        this.trendRuns = trendRuns;
+    }
+
+    /**
+     * False until the first sync has created the history tables.
+     */
+    public boolean isRecorded() {
+        Integer tables = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM information_schema.tables WHERE table_schema = current_schema() "
+                        + "AND table_name IN ('sync_runs', 'sync_run_merges')", Integer.class);
+        return tables != null && tables == 2;
+    }
+
+    public List<SyncRunSummary> recentRuns() {
+        if (!isRecorded()) {
+            return List.of();
+        }
+        Map<String, List<SyncRunMergeStats>> mergesByRun = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT " + MERGE_COLUMNS + " FROM sync_run_merges WHERE run_id IN ("
+                        + "SELECT run_id FROM sync_runs ORDER BY started_at DESC LIMIT ?) ORDER BY started_at",
+                (RowCallbackHandler) rs -> {
+                    SyncRunMergeStats merge = mapMerge(rs);
+                    mergesByRun.computeIfAbsent(merge.runId(), id -> new ArrayList<>()).add(merge);
+                }, runLimit);
+        return jdbcTemplate.query("SELECT run_id, run_kind, repository_schema, started_at, finished_at, status, "
+                        + "merge_count, documents_read, rows_written, rows_rejected, error_message "
+                        + "FROM sync_runs ORDER BY started_at DESC LIMIT ?",
+                (rs, rowNum) -> new SyncRunSummary(
+                        rs.getString("run_id"),
+                        rs.getString("run_kind"),
+                        rs.getString("repository_schema"),
+                        instant(rs, "started_at"),
+                        instant(rs, "finished_at"),
+                        rs.getString("status"),
+                        rs.getInt("merge_count"),
+                        rs.getLong("documents_read"),
+                        rs.getLong("rows_written"),
+                        rs.getLong("rows_rejected"),
+                        rs.getString("error_message"),
+                        mergesByRun.getOrDefault(rs.getString("run_id"), List.of())),
+                runLimit);
+    }
+
+    /**
+     * The last completed runs of every merge that has one, oldest first within each merge.
+     */
+    public List<MergeTrend> trends() {
+        if (!isRecorded()) {
+            return List.of();
+        }
+        Map<String, List<SyncRunMergeStats>> runsByMerge = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT " + MERGE_COLUMNS + " FROM ("
+                        + "SELECT m.*, row_number() OVER (PARTITION BY merge_name ORDER BY started_at DESC) AS recency "
+                        + "FROM sync_run_merges m WHERE status = 'COMPLETED') recent "
+                        + "WHERE recency <= ? ORDER BY merge_name, started_at",
+                (RowCallbackHandler) rs -> {
+                    SyncRunMergeStats merge = mapMerge(rs);
+                    runsByMerge.computeIfAbsent(merge.mergeName(), name -> new ArrayList<>()).add(merge);
+                }, trendRuns);
+        List<MergeTrend> trends = new ArrayList<>(runsByMerge.size());
+        runsByMerge.forEach((name, runs) -> trends.add(new MergeTrend(name, List.copyOf(runs))));
+        return trends;
+    }
+
+    private static SyncRunMergeStats mapMerge(ResultSet rs) throws SQLException {
+        return new SyncRunMergeStats(
+                rs.getString("run_id"),
+                rs.getString("merge_name"),
+                rs.getString("target_table"),
+                instant(rs, "started_at"),
+                instant(rs, "finished_at"),
+                rs.getString("status"),
+                rs.getLong("documents_read"),
+                rs.getLong("rows_written"),
+                rs.getObject("rows_inserted", Long.class),
+                rs.getObject("rows_updated", Long.class),
+                rs.getLong("rows_skipped"),
+                rs.getLong("rows_rejected"),
+                rs.getLong("join_lookups"),
+                rs.getLong("bytes_read"),
+                rs.getLong("bytes_written"),
+                rs.getString("error_message"));
+    }
+
+    private static Instant instant(ResultSet rs, String column) throws SQLException {
+        Timestamp timestamp = rs.getTimestamp(column);
+        return timestamp != null ? timestamp.toInstant() : null;
+    }
+}
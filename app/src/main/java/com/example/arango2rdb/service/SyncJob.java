@@ -0,0 +1,142 @@
+package com.example.arango2rdb.service;
+
+import com.example.arango2rdb.SyncListener;
+import com.example.arango2rdb.ThroughputController;
+import com.example.arango2rdb.view.SyncJobStatus;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Mutable state of one queued or running sync. Progress fields are written by the sync thread and read by request
+ * threads, so every accessor is synchronized.
+ */
+public class SyncJob implements SyncListener {
+
+    public enum State {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final String repositorySchema;
+    private boolean profile;
+    private final Instant createdAt = Instant.now();
+    private final Consumer<SyncJob> progressCallback;
+
+    private volatile boolean cancelRequested;
+    private State state = State.QUEUED;
+    private String currentMerge;
+    private int mergeIndex;
+    private int mergeCount;
+    private long documentsProcessed;
+    private long estimatedDocuments = -1L;
+    private long mergeStartedNanos;
+    private String message;
+    private String profileReport;
+    private ThroughputController.Settings throughput;
+
+    SyncJob(String repositorySchema, boolean profile, Consumer<SyncJob> progressCallback) {
+        this.repositorySchema = repositorySchema;
+        this.profile = profile;
+        this.progressCallback = progressCallback;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getRepositorySchema() {
+        return repositorySchema;
+    }
+
+    synchronized boolean isProfile() {
+        return profile;
+    }
+
+    /**
+     * Turns profiling on for a job that has not started yet; returns whether the job will produce a profile report.
+     */
+    synchronized boolean requestProfile() {
+        if (state == State.QUEUED) {
+            profile = true;
+        }
+        return profile;
+    }
+
+    public void cancel() {
+        cancelRequested = true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelRequested;
+    }
+
+    @Override
+    public void mergeStarted(String mergeName, int mergeIndex, int mergeCount, long estimatedDocuments) {
+        synchronized (this) {
+            this.currentMerge = mergeName;
+            this.mergeIndex = mergeIndex;
+            this.mergeCount = mergeCount;
+            this.documentsProcessed = 0L;
+            this.estimatedDocuments = estimatedDocuments;
+            this.mergeStartedNanos = System.nanoTime();
+        }
+        progressCallback.accept(this);
+    }
+
+    @Override
+    public void documentsProcessed(String mergeName, long documentsProcessed) {
+        synchronized (this) {
+            this.documentsProcessed = documentsProcessed;
+        }
+        progressCallback.accept(this);
+    }
+
+    @Override
+    public void throughputChanged(ThroughputController.Settings settings) {
+        synchronized (this) {
+            this.throughput = settings;
+        }
+    }
+
+    synchronized void markRunning() {
+        state = State.RUNNING;
+    }
+
+    synchronized void finish(State finalState, String message, String profileReport) {
+        this.state = finalState;
+        this.message = message;
+        this.profileReport = profileReport;
+    }
+
+    public synchronized SyncJobStatus status() {
+        double rowsPerSecond = 0.0;
+        long etaSeconds = -1L;
+        if (state == State.RUNNING && mergeStartedNanos > 0) {
+            double elapsedSeconds = (System.nanoTime() - mergeStartedNanos) / 1_000_000_000.0;
+            if (elapsedSeconds > 0 && documentsProcessed > 0) {
+                rowsPerSecond = documentsProcessed / elapsedSeconds;
+                if (estimatedDocuments > documentsProcessed) {
+                    etaSeconds = Math.round((estimatedDocuments - documentsProcessed) / rowsPerSecond);
+                }
+            }
+        }
+        return new SyncJobStatus(
+                id,
+                repositorySchema,
+                state.name(),
+                currentMerge,
+                mergeIndex,
+                mergeCount,
+                documentsProcessed,
+                estimatedDocuments,
+                rowsPerSecond,
+                etaSeconds,
+                throughput,
+                message,
+                profileReport,
+                createdAt);
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.arango2rdb.service;
+
+import com.example.arango2rdb.SyncCancelledException;
+import com.example.arango2rdb.view.SyncJobStatus;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs syncs on a small background pool instead of request threads. Requests for a repository schema that already
+ * has a queued or running job are coalesced into that job, and progress is pushed to subscribers as Server-Sent
+ * Events.
+ */
+@Service
+public class SyncJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(SyncJobService.class);
+
+    private static final int WORKER_THREADS = 2;
+    private static final int RETAINED_JOBS = 50;
+    private static final long EMITTER_TIMEOUT_MS = 30 * 60 * 1000L;
+    private static final String BASE_SCHEMA_KEY = "";
+
+    private final SyncOrchestrator syncOrchestrator;
+    private final ExecutorService executor;
+    private final Map<String, SyncJob> activeBySchema = new HashMap<>();
+    private final Map<String, SyncJob> jobs = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SyncJob> eldest) {
+            return size() > RETAINED_JOBS;
+        }
+    };
+    private final Map<String, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+
+    public SyncJobService(SyncOrchestrator syncOrchestrator) {
+        this.syncOrchestrator = syncOrchestrator;
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(WORKER_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "sync-job-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues a sync of {@code repositorySchema}, or returns the job already queued or running for it. A queued job is
+     * switched to profiling when {@code profile} asks for it; a job that already runs without profiling cannot be,
+     * and the request fails with an {@link IllegalStateException} rather than silently dropping the profile.
+     */
+    public synchronized SyncJob submit(String repositorySchema, boolean profile) {
+        String key = schemaKey(repositorySchema);
+        SyncJob active = activeBySchema.get(key);
+        if (active != null) {
+            if (profile && !active.requestProfile()) {
+                throw new IllegalStateException("A sync of this schema is already running without profiling; "
+                        + "start a profiled sync once it finishes");
+            }
+            return active;
+        }
+        SyncJob job = new SyncJob(repositorySchema, profile, this::publish);
+        activeBySchema.put(key, job);
+        jobs.put(job.getId(), job);
+        executor.execute(() -> execute(job));
+        return job;
+    }
+
+    public synchronized Optional<SyncJob> find(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    public synchronized Optional<SyncJob> findActive(String repositorySchema) {
+        return Optional.ofNullable(activeBySchema.get(schemaKey(repositorySchema)));
+    }
+
+    public boolean cancel(String jobId) {
+        Optional<SyncJob> job = find(jobId);
+        job.ifPresent(SyncJob::cancel);
+        return job.isPresent();
+    }
+
+    public SseEmitter subscribe(String jobId) {
+        SyncJob job = find(jobId).orElseThrow(() -> new IllegalArgumentException("Unknown sync job " + jobId));
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        List<SseEmitter> subscribers = emitters.computeIfAbsent(jobId, id -> new CopyOnWriteArrayList<>());
+        subscribers.add(emitter);
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> subscribers.remove(emitter));
+        emitter.onError(error -> subscribers.remove(emitter));
+
+        SyncJobStatus status = job.status();
+        send(emitter, status);
+        if (status.isFinished()) {
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    private void execute(SyncJob job) {
+        try {
+            if (job.isCancelled()) {
+                job.finish(SyncJob.State.CANCELLED, "Sync cancelled before it started.", null);
+                return;
+            }
+            job.markRunning();
+            publish(job);
+            String report = syncOrchestrator.runSync(job.getRepositorySchema(), job.isProfile(), job);
+            job.finish(SyncJob.State.COMPLETED, "Sync completed successfully.", job.isProfile() ? report : null);
+        } catch (SyncCancelledException ex) {
+            job.finish(SyncJob.State.CANCELLED, ex.getMessage(), null);
+        } catch (RuntimeException ex) {
+            log.error("Sync job {} failed", job.getId(), ex);
+            job.finish(SyncJob.State.FAILED, ex.getMessage(), null);
+        } finally {
+            synchronized (this) {
+                activeBySchema.remove(schemaKey(job.getRepositorySchema()), job);
+            }
+            publish(job);
+            List<SseEmitter> subscribers = emitters.remove(job.getId());
+            if (subscribers != null) {
+                subscribers.forEach(SseEmitter::complete);
+            }
+        }
+    }
+
+    private void publish(SyncJob job) {
+        List<SseEmitter> subscribers = emitters.get(job.getId());
+        if (subscribers == null || subscribers.isEmpty()) {
+            return;
+        }
+        SyncJobStatus status = job.status();
+        for (SseEmitter emitter : subscribers) {
+            if (!send(emitter, status)) {
+                subscribers.remove(emitter);
+            }
+        }
+    }
+
+    private boolean send(SseEmitter emitter, SyncJobStatus status) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .name(status.isFinished() ? "done" : "progress")
+                    .data(status, MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException ex) {
+            emitter.completeWithError(ex);
+            return false;
+        }
+    }
+
+    private String schemaKey(String repositorySchema) {
+        return repositorySchema == null || repositorySchema.isBlank() ? BASE_SCHEMA_KEY : repositorySchema;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        synchronized (this) {
+            activeBySchema.values().forEach(SyncJob::cancel);
+        }
+        executor.shutdown();
+    }
+}
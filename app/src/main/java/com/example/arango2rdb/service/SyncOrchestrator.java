@@ -1,6 +1,10 @@
 package com.example.arango2rdb.service;
 
+import com.example.arango2rdb.SyncCancelledException;
+import com.example.arango2rdb.SyncListener;
+import com.example.arango2rdb.SyncProfiler;
 import com.example.arango2rdb.SyncService;
+import com.example.arango2rdb.ThroughputController;
 import com.example.arango2rdb.config.SyncConfig;
 import org.springframework.stereotype.Service;
 
@@ -10,16 +14,72 @@ import java.sql.SQLException;
 public class SyncOrchestrator {
 
     private final SyncConfig config;
+    private final SchemaMetadataCache metadataCache;
 
-    public SyncOrchestrator(SyncConfig config) {
+    public SyncOrchestrator(SyncConfig config, SchemaMetadataCache metadataCache) {
         this.config = config;
+        this.metadataCache = metadataCache;
     }
 
     public void runSync(String repositorySchema) {
+        runSync(repositorySchema, false);
+    }
+
+    /**
+     * Runs the sync and returns the profile report when {@code profile} is set, or an empty string otherwise.
+     */
+    public String runSync(String repositorySchema, boolean profile) {
+        try {
+            return runSync(repositorySchema, profile, SyncListener.NONE);
+        } catch (SyncCancelledException ex) {
+            throw new IllegalStateException("Failed to run sync", ex);
+        }
+    }
+
+    /**
+     * Runs the sync reporting progress to {@code listener}. Cancellation requested through the listener surfaces
+     * as {@link SyncCancelledException}; every other failure is wrapped in {@link IllegalStateException}.
+     */
+    public String runSync(String repositorySchema, boolean profile, SyncListener listener) throws SyncCancelledException {
         try (SyncService service = new SyncService(config)) {
+            SyncProfiler profiler = profile ? SyncProfiler.enabled() : SyncProfiler.disabled();
+            service.setProfiler(profiler);
+            service.setListener(new SyncListener() {
+                @Override
+                public void mergeStarted(String mergeName, int mergeIndex, int mergeCount, long estimatedDocuments) {
+                    listener.mergeStarted(mergeName, mergeIndex, mergeCount, estimatedDocuments);
+                }
+
+                @Override
+                public void documentsProcessed(String mergeName, long documentsProcessed) {
+                    listener.documentsProcessed(mergeName, documentsProcessed);
+                }
+
+                @Override
+                public void mergeCompleted(String mergeName, String schema, String targetTable, long documentsProcessed) {
+                    metadataCache.invalidateTable(schema, targetTable);
+                    listener.mergeCompleted(mergeName, schema, targetTable, documentsProcessed);
+                }
+
+                @Override
+                public void throughputChanged(ThroughputController.Settings settings) {
+                    listener.throughputChanged(settings);
+                }
+
+                @Override
+                public boolean isCancelled() {
+                    return listener.isCancelled();
+                }
+            });
             service.run(repositorySchema);
+            return profiler.report();
+        } catch (SyncCancelledException ex) {
+            throw ex;
         } catch (SQLException ex) {
             throw new IllegalStateException("Failed to run sync", ex);
+        } finally {
+            // Cancelled and failed runs may still have committed batches.
+            metadataCache.invalidateSchema(repositorySchema);
         }
     }
 }
@@ -3,20 +3,28 @@ package com.example.arango2rdb.service;
 import com.arangodb.ArangoCursor;
 import com.arangodb.ArangoDatabase;
 import com.arangodb.entity.BaseDocument;
+import com.arangodb.model.AqlQueryOptions;
+import com.example.arango2rdb.ArangoSchemaInspector;
 import com.example.arango2rdb.config.SyncConfig;
 import com.example.arango2rdb.view.CollectionSnapshot;
+import com.example.arango2rdb.view.KeysetCursor;
 import com.example.arango2rdb.view.MergeView;
+import com.example.arango2rdb.view.RowCount;
+import com.example.arango2rdb.view.SchemaCards;
 import com.example.arango2rdb.view.TableSnapshot;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
-import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -26,125 +34,306 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 @Service
 public class VisualizationService {
 
     private static final Logger log = LoggerFactory.getLogger(VisualizationService.class);
 
-    private static final int DEFAULT_PAGE_SIZE = 10;
-    private static final int PAGE_STEP = 10;
+    private static final int PAGE_SIZE = 10;
+    private static final String CTID_COLUMN = "__ctid";
 
     private final ArangoDatabase arangoDatabase;
     private final JdbcTemplate jdbcTemplate;
     private final SyncConfig syncConfig;
+    private final SchemaMetadataCache metadataCache;
+    private final SnapshotCache snapshotCache;
+    private final ArangoSchemaInspector schemaInspector;
+    private final long cardTimeoutMillis;
+    private final ExecutorService cardExecutor;
 
-    public VisualizationService(ArangoDatabase arangoDatabase, JdbcTemplate jdbcTemplate, SyncConfig syncConfig) {
+    public VisualizationService(ArangoDatabase arangoDatabase,
+                                JdbcTemplate jdbcTemplate,
+                                SyncConfig syncConfig,
+                                SchemaMetadataCache metadataCache,
+                                SnapshotCache snapshotCache,
+                                ArangoSchemaInspector schemaInspector,
+                                @Value("${app.view.load-threads:6}") int loadThreads,
+                                @Value("${app.view.card-timeout-ms:5000}") long cardTimeoutMillis) {
         this.arangoDatabase = arangoDatabase;
         this.jdbcTemplate = jdbcTemplate;
         this.syncConfig = syncConfig;
+        this.metadataCache = metadataCache;
+        this.snapshotCache = snapshotCache;
+        this.schemaInspector = schemaInspector;
+        this.cardTimeoutMillis = cardTimeoutMillis;
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.cardExecutor = Executors.newFixedThreadPool(loadThreads, runnable -> {
+            Thread thread = new Thread(runnable, "card-loader-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
-    public List<CollectionSnapshot> loadArangoCollections(String filter) {
-        return arangoDatabase.getCollections().stream()
-                .map(entity -> entity.getName())
+    @PreDestroy
+    void shutdown() {
+        cardExecutor.shutdownNow();
+    }
+
+    /**
+     * Loads the first page of every collection and table card matching {@code filter}. Cards are fetched in
+     * parallel on a bounded pool and share one deadline, so the page waits for the slowest card rather than the sum
+     * of all of them; a card that fails or misses the deadline is replaced by a placeholder.
+     */
+    public SchemaCards loadCards(String filter, String schema) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(cardTimeoutMillis);
+
+        List<String> collectionNames = metadataCache.collectionNames().stream()
                 .filter(name -> !name.startsWith("_"))
                 .sorted(String::compareToIgnoreCase)
-                .filter(name -> filter == null || name.toLowerCase(Locale.ROOT).contains(filter.toLowerCase(Locale.ROOT)))
-                .map(name -> tryLoadCollection(name, DEFAULT_PAGE_SIZE))
-                .flatMap(Optional::stream)
+                .filter(name -> matches(name, filter))
                 .toList();
+        List<String> tableNames = metadataCache.tableNames(schema).stream()
+                .filter(name -> matches(name, filter))
+                .toList();
+
+        List<Future<CollectionSnapshot>> collectionFutures = new ArrayList<>(collectionNames.size());
+        for (String name : collectionNames) {
+            collectionFutures.add(cardExecutor.submit(() -> loadArangoCollection(name)));
+        }
+        List<Future<TableSnapshot>> tableFutures = new ArrayList<>(tableNames.size());
+        for (String name : tableNames) {
+            tableFutures.add(cardExecutor.submit(() -> loadTable(name, schema, null)));
+        }
+
+        List<CollectionSnapshot> collections = new ArrayList<>(collectionNames.size());
+        for (int i = 0; i < collectionNames.size(); i++) {
+            String name = collectionNames.get(i);
+            collections.add(awaitCard(collectionFutures.get(i), deadline, "collection " + name,
+                    error -> CollectionSnapshot.unavailable(name, error)));
+        }
+        List<TableSnapshot> tables = new ArrayList<>(tableNames.size());
+        for (int i = 0; i < tableNames.size(); i++) {
+            String name = tableNames.get(i);
+            tables.add(awaitCard(tableFutures.get(i), deadline, "table " + name,
+                    error -> TableSnapshot.unavailable(name, schema, error)));
+        }
+        return new SchemaCards(collections, tables);
     }
 
-    private Optional<CollectionSnapshot> tryLoadCollection(String name, int size) {
+    private <T> T awaitCard(Future<T> future, long deadline, String description, Function<String, T> placeholder) {
         try {
-            return Optional.of(loadArangoCollection(name, size));
-        } catch (Exception ex) {
-            log.warn("Failed to load collection {}", name, ex);
-            return Optional.empty();
+            long remaining = Math.max(0L, deadline - System.nanoTime());
+            return future.get(remaining, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            future.cancel(true);
+            log.warn("Loading {} timed out after {} ms", description, cardTimeoutMillis);
+            return placeholder.apply("Timed out after " + cardTimeoutMillis + " ms");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+            log.warn("Failed to load {}", description, cause);
+            return placeholder.apply(cause.getMessage());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return placeholder.apply("Interrupted");
         }
     }
 
-    public CollectionSnapshot loadArangoCollection(String name, int requestedSize) {
-        long totalCount = arangoDatabase.collection(name).count().getCount();
-        int limit = normalizeLimit(requestedSize, totalCount);
+    private boolean matches(String name, String filter) {
+        return filter == null || name.toLowerCase(Locale.ROOT).contains(filter.toLowerCase(Locale.ROOT));
+    }
+
+    public CollectionSnapshot loadArangoCollection(String name) {
+        return loadArangoCollection(name, null, null);
+    }
+
+    /**
+     * Loads one page of documents in {@code _key} order, starting after the {@code after} cursor (or at the start
+     * when it is {@code null}). {@code columns} fixes the rendered columns for follow-up pages; the first page
+     * derives them from its documents. Pages are served from {@link SnapshotCache} until the collection revision
+     * changes.
+     */
+    public CollectionSnapshot loadArangoCollection(String name, String after, List<String> columns) {
+        String revision = arangoDatabase.collection(name).getRevision().getRevision();
+        String page = Objects.toString(after, "") + "|" + (columns == null ? "" : KeysetCursor.encode(columns));
+        return snapshotCache.collection(name, page, revision, () -> readCollectionPage(name, after, columns));
+    }
+
+    private CollectionSnapshot readCollectionPage(String name, String after, List<String> columns) {
+        RowCount count = metadataCache.collectionCount(name);
+        List<String> afterKey = KeysetCursor.decode(after);
+        if (afterKey.size() > 1) {
+            throw new IllegalArgumentException("Invalid page cursor " + after);
+        }
         List<Map<String, Object>> rows = new ArrayList<>();
-        LinkedHashSet<String> columns = new LinkedHashSet<>();
-        columns.add("_key");
-        columns.add("_id");
-        columns.add("_rev");
-
-        if (limit > 0) {
-            String query = "FOR doc IN @@collection LIMIT @limit RETURN doc";
-            Map<String, Object> bindVars = new HashMap<>();
-            bindVars.put("@collection", name);
-            bindVars.put("limit", limit);
-
-            ArangoCursor<BaseDocument> cursor = arangoDatabase.query(query, bindVars, null, BaseDocument.class);
-            try {
-                while (cursor.hasNext()) {
-                    BaseDocument doc = cursor.next();
-                    Map<String, Object> map = new LinkedHashMap<>();
-                    map.put("_key", doc.getKey());
-                    map.put("_id", doc.getId());
-                    map.put("_rev", doc.getRevision());
-                    doc.getProperties().forEach((k, v) -> {
-                        columns.add(k);
-                        map.put(k, simplifyValue(v));
-                    });
-                    rows.add(map);
-                }
-            } catch (Exception ex) {
-                throw new IllegalStateException("Failed to stream collection " + name, ex);
-            } finally {
-                try {
-                    cursor.close();
-                } catch (Exception closeEx) {
-                    // ignore close failure
+        LinkedHashSet<String> pageColumns = new LinkedHashSet<>();
+        pageColumns.add("_key");
+        pageColumns.add("_id");
+        pageColumns.add("_rev");
+        Map<String, String> columnHints = new HashMap<>();
+        boolean fixedColumns = columns != null && !columns.isEmpty();
+        if (fixedColumns) {
+            pageColumns.addAll(columns);
+        } else {
+            inferColumns(name, pageColumns, columnHints);
+        }
+
+        // The primary index serves both the filter and the sort, so each page is a short range scan.
+        String query = "FOR doc IN @@collection "
+                + (afterKey.isEmpty() ? "" : "FILTER doc._key > @after ")
+                + "SORT doc._key LIMIT @limit RETURN doc";
+        Map<String, Object> bindVars = new HashMap<>();
+        bindVars.put("@collection", name);
+        bindVars.put("limit", PAGE_SIZE + 1);
+        if (!afterKey.isEmpty()) {
+            bindVars.put("after", afterKey.get(0));
+        }
+
+        String lastKey = null;
+        boolean hasMore = false;
+        AqlQueryOptions options = new AqlQueryOptions().maxRuntime(cardTimeoutMillis / 1000.0);
+        ArangoCursor<BaseDocument> cursor = arangoDatabase.query(query, bindVars, options, BaseDocument.class);
+        try {
+            while (cursor.hasNext()) {
+                BaseDocument doc = cursor.next();
+                if (rows.size() == PAGE_SIZE) {
+                    hasMore = true;
+                    break;
                 }
+                Map<String, Object> map = new LinkedHashMap<>();
+                map.put("_key", doc.getKey());
+                map.put("_id", doc.getId());
+                map.put("_rev", doc.getRevision());
+                doc.getProperties().forEach((k, v) -> {
+                    if (!fixedColumns) {
+                        pageColumns.add(k);
+                    }
+                    map.put(k, simplifyValue(v));
+                });
+                rows.add(map);
+                lastKey = doc.getKey();
+            }
+        } catch (Exception ex) {
+            throw new IllegalStateException("Failed to stream collection " + name, ex);
+        } finally {
+            try {
+                cursor.close();
+            } catch (Exception closeEx) {
+                // ignore close failure
             }
         }
-        return new CollectionSnapshot(name, totalCount, limit, rows, new ArrayList<>(columns), PAGE_STEP);
+        String nextCursor = hasMore ? KeysetCursor.encode(List.of(lastKey)) : null;
+        return new CollectionSnapshot(name, count.value(), count.approximate(), rows, new ArrayList<>(pageColumns),
+                columnHints, nextCursor);
     }
 
-    public List<TableSnapshot> loadTables(String filter) {
-        return loadTables(filter, null);
+    /**
+     * Adds the collection's inferred top-level attributes, most common first, and a type summary per attribute. The
+     * page's own documents still contribute attributes the sample missed.
+     */
+    private void inferColumns(String name, Set<String> columns, Map<String, String> columnHints) {
+        try {
+            ArangoSchemaInspector.CollectionSchema schema = schemaInspector.inspect(name);
+            for (ArangoSchemaInspector.AttributeStats attribute : schema.topLevel()) {
+                columns.add(attribute.path());
+                columnHints.put(attribute.path(), String.format(Locale.US, "%s; null or missing %.1f%% of %d docs",
+                        attribute.describeTypes(schema.documents()),
+                        100.0 * attribute.nullRate(schema.documents()),
+                        schema.documents()));
+            }
+        } catch (Exception ex) {
+            log.warn("Failed to infer attributes of collection {}", name, ex);
+        }
     }
 
-    public List<TableSnapshot> loadTables(String filter, String schema) {
-        return readTableNames(schema).stream()
-                .filter(name -> filter == null || name.toLowerCase(Locale.ROOT).contains(filter.toLowerCase(Locale.ROOT)))
-                .map(name -> loadTable(name, DEFAULT_PAGE_SIZE, schema))
-                .toList();
+    public TableSnapshot loadTable(String table) {
+        return loadTable(table, null, null);
     }
 
-    public TableSnapshot loadTable(String table, int requestedSize) {
-        return loadTable(table, requestedSize, null);
+    /**
+     * Loads one page of rows in primary key order, starting after the {@code after} cursor (or at the start when it
+     * is {@code null}). Tables without a primary key are paged by {@code ctid}, which is stable as long as the rows
+     * are not updated between pages. Pages are served from {@link SnapshotCache} until the table's change counter
+     * moves, a sync or repository operation changes the table, or the table page TTL passes.
+     */
+    public TableSnapshot loadTable(String table, String schema, String after) {
+        String revision = tableRevision(schema, table);
+        return snapshotCache.table(table, schema, after, revision, () -> readTablePage(table, schema, after));
+    }
+
+    /**
+     * The table's storage and its inserted, updated and deleted row counters from {@code pg_stat_user_tables}: a
+     * rewrite, truncate or shadow swap changes the first, every committed write the others. {@code null} when the
+     * statistics are unavailable, leaving the page to the TTL.
+     */
+    private String tableRevision(String schema, String table) {
+        try {
+            List<String> revisions = jdbcTemplate.queryForList(
+                    "SELECT relid::text || ':' || pg_relation_filenode(relid) || ':' "
+                            + "|| (n_tup_ins + n_tup_upd + n_tup_del) FROM pg_stat_user_tables "
+                            + "WHERE relid = to_regclass(?)",
+                    String.class,
+                    qualifyTable(schema, table));
+            return revisions.isEmpty() ? null : revisions.get(0);
+        } catch (DataAccessException ex) {
+            log.debug("No change counter for table {}: {}", table, ex.getMessage());
+            return null;
+        }
     }
 
-    public TableSnapshot loadTable(String table, int requestedSize, String schema) {
-        List<String> availableTables = readTableNames(schema);
-        if (!availableTables.contains(table)) {
+    private TableSnapshot readTablePage(String table, String schema, String after) {
+        if (!metadataCache.tableNames(schema).contains(table)) {
             throw new IllegalArgumentException("Unknown table " + table);
         }
         String qualifiedTable = qualifyTable(schema, table);
-        long totalCount = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + qualifiedTable, Long.class);
-        int limit = normalizeLimit(requestedSize, totalCount);
+        RowCount count = metadataCache.tableCount(schema, table);
+        List<String> keyColumns = metadataCache.primaryKey(schema, table);
+        List<String> afterKey = KeysetCursor.decode(after);
+        boolean byCtid = keyColumns.isEmpty();
+        if (!afterKey.isEmpty() && afterKey.size() != (byCtid ? 1 : keyColumns.size())) {
+            throw new IllegalArgumentException("Invalid page cursor " + after);
+        }
+
+        String sql = byCtid
+                ? ctidPageQuery(qualifiedTable, !afterKey.isEmpty())
+                : keyPageQuery(qualifiedTable, keyColumns, !afterKey.isEmpty());
         List<Map<String, Object>> rows = new ArrayList<>();
         List<String> columns = List.of();
+        List<String> lastKey = List.of();
+        boolean hasMore = false;
 
         try (Connection connection = getConnection();
-             PreparedStatement statement = connection.prepareStatement("SELECT * FROM " + qualifiedTable + " LIMIT ?")) {
-            statement.setInt(1, limit);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            int index = 1;
+            for (String value : afterKey) {
+                // Untyped parameters let the server parse the key text as the column's own type.
+                statement.setObject(index++, value, Types.OTHER);
+            }
+            statement.setInt(index, PAGE_SIZE + 1);
+            statement.setQueryTimeout(queryTimeoutSeconds());
             try (ResultSet rs = statement.executeQuery()) {
-                columns = resolveColumns(rs);
+                columns = resolveColumns(rs, byCtid);
                 while (rs.next()) {
+                    if (rows.size() == PAGE_SIZE) {
+                        hasMore = true;
+                        break;
+                    }
                     Map<String, Object> row = new LinkedHashMap<>();
                     for (String column : columns) {
                         row.put(column, simplifyValue(rs.getObject(column)));
                     }
                     rows.add(row);
+                    lastKey = readKey(rs, byCtid ? List.of(CTID_COLUMN) : keyColumns);
                 }
             }
         } catch (SQLException ex) {
@@ -152,10 +341,41 @@ public class VisualizationService {
         }
 
         if (columns.isEmpty()) {
-            columns = resolveColumns(table, schema);
+            columns = metadataCache.columns(schema, table);
+        }
+
+        String nextCursor = hasMore ? KeysetCursor.encode(lastKey) : null;
+        return new TableSnapshot(table, schema, count.value(), count.approximate(), rows, columns, nextCursor);
+    }
+
+    private String keyPageQuery(String qualifiedTable, List<String> keyColumns, boolean hasCursor) {
+        StringBuilder keys = new StringBuilder();
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < keyColumns.size(); i++) {
+            if (i > 0) {
+                keys.append(", ");
+                placeholders.append(", ");
+            }
+            keys.append(quoteIdentifier(keyColumns.get(i)));
+            placeholders.append("?");
         }
+        return "SELECT * FROM " + qualifiedTable
+                + (hasCursor ? " WHERE (" + keys + ") > (" + placeholders + ")" : "")
+                + " ORDER BY " + keys + " LIMIT ?";
+    }
 
-        return new TableSnapshot(table, schema, totalCount, limit, rows, columns, PAGE_STEP);
+    private String ctidPageQuery(String qualifiedTable, boolean hasCursor) {
+        return "SELECT ctid::text AS " + quoteIdentifier(CTID_COLUMN) + ", t.* FROM " + qualifiedTable + " t"
+                + (hasCursor ? " WHERE ctid > ?" : "")
+                + " ORDER BY ctid LIMIT ?";
+    }
+
+    private List<String> readKey(ResultSet rs, List<String> keyColumns) throws SQLException {
+        List<String> key = new ArrayList<>(keyColumns.size());
+        for (String column : keyColumns) {
+            key.add(rs.getString(column));
+        }
+        return key;
     }
 
     public List<MergeView> getMergeMappings() {
@@ -191,18 +411,12 @@ public class VisualizationService {
                 .toList();
     }
 
-    private Connection getConnection() throws SQLException {
-        return Objects.requireNonNull(jdbcTemplate.getDataSource()).getConnection();
+    private int queryTimeoutSeconds() {
+        return (int) Math.max(1L, (cardTimeoutMillis + 999L) / 1000L);
     }
 
-    private int normalizeLimit(int requestedSize, long totalCount) {
-        if (totalCount == 0) {
-            return 0;
-        }
-        if (requestedSize <= 0 || requestedSize >= totalCount) {
-            return (int) Math.min(totalCount, Integer.MAX_VALUE);
-        }
-        return requestedSize;
+    private Connection getConnection() throws SQLException {
+        return Objects.requireNonNull(jdbcTemplate.getDataSource()).getConnection();
     }
 
     private Object simplifyValue(Object value) {
@@ -221,71 +435,15 @@ public class VisualizationService {
         return value;
     }
 
-    private List<String> readTableNames() {
-        return readTableNames(null);
-    }
-
-    private List<String> readTableNames(String schema) {
-        try (Connection connection = getConnection()) {
-            DatabaseMetaData metaData = connection.getMetaData();
-            String schemaPattern = schema;
-            if (schemaPattern == null || schemaPattern.isBlank()) {
-                schemaPattern = connection.getSchema();
-            }
-            if (schemaPattern != null && schemaPattern.isBlank()) {
-                schemaPattern = null;
-            }
-            try (ResultSet tables = metaData.getTables(connection.getCatalog(), schemaPattern, "%", new String[]{"TABLE"})) {
-                List<String> result = new ArrayList<>();
-                while (tables.next()) {
-                    String tableSchema = tables.getString("TABLE_SCHEM");
-                    if (schemaPattern != null && tableSchema != null && !tableSchema.equalsIgnoreCase(schemaPattern)) {
-                        continue;
-                    }
-                    String name = tables.getString("TABLE_NAME");
-                    if (name != null && !name.startsWith("pg_")) {
-                        result.add(name);
-                    }
-                }
-                result.sort(String::compareToIgnoreCase);
-                return result;
-            }
-        } catch (SQLException ex) {
-            throw new IllegalStateException("Failed to read table metadata", ex);
-        }
-    }
-
-    private List<String> resolveColumns(ResultSet rs) throws SQLException {
+    private List<String> resolveColumns(ResultSet rs, boolean skipCtid) throws SQLException {
         int columnCount = rs.getMetaData().getColumnCount();
         List<String> columns = new ArrayList<>(columnCount);
-        for (int i = 1; i <= columnCount; i++) {
+        for (int i = skipCtid ? 2 : 1; i <= columnCount; i++) {
             columns.add(rs.getMetaData().getColumnLabel(i));
         }
         return columns;
     }
 
-    private List<String> resolveColumns(String table, String schema) {
-        try (Connection connection = getConnection()) {
-            DatabaseMetaData metaData = connection.getMetaData();
-            String schemaPattern = schema;
-            if (schemaPattern == null || schemaPattern.isBlank()) {
-                schemaPattern = connection.getSchema();
-            }
-            if (schemaPattern != null && schemaPattern.isBlank()) {
-                schemaPattern = null;
-            }
-            try (ResultSet columns = metaData.getColumns(connection.getCatalog(), schemaPattern, table, "%")) {
-                List<String> result = new ArrayList<>();
-                while (columns.next()) {
-                    result.add(columns.getString("COLUMN_NAME"));
-                }
-                return result;
-            }
-        } catch (SQLException ex) {
-            throw new IllegalStateException("Failed to fetch columns for table " + table, ex);
-        }
-    }
-
     private String qualifyTable(String schema, String table) {
         if (schema == null || schema.isBlank()) {
             return quoteIdentifier(table);
@@ -0,0 +1,191 @@
+package com.example.arango2rdb.sink;
+
+import com.github.luben.zstd.ZstdOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes one merge's rows into {@code <merge>-00001<ext>}, {@code <merge>-00002<ext>}, ... rotating to a new file
+ * once the current one reaches the chunk size on disk. Each file is a complete, independently loadable stream; its
+ * size and SHA-256 are taken from the bytes that reach the file channel.
+ */
+public final class ChunkWriter implements AutoCloseable {
+    private static final int CHANNEL_BUFFER_BYTES = 256 * 1024;
+    private static final int GZIP_BUFFER_BYTES = 64 * 1024;
+    private static final int ZSTD_LEVEL = 3;
+
+    private final FileSink sink;
+    private final Path directory;
+    private final SinkFormat format;
+    private final long chunkBytes;
+    private final String merge;
+    private final String table;
+    private final String keyColumn;
+    private final List<SinkManifest.ColumnEntry> columns;
+    private final List<String> columnNames = new ArrayList<>();
+    private final List<String> typeNames = new ArrayList<>();
+    private final List<SinkManifest.FileEntry> files = new ArrayList<>();
+    private final List<Path> written = new ArrayList<>();
+    private long rows;
+
+    private Path chunkPath;
+    private ChecksumOutputStream checksum;
+    private OutputStream chunkStream;
+    private RowEncoder encoder;
+    private long chunkRows;
+
+    ChunkWriter(FileSink sink,
+                Path directory,
+                SinkFormat format,
+                long chunkBytes,
+                String merge,
+                String table,
+                String keyColumn,
+                List<SinkManifest.ColumnEntry> columns) {
+        this.sink = sink;
+        this.directory = directory;
+        this.format = format;
+        this.chunkBytes = chunkBytes;
+        this.merge = merge;
+        this.table = table;
+        this.keyColumn = keyColumn;
+        this.columns = List.copyOf(columns);
+        for (SinkManifest.ColumnEntry column : columns) {
+            columnNames.add(column.name());
+            typeNames.add(column.typeName());
+        }
+    }
+
+    /**
+     * Appends one row of coerced values in column order. The array is not retained.
+     */
+    public void add(Object[] row) throws IOException {
+        if (encoder == null) {
+            openChunk();
+        }
+        encoder.write(row);
+        chunkRows++;
+        rows++;
+        if (checksum.bytes >= chunkBytes) {
+            closeChunk();
+        }
+    }
+
+    /**
+     * Closes the last chunk and records the merge in the sink's manifest.
+     */
+    public void finish() throws IOException {
+        closeChunk();
+        sink.mergeFinished(new SinkManifest.MergeEntry(merge, table, keyColumn, columns, rows, List.copyOf(files)));
+    }
+
+    /**
+     * Deletes every file written for this merge after a failed or cancelled run.
+     */
+    public void abort() {
+        try {
+            close();
+        } catch (IOException ignored) {
+            // the files are deleted regardless
+        }
+        for (Path path : written) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException ex) {
+                System.err.printf(Locale.US, "Failed to delete %s: %s%n", path, ex.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (chunkStream != null) {
+            OutputStream stream = chunkStream;
+            chunkStream = null;
+            encoder = null;
+            stream.close();
+        }
+    }
+
+    private void openChunk() throws IOException {
+        chunkPath = directory.resolve(String.format(Locale.ROOT, "%s-%05d%s", merge, files.size() + 1, format.extension()));
+        FileChannel channel = FileChannel.open(chunkPath,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        written.add(chunkPath);
+        checksum = new ChecksumOutputStream(Channels.newOutputStream(channel));
+        OutputStream buffered = new BufferedOutputStream(checksum, CHANNEL_BUFFER_BYTES);
+        switch (format) {
+            case CSV_GZIP:
+                chunkStream = new GZIPOutputStream(buffered, GZIP_BUFFER_BYTES);
+                encoder = new CsvRowEncoder(chunkStream, columnNames);
+                break;
+            case CSV_ZSTD:
+                chunkStream = new ZstdOutputStream(buffered, ZSTD_LEVEL);
+                encoder = new CsvRowEncoder(chunkStream, columnNames);
+                break;
+            default:
+                chunkStream = buffered;
+                encoder = new PgBinaryRowEncoder(chunkStream, columnNames, typeNames);
+                break;
+        }
+        chunkRows = 0;
+    }
+
+    private void closeChunk() throws IOException {
+        if (encoder == null) {
+            return;
+        }
+        encoder.finish();
+        close();
+        files.add(new SinkManifest.FileEntry(chunkPath.getFileName().toString(), chunkRows, checksum.bytes,
+                HexFormat.of().formatHex(checksum.digest.digest())));
+        checksum = null;
+        chunkPath = null;
+    }
+
+    /**
+     * Counts and hashes the bytes written to the file channel.
+     */
+    private static final class ChecksumOutputStream extends FilterOutputStream {
+        private final MessageDigest digest;
+        private long bytes;
+
+        private ChecksumOutputStream(OutputStream out) {
+            super(out);
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalStateException("SHA-256 is not available", ex);
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            digest.update((byte) b);
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            digest.update(b, off, len);
+            bytes += len;
+        }
+    }
+}
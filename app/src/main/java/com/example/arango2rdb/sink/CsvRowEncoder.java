@@ -0,0 +1,45 @@
+package com.example.arango2rdb.sink;
+
+import com.example.arango2rdb.dialect.CopyCsv;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * CSV with a header row, quoted the way PostgreSQL's {@code COPY ... (FORMAT csv, HEADER true)} reads it: nulls are
+ * empty unquoted fields and every other value is quoted.
+ */
+final class CsvRowEncoder implements RowEncoder {
+    private static final int BUFFER_CHARS = 64 * 1024;
+
+    private final Writer writer;
+    private final StringBuilder line = new StringBuilder();
+
+    CsvRowEncoder(OutputStream out, List<String> columns) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_CHARS);
+        write(columns.toArray());
+    }
+
+    @Override
+    public void write(Object[] row) throws IOException {
+        line.setLength(0);
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            CopyCsv.append(line, row[i]);
+        }
+        line.append('\n');
+        writer.append(line);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writer.flush();
+    }
+}
@@ -0,0 +1,310 @@
+package com.example.arango2rdb.sink;
+
+import com.example.arango2rdb.TableDdl;
+import com.example.arango2rdb.config.SyncConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.luben.zstd.ZstdInputStream;
+import org.postgresql.PGConnection;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Loads a {@link FileSink} extract into PostgreSQL. Chunk files are copied in parallel, each into its own unlogged
+ * staging table, while their size, SHA-256 and row count are checked against the manifest. Once every chunk of a
+ * merge is staged, one transaction applies the rows to the target table with the same last-write-wins upsert a live
+ * sync performs: the latest row per key updates an existing row or is inserted.
+ */
+public final class FileLoader {
+    private static final int READ_BUFFER_BYTES = 256 * 1024;
+    private static final String STAGING_PREFIX = "a2r_load_";
+    private static final String SEQUENCE_COLUMN = "a2r_seq";
+    private static final String CHUNK_COLUMN = "a2r_chunk";
+
+    private final SyncConfig.RdbConfig rdb;
+    private final int threads;
+
+    public FileLoader(SyncConfig.RdbConfig rdb, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Load threads must be positive");
+        }
+        this.rdb = rdb;
+        this.threads = threads;
+    }
+
+    /**
+     * Outcome of one merge: the rows read from its files and the rows that reached the table after de-duplication.
+     */
+    public record LoadResult(String merge, String table, long fileRows, long appliedRows) {
+    }
+
+    public List<LoadResult> load(Path directory) throws IOException, SQLException {
+        SinkManifest manifest = new ObjectMapper().readValue(
+                directory.resolve(SinkManifest.FILE_NAME).toFile(), SinkManifest.class);
+        AtomicInteger threadIds = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "sink-load-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<List<Future<Long>>> staged = new ArrayList<>();
+            for (int m = 0; m < manifest.merges().size(); m++) {
+                SinkManifest.MergeEntry merge = manifest.merges().get(m);
+                List<Future<Long>> chunks = new ArrayList<>();
+                for (int i = 0; i < merge.files().size(); i++) {
+                    SinkManifest.FileEntry file = merge.files().get(i);
+                    String stagingTable = stagingTable(m, i);
+                    chunks.add(executor.submit(() -> stageChunk(directory, manifest.format(), merge, file, stagingTable)));
+                }
+                staged.add(chunks);
+            }
+            List<LoadResult> results = new ArrayList<>();
+            int dropped = 0;
+            try {
+                for (int m = 0; m < manifest.merges().size(); m++) {
+                    SinkManifest.MergeEntry merge = manifest.merges().get(m);
+                    long fileRows = 0;
+                    for (Future<Long> chunk : staged.get(m)) {
+                        fileRows += await(chunk, merge);
+                    }
+                    long applied = apply(m, merge);
+                    results.add(new LoadResult(merge.merge(), merge.table(), fileRows, applied));
+                    System.out.printf(Locale.US, "Loaded merge %s -> table %s: %d rows from %d files, %d applied%n",
+                            merge.merge(), merge.table(), fileRows, merge.files().size(), applied);
+                    dropStaging(m, merge, staged.get(m));
+                    dropped++;
+                }
+            } finally {
+                // After a failure, stop the remaining chunk loads and remove what they staged.
+                for (int m = dropped; m < manifest.merges().size(); m++) {
+                    dropStaging(m, manifest.merges().get(m), staged.get(m));
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long stageChunk(Path directory,
+                            SinkFormat format,
+                            SinkManifest.MergeEntry merge,
+                            SinkManifest.FileEntry file,
+                            String stagingTable) throws IOException, SQLException {
+        String columns = columnList(merge);
+        try (Connection connection = connect()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE IF EXISTS " + TableDdl.quoteIdentifier(stagingTable));
+                statement.execute("CREATE UNLOGGED TABLE " + TableDdl.quoteIdentifier(stagingTable) + " AS SELECT "
+                        + columns + " FROM " + TableDdl.quoteIdentifier(merge.table()) + " WITH NO DATA");
+                // Filled in COPY order, so the last row per key within the file can be picked later.
+                statement.execute("ALTER TABLE " + TableDdl.quoteIdentifier(stagingTable) + " ADD COLUMN "
+                        + SEQUENCE_COLUMN + " bigserial");
+            }
+            String options = format.isCsv() ? "(FORMAT csv, HEADER true)" : "(FORMAT binary)";
+            String copySql = "COPY " + TableDdl.quoteIdentifier(stagingTable) + " (" + columns + ") FROM STDIN " + options;
+            long copied;
+            ChecksumInputStream checksum;
+            try (InputStream raw = Files.newInputStream(directory.resolve(file.name()))) {
+                checksum = new ChecksumInputStream(new BufferedInputStream(raw, READ_BUFFER_BYTES));
+                InputStream data;
+                switch (format) {
+                    case CSV_GZIP:
+                        data = new GZIPInputStream(checksum, READ_BUFFER_BYTES);
+                        break;
+                    case CSV_ZSTD:
+                        data = new ZstdInputStream(checksum);
+                        break;
+                    default:
+                        data = checksum;
+                        break;
+                }
+                copied = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(copySql, data);
+                // Drain whatever the decompressor left unread so the checksum covers the whole file.
+                while (checksum.read() >= 0) {
+                    checksum.skip(Long.MAX_VALUE);
+                }
+            }
+            String sha256 = HexFormat.of().formatHex(checksum.digest.digest());
+            if (checksum.bytes != file.bytes() || !sha256.equals(file.sha256())) {
+                throw new IOException("Checksum mismatch for " + file.name() + ": expected " + file.bytes() + " bytes "
+                        + file.sha256() + ", read " + checksum.bytes + " bytes " + sha256);
+            }
+            if (copied != file.rows()) {
+                throw new IOException("Row count mismatch for " + file.name() + ": manifest " + file.rows()
+                        + ", copied " + copied);
+            }
+            connection.commit();
+            return copied;
+        }
+    }
+
+    private long apply(int mergeIndex, SinkManifest.MergeEntry merge) throws SQLException {
+        String table = TableDdl.quoteIdentifier(merge.table());
+        String key = TableDdl.quoteIdentifier(merge.keyColumn());
+        String columns = columnList(merge);
+        StringBuilder union = new StringBuilder();
+        for (int i = 0; i < merge.files().size(); i++) {
+            if (i > 0) {
+                union.append(" UNION ALL ");
+            }
+            union.append("SELECT ").append(columns).append(", ").append(i).append(" AS ").append(CHUNK_COLUMN)
+                    .append(", ").append(SEQUENCE_COLUMN).append(" FROM ")
+                    .append(TableDdl.quoteIdentifier(stagingTable(mergeIndex, i)));
+        }
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            if (union.length() == 0) {
+                return 0;
+            }
+            statement.execute("CREATE TEMP TABLE a2r_latest ON COMMIT DROP AS SELECT DISTINCT ON (" + key + ") "
+                    + columns + " FROM (" + union + ") staged ORDER BY " + key + ", " + CHUNK_COLUMN + " DESC, "
+                    + SEQUENCE_COLUMN + " DESC");
+            StringBuilder assignments = new StringBuilder();
+            for (SinkManifest.ColumnEntry column : merge.columns()) {
+                if (column.name().equals(merge.keyColumn())) {
+                    continue;
+                }
+                String name = TableDdl.quoteIdentifier(column.name());
+                if (assignments.length() > 0) {
+                    assignments.append(", ");
+                }
+                assignments.append(name).append(" = l.").append(name);
+            }
+            long applied = 0;
+            if (assignments.length() > 0) {
+                applied += statement.executeUpdate("UPDATE " + table + " t SET " + assignments
+                        + " FROM a2r_latest l WHERE t." + key + " = l." + key);
+            }
+            applied += statement.executeUpdate("INSERT INTO " + table + " (" + columns + ") SELECT " + columns
+                    + " FROM a2r_latest l WHERE NOT EXISTS (SELECT 1 FROM " + table + " t WHERE t." + key + " = l." + key + ")");
+            connection.commit();
+            return applied;
+        }
+    }
+
+    private void dropStaging(int mergeIndex, SinkManifest.MergeEntry merge, List<Future<Long>> chunks) {
+        for (Future<Long> chunk : chunks) {
+            chunk.cancel(true);
+        }
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            for (int i = 0; i < merge.files().size(); i++) {
+                statement.execute("DROP TABLE IF EXISTS " + TableDdl.quoteIdentifier(stagingTable(mergeIndex, i)));
+            }
+            connection.commit();
+        } catch (SQLException ex) {
+            System.err.printf(Locale.US, "Failed to drop staging tables of %s: %s%n", merge.merge(), ex.getMessage());
+        }
+    }
+
+    private long await(Future<Long> chunk, SinkManifest.MergeEntry merge) throws IOException, SQLException {
+        try {
+            return chunk.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while loading merge " + merge.merge(), ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof SQLException sql) {
+                throw sql;
+            }
+            throw new SQLException("Failed to load merge " + merge.merge(), cause);
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        Connection connection = DriverManager.getConnection(rdb.jdbcUrl, rdb.user, rdb.password);
+        connection.setAutoCommit(false);
+        return connection;
+    }
+
+    private static String columnList(SinkManifest.MergeEntry merge) {
+        StringBuilder out = new StringBuilder();
+        for (SinkManifest.ColumnEntry column : merge.columns()) {
+            if (out.length() > 0) {
+                out.append(", ");
+            }
+            out.append(TableDdl.quoteIdentifier(column.name()));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Named by the merge's position in the manifest rather than its table, so merges that write the same table never
+     * share a staging table, and names never need truncating.
+     */
+    private static String stagingTable(int mergeIndex, int chunk) {
+        return STAGING_PREFIX + mergeIndex + "_" + chunk;
+    }
+
+    /**
+     * Counts and hashes the raw file bytes as COPY consumes them.
+     */
+    private static final class ChecksumInputStream extends FilterInputStream {
+        private final MessageDigest digest;
+        private long bytes;
+
+        private ChecksumInputStream(InputStream in) {
+            super(in);
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalStateException("SHA-256 is not available", ex);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                digest.update((byte) b);
+                bytes++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = in.read(b, off, len);
+            if (read > 0) {
+                digest.update(b, off, read);
+                bytes += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] buffer = new byte[8192];
+            long skipped = 0;
+            int read;
+            while (skipped < n && (read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped))) > 0) {
+                skipped += read;
+            }
+            return skipped;
+        }
+    }
+}
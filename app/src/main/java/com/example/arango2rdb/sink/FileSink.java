@@ -0,0 +1,80 @@
+package com.example.arango2rdb.sink;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes a sync's rows to files instead of a live database: each merge becomes a series of size-bounded chunk files
+ * in one directory, described by a {@link SinkManifest} written once every merge has finished.
+ */
+public final class FileSink {
+    private final Path directory;
+    private final SinkFormat format;
+    private final long chunkBytes;
+    private final List<SinkManifest.MergeEntry> merges = new ArrayList<>();
+
+    private FileSink(Path directory, SinkFormat format, long chunkBytes) {
+        this.directory = directory;
+        this.format = format;
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Prepares {@code directory}, refusing one that already holds a manifest so two extracts are never mixed.
+     */
+    public static FileSink open(Path directory, SinkFormat format, long chunkBytes) throws IOException {
+        if (chunkBytes <= 0) {
+            throw new IllegalArgumentException("Sink chunk size must be positive");
+        }
+        Files.createDirectories(directory);
+        if (Files.exists(directory.resolve(SinkManifest.FILE_NAME))) {
+            throw new IllegalArgumentException("Sink directory " + directory + " already contains an extract");
+        }
+        return new FileSink(directory, format, chunkBytes);
+    }
+
+    public SinkFormat format() {
+        return format;
+    }
+
+    /**
+     * Starts the files of one merge. {@code columns} are in row order with the key column first; {@code typeNames}
+     * are the database type names the binary format encodes for.
+     */
+    public ChunkWriter openMerge(String merge,
+                                 String table,
+                                 String keyColumn,
+                                 List<String> columns,
+                                 int[] sqlTypes,
+                                 List<String> typeNames) {
+        List<SinkManifest.ColumnEntry> entries = new ArrayList<>(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            entries.add(new SinkManifest.ColumnEntry(columns.get(i), sqlTypes[i], typeNames.get(i)));
+        }
+        return new ChunkWriter(this, directory, format, chunkBytes, merge, table, keyColumn, entries);
+    }
+
+    synchronized void mergeFinished(SinkManifest.MergeEntry entry) {
+        merges.add(entry);
+    }
+
+    /**
+     * Writes {@code manifest.json}; the extract is only complete once it exists.
+     */
+    public synchronized Path complete() throws IOException {
+        SinkManifest manifest = new SinkManifest(Instant.now().toString(), format, List.copyOf(merges));
+        Path target = directory.resolve(SinkManifest.FILE_NAME);
+        Path temp = directory.resolve(SinkManifest.FILE_NAME + ".tmp");
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(temp.toFile(), manifest);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return target;
+    }
+}
@@ -0,0 +1,308 @@
+package com.example.arango2rdb.sink;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * PostgreSQL {@code COPY ... (FORMAT binary)} stream. Binary fields must match the column's type exactly, so each
+ * column is encoded from its database type name; values are converted the way the server would cast the parameter
+ * the JDBC driver sends.
+ */
+final class PgBinaryRowEncoder implements RowEncoder {
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    private static final LocalDate PG_EPOCH_DATE = LocalDate.of(2000, 1, 1);
+    private static final LocalDateTime PG_EPOCH = PG_EPOCH_DATE.atStartOfDay();
+    private static final Instant PG_EPOCH_INSTANT = PG_EPOCH.toInstant(ZoneOffset.UTC);
+    private static final int NUMERIC_POS = 0x0000;
+    private static final int NUMERIC_NEG = 0x4000;
+    private static final int NUMERIC_NAN = 0xC000;
+    private static final int JSONB_VERSION = 1;
+
+    private final DataOutputStream out;
+    private final List<String> columns;
+    private final String[] types;
+
+    PgBinaryRowEncoder(OutputStream out, List<String> columns, List<String> typeNames) throws IOException {
+        this.out = new DataOutputStream(out);
+        this.columns = columns;
+        this.types = new String[typeNames.size()];
+        for (int i = 0; i < types.length; i++) {
+            String type = typeNames.get(i) == null ? "text" : typeNames.get(i).toLowerCase(Locale.ROOT);
+            // Quoted names of user types and arrays are not supported.
+            types[i] = type.startsWith("\"") ? type.replace("\"", "") : type;
+        }
+        this.out.write(SIGNATURE);
+        this.out.writeInt(0);
+        this.out.writeInt(0);
+    }
+
+    @Override
+    public void write(Object[] row) throws IOException {
+        out.writeShort(row.length);
+        for (int i = 0; i < row.length; i++) {
+            Object value = row[i];
+            if (value == null) {
+                out.writeInt(-1);
+                continue;
+            }
+            try {
+                writeField(types[i], value);
+            } catch (RuntimeException ex) {
+                throw new IOException("Cannot encode value '" + value + "' of column " + columns.get(i)
+                        + " as " + types[i] + ": " + ex.getMessage(), ex);
+            }
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        out.writeShort(-1);
+        out.flush();
+    }
+
+    private void writeField(String type, Object value) throws IOException {
+        switch (type) {
+            case "bool":
+                out.writeInt(1);
+                out.writeByte(toBoolean(value) ? 1 : 0);
+                break;
+            case "int2":
+                out.writeInt(2);
+                out.writeShort((int) toLong(value, Short.MIN_VALUE, Short.MAX_VALUE));
+                break;
+            case "int4":
+            case "serial":
+                out.writeInt(4);
+                out.writeInt((int) toLong(value, Integer.MIN_VALUE, Integer.MAX_VALUE));
+                break;
+            case "int8":
+            case "bigserial":
+                out.writeInt(8);
+                out.writeLong(toLong(value, Long.MIN_VALUE, Long.MAX_VALUE));
+                break;
+            case "float4":
+                out.writeInt(4);
+                out.writeFloat((float) toDouble(value));
+                break;
+            case "float8":
+                out.writeInt(8);
+                out.writeDouble(toDouble(value));
+                break;
+            case "numeric":
+                writeNumeric(value);
+                break;
+            case "uuid":
+                UUID uuid = value instanceof UUID id ? id : UUID.fromString(value.toString().trim());
+                out.writeInt(16);
+                out.writeLong(uuid.getMostSignificantBits());
+                out.writeLong(uuid.getLeastSignificantBits());
+                break;
+            case "date":
+                out.writeInt(4);
+                out.writeInt((int) ChronoUnit.DAYS.between(PG_EPOCH_DATE, toLocalDate(value)));
+                break;
+            case "timestamp":
+                out.writeInt(8);
+                out.writeLong(ChronoUnit.MICROS.between(PG_EPOCH, toLocalDateTime(value)));
+                break;
+            case "timestamptz":
+                out.writeInt(8);
+                out.writeLong(ChronoUnit.MICROS.between(PG_EPOCH_INSTANT, toInstant(value)));
+                break;
+            case "time":
+                out.writeInt(8);
+                out.writeLong(toLocalTime(value).toNanoOfDay() / 1_000L);
+                break;
+            case "bytea":
+                writeBytes(value instanceof byte[] bytes ? bytes : value.toString().getBytes(StandardCharsets.UTF_8));
+                break;
+            case "jsonb": {
+                byte[] json = value.toString().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(json.length + 1);
+                out.writeByte(JSONB_VERSION);
+                out.write(json);
+                break;
+            }
+            case "text":
+            case "varchar":
+            case "bpchar":
+            case "name":
+            case "json":
+            case "citext":
+                writeBytes(value.toString().getBytes(StandardCharsets.UTF_8));
+                break;
+            default:
+                throw new IllegalArgumentException("type is not supported by the pgbinary sink, use csv-gzip or csv-zstd");
+        }
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Numeric's wire form: base-10000 digit groups with a weight (position of the first group relative to the decimal
+     * point), a sign and the display scale.
+     */
+    private void writeNumeric(Object value) throws IOException {
+        if ("NaN".equalsIgnoreCase(value.toString().trim())) {
+            out.writeInt(8);
+            out.writeShort(0);
+            out.writeShort(0);
+            out.writeShort(NUMERIC_NAN);
+            out.writeShort(0);
+            return;
+        }
+        BigDecimal decimal = toBigDecimal(value);
+        int sign = decimal.signum() < 0 ? NUMERIC_NEG : NUMERIC_POS;
+        decimal = decimal.abs();
+        int scale = Math.max(0, decimal.scale());
+        String digits = decimal.setScale(scale, RoundingMode.UNNECESSARY).unscaledValue().toString();
+        if (digits.length() <= scale) {
+            digits = "0".repeat(scale - digits.length() + 1) + digits;
+        }
+        String integerPart = digits.substring(0, digits.length() - scale);
+        String fractionPart = digits.substring(digits.length() - scale);
+        integerPart = "0".repeat((4 - integerPart.length() % 4) % 4) + integerPart;
+        fractionPart = fractionPart + "0".repeat((4 - fractionPart.length() % 4) % 4);
+        String groups = integerPart + fractionPart;
+
+        int count = groups.length() / 4;
+        int weight = integerPart.length() / 4 - 1;
+        int first = 0;
+        while (first < count && groups.startsWith("0000", first * 4)) {
+            first++;
+            weight--;
+        }
+        int last = count;
+        while (last > first && groups.startsWith("0000", (last - 1) * 4)) {
+            last--;
+        }
+        int ndigits = last - first;
+        if (ndigits == 0) {
+            weight = 0;
+            sign = NUMERIC_POS;
+        }
+        out.writeInt(8 + ndigits * 2);
+        out.writeShort(ndigits);
+        out.writeShort(weight);
+        out.writeShort(sign);
+        out.writeShort(scale);
+        for (int i = first; i < last; i++) {
+            out.writeShort(Integer.parseInt(groups, i * 4, i * 4 + 4, 10));
+        }
+    }
+
+    private static boolean toBoolean(Object value) {
+        if (value instanceof Boolean flag) {
+            return flag;
+        }
+        if (value instanceof Number number) {
+            return number.doubleValue() != 0;
+        }
+        String text = value.toString().trim().toLowerCase(Locale.ROOT);
+        switch (text) {
+            case "t":
+            case "true":
+            case "y":
+            case "yes":
+            case "on":
+            case "1":
+                return true;
+            case "f":
+            case "false":
+            case "n":
+            case "no":
+            case "off":
+            case "0":
+                return false;
+            default:
+                throw new IllegalArgumentException("not a boolean");
+        }
+    }
+
+    private static long toLong(Object value, long min, long max) {
+        BigDecimal rounded = toBigDecimal(value).setScale(0, RoundingMode.HALF_UP);
+        BigInteger integer = rounded.toBigIntegerExact();
+        if (integer.compareTo(BigInteger.valueOf(min)) < 0 || integer.compareTo(BigInteger.valueOf(max)) > 0) {
+            throw new IllegalArgumentException("out of range");
+        }
+        return integer.longValue();
+    }
+
+    private static double toDouble(Object value) {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        return Double.parseDouble(value.toString().trim());
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value instanceof BigDecimal decimal) {
+            return decimal;
+        }
+        if (value instanceof Boolean flag) {
+            return flag ? BigDecimal.ONE : BigDecimal.ZERO;
+        }
+        return new BigDecimal(value.toString().trim());
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof Date date) {
+            return date.toLocalDate();
+        }
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime().toLocalDate();
+        }
+        return LocalDate.parse(value.toString().trim());
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        if (value instanceof Date date) {
+            return date.toLocalDate().atStartOfDay();
+        }
+        return LocalDateTime.parse(value.toString().trim().replace(' ', 'T'));
+    }
+
+    private static Instant toInstant(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toInstant();
+        }
+        if (value instanceof Date date) {
+            return Instant.ofEpochMilli(date.getTime());
+        }
+        return OffsetDateTime.parse(value.toString().trim().replace(' ', 'T')).toInstant();
+    }
+
+    private static LocalTime toLocalTime(Object value) {
+        if (value instanceof Time time) {
+            return time.toLocalTime();
+        }
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime().toLocalTime();
+        }
+        return LocalTime.parse(value.toString().trim());
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.arango2rdb.sink;
+
+import java.io.IOException;
+
+/**
+ * Encodes rows of coerced values, key column first, into one chunk file of a {@link SinkFormat}.
+ */
+interface RowEncoder {
+
+    void write(Object[] row) throws IOException;
+
+    /**
+     * Writes any trailer and flushes buffered output; the underlying stream stays open.
+     */
+    void finish() throws IOException;
+}
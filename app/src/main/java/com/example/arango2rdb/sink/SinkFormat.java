@@ -0,0 +1,48 @@
+package com.example.arango2rdb.sink;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Locale;
+
+/**
+ * File layout written by {@link FileSink}. CSV files carry a header row and use PostgreSQL's CSV quoting; binary
+ * files are complete {@code COPY ... (FORMAT binary)} streams.
+ */
+public enum SinkFormat {
+    @JsonProperty("csv-gzip")
+    CSV_GZIP("csv-gzip", ".csv.gz"),
+    @JsonProperty("csv-zstd")
+    CSV_ZSTD("csv-zstd", ".csv.zst"),
+    @JsonProperty("pgbinary")
+    PG_BINARY("pgbinary", ".pgcopy");
+
+    private final String label;
+    private final String extension;
+
+    SinkFormat(String label, String extension) {
+        this.label = label;
+        this.extension = extension;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    public boolean isCsv() {
+        return this != PG_BINARY;
+    }
+
+    public static SinkFormat parse(String value) {
+        for (SinkFormat format : values()) {
+            if (format.label.equals(value.toLowerCase(Locale.ROOT))) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown sink format " + value + " (expected csv-gzip, csv-zstd or pgbinary)");
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.arango2rdb.sink;
+
+import java.util.List;
+
+/**
+ * {@code manifest.json} of a sink directory: one entry per merge with its columns and chunk files, each with the row
+ * count and SHA-256 of the file as written, so a loader can verify the transfer before ingesting it.
+ */
+public record SinkManifest(String createdAt, SinkFormat format, List<MergeEntry> merges) {
+
+    public static final String FILE_NAME = "manifest.json";
+
+    public record MergeEntry(String merge,
+                             String table,
+                             String keyColumn,
+                             List<ColumnEntry> columns,
+                             long rows,
+                             List<FileEntry> files) {
+    }
+
+    /**
+     * A target column with its JDBC type and database type name as reported when the files were written.
+     */
+    public record ColumnEntry(String name, int sqlType, String typeName) {
+    }
+
+    public record FileEntry(String name, long rows, long bytes, String sha256) {
+    }
+}
@@ -10,25 +10,48 @@ public class CollectionSnapshot {
     private final String encodedName;
     private final String domId;
     private final long totalCount;
-    private final int size;
+    private final boolean approximateCount;
     private final List<Map<String, Object>> rows;
     private final List<String> columns;
-    private final int step;
+    private final Map<String, String> columnHints;
+    private final String nextCursor;
+    private final String error;
 
     public CollectionSnapshot(String name,
                               long totalCount,
-                              int size,
+                              boolean approximateCount,
                               List<Map<String, Object>> rows,
                               List<String> columns,
-                              int step) {
+                              Map<String, String> columnHints,
+                              String nextCursor) {
+        this(name, totalCount, approximateCount, rows, columns, columnHints, nextCursor, null);
+    }
+
+    private CollectionSnapshot(String name,
+                               long totalCount,
+                               boolean approximateCount,
+                               List<Map<String, Object>> rows,
+                               List<String> columns,
+                               Map<String, String> columnHints,
+                               String nextCursor,
+                               String error) {
         this.name = name;
         this.encodedName = encode(name);
         this.domId = "arango-collection-" + slugify(name);
         this.totalCount = totalCount;
-        this.size = size;
+        this.approximateCount = approximateCount;
         this.rows = rows;
         this.columns = columns;
-        this.step = step;
+        this.columnHints = columnHints;
+        this.nextCursor = nextCursor;
+        this.error = error;
+    }
+
+    /**
+     * Placeholder for a collection card that failed or timed out; the card offers a retry instead of data.
+     */
+    public static CollectionSnapshot unavailable(String name, String error) {
+        return new CollectionSnapshot(name, 0L, false, List.of(), List.of(), Map.of(), null, error);
     }
 
     public String getName() {
@@ -43,8 +66,8 @@ public class CollectionSnapshot {
         return totalCount;
     }
 
-    public int getSize() {
-        return size;
+    public boolean isApproximateCount() {
+        return approximateCount;
     }
 
     public List<Map<String, Object>> getRows() {
@@ -55,16 +78,33 @@ public class CollectionSnapshot {
         return columns;
     }
 
+    /**
+     * Inferred type distribution per column, shown as a header tooltip; empty for follow-up pages.
+     */
+    public Map<String, String> getColumnHints() {
+        return columnHints;
+    }
+
+    /**
+     * The column list as a cursor token, so later pages render the same columns as the first one.
+     */
+    public String getEncodedColumns() {
+        return KeysetCursor.encode(columns);
+    }
+
+    /**
+     * Opaque keyset cursor positioned after the last row of this page, or {@code null} on the last page.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
     public boolean isHasMore() {
-        return size > 0 && size < totalCount;
+        return nextCursor != null;
     }
 
-    public int getNextSize() {
-        if (!isHasMore()) {
-            return size;
-        }
-        long next = (long) size + step;
-        return (int) Math.min(next, totalCount);
+    public String getError() {
+        return error;
     }
 
     public String getDomId() {
@@ -0,0 +1,42 @@
+package com.example.arango2rdb.view;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Encodes a list of key values as one URL-safe token ({@code base64url(value)} joined by {@code '.'}) so paging
+ * links can carry composite keys and arbitrary document keys without escaping.
+ */
+public final class KeysetCursor {
+
+    private KeysetCursor() {
+    }
+
+    public static String encode(List<String> values) {
+        StringBuilder token = new StringBuilder();
+        for (String value : values) {
+            if (token.length() > 0) {
+                token.append('.');
+            }
+            token.append(Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8)));
+        }
+        return token.toString();
+    }
+
+    public static List<String> decode(String token) {
+        List<String> values = new ArrayList<>();
+        if (token == null || token.isEmpty()) {
+            return values;
+        }
+        try {
+            for (String part : token.split("\\.", -1)) {
+                values.add(new String(Base64.getUrlDecoder().decode(part), StandardCharsets.UTF_8));
+            }
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid page cursor " + token, ex);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.arango2rdb.view;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Throughput of a merge's recent completed runs, oldest first, for spotting regressions and capacity limits. The
+ * latest run counts as a regression when its documents per second fall below {@link #REGRESSION_RATIO} of the
+ * median of the runs before it.
+ */
+public record MergeTrend(String mergeName, List<SyncRunMergeStats> runs) {
+
+    public static final double REGRESSION_RATIO = 0.8;
+    private static final int SPARKLINE_WIDTH = 160;
+    private static final int SPARKLINE_HEIGHT = 32;
+
+    public SyncRunMergeStats latest() {
+        return runs.get(runs.size() - 1);
+    }
+
+    public double medianRate() {
+        return median(runs.size());
+    }
+
+    public double peakRate() {
+        double peak = 0.0;
+        for (SyncRunMergeStats run : runs) {
+            peak = Math.max(peak, run.documentsPerSecond());
+        }
+        return peak;
+    }
+
+    public boolean isRegression() {
+        if (runs.size() < 3) {
+            return false;
+        }
+        double baseline = median(runs.size() - 1);
+        return baseline > 0 && latest().documentsPerSecond() < baseline * REGRESSION_RATIO;
+    }
+
+    /**
+     * The documents per second of each run as SVG polyline points, scaled to the peak.
+     */
+    public String sparklinePoints() {
+        double peak = peakRate();
+        StringBuilder points = new StringBuilder();
+        int count = runs.size();
+        for (int i = 0; i < count; i++) {
+            double x = count > 1 ? (double) i * SPARKLINE_WIDTH / (count - 1) : SPARKLINE_WIDTH / 2.0;
+            double rate = runs.get(i).documentsPerSecond();
+            double y = peak > 0 ? SPARKLINE_HEIGHT - rate / peak * (SPARKLINE_HEIGHT - 2) - 1 : SPARKLINE_HEIGHT - 1;
+            if (i > 0) {
+                points.append(' ');
+            }
+            points.append(String.format(Locale.US, "%.1f,%.1f", x, y));
+        }
+        return points.toString();
+    }
+
+    private double median(int firstRuns) {
+        double[] rates = new double[firstRuns];
+        for (int i = 0; i < firstRuns; i++) {
+            rates[i] = runs.get(i).documentsPerSecond();
+        }
+        Arrays.sort(rates);
+        int middle = firstRuns / 2;
+        return firstRuns % 2 == 1 ? rates[middle] : (rates[middle - 1] + rates[middle]) / 2.0;
+    }
+}
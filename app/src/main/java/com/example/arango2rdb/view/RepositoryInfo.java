@@ -6,5 +6,26 @@ public record RepositoryInfo(long id,
                              String name,
                              String schemaName,
                              String status,
-                             Instant createdAt) {
+                             Instant createdAt,
+                             String backupSchema,
+                             boolean latestCommit) {
+
+    public boolean isCommitted() {
+        return "COMMITTED".equals(status);
+    }
+
+    /**
+     * Whether the repository schema holds tables to open, sync or diff; after a commit they are the live tables and
+     * the schema is empty until the commit is rolled back.
+     */
+    public boolean hasTables() {
+        return !isCommitted();
+    }
+
+    /**
+     * Whether this commit can be rolled back: it is the most recent one and its backup is still kept.
+     */
+    public boolean canRollBack() {
+        return isCommitted() && latestCommit && backupSchema != null;
+    }
 }
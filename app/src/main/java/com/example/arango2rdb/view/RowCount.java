@@ -0,0 +1,4 @@
+package com.example.arango2rdb.view;
+
+public record RowCount(long value, boolean approximate) {
+}
@@ -0,0 +1,6 @@
+package com.example.arango2rdb.view;
+
+import java.util.List;
+
+public record SchemaCards(List<CollectionSnapshot> collections, List<TableSnapshot> tables) {
+}
@@ -0,0 +1,10 @@
+package com.example.arango2rdb.view;
+
+public record SnapshotCacheStats(long hits,
+                                 long misses,
+                                 long evictions,
+                                 int entries,
+                                 long weightBytes,
+                                 long maxWeightBytes,
+                                 double hitRate) {
+}
@@ -0,0 +1,25 @@
+package com.example.arango2rdb.view;
+
+import com.example.arango2rdb.ThroughputController;
+
+import java.time.Instant;
+
+public record SyncJobStatus(String id,
+                            String repositorySchema,
+                            String state,
+                            String currentMerge,
+                            int mergeIndex,
+                            int mergeCount,
+                            long documentsProcessed,
+                            long estimatedDocuments,
+                            double rowsPerSecond,
+                            long etaSeconds,
+                            ThroughputController.Settings throughput,
+                            String message,
+                            String profile,
+                            Instant createdAt) {
+
+    public boolean isFinished() {
+        return "COMPLETED".equals(state) || "FAILED".equals(state) || "CANCELLED".equals(state);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.arango2rdb.view;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * One merge of a recorded sync run. {@code rowsInserted} and {@code rowsUpdated} are {@code null} when the dialect
+ * could not tell inserts from updates; byte counts are approximate payload sizes.
+ */
+public record SyncRunMergeStats(String runId,
+                                String mergeName,
+                                String targetTable,
+                                Instant startedAt,
+                                Instant finishedAt,
+                                String status,
+                                long documentsRead,
+                                long rowsWritten,
+                                Long rowsInserted,
+                                Long rowsUpdated,
+                                long rowsSkipped,
+                                long rowsRejected,
+                                long joinLookups,
+                                long bytesRead,
+                                long bytesWritten,
+                                String error) {
+
+    public double durationSeconds() {
+        return Duration.between(startedAt, finishedAt).toMillis() / 1000.0;
+    }
+
+    public double documentsPerSecond() {
+        double seconds = durationSeconds();
+        return seconds > 0 ? documentsRead / seconds : 0.0;
+    }
+}
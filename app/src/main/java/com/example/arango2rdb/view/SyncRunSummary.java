@@ -0,0 +1,32 @@
+package com.example.arango2rdb.view;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A recorded sync run with its merges. {@code finishedAt} is {@code null} while the run is in progress, or when
+ * its process died before it could record the end.
+ */
+public record SyncRunSummary(String id,
+                             String kind,
+                             String repositorySchema,
+                             Instant startedAt,
+                             Instant finishedAt,
+                             String status,
+                             int mergeCount,
+                             long documentsRead,
+                             long rowsWritten,
+                             long rowsRejected,
+                             String error,
+                             List<SyncRunMergeStats> merges) {
+
+    public Double durationSeconds() {
+        return finishedAt != null ? Duration.between(startedAt, finishedAt).toMillis() / 1000.0 : null;
+    }
+
+    public double documentsPerSecond() {
+        Double seconds = durationSeconds();
+        return seconds != null && seconds > 0 ? documentsRead / seconds : 0.0;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.arango2rdb.view;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public record TableDiffPage(String table,
+                            String keyColumn,
+                            List<String> columns,
+                            List<DiffRow> rows,
+                            String nextAfter) {
+
+    public boolean hasMore() {
+        return nextAfter != null;
+    }
+
+    public record DiffRow(String key,
+                          String change,
+                          Map<String, Object> repositoryValues,
+                          Map<String, Object> baseValues,
+                          Set<String> changedColumns) {
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.arango2rdb.view;
+
+public record TableDiffSummary(String table,
+                               String keyColumn,
+                               long inserted,
+                               long updated,
+                               long deleted,
+                               String error) {
+
+    public long getTotal() {
+        return inserted + updated + deleted;
+    }
+
+    public boolean hasChanges() {
+        return getTotal() > 0;
+    }
+}
@@ -11,36 +11,55 @@ public class TableSnapshot {
     private final String schema;
     private final String domId;
     private final long totalCount;
-    private final int size;
+    private final boolean approximateCount;
     private final List<Map<String, Object>> rows;
     private final List<String> columns;
-    private final int step;
+    private final String nextCursor;
+    private final String error;
 
     public TableSnapshot(String name,
                          long totalCount,
-                         int size,
                          List<Map<String, Object>> rows,
                          List<String> columns,
-                         int step) {
-        this(name, null, totalCount, size, rows, columns, step);
+                         String nextCursor) {
+        this(name, null, totalCount, false, rows, columns, nextCursor);
     }
 
     public TableSnapshot(String name,
                          String schema,
                          long totalCount,
-                         int size,
+                         boolean approximateCount,
                          List<Map<String, Object>> rows,
                          List<String> columns,
-                         int step) {
+                         String nextCursor) {
+        this(name, schema, totalCount, approximateCount, rows, columns, nextCursor, null);
+    }
+
+    private TableSnapshot(String name,
+                          String schema,
+                          long totalCount,
+                          boolean approximateCount,
+                          List<Map<String, Object>> rows,
+                          List<String> columns,
+                          String nextCursor,
+                          String error) {
         this.name = name;
         this.schema = schema;
         this.encodedName = encode(name);
         this.domId = computeDomId(schema, name);
         this.totalCount = totalCount;
-        this.size = size;
+        this.approximateCount = approximateCount;
         this.rows = rows;
         this.columns = columns;
-        this.step = step;
+        this.nextCursor = nextCursor;
+        this.error = error;
+    }
+
+    /**
+     * Placeholder for a table card that failed or timed out; the card offers a retry instead of data.
+     */
+    public static TableSnapshot unavailable(String name, String schema, String error) {
+        return new TableSnapshot(name, schema, 0L, false, List.of(), List.of(), null, error);
     }
 
     public String getName() {
@@ -59,8 +78,8 @@ public class TableSnapshot {
         return totalCount;
     }
 
-    public int getSize() {
-        return size;
+    public boolean isApproximateCount() {
+        return approximateCount;
     }
 
     public List<Map<String, Object>> getRows() {
@@ -71,16 +90,19 @@ public class TableSnapshot {
         return columns;
     }
 
+    /**
+     * Opaque keyset cursor positioned after the last row of this page, or {@code null} on the last page.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
     public boolean isHasMore() {
-        return size > 0 && size < totalCount;
+        return nextCursor != null;
     }
 
-    public int getNextSize() {
-        if (!isHasMore()) {
-            return size;
-        }
-        long next = (long) size + step;
-        return (int) Math.min(next, totalCount);
+    public String getError() {
+        return error;
     }
 
     public String getDomId() {